@@ -77,6 +77,10 @@ public class IntegrationPlugin implements Plugin {
 	public void postProcessSharedContext(ConfigurableApplicationContext commonContext) {
 	}
 
+	@Override
+	public void beforeShutdown(Module module) {
+	}
+
 	@Override
 	public void removeModule(Module module) {
 		Assert.notNull(module, "module cannot be null");
@@ -66,10 +66,41 @@ public interface ChannelRegistry {
 	 */
 	void deleteInbound(String name);
 
+	/**
+	 * Remove the binding of a module's input channel to an inbound inter-module channel, leaving the bindings of other
+	 * modules to the same name in place.
+	 * 
+	 * @param name the channel name
+	 * @param moduleInputChannel the channel that was bound as a consumer
+	 */
+	void deleteInbound(String name, MessageChannel moduleInputChannel);
+
+	/**
+	 * Remove the binding of a module's input channel once the messages queued for the inbound channel have been
+	 * consumed, then wait for the messages being handled by the module to be handled. Messages still queued when the
+	 * timeout elapses are left for the next consumer of the channel; if another module is bound to the channel, they
+	 * are left to it without waiting.
+	 * 
+	 * @param name the channel name
+	 * @param moduleInputChannel the channel that was bound as a consumer
+	 * @param timeout how long to wait for each of the two steps, in milliseconds
+	 * @return whether the channel was drained within the timeout
+	 */
+	boolean drainInbound(String name, MessageChannel moduleInputChannel, long timeout);
+
 	/**
 	 * Remove an outbound inter-module channel and stop any active components that use the channel.
 	 * 
 	 * @param name the channel name
 	 */
 	void deleteOutbound(String name);
+
+	/**
+	 * Remove the binding of a module's output channel to an outbound inter-module channel, leaving the bindings of
+	 * other modules to the same name in place.
+	 * 
+	 * @param name the channel name
+	 * @param moduleOutputChannel the channel that was bound as a producer
+	 */
+	void deleteOutbound(String name, MessageChannel moduleOutputChannel);
 }
@@ -26,10 +26,14 @@ import org.springframework.core.convert.ConversionException;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.http.MediaType;
 import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
 import org.springframework.integration.MessageHeaders;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.integration.x.json.TypedJsonMapper;
 import org.springframework.util.ClassUtils;
+import org.springframework.xd.tuple.Tuple;
+import org.springframework.xd.tuple.TupleCodec;
+import org.springframework.xd.tuple.TupleSchemaDictionary;
 
 /**
  * @author David Turanski
@@ -44,6 +48,8 @@ public abstract class ChannelRegistrySupport implements ChannelRegistry, BeanCla
 
 	private final TypedJsonMapper jsonMapper = new TypedJsonMapper();
 
+	private final TupleCodec tupleCodec = new TupleCodec();
+
 	private volatile ClassLoader beanClassloader = ClassUtils.getDefaultClassLoader();
 
 	private static final MediaType JAVA_OBJECT_TYPE = new MediaType("application", "x-java-object");
@@ -57,17 +63,89 @@ public abstract class ChannelRegistrySupport implements ChannelRegistry, BeanCla
 	protected static final String XD_OCTET_STREAM_VALUE =
 			new MediaType("application", "x-xd-octet-stream").toString();
 
+	protected static final String XD_TUPLE_VALUE = new MediaType("application", "x-xd-tuple").toString();
+
 	protected static final String ORIGINAL_CONTENT_TYPE_HEADER = "originalContentType";
 
+	/**
+	 * How often to check whether a channel has been drained, in milliseconds.
+	 */
+	protected static final long DRAIN_POLL_INTERVAL = 20;
+
 	public void setConversionService(ConversionService conversionService) {
 		this.conversionService = conversionService;
 	}
 
+	/**
+	 * Share the field names of encoded tuples through the dictionary rather than sending them with each message.
+	 */
+	protected void setTupleSchemaDictionary(TupleSchemaDictionary tupleSchemaDictionary) {
+		this.tupleCodec.setSchemaDictionary(tupleSchemaDictionary);
+	}
+
 	@Override
 	public void setBeanClassLoader(ClassLoader classLoader) {
 		this.beanClassloader = classLoader;
 	}
 
+	@Override
+	public boolean drainInbound(String name, MessageChannel moduleInputChannel, long timeout) {
+		long deadline = System.currentTimeMillis() + timeout;
+		boolean drained = true;
+		try {
+			// while another module consumes from the channel, what is queued is left to it: the queue may never empty
+			// if the channel keeps being fed, as it does during a rolling redeployment
+			while (!hasOtherInbound(name, moduleInputChannel) && getQueuedMessageCount(name) > 0) {
+				if (System.currentTimeMillis() >= deadline) {
+					drained = false;
+					break;
+				}
+				Thread.sleep(DRAIN_POLL_INTERVAL);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			drained = false;
+		}
+		// messages left queued are picked up by the next consumer, those being handled would be lost: give them the
+		// full timeout
+		if (!stopInbound(name, moduleInputChannel, System.currentTimeMillis() + timeout)) {
+			drained = false;
+		}
+		if (!drained && logger.isWarnEnabled()) {
+			logger.warn("inbound channel '" + name + "' was not drained within " + timeout + " ms");
+		}
+		return drained;
+	}
+
+	/**
+	 * Return the number of messages waiting to be consumed from the inbound channel with the given name. The default
+	 * is 0, for transports that hand messages directly to the consumer.
+	 */
+	protected int getQueuedMessageCount(String name) {
+		return 0;
+	}
+
+	/**
+	 * Return whether a module input channel other than the given one is bound to the inbound channel with the given
+	 * name, and still consuming from it. The default is false.
+	 */
+	protected boolean hasOtherInbound(String name, MessageChannel moduleInputChannel) {
+		return false;
+	}
+
+	/**
+	 * Stop consuming from the inbound channel with the given name for the given module channel, and wait until the
+	 * deadline for the messages it is handling to be handled. The default
+	 * {@link #deleteInbound(String, MessageChannel) deletes} the binding and returns true.
+	 * 
+	 * @return whether no message was being handled any more when this method returned
+	 */
+	protected boolean stopInbound(String name, MessageChannel moduleInputChannel, long deadline) {
+		deleteInbound(name, moduleInputChannel);
+		return true;
+	}
+
 	protected final Message<?> transformOutboundIfNecessary(Message<?> message, MediaType to) {
 		Message<?> messageToSend = message;
 		Object originalPayload = message.getPayload();
@@ -99,8 +177,21 @@ public abstract class ChannelRegistrySupport implements ChannelRegistry, BeanCla
 				}
 			}
 			else {
-				payload = this.jsonMapper.toBytes(originalPayload);
-				contentType = XD_JSON_OCTET_STREAM_VALUE;
+				if (originalPayload instanceof Tuple) {
+					try {
+						payload = this.tupleCodec.encode((Tuple) originalPayload);
+						contentType = XD_TUPLE_VALUE;
+					}
+					catch (IllegalArgumentException e) {
+						if (logger.isDebugEnabled()) {
+							logger.debug("Binary Tuple encoding failed, falling back to JSON: " + e.getMessage());
+						}
+					}
+				}
+				if (payload == null) {
+					payload = this.jsonMapper.toBytes(originalPayload);
+					contentType = XD_JSON_OCTET_STREAM_VALUE;
+				}
 			}
 		}
 		else {
@@ -198,6 +289,13 @@ public abstract class ChannelRegistrySupport implements ChannelRegistry, BeanCla
 					}
 				}
 			}
+			else if (XD_TUPLE_VALUE.equals(contentType)) {
+				Tuple tuple = this.tupleCodec.decode((byte[]) payload);
+				if (to.contains(MediaType.ALL) || isAcceptedJavaObject(tuple, toObjectType)) {
+					return tuple;
+				}
+				return convert(tuple, to);
+			}
 			else if (XD_TEXT_PLAIN_UTF8_VALUE.equals(contentType)) {
 				try {
 					return new String((byte[]) payload, "UTF-8");
@@ -260,6 +358,25 @@ public abstract class ChannelRegistrySupport implements ChannelRegistry, BeanCla
 		return toObjectType;
 	}
 
+	private boolean isAcceptedJavaObject(Object object, MediaType javaObjectType) {
+		if (javaObjectType == null) {
+			return false;
+		}
+		String requiredType = javaObjectType.getParameter("type");
+		if (requiredType == null) {
+			return true;
+		}
+		try {
+			return this.beanClassloader.loadClass(requiredType).isInstance(object);
+		}
+		catch (ClassNotFoundException e) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Class not found", e);
+			}
+			return false;
+		}
+	}
+
 	private boolean acceptsString(Collection<MediaType> to) {
 		for (MediaType mediaType : to) {
 			if (mediaType.getType().equals("text")) {
@@ -18,6 +18,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.InitializingBean;
@@ -34,6 +35,7 @@ import org.springframework.integration.channel.PublishSubscribeChannel;
 import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.channel.interceptor.WireTap;
 import org.springframework.integration.config.ConsumerEndpointFactoryBean;
+import org.springframework.integration.core.MessageHandler;
 import org.springframework.integration.core.PollableChannel;
 import org.springframework.integration.core.SubscribableChannel;
 import org.springframework.integration.handler.BridgeHandler;
@@ -179,22 +181,101 @@ public class LocalChannelRegistry extends ChannelRegistrySupport implements Appl
 
 	@Override
 	public void deleteInbound(String name) {
-		doDelete(name, ".in.bridge");
+		doDelete(name, ".in.bridge", null);
+	}
+
+	@Override
+	public void deleteInbound(String name, MessageChannel moduleInputChannel) {
+		doDelete(name, ".in.bridge", moduleInputChannel);
 	}
 
 	@Override
 	public void deleteOutbound(String name) {
-		doDelete(name, ".out.bridge");
+		doDelete(name, ".out.bridge", null);
+	}
+
+	@Override
+	public void deleteOutbound(String name, MessageChannel moduleOutputChannel) {
+		doDelete(name, ".out.bridge", moduleOutputChannel);
+	}
+
+	@Override
+	protected int getQueuedMessageCount(String name) {
+		if (applicationContext.containsBean(name)) {
+			Object channel = applicationContext.getBean(name);
+			if (channel instanceof QueueChannel) {
+				return ((QueueChannel) channel).getQueueSize();
+			}
+		}
+		return 0;
 	}
 
-	private void doDelete(String name, String suffix) {
+	@Override
+	protected boolean hasOtherInbound(String name, MessageChannel moduleInputChannel) {
+		String bridgeName = name + ".in.bridge";
+		synchronized (this.bridges) {
+			for (BridgeMetadata bridge : this.bridges) {
+				if (bridge.handler.getComponentName().equals(bridgeName) && bridge.moduleChannel != moduleInputChannel
+						&& !bridge.closed) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Close the inbound bridge of the channel to the module, so that it stops receiving from a queue, and wait for the
+	 * messages it is handling before removing it.
+	 */
+	@Override
+	protected boolean stopInbound(String name, MessageChannel moduleInputChannel, long deadline) {
+		String bridgeName = name + ".in.bridge";
+		List<BridgeMetadata> closed = new ArrayList<BridgeMetadata>();
+		synchronized (this.bridges) {
+			for (BridgeMetadata bridge : this.bridges) {
+				if (bridge.handler.getComponentName().equals(bridgeName)
+						&& bridge.moduleChannel == moduleInputChannel) {
+					bridge.closed = true;
+					closed.add(bridge);
+				}
+			}
+		}
+		boolean idle = true;
+		try {
+			for (BridgeMetadata bridge : closed) {
+				while (idle && bridge.inFlight.get() > 0) {
+					if (System.currentTimeMillis() >= deadline) {
+						idle = false;
+					}
+					else {
+						Thread.sleep(DRAIN_POLL_INTERVAL);
+					}
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			idle = false;
+		}
+		deleteInbound(name, moduleInputChannel);
+		return idle;
+	}
+
+	/**
+	 * Remove the bridges with the given name, only the one to or from the given module channel unless it is null, and
+	 * those of the tap module with the given name.
+	 */
+	private void doDelete(String name, String suffix, MessageChannel moduleChannel) {
 		Assert.hasText(name, "a valid name is required to remove a channel");
 		String bridgeName = name + suffix;
 		synchronized (this.bridges) {
 			Iterator<BridgeMetadata> iterator = this.bridges.iterator();
 			while (iterator.hasNext()) {
 				BridgeMetadata bridge = iterator.next();
-				if (bridge.handler.getComponentName().equals(bridgeName) || name.equals(bridge.tapModule)) {
+				boolean matches = bridge.handler.getComponentName().equals(bridgeName)
+						&& (moduleChannel == null || bridge.moduleChannel == moduleChannel);
+				if (matches || name.equals(bridge.tapModule)) {
 					// bridge.channel.unsubscribe(bridge.handler);
 					bridge.cefb.stop();
 					iterator.remove();
@@ -279,10 +360,20 @@ public class LocalChannelRegistry extends ChannelRegistrySupport implements Appl
 		handler.setBeanName(bridgeName);
 		handler.afterPropertiesSet();
 
+		BridgeMetadata bridge = new BridgeMetadata(handler, isInbound ? to : from, tapModule);
+
 		// Usage of a CEFB allows to handle both Direct & Queue channels the same way
 		ConsumerEndpointFactoryBean cefb = new ConsumerEndpointFactoryBean();
-		cefb.setInputChannel(from);
-		cefb.setHandler(handler);
+		if (isInbound) {
+			// count the messages handled by the module so that the channel can be drained before it is stopped
+			boolean pollable = from instanceof PollableChannel;
+			cefb.setInputChannel(pollable ? new ClosablePollableChannel((PollableChannel) from, bridge) : from);
+			cefb.setHandler(new InFlightCountingHandler(handler, bridge, !pollable));
+		}
+		else {
+			cefb.setInputChannel(from);
+			cefb.setHandler(handler);
+		}
 		cefb.setBeanFactory(applicationContext.getBeanFactory());
 		if (from instanceof PollableChannel) {
 			cefb.setPollerMetadata(poller);
@@ -293,8 +384,9 @@ public class LocalChannelRegistry extends ChannelRegistrySupport implements Appl
 		catch (Exception e) {
 			throw new IllegalStateException(e);
 		}
+		bridge.cefb = cefb;
 		if (!(to instanceof NullChannel)) {
-			this.bridges.add(new BridgeMetadata(handler, cefb, tapModule));
+			this.bridges.add(bridge);
 		}
 		cefb.start();
 		return handler;
@@ -316,11 +408,26 @@ public class LocalChannelRegistry extends ChannelRegistrySupport implements Appl
 
 		private ConsumerEndpointFactoryBean cefb;
 
+		/**
+		 * The channel of the module on the other end of the bridge.
+		 */
+		private final MessageChannel moduleChannel;
+
 		private final String tapModule;
 
-		public BridgeMetadata(BridgeHandler handler, ConsumerEndpointFactoryBean cefb, String tapModule) {
+		/**
+		 * The number of messages an inbound bridge is handling.
+		 */
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		/**
+		 * Whether an inbound bridge stopped receiving messages from its queue.
+		 */
+		private volatile boolean closed;
+
+		public BridgeMetadata(BridgeHandler handler, MessageChannel moduleChannel, String tapModule) {
 			this.handler = handler;
-			this.cefb = cefb;
+			this.moduleChannel = moduleChannel;
 			this.tapModule = tapModule;
 		}
 
@@ -331,6 +438,85 @@ public class LocalChannelRegistry extends ChannelRegistrySupport implements Appl
 
 	}
 
+	/**
+	 * Receives from the queue of an inbound bridge until the bridge is closed. A received message is counted as in
+	 * flight until the bridge has handled it; so is the wait for one, which a closed bridge lets finish.
+	 */
+	private static class ClosablePollableChannel implements PollableChannel {
+
+		private final PollableChannel channel;
+
+		private final BridgeMetadata bridge;
+
+		private ClosablePollableChannel(PollableChannel channel, BridgeMetadata bridge) {
+			this.channel = channel;
+			this.bridge = bridge;
+		}
+
+		@Override
+		public Message<?> receive() {
+			return receive(-1);
+		}
+
+		@Override
+		public Message<?> receive(long timeout) {
+			Message<?> message = null;
+			this.bridge.inFlight.incrementAndGet();
+			try {
+				if (!this.bridge.closed) {
+					message = (timeout < 0) ? this.channel.receive() : this.channel.receive(timeout);
+				}
+			}
+			finally {
+				if (message == null) {
+					this.bridge.inFlight.decrementAndGet();
+				}
+			}
+			return message;
+		}
+
+		@Override
+		public boolean send(Message<?> message) {
+			return this.channel.send(message);
+		}
+
+		@Override
+		public boolean send(Message<?> message, long timeout) {
+			return this.channel.send(message, timeout);
+		}
+	}
+
+	/**
+	 * Counts the messages an inbound bridge is handling, those received from a queue having been counted already.
+	 */
+	private static class InFlightCountingHandler implements MessageHandler {
+
+		private final MessageHandler handler;
+
+		private final BridgeMetadata bridge;
+
+		private final boolean count;
+
+		private InFlightCountingHandler(MessageHandler handler, BridgeMetadata bridge, boolean count) {
+			this.handler = handler;
+			this.bridge = bridge;
+			this.count = count;
+		}
+
+		@Override
+		public void handleMessage(Message<?> message) {
+			if (this.count) {
+				this.bridge.inFlight.incrementAndGet();
+			}
+			try {
+				this.handler.handleMessage(message);
+			}
+			finally {
+				this.bridge.inFlight.decrementAndGet();
+			}
+		}
+	}
+
 	/**
 	 * Looks up or optionally creates a new channel to use.
 	 * 
@@ -0,0 +1,554 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.x.file;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.ScheduledFuture;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageHandlingException;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Writes message payloads as records to a file that is kept open between messages.
+ *
+ * Records are encoded straight into a write buffer, followed by a line separator unless {@link #setBinary(boolean)
+ * binary} is set. The buffer is written to the file's {@link FileChannel} when it is full, and otherwise after every
+ * message or, with a {@link #setFlushIntervalInMillis(long) flushInterval}, at least that often. Without rollover all
+ * records are appended to {@code <fileName>.<suffix>}. With a {@link #setRolloverSizeInBytes(long) size} or
+ * {@link #setRolloverIntervalInMillis(long) time} limit, records go to {@code <fileName>-<n>.<suffix>}, where n
+ * continues after the highest existing counter. Files are optionally gzip compressed, in which case the rollover size
+ * is measured in compressed bytes, {@code .gz} is appended to the file name, and a file is only complete once closed.
+ *
+ * When written data is forced to disk is controlled by the {@link SyncPolicy}. The file is closed when the handler is
+ * stopped; by default it starts before, and stops after, the endpoint that feeds it.
+ *
+ * @since 1.0
+ */
+public class RollingFileWritingMessageHandler extends AbstractMessageHandler implements SmartLifecycle {
+
+	/**
+	 * When written data is forced to the storage device.
+	 */
+	public static enum SyncPolicy {
+
+		/**
+		 * Leave it to the operating system.
+		 */
+		NONE,
+
+		/**
+		 * Before a file is closed, on rollover or stop.
+		 */
+		CLOSE,
+
+		/**
+		 * Every {@link RollingFileWritingMessageHandler#setSyncIntervalInMillis(long) syncInterval} and before a file
+		 * is closed.
+		 */
+		INTERVAL,
+
+		/**
+		 * After every message. Safest, and much slower than the other policies.
+		 */
+		EVERY_MESSAGE
+	}
+
+	private static final String GZIP_SUFFIX = ".gz";
+
+	private final File directory;
+
+	private final String fileName;
+
+	private volatile String suffix;
+
+	private volatile Charset charset = Charset.forName("UTF-8");
+
+	private volatile String lineSeparator = System.getProperty("line.separator");
+
+	private volatile boolean binary;
+
+	private volatile int bufferSize = 64 * 1024;
+
+	private volatile boolean compress;
+
+	private volatile long flushIntervalInMillis;
+
+	private volatile long rolloverSizeInBytes;
+
+	private volatile long rolloverIntervalInMillis;
+
+	private volatile SyncPolicy syncPolicy = SyncPolicy.CLOSE;
+
+	private volatile long syncIntervalInMillis = 1000;
+
+	private volatile boolean autoStartup = true;
+
+	private volatile int phase = Integer.MIN_VALUE;
+
+	private volatile boolean running;
+
+	private final Object monitor = new Object();
+
+	private CharsetEncoder encoder;
+
+	private byte[] lineSeparatorBytes;
+
+	private ByteBuffer buffer;
+
+	private File currentFile;
+
+	private FileChannel fileChannel;
+
+	private GZIPOutputStream gzipStream;
+
+	private long bytesInFile;
+
+	private long fileOpenedTime;
+
+	private long lastFlushTime;
+
+	private long lastSyncTime;
+
+	private boolean unsynced;
+
+	private int counter = -1;
+
+	private ScheduledFuture<?> timedCheck;
+
+	private ThreadPoolTaskScheduler ownScheduler;
+
+	public RollingFileWritingMessageHandler(File directory, String fileName) {
+		Assert.notNull(directory, "directory must not be null");
+		Assert.hasText(fileName, "fileName must not be empty");
+		this.directory = directory;
+		this.fileName = fileName;
+	}
+
+	/**
+	 * Set the file name suffix; a blank suffix means none.
+	 */
+	public void setSuffix(String suffix) {
+		this.suffix = StringUtils.hasText(suffix) ? suffix.trim() : null;
+	}
+
+	public void setCharset(String charset) {
+		this.charset = Charset.forName(charset);
+	}
+
+	public void setLineSeparator(String lineSeparator) {
+		Assert.notNull(lineSeparator, "lineSeparator must not be null");
+		this.lineSeparator = lineSeparator;
+	}
+
+	/**
+	 * Set whether payloads are written as they are, without a line separator after each.
+	 */
+	public void setBinary(boolean binary) {
+		this.binary = binary;
+	}
+
+	public void setBufferSize(int bufferSize) {
+		Assert.isTrue(bufferSize > 0, "bufferSize must be greater than zero");
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Set how long records may stay in the write buffer. Zero (the default) writes every message through to the file
+	 * channel, which is one system call per message but makes each record visible to readers right away.
+	 */
+	public void setFlushIntervalInMillis(long flushIntervalInMillis) {
+		Assert.isTrue(flushIntervalInMillis >= 0, "flushIntervalInMillis must not be negative");
+		this.flushIntervalInMillis = flushIntervalInMillis;
+	}
+
+	public void setCompress(boolean compress) {
+		this.compress = compress;
+	}
+
+	/**
+	 * Set the size at which a file is closed and the next one started; zero (the default) for no limit.
+	 */
+	public void setRolloverSizeInBytes(long rolloverSizeInBytes) {
+		this.rolloverSizeInBytes = rolloverSizeInBytes;
+	}
+
+	/**
+	 * Set how long a file stays open before it is closed and the next one started; zero (the default) for no limit.
+	 * Files are checked on every message and once a second, so that a file is also rolled over while no messages
+	 * arrive.
+	 */
+	public void setRolloverIntervalInMillis(long rolloverIntervalInMillis) {
+		this.rolloverIntervalInMillis = rolloverIntervalInMillis;
+	}
+
+	public void setSyncPolicy(SyncPolicy syncPolicy) {
+		Assert.notNull(syncPolicy, "syncPolicy must not be null");
+		this.syncPolicy = syncPolicy;
+	}
+
+	public void setSyncIntervalInMillis(long syncIntervalInMillis) {
+		Assert.isTrue(syncIntervalInMillis > 0, "syncIntervalInMillis must be greater than zero");
+		this.syncIntervalInMillis = syncIntervalInMillis;
+	}
+
+	/**
+	 * Return the file currently written to, or null if none is open.
+	 */
+	public File getCurrentFile() {
+		synchronized (this.monitor) {
+			return this.currentFile;
+		}
+	}
+
+	@Override
+	public String getComponentType() {
+		return "file:rolling-outbound-channel-adapter";
+	}
+
+	@Override
+	protected void handleMessageInternal(Message<?> message) throws Exception {
+		Object payload = message.getPayload();
+		synchronized (this.monitor) {
+			if (!this.running) {
+				throw new MessageHandlingException(message, "handler is not running");
+			}
+			long now = System.currentTimeMillis();
+			if (this.fileChannel != null && isRolloverDue(now)) {
+				closeFile();
+			}
+			if (this.fileChannel == null) {
+				openFile(now);
+			}
+			if (payload instanceof byte[]) {
+				put((byte[]) payload);
+			}
+			else {
+				encode(payload.toString());
+			}
+			if (!this.binary) {
+				put(this.lineSeparatorBytes);
+			}
+			this.unsynced = true;
+			if (this.syncPolicy == SyncPolicy.EVERY_MESSAGE) {
+				sync(now);
+			}
+			else if (this.syncPolicy == SyncPolicy.INTERVAL && now - this.lastSyncTime >= this.syncIntervalInMillis) {
+				sync(now);
+			}
+			else if (now - this.lastFlushTime >= this.flushIntervalInMillis) {
+				writeBuffer();
+				this.lastFlushTime = now;
+			}
+		}
+	}
+
+	private boolean isRolloverDue(long now) {
+		// compressed output only counts once the deflater has passed it on
+		long pending = (this.gzipStream == null) ? this.buffer.position() : 0;
+		return (this.rolloverSizeInBytes > 0 && this.bytesInFile + pending >= this.rolloverSizeInBytes)
+				|| (this.rolloverIntervalInMillis > 0 && now - this.fileOpenedTime >= this.rolloverIntervalInMillis);
+	}
+
+	private void put(byte[] bytes) throws IOException {
+		if (bytes.length > this.buffer.remaining()) {
+			writeBuffer();
+			if (bytes.length > this.buffer.capacity()) {
+				write(ByteBuffer.wrap(bytes));
+				return;
+			}
+		}
+		this.buffer.put(bytes);
+	}
+
+	private void encode(String value) throws IOException {
+		CharBuffer chars = CharBuffer.wrap(value);
+		this.encoder.reset();
+		CoderResult result = this.encoder.encode(chars, this.buffer, true);
+		while (result.isOverflow()) {
+			writeBuffer();
+			result = this.encoder.encode(chars, this.buffer, true);
+		}
+		result = this.encoder.flush(this.buffer);
+		while (result.isOverflow()) {
+			writeBuffer();
+			result = this.encoder.flush(this.buffer);
+		}
+	}
+
+	private void writeBuffer() throws IOException {
+		this.buffer.flip();
+		if (this.buffer.hasRemaining()) {
+			write(this.buffer);
+		}
+		this.buffer.clear();
+	}
+
+	private void write(ByteBuffer bytes) throws IOException {
+		if (this.gzipStream != null) {
+			this.gzipStream.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+			bytes.position(bytes.limit());
+		}
+		else {
+			while (bytes.hasRemaining()) {
+				this.bytesInFile += this.fileChannel.write(bytes);
+			}
+		}
+	}
+
+	private void sync(long now) throws IOException {
+		writeBuffer();
+		if (this.gzipStream != null) {
+			this.gzipStream.flush();
+		}
+		this.fileChannel.force(false);
+		this.lastFlushTime = now;
+		this.lastSyncTime = now;
+		this.unsynced = false;
+	}
+
+	private void openFile(long now) throws IOException {
+		if (!this.directory.exists() && !this.directory.mkdirs() && !this.directory.isDirectory()) {
+			throw new IOException("failed to create directory " + this.directory);
+		}
+		this.currentFile = new File(this.directory, nextFileName());
+		this.fileChannel = new FileOutputStream(this.currentFile, true).getChannel();
+		this.bytesInFile = this.fileChannel.size();
+		if (this.compress) {
+			this.gzipStream = new GZIPOutputStream(new FileChannelOutputStream(), this.bufferSize);
+		}
+		if (this.buffer == null || this.buffer.capacity() != this.bufferSize) {
+			this.buffer = ByteBuffer.allocate(this.bufferSize);
+		}
+		this.encoder = this.charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.lineSeparatorBytes = this.lineSeparator.getBytes(this.charset);
+		this.fileOpenedTime = now;
+		this.lastFlushTime = now;
+		this.lastSyncTime = now;
+	}
+
+	private String nextFileName() {
+		String extension = (this.suffix != null ? "." + this.suffix : "") + (this.compress ? GZIP_SUFFIX : "");
+		if (this.rolloverSizeInBytes <= 0 && this.rolloverIntervalInMillis <= 0) {
+			return this.fileName + extension;
+		}
+		if (this.counter < 0) {
+			String[] names = this.directory.list();
+			String prefix = this.fileName + "-";
+			if (names != null) {
+				for (String name : names) {
+					if (name.startsWith(prefix) && name.endsWith(extension)) {
+						String number = name.substring(prefix.length(), name.length() - extension.length());
+						if (number.length() > 0 && number.length() < 10 && isDigits(number)) {
+							this.counter = Math.max(this.counter, Integer.parseInt(number));
+						}
+					}
+				}
+			}
+		}
+		this.counter++;
+		return this.fileName + "-" + this.counter + extension;
+	}
+
+	private static boolean isDigits(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			if (!Character.isDigit(value.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void closeFile() throws IOException {
+		try {
+			writeBuffer();
+			if (this.gzipStream != null) {
+				this.gzipStream.finish();
+			}
+			if (this.syncPolicy != SyncPolicy.NONE && (this.unsynced || this.gzipStream != null)) {
+				this.fileChannel.force(false);
+			}
+		}
+		finally {
+			this.unsynced = false;
+			this.gzipStream = null;
+			FileChannel channel = this.fileChannel;
+			this.fileChannel = null;
+			this.currentFile = null;
+			this.buffer.clear();
+			channel.close();
+		}
+	}
+
+	private void timedCheck() {
+		synchronized (this.monitor) {
+			if (this.fileChannel == null) {
+				return;
+			}
+			long now = System.currentTimeMillis();
+			try {
+				if (this.rolloverIntervalInMillis > 0 && now - this.fileOpenedTime >= this.rolloverIntervalInMillis) {
+					closeFile();
+				}
+				else if (this.syncPolicy == SyncPolicy.INTERVAL && this.unsynced
+						&& now - this.lastSyncTime >= this.syncIntervalInMillis) {
+					sync(now);
+				}
+				else if (this.flushIntervalInMillis > 0 && now - this.lastFlushTime >= this.flushIntervalInMillis) {
+					writeBuffer();
+					this.lastFlushTime = now;
+				}
+			}
+			catch (IOException e) {
+				logger.error("failed to write to " + this.currentFile, e);
+			}
+		}
+	}
+
+	@Override
+	public void start() {
+		synchronized (this.monitor) {
+			if (this.running) {
+				return;
+			}
+			if (this.rolloverIntervalInMillis > 0 || this.syncPolicy == SyncPolicy.INTERVAL
+					|| this.flushIntervalInMillis > 0) {
+				TaskScheduler scheduler = getTaskScheduler();
+				if (scheduler == null) {
+					this.ownScheduler = new ThreadPoolTaskScheduler();
+					this.ownScheduler.setThreadNamePrefix("file-sink-");
+					this.ownScheduler.afterPropertiesSet();
+					scheduler = this.ownScheduler;
+				}
+				long interval = 1000;
+				if (this.syncPolicy == SyncPolicy.INTERVAL) {
+					interval = Math.min(interval, this.syncIntervalInMillis);
+				}
+				if (this.rolloverIntervalInMillis > 0) {
+					interval = Math.min(interval, this.rolloverIntervalInMillis);
+				}
+				if (this.flushIntervalInMillis > 0) {
+					interval = Math.min(interval, this.flushIntervalInMillis);
+				}
+				this.timedCheck = scheduler.scheduleWithFixedDelay(new Runnable() {
+
+					@Override
+					public void run() {
+						timedCheck();
+					}
+				}, interval);
+			}
+			this.running = true;
+		}
+	}
+
+	/**
+	 * Write out buffered records and close the current file.
+	 */
+	@Override
+	public void stop() {
+		synchronized (this.monitor) {
+			if (!this.running) {
+				return;
+			}
+			this.running = false;
+			if (this.timedCheck != null) {
+				this.timedCheck.cancel(false);
+				this.timedCheck = null;
+			}
+			if (this.ownScheduler != null) {
+				this.ownScheduler.shutdown();
+				this.ownScheduler = null;
+			}
+			if (this.fileChannel != null) {
+				try {
+					closeFile();
+				}
+				catch (IOException e) {
+					throw new MessagingException("failed to close " + this.currentFile, e);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void stop(Runnable callback) {
+		stop();
+		callback.run();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	@Override
+	public int getPhase() {
+		return this.phase;
+	}
+
+	public void setPhase(int phase) {
+		this.phase = phase;
+	}
+
+	@Override
+	public boolean isAutoStartup() {
+		return this.autoStartup;
+	}
+
+	public void setAutoStartup(boolean autoStartup) {
+		this.autoStartup = autoStartup;
+	}
+
+	/**
+	 * Compressed output target: writes through to the current file channel and counts the bytes written.
+	 */
+	private class FileChannelOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			ByteBuffer wrapped = ByteBuffer.wrap(bytes, offset, length);
+			while (wrapped.hasRemaining()) {
+				bytesInFile += fileChannel.write(wrapped);
+			}
+		}
+	}
+
+}
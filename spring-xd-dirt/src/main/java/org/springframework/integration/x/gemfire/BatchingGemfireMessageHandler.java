@@ -0,0 +1,436 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.x.gemfire;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
+import org.springframework.integration.MessageHandlingException;
+import org.springframework.integration.MessageHeaders;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.context.IntegrationContextUtils;
+import org.springframework.integration.expression.ExpressionUtils;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.integration.message.ErrorMessage;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.Assert;
+
+import com.gemstone.gemfire.cache.Region;
+
+/**
+ * Writes message payloads to a GemFire region in {@link Region#putAll(Map) putAll} batches.
+ *
+ * Messages are collected until {@link #setBatchSize(int) batchSize} of them are pending, or the oldest has waited for
+ * {@link #setBatchTimeout(long) batchTimeout} milliseconds. The batch is then sent as one putAll, with each payload
+ * stored under the key the key expression evaluates to against its {@code payload} and {@code headers}. Within a
+ * batch, the last payload for a key wins. With {@link #setConvertJsonToPdx(boolean) convertJsonToPdx}, String payloads
+ * are JSON documents that are converted to PDX instances, in parallel for larger batches, before the keys are
+ * evaluated. A batch size of 1 sends every message on its own, on the caller's thread.
+ *
+ * A failed batch is reported to the sender whose message triggered it. A batch sent because of the timeout has no
+ * sender, so its failure is sent to the {@link #setErrorChannel(MessageChannel) error channel} instead, as an
+ * {@link ErrorMessage} whose failed message carries the batch's messages as a {@link List}; they are not retried.
+ *
+ * The handler starts before, and stops after, the endpoint that feeds it, so pending messages are sent once no more
+ * can arrive.
+ *
+ * @since 1.0
+ */
+public class BatchingGemfireMessageHandler extends AbstractMessageHandler implements SmartLifecycle {
+
+	/**
+	 * Batches smaller than this are converted on the sending thread.
+	 */
+	private static final int PARALLEL_CONVERSION_THRESHOLD = 64;
+
+	private final Region<Object, Object> region;
+
+	private final Expression keyExpression;
+
+	private volatile EvaluationContext evaluationContext = ExpressionUtils.createStandardEvaluationContext();
+
+	private volatile int batchSize = 1;
+
+	private volatile long batchTimeout = 1000;
+
+	private volatile boolean convertJsonToPdx;
+
+	private volatile int conversionThreads = Runtime.getRuntime().availableProcessors();
+
+	private final JsonStringToObjectTransformer jsonTransformer = new JsonStringToObjectTransformer();
+
+	private volatile boolean autoStartup = true;
+
+	private volatile int phase = Integer.MIN_VALUE;
+
+	private volatile MessageChannel errorChannel;
+
+	private volatile boolean running;
+
+	private List<Message<?>> pending = new ArrayList<Message<?>>();
+
+	private long firstPendingTime;
+
+	private ScheduledFuture<?> timeoutCheck;
+
+	private ThreadPoolTaskScheduler ownScheduler;
+
+	private volatile ExecutorService conversionExecutor;
+
+	@SuppressWarnings("unchecked")
+	public BatchingGemfireMessageHandler(Region<?, ?> region, String keyExpression) {
+		Assert.notNull(region, "region must not be null");
+		Assert.hasText(keyExpression, "keyExpression must not be empty");
+		this.region = (Region<Object, Object>) region;
+		this.keyExpression = new SpelExpressionParser().parseExpression(keyExpression);
+	}
+
+	/**
+	 * Set the number of messages sent per putAll (default 1, which sends every message as it arrives).
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "batchSize must be greater than zero");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Set the maximum time in milliseconds a message waits for its batch to fill up before the batch is sent anyway
+	 * (default 1000). Zero disables the timeout.
+	 */
+	public void setBatchTimeout(long batchTimeout) {
+		this.batchTimeout = batchTimeout;
+	}
+
+	/**
+	 * Set whether String payloads are JSON documents to be stored as PDX instances.
+	 */
+	public void setConvertJsonToPdx(boolean convertJsonToPdx) {
+		this.convertJsonToPdx = convertJsonToPdx;
+	}
+
+	/**
+	 * Set the number of threads converting JSON payloads of larger batches (default: the number of processors).
+	 */
+	public void setConversionThreads(int conversionThreads) {
+		Assert.isTrue(conversionThreads > 0, "conversionThreads must be greater than zero");
+		this.conversionThreads = conversionThreads;
+	}
+
+	/**
+	 * Set the channel that failures of batches sent because of the timeout are sent to. Defaults to the
+	 * 'errorChannel' bean, if there is one; otherwise such failures are only logged.
+	 */
+	public void setErrorChannel(MessageChannel errorChannel) {
+		this.errorChannel = errorChannel;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "gemfire:batching-outbound-channel-adapter";
+	}
+
+	@Override
+	protected void onInit() throws Exception {
+		this.evaluationContext = ExpressionUtils.createStandardEvaluationContext(getBeanFactory());
+	}
+
+	@Override
+	protected void handleMessageInternal(Message<?> message) throws Exception {
+		List<Message<?>> batch = null;
+		synchronized (this) {
+			if (this.pending.isEmpty()) {
+				this.firstPendingTime = System.currentTimeMillis();
+			}
+			this.pending.add(message);
+			if (this.pending.size() >= this.batchSize) {
+				batch = takePending();
+			}
+		}
+		if (batch != null) {
+			try {
+				send(batch);
+			}
+			catch (RuntimeException e) {
+				throw new MessageHandlingException(message, "failed to write a batch of " + batch.size()
+						+ " messages to region " + this.region.getName(), e);
+			}
+		}
+	}
+
+	private List<Message<?>> takePending() {
+		List<Message<?>> batch = this.pending;
+		this.pending = new ArrayList<Message<?>>(this.batchSize);
+		return batch;
+	}
+
+	private void send(List<Message<?>> batch) {
+		Object[] values = new Object[batch.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = batch.get(i).getPayload();
+		}
+		if (this.convertJsonToPdx) {
+			convert(values);
+		}
+		// keys are evaluated against the converted payloads; a later value for the same key replaces an earlier one
+		Map<Object, Object> entries = new LinkedHashMap<Object, Object>(values.length * 2);
+		for (int i = 0; i < values.length; i++) {
+			Message<?> message = batch.get(i);
+			Object key = this.keyExpression.getValue(this.evaluationContext,
+					new KeyExpressionRoot(values[i], message.getHeaders()));
+			if (key == null) {
+				throw new MessageHandlingException(message, "key expression evaluated to null");
+			}
+			entries.put(key, values[i]);
+		}
+		if (entries.size() == 1) {
+			Map.Entry<Object, Object> entry = entries.entrySet().iterator().next();
+			this.region.put(entry.getKey(), entry.getValue());
+		}
+		else {
+			this.region.putAll(entries);
+		}
+	}
+
+	private void convert(final Object[] values) {
+		ExecutorService executor = this.conversionExecutor;
+		if (values.length < PARALLEL_CONVERSION_THRESHOLD || executor == null) {
+			convert(values, 0, values.length);
+			return;
+		}
+		int chunk = (values.length + this.conversionThreads - 1) / this.conversionThreads;
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int start = chunk; start < values.length; start += chunk) {
+			final int from = start;
+			final int to = Math.min(start + chunk, values.length);
+			futures.add(executor.submit(new Callable<Void>() {
+
+				@Override
+				public Void call() {
+					convert(values, from, to);
+					return null;
+				}
+			}));
+		}
+		convert(values, 0, chunk);
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MessagingException("interrupted while converting JSON payloads", e);
+			}
+			catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new MessagingException("failed to convert JSON payloads", e.getCause());
+			}
+		}
+	}
+
+	private void convert(Object[] values, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (values[i] instanceof String) {
+				values[i] = this.jsonTransformer.toObject((String) values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Send the pending messages now.
+	 */
+	public void flush() {
+		List<Message<?>> batch;
+		synchronized (this) {
+			if (this.pending.isEmpty()) {
+				return;
+			}
+			batch = takePending();
+		}
+		send(batch);
+	}
+
+	private void flushIfTimedOut() {
+		List<Message<?>> batch = null;
+		synchronized (this) {
+			if (!this.pending.isEmpty() && System.currentTimeMillis() - this.firstPendingTime >= this.batchTimeout) {
+				batch = takePending();
+			}
+		}
+		if (batch != null) {
+			try {
+				send(batch);
+			}
+			catch (RuntimeException e) {
+				reportFailure(new MessageHandlingException(MessageBuilder.withPayload(batch).build(),
+						"failed to write a batch of " + batch.size() + " messages to region " + this.region.getName(),
+						e));
+			}
+		}
+	}
+
+	private void reportFailure(MessageHandlingException e) {
+		MessageChannel channel = this.errorChannel;
+		BeanFactory beanFactory = getBeanFactory();
+		if (channel == null && beanFactory != null
+				&& beanFactory.containsBean(IntegrationContextUtils.ERROR_CHANNEL_BEAN_NAME)) {
+			channel = beanFactory.getBean(IntegrationContextUtils.ERROR_CHANNEL_BEAN_NAME, MessageChannel.class);
+		}
+		try {
+			if (channel != null && channel.send(new ErrorMessage(e), 1000)) {
+				return;
+			}
+		}
+		catch (RuntimeException sendFailure) {
+			logger.warn("failed to send to the error channel", sendFailure);
+		}
+		logger.error(e.getMessage(), e);
+	}
+
+	@Override
+	public synchronized void start() {
+		if (this.running) {
+			return;
+		}
+		if (this.convertJsonToPdx && this.conversionThreads > 1 && this.batchSize >= PARALLEL_CONVERSION_THRESHOLD) {
+			// the sending thread converts one chunk itself
+			this.conversionExecutor = Executors.newFixedThreadPool(this.conversionThreads - 1,
+					new CustomizableThreadFactory("gemfire-pdx-"));
+		}
+		if (this.batchSize > 1 && this.batchTimeout > 0) {
+			TaskScheduler scheduler = getTaskScheduler();
+			if (scheduler == null) {
+				this.ownScheduler = new ThreadPoolTaskScheduler();
+				this.ownScheduler.setThreadNamePrefix("gemfire-batch-");
+				this.ownScheduler.afterPropertiesSet();
+				scheduler = this.ownScheduler;
+			}
+			this.timeoutCheck = scheduler.scheduleWithFixedDelay(new Runnable() {
+
+				@Override
+				public void run() {
+					flushIfTimedOut();
+				}
+			}, Math.max(this.batchTimeout / 4, 10));
+		}
+		this.running = true;
+	}
+
+	/**
+	 * Stop checking for timed out batches and send the pending messages.
+	 */
+	@Override
+	public void stop() {
+		synchronized (this) {
+			if (!this.running) {
+				return;
+			}
+			if (this.timeoutCheck != null) {
+				this.timeoutCheck.cancel(false);
+				this.timeoutCheck = null;
+			}
+			if (this.ownScheduler != null) {
+				this.ownScheduler.shutdown();
+				this.ownScheduler = null;
+			}
+			this.running = false;
+		}
+		try {
+			flush();
+		}
+		finally {
+			synchronized (this) {
+				if (this.conversionExecutor != null) {
+					this.conversionExecutor.shutdown();
+					this.conversionExecutor = null;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void stop(Runnable callback) {
+		stop();
+		callback.run();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	@Override
+	public int getPhase() {
+		return this.phase;
+	}
+
+	public void setPhase(int phase) {
+		this.phase = phase;
+	}
+
+	@Override
+	public boolean isAutoStartup() {
+		return this.autoStartup;
+	}
+
+	public void setAutoStartup(boolean autoStartup) {
+		this.autoStartup = autoStartup;
+	}
+
+	/**
+	 * Root object for the key expression, so that it sees the converted payload.
+	 */
+	public static class KeyExpressionRoot {
+
+		private final Object payload;
+
+		private final MessageHeaders headers;
+
+		private KeyExpressionRoot(Object payload, MessageHeaders headers) {
+			this.payload = payload;
+			this.headers = headers;
+		}
+
+		public Object getPayload() {
+			return payload;
+		}
+
+		public MessageHeaders getHeaders() {
+			return headers;
+		}
+	}
+
+}
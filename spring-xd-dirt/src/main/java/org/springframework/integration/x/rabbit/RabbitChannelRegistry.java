@@ -19,17 +19,21 @@ package org.springframework.integration.x.rabbit;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.amqp.AmqpException;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
@@ -53,6 +57,8 @@ import org.springframework.integration.x.channel.registry.ChannelRegistry;
 import org.springframework.integration.x.channel.registry.ChannelRegistrySupport;
 import org.springframework.util.Assert;
 
+import com.rabbitmq.client.Channel;
+
 /**
  * A {@link ChannelRegistry} implementation backed by RabbitMQ.
  * 
@@ -73,6 +79,11 @@ public class RabbitChannelRegistry extends ChannelRegistrySupport implements Dis
 
 	private final List<Lifecycle> lifecycleBeans = Collections.synchronizedList(new ArrayList<Lifecycle>());
 
+	/**
+	 * The module channel each inbound adapter and outbound consumer is bound to, guarded by the lifecycle beans.
+	 */
+	private final Map<Lifecycle, MessageChannel> moduleChannels = new IdentityHashMap<Lifecycle, MessageChannel>();
+
 	private final DefaultAmqpHeaderMapper mapper;
 
 	public RabbitChannelRegistry(ConnectionFactory connectionFactory) {
@@ -107,7 +118,7 @@ public class RabbitChannelRegistry extends ChannelRegistrySupport implements Dis
 		adapter.setHeaderMapper(this.mapper);
 		adapter.setBeanName("inbound." + name);
 		adapter.afterPropertiesSet();
-		this.lifecycleBeans.add(adapter);
+		this.addLifecycleBean(adapter, moduleInputChannel);
 		ReceivingHandler convertingBridge = new ReceivingHandler(acceptedMediaTypes);
 		convertingBridge.setOutputChannel(moduleInputChannel);
 		convertingBridge.setBeanName(name + ".convert.bridge");
@@ -123,7 +134,7 @@ public class RabbitChannelRegistry extends ChannelRegistrySupport implements Dis
 		EventDrivenConsumer consumer = new EventDrivenConsumer((SubscribableChannel) moduleOutputChannel, handler);
 		consumer.setBeanName("outbound." + name);
 		consumer.afterPropertiesSet();
-		this.lifecycleBeans.add(consumer);
+		this.addLifecycleBean(consumer, moduleOutputChannel);
 		consumer.start();
 	}
 
@@ -159,37 +170,117 @@ public class RabbitChannelRegistry extends ChannelRegistrySupport implements Dis
 
 	@Override
 	public void deleteInbound(String name) {
+		doDeleteInbound(name, null);
+	}
+
+	@Override
+	public void deleteInbound(String name, MessageChannel moduleInputChannel) {
+		doDeleteInbound(name, moduleInputChannel);
+	}
+
+	/**
+	 * Stop the adapters of the channel, only the one bound to the given module channel unless it is null, and those of
+	 * the tap module with the given name.
+	 */
+	private void doDeleteInbound(String name, MessageChannel moduleInputChannel) {
 		synchronized (this.lifecycleBeans) {
 			Iterator<Lifecycle> iterator = this.lifecycleBeans.iterator();
 			while (iterator.hasNext()) {
 				Lifecycle endpoint = iterator.next();
 				if (endpoint instanceof AmqpInboundChannelAdapter) {
 					String componentName = ((IntegrationObjectSupport) endpoint).getComponentName();
-					if (("inbound." + name).equals(componentName) || (name + ".tapAdapter").equals(componentName)) {
+					if ((("inbound." + name).equals(componentName) && this.isBoundTo(endpoint, moduleInputChannel))
+							|| (name + ".tapAdapter").equals(componentName)) {
 						((AmqpInboundChannelAdapter) endpoint).stop();
 						iterator.remove();
+						this.moduleChannels.remove(endpoint);
 					}
 				}
 			}
 		}
 	}
 
+	/**
+	 * Return the number of messages ready in the queue of the channel. Removing the channel stops its listener
+	 * container, which waits for its consumers to handle the messages they received.
+	 */
+	@Override
+	protected int getQueuedMessageCount(final String name) {
+		try {
+			return this.rabbitTemplate.execute(new ChannelCallback<Integer>() {
+
+				@Override
+				public Integer doInRabbit(Channel channel) throws Exception {
+					return channel.queueDeclarePassive(name).getMessageCount();
+				}
+			});
+		}
+		catch (AmqpException e) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("could not count the messages of queue " + name, e);
+			}
+			return 0;
+		}
+	}
+
 	@Override
 	public void deleteOutbound(String name) {
+		doDeleteOutbound(name, null);
+	}
+
+	@Override
+	public void deleteOutbound(String name, MessageChannel moduleOutputChannel) {
+		doDeleteOutbound(name, moduleOutputChannel);
+	}
+
+	private void doDeleteOutbound(String name, MessageChannel moduleOutputChannel) {
 		synchronized (this.lifecycleBeans) {
 			Iterator<Lifecycle> iterator = this.lifecycleBeans.iterator();
 			while (iterator.hasNext()) {
 				Lifecycle endpoint = iterator.next();
 				if (endpoint instanceof EventDrivenConsumer
-						&& ("outbound." + name).equals(((IntegrationObjectSupport) endpoint).getComponentName())) {
+						&& ("outbound." + name).equals(((IntegrationObjectSupport) endpoint).getComponentName())
+						&& this.isBoundTo(endpoint, moduleOutputChannel)) {
 					((EventDrivenConsumer) endpoint).stop();
 					iterator.remove();
+					this.moduleChannels.remove(endpoint);
 					return;
 				}
 			}
 		}
 	}
 
+	private void addLifecycleBean(Lifecycle endpoint, MessageChannel moduleChannel) {
+		synchronized (this.lifecycleBeans) {
+			this.lifecycleBeans.add(endpoint);
+			this.moduleChannels.put(endpoint, moduleChannel);
+		}
+	}
+
+	/**
+	 * Whether the endpoint is bound to the given module channel, any channel matching a null one.
+	 */
+	/**
+	 * Only the modules bound in this container are known: one bound in another container does not spare the wait.
+	 */
+	@Override
+	protected boolean hasOtherInbound(String name, MessageChannel moduleInputChannel) {
+		synchronized (this.lifecycleBeans) {
+			for (Lifecycle endpoint : this.lifecycleBeans) {
+				if (endpoint instanceof AmqpInboundChannelAdapter
+						&& ("inbound." + name).equals(((IntegrationObjectSupport) endpoint).getComponentName())
+						&& this.moduleChannels.get(endpoint) != moduleInputChannel && endpoint.isRunning()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean isBoundTo(Lifecycle endpoint, MessageChannel moduleChannel) {
+		return moduleChannel == null || this.moduleChannels.get(endpoint) == moduleChannel;
+	}
+
 	@Override
 	public void destroy() {
 		for (Lifecycle bean : this.lifecycleBeans) {
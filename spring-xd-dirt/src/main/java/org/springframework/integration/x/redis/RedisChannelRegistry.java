@@ -18,10 +18,12 @@ package org.springframework.integration.x.redis;
 
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +33,7 @@ import org.apache.commons.logging.LogFactory;
 
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.Lifecycle;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.http.MediaType;
 import org.springframework.integration.Message;
@@ -58,17 +61,25 @@ import org.springframework.util.Assert;
  */
 public class RedisChannelRegistry extends ChannelRegistrySupport implements DisposableBean {
 
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
 	private final Log logger = LogFactory.getLog(this.getClass());
 
 	private RedisConnectionFactory connectionFactory;
 
 	private final List<Lifecycle> lifecycleBeans = Collections.synchronizedList(new ArrayList<Lifecycle>());
 
+	/**
+	 * The module channel each inbound adapter and outbound consumer is bound to, guarded by the lifecycle beans.
+	 */
+	private final Map<Lifecycle, MessageChannel> moduleChannels = new IdentityHashMap<Lifecycle, MessageChannel>();
+
 	private final EmbeddedHeadersMessageConverter embeddedHeadersMessageConverter = new EmbeddedHeadersMessageConverter();
 
 	public RedisChannelRegistry(RedisConnectionFactory connectionFactory) {
 		Assert.notNull(connectionFactory, "connectionFactory must not be null");
 		this.connectionFactory = connectionFactory;
+		this.setTupleSchemaDictionary(new RedisTupleSchemaDictionary(connectionFactory));
 	}
 
 	@Override
@@ -82,7 +93,7 @@ public class RedisChannelRegistry extends ChannelRegistrySupport implements Disp
 		adapter.setOutputChannel(bridgeToModuleChannel);
 		adapter.setBeanName("inbound." + name);
 		adapter.afterPropertiesSet();
-		this.lifecycleBeans.add(adapter);
+		this.addLifecycleBean(adapter, moduleInputChannel);
 		ReceivingHandler convertingBridge = new ReceivingHandler(acceptedMediaTypes);
 		convertingBridge.setOutputChannel(moduleInputChannel);
 		convertingBridge.setBeanName(name + ".convert.bridge");
@@ -98,7 +109,7 @@ public class RedisChannelRegistry extends ChannelRegistrySupport implements Disp
 		EventDrivenConsumer consumer = new EventDrivenConsumer((SubscribableChannel) moduleOutputChannel, handler);
 		consumer.setBeanName("outbound." + name);
 		consumer.afterPropertiesSet();
-		this.lifecycleBeans.add(consumer);
+		this.addLifecycleBean(consumer, moduleOutputChannel);
 		consumer.start();
 	}
 
@@ -126,14 +137,29 @@ public class RedisChannelRegistry extends ChannelRegistrySupport implements Disp
 
 	@Override
 	public void deleteInbound(String name) {
+		doDeleteInbound(name, null);
+	}
+
+	@Override
+	public void deleteInbound(String name, MessageChannel moduleInputChannel) {
+		doDeleteInbound(name, moduleInputChannel);
+	}
+
+	/**
+	 * Stop the adapters of the channel, only the one bound to the given module channel unless it is null, and those of
+	 * the tap module with the given name.
+	 */
+	private void doDeleteInbound(String name, MessageChannel moduleInputChannel) {
 		synchronized (this.lifecycleBeans) {
 			Iterator<Lifecycle> iterator = this.lifecycleBeans.iterator();
 			while (iterator.hasNext()) {
 				Lifecycle endpoint = iterator.next();
 				if (endpoint instanceof RedisQueueInboundChannelAdapter
-						&& ("inbound." + name).equals(((IntegrationObjectSupport) endpoint).getComponentName())) {
+						&& ("inbound." + name).equals(((IntegrationObjectSupport) endpoint).getComponentName())
+						&& this.isBoundTo(endpoint, moduleInputChannel)) {
 					((RedisQueueInboundChannelAdapter) endpoint).stop();
 					iterator.remove();
+					this.moduleChannels.remove(endpoint);
 				}
 				else if (endpoint instanceof RedisInboundChannelAdapter
 						&& (name + ".tapAdapter").equals(((IntegrationObjectSupport) endpoint).getComponentName())) {
@@ -144,22 +170,105 @@ public class RedisChannelRegistry extends ChannelRegistrySupport implements Disp
 		}
 	}
 
+	@Override
+	protected int getQueuedMessageCount(String name) {
+		RedisConnection connection = this.connectionFactory.getConnection();
+		try {
+			Long length = connection.lLen(("queue." + name).getBytes(UTF_8));
+			return (length != null) ? length.intValue() : 0;
+		}
+		finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Stop the adapter popping messages from the queue of the channel for the module, and wait for it to send the
+	 * message it popped.
+	 */
+	@Override
+	protected boolean stopInbound(String name, MessageChannel moduleInputChannel, long deadline) {
+		RedisQueueInboundChannelAdapter adapter = null;
+		synchronized (this.lifecycleBeans) {
+			Iterator<Lifecycle> iterator = this.lifecycleBeans.iterator();
+			while (iterator.hasNext()) {
+				Lifecycle endpoint = iterator.next();
+				if (endpoint instanceof RedisQueueInboundChannelAdapter
+						&& ("inbound." + name).equals(((IntegrationObjectSupport) endpoint).getComponentName())
+						&& this.isBoundTo(endpoint, moduleInputChannel)) {
+					adapter = (RedisQueueInboundChannelAdapter) endpoint;
+					iterator.remove();
+					this.moduleChannels.remove(endpoint);
+				}
+			}
+		}
+		// removes the tap adapters
+		deleteInbound(name, moduleInputChannel);
+		if (adapter == null) {
+			return true;
+		}
+		adapter.stop();
+		return adapter.awaitStopped(Math.max(0, deadline - System.currentTimeMillis()));
+	}
+
 	@Override
 	public void deleteOutbound(String name) {
+		doDeleteOutbound(name, null);
+	}
+
+	@Override
+	public void deleteOutbound(String name, MessageChannel moduleOutputChannel) {
+		doDeleteOutbound(name, moduleOutputChannel);
+	}
+
+	private void doDeleteOutbound(String name, MessageChannel moduleOutputChannel) {
 		synchronized (this.lifecycleBeans) {
 			Iterator<Lifecycle> iterator = this.lifecycleBeans.iterator();
 			while (iterator.hasNext()) {
 				Lifecycle endpoint = iterator.next();
 				if (endpoint instanceof EventDrivenConsumer
-						&& ("outbound." + name).equals(((IntegrationObjectSupport) endpoint).getComponentName())) {
+						&& ("outbound." + name).equals(((IntegrationObjectSupport) endpoint).getComponentName())
+						&& this.isBoundTo(endpoint, moduleOutputChannel)) {
 					((EventDrivenConsumer) endpoint).stop();
 					iterator.remove();
+					this.moduleChannels.remove(endpoint);
 					return;
 				}
 			}
 		}
 	}
 
+	private void addLifecycleBean(Lifecycle endpoint, MessageChannel moduleChannel) {
+		synchronized (this.lifecycleBeans) {
+			this.lifecycleBeans.add(endpoint);
+			this.moduleChannels.put(endpoint, moduleChannel);
+		}
+	}
+
+	/**
+	 * Whether the endpoint is bound to the given module channel, any channel matching a null one.
+	 */
+	/**
+	 * Only the modules bound in this container are known: one bound in another container does not spare the wait.
+	 */
+	@Override
+	protected boolean hasOtherInbound(String name, MessageChannel moduleInputChannel) {
+		synchronized (this.lifecycleBeans) {
+			for (Lifecycle endpoint : this.lifecycleBeans) {
+				if (endpoint instanceof RedisQueueInboundChannelAdapter
+						&& ("inbound." + name).equals(((IntegrationObjectSupport) endpoint).getComponentName())
+						&& this.moduleChannels.get(endpoint) != moduleInputChannel && endpoint.isRunning()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean isBoundTo(Lifecycle endpoint, MessageChannel moduleChannel) {
+		return moduleChannel == null || this.moduleChannels.get(endpoint) == moduleChannel;
+	}
+
 	@Override
 	public void destroy() {
 		for (Lifecycle bean : this.lifecycleBeans) {
@@ -19,6 +19,8 @@ package org.springframework.integration.x.redis;
 import java.util.Date;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.springframework.data.redis.RedisSystemException;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -53,6 +55,11 @@ public class RedisQueueInboundChannelAdapter extends MessageProducerSupport {
 
 	private boolean enableDefaultSerializer = true;
 
+	/**
+	 * Held by the listener while it sends a message it popped from the queue.
+	 */
+	private final Lock sendLock = new ReentrantLock();
+
 	public RedisQueueInboundChannelAdapter(String queueName, RedisConnectionFactory connectionFactory) {
 		Assert.hasText(queueName, "queueName is required");
 		Assert.notNull(connectionFactory, "connectionFactory must not be null");
@@ -99,8 +106,30 @@ public class RedisQueueInboundChannelAdapter extends MessageProducerSupport {
 	protected void doStop() {
 		super.doStop();
 		if (this.listenerTask != null) {
-			this.listenerTask.cancel(true);
+			// interrupting a blocking pop could lose the message Redis has already removed from the queue; the
+			// listener returns after its current pop instead, pushing back what it popped
+			this.listenerTask.cancel(false);
+		}
+	}
+
+	/**
+	 * Wait, after the adapter has been stopped, until the listener has finished sending the message it was sending.
+	 * Messages popped from the queue after that are pushed back to it.
+	 * 
+	 * @param timeout how long to wait, in milliseconds
+	 * @return whether no message was being sent any more when this method returned
+	 */
+	public boolean awaitStopped(long timeout) {
+		try {
+			if (this.sendLock.tryLock(timeout, TimeUnit.MILLISECONDS)) {
+				this.sendLock.unlock();
+				return true;
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
+		return false;
 	}
 
 	private void initializeRedisTemplate() {
@@ -133,7 +162,13 @@ public class RedisQueueInboundChannelAdapter extends MessageProducerSupport {
 				while (isRunning()) {
 					Object next = redisTemplate.boundListOps(queueName).rightPop(5, TimeUnit.SECONDS);
 					if (next != null) {
+						sendLock.lock();
 						try {
+							if (!isRunning()) {
+								// stopped while waiting: leave the message for the next consumer, at the same end
+								redisTemplate.boundListOps(queueName).rightPush(next);
+								return;
+							}
 							Message<?> message = null;
 							if (extractPayload) {
 								message = MessageBuilder.withPayload(next).build();
@@ -147,6 +182,9 @@ public class RedisQueueInboundChannelAdapter extends MessageProducerSupport {
 						catch (Exception e) {
 							logger.error("Error sending message", e);
 						}
+						finally {
+							sendLock.unlock();
+						}
 					}
 
 				}
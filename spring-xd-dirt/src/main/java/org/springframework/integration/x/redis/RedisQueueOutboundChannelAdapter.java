@@ -20,7 +20,11 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.integration.Message;
+import org.springframework.integration.expression.ExpressionUtils;
 import org.springframework.integration.handler.AbstractMessageHandler;
 import org.springframework.util.Assert;
 
@@ -41,6 +45,10 @@ public class RedisQueueOutboundChannelAdapter extends AbstractMessageHandler {
 
 	private RedisSerializer<?> serializer;
 
+	private volatile Expression queueNameExpression;
+
+	private volatile EvaluationContext evaluationContext;
+
 	public RedisQueueOutboundChannelAdapter(String queueName, RedisConnectionFactory connectionFactory) {
 		Assert.hasText(queueName, "queueName is required");
 		Assert.notNull(connectionFactory, "connectionFactory must not be null");
@@ -65,10 +73,19 @@ public class RedisQueueOutboundChannelAdapter extends AbstractMessageHandler {
 		this.serializer = serializer;
 	}
 
+	/**
+	 * Set an expression that determines the queue from the message. When it evaluates to null, the message goes to
+	 * the queue given on construction.
+	 */
+	public void setQueueNameExpression(String queueNameExpression) {
+		this.queueNameExpression = new SpelExpressionParser().parseExpression(queueNameExpression);
+	}
+
 	@Override
 	protected void onInit() throws Exception {
 		super.onInit();
 		initializeRedisTemplate();
+		this.evaluationContext = ExpressionUtils.createStandardEvaluationContext(getBeanFactory());
 	}
 
 	@Override
@@ -77,10 +94,17 @@ public class RedisQueueOutboundChannelAdapter extends AbstractMessageHandler {
 		if (this.extractPayload) {
 			objToQueue = message.getPayload();
 		}
+		String queue = this.queueName;
+		if (this.queueNameExpression != null) {
+			String evaluated = this.queueNameExpression.getValue(this.evaluationContext, message, String.class);
+			if (evaluated != null) {
+				queue = evaluated;
+			}
+		}
 		if (logger.isDebugEnabled()) {
-			logger.debug("sending to redis queue '" + this.queueName + "': " + objToQueue);
+			logger.debug("sending to redis queue '" + queue + "': " + objToQueue);
 		}
-		this.redisTemplate.boundListOps(this.queueName).leftPush(objToQueue);
+		this.redisTemplate.boundListOps(queue).leftPush(objToQueue);
 	}
 
 	private void initializeRedisTemplate() {
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.x.redis;
+
+import java.nio.charset.Charset;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.util.Assert;
+import org.springframework.xd.tuple.TupleSchemaDictionary;
+
+/**
+ * A {@link TupleSchemaDictionary} kept in a Redis hash, shared by every container using the same Redis server.
+ * Schemas are never removed: there are only as many as distinct sets of field names sent over the transport.
+ *
+ * @since 1.0
+ */
+public class RedisTupleSchemaDictionary implements TupleSchemaDictionary {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final byte[] KEY = "tuple.schemas".getBytes(UTF_8);
+
+	private final RedisConnectionFactory connectionFactory;
+
+	public RedisTupleSchemaDictionary(RedisConnectionFactory connectionFactory) {
+		Assert.notNull(connectionFactory, "connectionFactory must not be null");
+		this.connectionFactory = connectionFactory;
+	}
+
+	@Override
+	public byte[] register(long fingerprint, byte[] namesBlock) {
+		byte[] field = field(fingerprint);
+		RedisConnection connection = this.connectionFactory.getConnection();
+		try {
+			if (Boolean.TRUE.equals(connection.hSetNX(KEY, field, namesBlock))) {
+				return null;
+			}
+			return connection.hGet(KEY, field);
+		}
+		finally {
+			connection.close();
+		}
+	}
+
+	@Override
+	public byte[] lookup(long fingerprint) {
+		RedisConnection connection = this.connectionFactory.getConnection();
+		try {
+			return connection.hGet(KEY, field(fingerprint));
+		}
+		finally {
+			connection.close();
+		}
+	}
+
+	private static byte[] field(long fingerprint) {
+		return Long.toHexString(fingerprint).getBytes(UTF_8);
+	}
+
+}
@@ -21,10 +21,9 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.net.URI;
-import java.util.Date;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -36,7 +35,7 @@ import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.integration.endpoint.MessageProducerSupport;
 import org.springframework.integration.support.MessageBuilder;
-import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.social.support.URIBuilder;
 import org.springframework.social.twitter.api.impl.TwitterTemplate;
 import org.springframework.util.StringUtils;
@@ -65,7 +64,9 @@ public class TwitterStreamChannelAdapter extends MessageProducerSupport {
 
 	private final TwitterTemplate twitter;
 
-	private ScheduledFuture<?> task;
+	private ExecutorService executor;
+
+	private Future<?> task;
 
 	private final AtomicBoolean running = new AtomicBoolean(false);
 
@@ -178,25 +179,26 @@ public class TwitterStreamChannelAdapter extends MessageProducerSupport {
 				return;
 			}
 			this.running.set(true);
-			StreamReadingTask task = new StreamReadingTask();
-			TaskScheduler scheduler = getTaskScheduler();
-			if (scheduler != null) {
-				this.task = scheduler.schedule(task, new Date());
-			}
-			else {
-				Executor executor = Executors.newSingleThreadExecutor();
-				executor.execute(task);
-			}
+			// the stream is read for as long as the adapter runs, so it gets its own thread rather than one of the
+			// shared task scheduler's
+			this.executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("twitter-stream-"));
+			this.task = this.executor.submit(new StreamReadingTask());
 		}
 	}
 
 	@Override
 	protected void doStop() {
-		if (this.task != null) {
-			this.task.cancel(true);
-			this.task = null;
+		synchronized (this.monitor) {
+			if (this.task != null) {
+				this.task.cancel(true);
+				this.task = null;
+			}
+			if (this.executor != null) {
+				this.executor.shutdown();
+				this.executor = null;
+			}
+			this.running.set(false);
 		}
-		this.running.set(false);
 	}
 
 	private URI buildUri() {
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.xd.dirt.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+import org.springframework.xd.dirt.module.ModuleDeploymentRequest;
+
+/**
+ * Places the modules of a deployment together: a module goes to a container that already received another module of
+ * the same deployment if the delegate finds one of them suitable, and is placed by the delegate among all containers
+ * otherwise. Co-location can be switched off with {@link #setEnabled(boolean)}, in which case every module is placed
+ * by the delegate alone.
+ *
+ * @since 1.0
+ */
+public class ColocatingPlacementStrategy implements PlacementStrategy {
+
+	private final PlacementStrategy delegate;
+
+	private volatile boolean enabled = true;
+
+	public ColocatingPlacementStrategy(PlacementStrategy delegate) {
+		Assert.notNull(delegate, "delegate must not be null");
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Set whether modules of a deployment are placed together (default true).
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Override
+	public ContainerAttributes choose(ModuleDeploymentRequest request, List<ContainerAttributes> containers,
+			Map<Integer, ContainerAttributes> placements) {
+		if (!this.enabled) {
+			return this.delegate.choose(request, containers, placements);
+		}
+		List<ContainerAttributes> used = new ArrayList<ContainerAttributes>();
+		for (ContainerAttributes container : containers) {
+			for (ContainerAttributes placed : placements.values()) {
+				if (placed.getId().equals(container.getId())) {
+					used.add(container);
+					break;
+				}
+			}
+		}
+		if (!used.isEmpty()) {
+			ContainerAttributes chosen = this.delegate.choose(request, used, placements);
+			if (chosen != null) {
+				return chosen;
+			}
+		}
+		return this.delegate.choose(request, containers, placements);
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.cluster;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * What a container publishes about itself in its heartbeat, for the admin to place modules with.
+ *
+ * @since 1.0
+ */
+public class ContainerAttributes {
+
+	private String id;
+
+	private String jvmName;
+
+	private Set<String> labels = Collections.emptySet();
+
+	private long freeMemory;
+
+	private int moduleCount;
+
+	private double load = -1;
+
+	private long timestamp;
+
+	public ContainerAttributes() {
+	}
+
+	public ContainerAttributes(String id) {
+		this.id = id;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getJvmName() {
+		return jvmName;
+	}
+
+	public void setJvmName(String jvmName) {
+		this.jvmName = jvmName;
+	}
+
+	/**
+	 * The labels the container was started with, e.g. "hadoop".
+	 */
+	public Set<String> getLabels() {
+		return labels;
+	}
+
+	public void setLabels(Set<String> labels) {
+		this.labels = (labels != null) ? new LinkedHashSet<String>(labels) : Collections.<String> emptySet();
+	}
+
+	/**
+	 * The heap the container can still allocate, in bytes.
+	 */
+	public long getFreeMemory() {
+		return freeMemory;
+	}
+
+	public void setFreeMemory(long freeMemory) {
+		this.freeMemory = freeMemory;
+	}
+
+	/**
+	 * The number of modules deployed in the container.
+	 */
+	public int getModuleCount() {
+		return moduleCount;
+	}
+
+	public void setModuleCount(int moduleCount) {
+		this.moduleCount = moduleCount;
+	}
+
+	/**
+	 * The system load average per processor, or a negative value if the platform does not provide it.
+	 */
+	public double getLoad() {
+		return load;
+	}
+
+	public void setLoad(double load) {
+		this.load = load;
+	}
+
+	/**
+	 * The time of the heartbeat, in milliseconds since the epoch.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public void setTimestamp(long timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	@Override
+	public String toString() {
+		return "ContainerAttributes [id=" + id + ", labels=" + labels + ", freeMemory=" + freeMemory
+				+ ", moduleCount=" + moduleCount + ", load=" + load + "]";
+	}
+
+}
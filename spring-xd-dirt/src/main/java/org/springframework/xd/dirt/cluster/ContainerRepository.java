@@ -0,0 +1,42 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.xd.dirt.cluster;
+
+import java.util.List;
+
+/**
+ * Gives access to the attributes the running containers last published.
+ *
+ * @since 1.0
+ */
+public interface ContainerRepository {
+
+	/**
+	 * Return the attributes of all live containers that have published them.
+	 */
+	List<ContainerAttributes> findAll();
+
+	/**
+	 * Return the ids of the containers that published attributes but are no longer alive.
+	 */
+	List<String> findDeadIds();
+
+	/**
+	 * Forget the attributes of the container with the given id.
+	 */
+	void delete(String containerId);
+
+}
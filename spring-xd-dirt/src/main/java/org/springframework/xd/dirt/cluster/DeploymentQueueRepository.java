@@ -0,0 +1,31 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.xd.dirt.cluster;
+
+/**
+ * Gives access to the queues that deployment requests addressed to a single container are sent to, for transports
+ * that keep one per container.
+ *
+ * @since 1.0
+ */
+public interface DeploymentQueueRepository {
+
+	/**
+	 * Delete the queue of the container with the given id, with any requests still waiting in it.
+	 */
+	void delete(String containerId);
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.xd.dirt.cluster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.xd.dirt.module.ModuleDeploymentRequest;
+
+/**
+ * Restricts the containers a module may be placed on to those carrying the labels the module requires, and lets the
+ * delegate choose among them. Required labels are configured per module name, e.g. {@code hdfs -> hadoop}; modules
+ * without an entry may go to any container.
+ *
+ * @since 1.0
+ */
+public class LabelMatchingPlacementStrategy implements PlacementStrategy {
+
+	private final PlacementStrategy delegate;
+
+	private volatile Map<String, Set<String>> requiredLabels = Collections.emptyMap();
+
+	public LabelMatchingPlacementStrategy(PlacementStrategy delegate) {
+		Assert.notNull(delegate, "delegate must not be null");
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Set the labels required by each module, as comma-delimited lists keyed by module name. Empty lists are ignored.
+	 */
+	public void setRequiredLabels(Map<String, String> requiredLabels) {
+		Map<String, Set<String>> labels = new HashMap<String, Set<String>>();
+		for (Map.Entry<String, String> entry : requiredLabels.entrySet()) {
+			String value = StringUtils.trimAllWhitespace(entry.getValue());
+			if (StringUtils.hasText(value)) {
+				labels.put(entry.getKey(), StringUtils.commaDelimitedListToSet(value));
+			}
+		}
+		this.requiredLabels = labels;
+	}
+
+	@Override
+	public ContainerAttributes choose(ModuleDeploymentRequest request, List<ContainerAttributes> containers,
+			Map<Integer, ContainerAttributes> placements) {
+		Set<String> labels = this.requiredLabels.get(request.getModule());
+		if (labels == null) {
+			return this.delegate.choose(request, containers, placements);
+		}
+		List<ContainerAttributes> matching = new ArrayList<ContainerAttributes>();
+		for (ContainerAttributes container : containers) {
+			if (container.getLabels().containsAll(labels)) {
+				matching.add(container);
+			}
+		}
+		return matching.isEmpty() ? null : this.delegate.choose(request, matching, placements);
+	}
+
+}
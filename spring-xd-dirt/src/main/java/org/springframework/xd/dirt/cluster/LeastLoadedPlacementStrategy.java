@@ -0,0 +1,52 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.xd.dirt.cluster;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.xd.dirt.module.ModuleDeploymentRequest;
+
+/**
+ * Chooses the container with the fewest modules, counting the modules placed on it by the current deployment, which
+ * its last heartbeat does not include yet. Ties go to the container with the most free memory.
+ *
+ * @since 1.0
+ */
+public class LeastLoadedPlacementStrategy implements PlacementStrategy {
+
+	@Override
+	public ContainerAttributes choose(ModuleDeploymentRequest request, List<ContainerAttributes> containers,
+			Map<Integer, ContainerAttributes> placements) {
+		ContainerAttributes best = null;
+		int bestCount = Integer.MAX_VALUE;
+		for (ContainerAttributes container : containers) {
+			int count = container.getModuleCount();
+			for (ContainerAttributes placed : placements.values()) {
+				if (placed.getId().equals(container.getId())) {
+					count++;
+				}
+			}
+			if (best == null || count < bestCount
+					|| (count == bestCount && container.getFreeMemory() > best.getFreeMemory())) {
+				best = container;
+				bestCount = count;
+			}
+		}
+		return best;
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.cluster;
+
+import org.springframework.xd.dirt.module.ModuleDeploymentRequest;
+
+/**
+ * The container a module is meant to run in, together with the request that deploys it there.
+ *
+ * @since 1.0
+ */
+public class ModuleAssignment {
+
+	private String containerId;
+
+	private ModuleDeploymentRequest request;
+
+	public ModuleAssignment() {
+	}
+
+	public ModuleAssignment(String containerId, ModuleDeploymentRequest request) {
+		this.containerId = containerId;
+		this.request = request;
+	}
+
+	public String getContainerId() {
+		return containerId;
+	}
+
+	public void setContainerId(String containerId) {
+		this.containerId = containerId;
+	}
+
+	public ModuleDeploymentRequest getRequest() {
+		return request;
+	}
+
+	public void setRequest(ModuleDeploymentRequest request) {
+		this.request = request;
+	}
+
+	@Override
+	public String toString() {
+		return "ModuleAssignment [containerId=" + containerId + ", module=" + request.getModule() + ", group="
+				+ request.getGroup() + ", index=" + request.getIndex() + "]";
+	}
+
+}
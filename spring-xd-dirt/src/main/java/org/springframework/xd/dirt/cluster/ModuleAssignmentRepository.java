@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.cluster;
+
+import java.util.List;
+
+/**
+ * Keeps the desired state of the deployed streams: which container each of their modules is assigned to.
+ *
+ * @since 1.0
+ */
+public interface ModuleAssignmentRepository {
+
+	/**
+	 * Save the assignment, replacing any previous assignment of the same module of the same group.
+	 */
+	void save(ModuleAssignment assignment);
+
+	/**
+	 * Delete the assignment of the module at the given index of the group, if any.
+	 */
+	void delete(String group, int index);
+
+	/**
+	 * Return the assignments of the modules of the group.
+	 */
+	List<ModuleAssignment> findByGroup(String group);
+
+	/**
+	 * Return the assignments of the modules of all groups.
+	 */
+	List<ModuleAssignment> findAll();
+
+}
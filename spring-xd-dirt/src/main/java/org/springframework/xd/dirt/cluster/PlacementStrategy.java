@@ -0,0 +1,41 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.xd.dirt.cluster;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.xd.dirt.module.ModuleDeploymentRequest;
+
+/**
+ * Chooses the container a module is deployed to.
+ *
+ * @since 1.0
+ */
+public interface PlacementStrategy {
+
+	/**
+	 * Choose the container for a module.
+	 *
+	 * @param request the module to deploy
+	 * @param containers the containers to choose from, never empty
+	 * @param placements the containers chosen so far for other modules of the same deployment, by module index
+	 * @return the chosen container, or {@code null} if none of the containers is suitable
+	 */
+	ContainerAttributes choose(ModuleDeploymentRequest request, List<ContainerAttributes> containers,
+			Map<Integer, ContainerAttributes> placements);
+
+}
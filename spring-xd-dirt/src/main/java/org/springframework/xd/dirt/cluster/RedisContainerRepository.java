@@ -0,0 +1,128 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.xd.dirt.cluster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads container attributes from the {@code containers} hash, where each container keeps its latest heartbeat.
+ *
+ * Along with its attributes, each container sets a {@code heartbeat:<id>} key that expires unless the next heartbeat
+ * renews it. A container whose key has expired is considered dead: it is left out of {@link #findAll()} and listed by
+ * {@link #findDeadIds()} until its entry is {@link #delete(String) deleted} from the hash. Reads never modify the hash.
+ *
+ * @since 1.0
+ */
+public class RedisContainerRepository implements ContainerRepository {
+
+	/**
+	 * The hash holding the attributes of each container, keyed by container id.
+	 */
+	public static final String CONTAINERS_KEY = "containers";
+
+	/**
+	 * The prefix of the key each container renews with every heartbeat.
+	 */
+	public static final String HEARTBEAT_KEY_PREFIX = "heartbeat:";
+
+	private final Log logger = LogFactory.getLog(this.getClass());
+
+	private final StringRedisTemplate redisTemplate = new StringRedisTemplate();
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	public RedisContainerRepository(RedisConnectionFactory connectionFactory) {
+		Assert.notNull(connectionFactory, "connectionFactory must not be null");
+		this.redisTemplate.setConnectionFactory(connectionFactory);
+		this.redisTemplate.afterPropertiesSet();
+		this.mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+	}
+
+	/**
+	 * Return the key that is present while the given container is alive.
+	 */
+	public static String heartbeatKey(String containerId) {
+		return HEARTBEAT_KEY_PREFIX + containerId;
+	}
+
+	@Override
+	public List<ContainerAttributes> findAll() {
+		List<ContainerAttributes> containers = new ArrayList<ContainerAttributes>();
+		for (Map.Entry<String, String> entry : findPublished(true).entrySet()) {
+			try {
+				containers.add(this.mapper.readValue(entry.getValue(), ContainerAttributes.class));
+			}
+			catch (Exception e) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("ignoring unreadable attributes of container " + entry.getKey() + ": "
+							+ entry.getValue(), e);
+				}
+			}
+		}
+		return containers;
+	}
+
+	@Override
+	public List<String> findDeadIds() {
+		return new ArrayList<String>(findPublished(false).keySet());
+	}
+
+	@Override
+	public void delete(String containerId) {
+		this.redisTemplate.boundHashOps(CONTAINERS_KEY).delete(containerId);
+	}
+
+	/**
+	 * Return the attributes of the containers that publish them and whose heartbeat key is present, or absent, by
+	 * container id.
+	 */
+	private Map<String, String> findPublished(boolean alive) {
+		Map<Object, Object> entries = this.redisTemplate.boundHashOps(CONTAINERS_KEY).entries();
+		List<String> ids = new ArrayList<String>(entries.size());
+		List<String> heartbeatKeys = new ArrayList<String>(entries.size());
+		for (Object id : entries.keySet()) {
+			ids.add(id.toString());
+			heartbeatKeys.add(heartbeatKey(id.toString()));
+		}
+		List<String> heartbeats = heartbeatKeys.isEmpty() ? Collections.<String> emptyList()
+				: this.redisTemplate.opsForValue().multiGet(heartbeatKeys);
+		Map<String, String> containers = new LinkedHashMap<String, String>();
+		for (int i = 0; i < ids.size(); i++) {
+			String id = ids.get(i);
+			String value = entries.get(id).toString();
+			// containers that do not publish attributes are left alone
+			if (value.startsWith("{") && (heartbeats.get(i) != null) == alive) {
+				containers.put(id, value);
+			}
+		}
+		return containers;
+	}
+
+}
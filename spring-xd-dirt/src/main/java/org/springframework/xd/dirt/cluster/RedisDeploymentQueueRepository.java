@@ -0,0 +1,54 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.xd.dirt.cluster;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Deletes the {@code queue.deployer.<id>} list that the admin pushes the deployment requests for each container to.
+ *
+ * @since 1.0
+ */
+public class RedisDeploymentQueueRepository implements DeploymentQueueRepository {
+
+	/**
+	 * The prefix of the queue of each container, followed by the container id.
+	 */
+	public static final String QUEUE_KEY_PREFIX = "queue.deployer.";
+
+	private final StringRedisTemplate redisTemplate = new StringRedisTemplate();
+
+	public RedisDeploymentQueueRepository(RedisConnectionFactory connectionFactory) {
+		Assert.notNull(connectionFactory, "connectionFactory must not be null");
+		this.redisTemplate.setConnectionFactory(connectionFactory);
+		this.redisTemplate.afterPropertiesSet();
+	}
+
+	/**
+	 * Return the key of the queue of the given container.
+	 */
+	public static String queueKey(String containerId) {
+		return QUEUE_KEY_PREFIX + containerId;
+	}
+
+	@Override
+	public void delete(String containerId) {
+		this.redisTemplate.delete(queueKey(containerId));
+	}
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.cluster;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.BoundHashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Keeps the assignments of each group in an {@code assignments:<group>} hash keyed by module index, and the names of
+ * the groups with assignments in the {@code assignments} set.
+ *
+ * @since 1.0
+ */
+public class RedisModuleAssignmentRepository implements ModuleAssignmentRepository {
+
+	/**
+	 * The set holding the names of the groups with assignments, and the prefix of the hash of each group.
+	 */
+	public static final String ASSIGNMENTS_KEY = "assignments";
+
+	private final Log logger = LogFactory.getLog(this.getClass());
+
+	private final StringRedisTemplate redisTemplate = new StringRedisTemplate();
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	public RedisModuleAssignmentRepository(RedisConnectionFactory connectionFactory) {
+		Assert.notNull(connectionFactory, "connectionFactory must not be null");
+		this.redisTemplate.setConnectionFactory(connectionFactory);
+		this.redisTemplate.afterPropertiesSet();
+		this.mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+	}
+
+	@Override
+	public void save(ModuleAssignment assignment) {
+		String group = assignment.getRequest().getGroup();
+		try {
+			this.hashFor(group).put(Integer.toString(assignment.getRequest().getIndex()),
+					this.mapper.writeValueAsString(assignment));
+		}
+		catch (JsonProcessingException e) {
+			throw new SerializationException("failed to write " + assignment, e);
+		}
+		this.redisTemplate.boundSetOps(ASSIGNMENTS_KEY).add(group);
+	}
+
+	@Override
+	public void delete(String group, int index) {
+		BoundHashOperations<String, String, String> hash = this.hashFor(group);
+		hash.delete(Integer.toString(index));
+		if (hash.size() == 0) {
+			this.redisTemplate.boundSetOps(ASSIGNMENTS_KEY).remove(group);
+		}
+	}
+
+	@Override
+	public List<ModuleAssignment> findByGroup(String group) {
+		Collection<String> values = this.hashFor(group).values();
+		List<ModuleAssignment> assignments = new ArrayList<ModuleAssignment>(values.size());
+		for (String value : values) {
+			try {
+				assignments.add(this.mapper.readValue(value, ModuleAssignment.class));
+			}
+			catch (Exception e) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("ignoring unreadable module assignment of '" + group + "': " + value, e);
+				}
+			}
+		}
+		return assignments;
+	}
+
+	@Override
+	public List<ModuleAssignment> findAll() {
+		List<ModuleAssignment> assignments = new ArrayList<ModuleAssignment>();
+		for (String group : this.redisTemplate.boundSetOps(ASSIGNMENTS_KEY).members()) {
+			assignments.addAll(this.findByGroup(group));
+		}
+		return assignments;
+	}
+
+	private BoundHashOperations<String, String, String> hashFor(String group) {
+		return this.redisTemplate.boundHashOps(ASSIGNMENTS_KEY + ":" + group);
+	}
+
+}
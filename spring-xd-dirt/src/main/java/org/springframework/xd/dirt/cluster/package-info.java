@@ -0,0 +1,5 @@
+/**
+ * Package for the containers known to the admin and the placement of modules on them.
+ */
+
+package org.springframework.xd.dirt.cluster;
@@ -18,6 +18,7 @@ package org.springframework.xd.dirt.container;
 
 import java.io.File;
 import java.lang.management.ManagementFactory;
+import java.util.Collections;
 import java.util.UUID;
 
 import org.apache.commons.lang.StringUtils;
@@ -33,6 +34,7 @@ import org.springframework.context.ApplicationListener;
 import org.springframework.context.SmartLifecycle;
 import org.springframework.context.support.AbstractApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.core.env.MapPropertySource;
 import org.springframework.util.Assert;
 import org.springframework.xd.dirt.core.Container;
 import org.springframework.xd.dirt.event.ContainerStartedEvent;
@@ -70,6 +72,11 @@ public class DefaultContainer implements Container, SmartLifecycle, ApplicationC
 
 	private static final String LOG4J_FILE_APPENDER = "file";
 
+	/**
+	 * The property that holds the container id in the container's environment, e.g. to name its own queues.
+	 */
+	public static final String XD_CONTAINER_ID_KEY = "xd.container.id";
+
 	private volatile AbstractApplicationContext context;
 
 	private final String id;
@@ -131,6 +138,9 @@ public class DefaultContainer implements Container, SmartLifecycle, ApplicationC
 	public void start() {
 		this.context = new ClassPathXmlApplicationContext(new String[] { CORE_CONFIG, PLUGIN_CONFIGS }, false);
 		context.setId(this.id);
+		context.getEnvironment().getPropertySources().addFirst(
+				new MapPropertySource("container", Collections.<String, Object> singletonMap(XD_CONTAINER_ID_KEY,
+						this.id)));
 		updateLoggerFilename();
 		Assert.notNull(deployerContext, "no ApplicationContext has been set");
 		ApplicationContext analyticsContext = deployerContext.getParent();
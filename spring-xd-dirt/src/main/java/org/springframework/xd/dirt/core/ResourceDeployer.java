@@ -31,6 +31,16 @@ public interface ResourceDeployer<R extends BaseDefinition> {
 
 	void deploy(String name);
 
+	/**
+	 * Deploy the definition and wait until the containers have acknowledged the deployment of all its modules.
+	 * 
+	 * @param name the name of the definition to deploy
+	 * @param timeout the time to wait for the acknowledgements, in milliseconds
+	 * @throws org.springframework.xd.dirt.stream.DeploymentFailedException if a module failed to deploy, or was not
+	 *         acknowledged in time
+	 */
+	void deploy(String name, long timeout);
+
 	/**
 	 * @return Iterable all definitions
 	 */
@@ -16,13 +16,36 @@
 
 package org.springframework.xd.dirt.listener;
 
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.xd.dirt.cluster.ContainerAttributes;
+import org.springframework.xd.dirt.cluster.RedisContainerRepository;
 import org.springframework.xd.dirt.core.Container;
 import org.springframework.xd.dirt.event.ContainerStartedEvent;
 import org.springframework.xd.dirt.event.ContainerStoppedEvent;
+import org.springframework.xd.dirt.module.ModuleDeployer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
+ * Keeps the container's entry in the {@code containers} hash up to date. While the container runs, its
+ * {@link ContainerAttributes} are written every {@link #setHeartbeatInterval(long) heartbeatInterval} milliseconds,
+ * for the admin to place modules with, and its heartbeat key is renewed to expire after
+ * {@link #setHeartbeatTimeout(long) heartbeatTimeout} milliseconds. Once the key expires, the admin considers the
+ * container dead and redeploys its modules elsewhere.
+ *
  * @author Mark Fisher
  * @author Jennifer Hickey
  * @author Gary Russell
@@ -31,24 +54,134 @@ import org.springframework.xd.dirt.event.ContainerStoppedEvent;
  */
 public class RedisContainerEventListener extends AbstractContainerEventListener {
 
+	private final Log logger = LogFactory.getLog(this.getClass());
+
 	private final StringRedisTemplate redisTemplate = new StringRedisTemplate();
 
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private volatile Set<String> labels = Collections.emptySet();
+
+	private volatile ModuleDeployer moduleDeployer;
+
+	private volatile long heartbeatInterval = 5000;
+
+	private volatile long heartbeatTimeout = 15000;
+
+	private volatile ThreadPoolTaskScheduler scheduler;
+
+	private volatile ScheduledFuture<?> heartbeat;
+
 	public RedisContainerEventListener(RedisConnectionFactory redisConnectionFactory) {
 		this.redisTemplate.setConnectionFactory(redisConnectionFactory);
 		this.redisTemplate.afterPropertiesSet();
 	}
 
+	/**
+	 * Set the container's labels as a comma-delimited list.
+	 */
+	public void setLabels(String labels) {
+		this.labels = StringUtils.hasText(labels) ? StringUtils.commaDelimitedListToSet(StringUtils
+				.trimAllWhitespace(labels)) : Collections.<String> emptySet();
+	}
+
+	/**
+	 * Set the deployer whose modules are counted in the heartbeat.
+	 */
+	public void setModuleDeployer(ModuleDeployer moduleDeployer) {
+		this.moduleDeployer = moduleDeployer;
+	}
+
+	/**
+	 * Set the interval in milliseconds between heartbeats (default 5000). Zero publishes the attributes at startup
+	 * only.
+	 */
+	public void setHeartbeatInterval(long heartbeatInterval) {
+		Assert.isTrue(heartbeatInterval >= 0, "heartbeatInterval must not be negative");
+		this.heartbeatInterval = heartbeatInterval;
+	}
+
+	/**
+	 * Set the time in milliseconds after which the container is considered dead if no heartbeat renewed its key
+	 * (default 15000). It should span several heartbeat intervals, so that a late heartbeat does not get the
+	 * container's modules deployed twice.
+	 */
+	public void setHeartbeatTimeout(long heartbeatTimeout) {
+		Assert.isTrue(heartbeatTimeout > 0, "heartbeatTimeout must be positive");
+		this.heartbeatTimeout = heartbeatTimeout;
+	}
+
 	@Override
 	protected void onContainerStartedEvent(ContainerStartedEvent event) {
 		final Container container = event.getSource();
-		this.redisTemplate.boundHashOps("containers").put(container.getId(), container.getJvmName());
+		this.publishAttributes(container);
+		if (this.heartbeatInterval > 0) {
+			synchronized (this) {
+				if (this.scheduler == null) {
+					ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+					scheduler.setThreadNamePrefix("container-heartbeat-");
+					scheduler.setDaemon(true);
+					scheduler.afterPropertiesSet();
+					this.scheduler = scheduler;
+				}
+				this.heartbeat = this.scheduler.scheduleAtFixedRate(new Runnable() {
+
+					@Override
+					public void run() {
+						publishAttributes(container);
+					}
+				}, this.heartbeatInterval);
+			}
+		}
 	}
 
 	@Override
 	protected void onContainerStoppedEvent(ContainerStoppedEvent event) {
+		synchronized (this) {
+			if (this.heartbeat != null) {
+				this.heartbeat.cancel(false);
+				this.heartbeat = null;
+			}
+			if (this.scheduler != null) {
+				this.scheduler.shutdown();
+				this.scheduler = null;
+			}
+		}
 		Container container = event.getSource();
-		this.redisTemplate.boundHashOps("containers").delete(container.getId());
+		this.redisTemplate.boundHashOps(RedisContainerRepository.CONTAINERS_KEY).delete(container.getId());
+		this.redisTemplate.delete(RedisContainerRepository.heartbeatKey(container.getId()));
 		this.redisTemplate.delete(container.getId());
 	}
 
+	private void publishAttributes(Container container) {
+		ContainerAttributes attributes = new ContainerAttributes(container.getId());
+		attributes.setJvmName(container.getJvmName());
+		attributes.setLabels(this.labels);
+		Runtime runtime = Runtime.getRuntime();
+		attributes.setFreeMemory(runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory()));
+		ModuleDeployer deployer = this.moduleDeployer;
+		attributes.setModuleCount((deployer != null) ? deployer.getDeployedModuleCount() : 0);
+		double loadAverage = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+		attributes.setLoad((loadAverage < 0) ? loadAverage : loadAverage / runtime.availableProcessors());
+		attributes.setTimestamp(System.currentTimeMillis());
+		try {
+			// renew the heartbeat first, for the admin not to see the attributes of a container it considers dead
+			String heartbeatKey = RedisContainerRepository.heartbeatKey(container.getId());
+			if (this.heartbeatInterval > 0) {
+				this.redisTemplate.opsForValue().set(heartbeatKey, Long.toString(attributes.getTimestamp()),
+						this.heartbeatTimeout, TimeUnit.MILLISECONDS);
+			}
+			else {
+				this.redisTemplate.opsForValue().set(heartbeatKey, Long.toString(attributes.getTimestamp()));
+			}
+			this.redisTemplate.boundHashOps(RedisContainerRepository.CONTAINERS_KEY).put(container.getId(),
+					this.mapper.writeValueAsString(attributes));
+		}
+		catch (Exception e) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("failed to publish the attributes of container " + container.getId(), e);
+			}
+		}
+	}
+
 }
@@ -16,22 +16,103 @@
 
 package org.springframework.xd.dirt.module;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.springframework.core.io.Resource;
 import org.springframework.xd.module.ModuleDefinition;
+import org.springframework.xd.module.ModuleType;
 
 /**
+ * Base class for registries that look module definitions up by name and type.
+ *
+ * Definitions are cached while the {@link #getVersion(Resource) version} of their resource stays the same, so that
+ * the bean definitions a definition parses once are reused by every module created from it. A registry that cannot
+ * tell versions apart creates a new definition on every lookup.
+ *
  * @author Mark Fisher
  * @author Gary Russell
  */
 public abstract class AbstractModuleRegistry implements ModuleRegistry {
 
+	private final ConcurrentMap<String, CachedDefinition> cache = new ConcurrentHashMap<String, CachedDefinition>();
+
 	@Override
 	public ModuleDefinition lookup(String name, String type) {
 		Resource resource = this.loadResource(name, type);
-		ModuleDefinition module = new ModuleDefinition(name, type, resource);
-		// TODO: add properties from a property registry
-		return module;
+		String key = type + ":" + name;
+		Object version = (resource != null) ? this.getVersion(resource) : null;
+		if (version == null) {
+			this.cache.remove(key);
+			// TODO: add properties from a property registry
+			return this.createDefinition(name, type, resource);
+		}
+		CachedDefinition cached = this.cache.get(key);
+		if (cached == null || !version.equals(cached.version)) {
+			cached = new CachedDefinition(this.createDefinition(name, type, resource), version);
+			this.cache.put(key, cached);
+		}
+		return cached.definition;
+	}
+
+	@Override
+	public List<ModuleDefinition> findDefinitions(String name) {
+		ArrayList<ModuleDefinition> definitions = new ArrayList<ModuleDefinition>();
+		for (ModuleType type : ModuleType.values()) {
+			ModuleDefinition definition = lookup(name, type.getTypeName());
+			if (definition.getResource() != null) {
+				definitions.add(definition);
+			}
+		}
+		return definitions;
+	}
+
+	/**
+	 * The default implementation returns {@code null}, as a registry that only loads resources by name cannot tell
+	 * when they are added or removed.
+	 */
+	@Override
+	public Object getRegistryVersion() {
+		return null;
+	}
+
+	private ModuleDefinition createDefinition(String name, String type, Resource resource) {
+		ModuleDefinition definition = new ModuleDefinition(name, type, resource);
+		if (resource != null) {
+			definition.setClasspath(this.loadClasspath(name, type));
+		}
+		return definition;
 	}
 
 	protected abstract Resource loadResource(String name, String type);
+
+	/**
+	 * Return the jars of the module, which its classes are loaded from before the classpath of the container. The
+	 * default implementation returns none.
+	 */
+	protected Resource[] loadClasspath(String name, String type) {
+		return new Resource[0];
+	}
+
+	/**
+	 * Return a value that changes whenever the content of the resource or the jars of the module do, or {@code null} if definitions of this
+	 * resource should not be cached. The default implementation returns {@code null}.
+	 */
+	protected Object getVersion(Resource resource) {
+		return null;
+	}
+
+	private static class CachedDefinition {
+
+		private final ModuleDefinition definition;
+
+		private final Object version;
+
+		private CachedDefinition(ModuleDefinition definition, Object version) {
+			this.definition = definition;
+			this.version = version;
+		}
+	}
 }
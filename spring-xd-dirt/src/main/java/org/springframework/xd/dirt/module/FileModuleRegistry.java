@@ -17,21 +17,32 @@
 package org.springframework.xd.dirt.module;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.FileFilter;
+import java.util.Arrays;
 
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.util.Assert;
-import org.springframework.xd.module.ModuleDefinition;
 import org.springframework.xd.module.ModuleType;
 
 /**
+ * Loads modules from a directory holding a directory per module type. The definition of a module is the XML file
+ * named after it, e.g. {@code sink/hdfs.xml}, and the jars of the module, if it has any, are in the {@code lib}
+ * directory of the directory named after it, e.g. {@code sink/hdfs/lib/*.jar}.
+ * 
  * @author Mark Fisher
  * @author Glenn Renfro
  */
 public class FileModuleRegistry extends AbstractModuleRegistry {
 
+	private static final FileFilter JAR_FILTER = new FileFilter() {
+
+		@Override
+		public boolean accept(File file) {
+			return file.isFile() && file.getName().endsWith(".jar");
+		}
+	};
+
 	private final File directory;
 
 	public FileModuleRegistry(String directory) {
@@ -50,15 +61,52 @@ public class FileModuleRegistry extends AbstractModuleRegistry {
 	}
 
 	@Override
-	public List<ModuleDefinition> findDefinitions(String name) {
-		ArrayList<ModuleDefinition> definitions = new ArrayList<ModuleDefinition>();
+	protected Resource[] loadClasspath(String name, String type) {
+		File[] jars = jars(new File(directory, type + File.separator + name));
+		Resource[] classpath = new Resource[jars.length];
+		for (int i = 0; i < jars.length; i++) {
+			classpath[i] = new FileSystemResource(jars[i]);
+		}
+		return classpath;
+	}
+
+	/**
+	 * The modification times of the directories of each module type, which change when a file is added to or removed
+	 * from them.
+	 */
+	@Override
+	public Object getRegistryVersion() {
+		StringBuilder version = new StringBuilder();
 		for (ModuleType type : ModuleType.values()) {
-			Resource resource = loadResource(name, type.getTypeName());
-			if (resource != null) {
-				ModuleDefinition moduleDef = new ModuleDefinition(name, type.getTypeName(), resource);
-				definitions.add(moduleDef);
-			}
+			version.append(new File(directory, type.getTypeName()).lastModified()).append(':');
+		}
+		return version.toString();
+	}
+
+	/**
+	 * The modification time and length of the file, and of the jars of the module.
+	 */
+	@Override
+	protected Object getVersion(Resource resource) {
+		File file = ((FileSystemResource) resource).getFile();
+		StringBuilder version = new StringBuilder().append(file.lastModified()).append(':').append(file.length());
+		String name = file.getName().substring(0, file.getName().length() - ".xml".length());
+		for (File jar : jars(new File(file.getParentFile(), name))) {
+			version.append(',').append(jar.getName()).append(':').append(jar.lastModified()).append(':')
+					.append(jar.length());
+		}
+		return version.toString();
+	}
+
+	/**
+	 * The jars in the lib directory of the given module directory, sorted by name.
+	 */
+	private static File[] jars(File moduleDirectory) {
+		File[] jars = new File(moduleDirectory, "lib").listFiles(JAR_FILTER);
+		if (jars == null) {
+			return new File[0];
 		}
-		return definitions;
+		Arrays.sort(jars);
+		return jars;
 	}
 }
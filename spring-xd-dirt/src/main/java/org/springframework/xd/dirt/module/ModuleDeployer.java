@@ -16,22 +16,32 @@
 
 package org.springframework.xd.dirt.module;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
 import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import org.springframework.xd.dirt.container.DefaultContainer;
@@ -50,7 +60,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  * @author Gary Russell
  */
 public class ModuleDeployer extends AbstractMessageHandler implements ApplicationContextAware,
-		ApplicationEventPublisherAware {
+		ApplicationEventPublisherAware, ApplicationListener<ContextClosedEvent>, DisposableBean {
 
 	private final Log logger = LogFactory.getLog(this.getClass());
 
@@ -68,11 +78,110 @@ public class ModuleDeployer extends AbstractMessageHandler implements Applicatio
 
 	private final ModuleRegistry moduleRegistry;
 
+	private volatile int deploymentThreads;
+
+	private volatile ExecutorService deploymentExecutor;
+
+	/**
+	 * In-flight deployments by group and index.
+	 */
+	private final ConcurrentMap<String, Deployment> pendingDeployments = new ConcurrentHashMap<String, Deployment>();
+
+	/**
+	 * The most recently requested deployment of each group.
+	 */
+	private final ConcurrentMap<String, Deployment> lastDeployments = new ConcurrentHashMap<String, Deployment>();
+
+	private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+
+	/**
+	 * The deployment each deployed or pending module was requested by, by group and index.
+	 */
+	private final ConcurrentMap<String, String> deploymentIds = new ConcurrentHashMap<String, String>();
+
+	private volatile MessageChannel ackChannel;
+
+	private volatile String containerId;
+
 	public ModuleDeployer(ModuleRegistry moduleRegistry) {
 		Assert.notNull(moduleRegistry, "moduleRegistry must not be null");
 		this.moduleRegistry = moduleRegistry;
 	}
 
+	/**
+	 * Set the number of threads that deploy modules concurrently. With the default of 0, each module is deployed on
+	 * the thread that delivers its request, which then sees any deployment failure. Otherwise the requests are handed
+	 * to a pool of this size: module contexts are refreshed in parallel, and a module is only started once the modules
+	 * of the same stream that were requested before it, and lie downstream of it, have been started.
+	 */
+	public void setDeploymentThreads(int deploymentThreads) {
+		Assert.isTrue(deploymentThreads >= 0, "deploymentThreads must not be negative");
+		this.deploymentThreads = deploymentThreads;
+	}
+
+	/**
+	 * Set the channel to send a {@link ModuleDeploymentAck} to for each module deployed, or failed to deploy, on
+	 * behalf of a deployment with an id.
+	 */
+	public void setAckChannel(MessageChannel ackChannel) {
+		this.ackChannel = ackChannel;
+	}
+
+	/**
+	 * Set the id of the container, to include in acknowledgements.
+	 */
+	public void setContainerId(String containerId) {
+		this.containerId = containerId;
+	}
+
+	@Override
+	protected void onInit() throws Exception {
+		if (this.deploymentThreads > 0) {
+			this.deploymentExecutor = Executors.newFixedThreadPool(this.deploymentThreads,
+					new CustomizableThreadFactory("module-deployer-"));
+		}
+	}
+
+	@Override
+	public void destroy() {
+		ExecutorService executor = this.deploymentExecutor;
+		if (executor != null) {
+			this.deploymentExecutor = null;
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Undeploy the modules of each group, from source to sink, when the container shuts down, so that each module can
+	 * drain the messages sent to it before it is stopped.
+	 */
+	@Override
+	public void onApplicationEvent(ContextClosedEvent event) {
+		if (event.getApplicationContext() != this.deployerContext) {
+			return;
+		}
+		for (String group : new ArrayList<String>(this.deployedModules.keySet())) {
+			Map<Integer, Module> modules = this.deployedModules.get(group);
+			if (modules == null) {
+				continue;
+			}
+			for (Integer index : new TreeSet<Integer>(modules.keySet())) {
+				ModuleDeploymentRequest request = new ModuleDeploymentRequest();
+				request.setGroup(group);
+				request.setIndex(index);
+				request.setRemove(true);
+				try {
+					this.undeploy(request);
+				}
+				catch (Exception e) {
+					if (logger.isWarnEnabled()) {
+						logger.warn("failed to undeploy module " + group + ":" + index + " on shutdown", e);
+					}
+				}
+			}
+		}
+	}
+
 	@Override
 	public void setApplicationContext(ApplicationContext context) {
 		this.deployerContext = context;
@@ -94,24 +203,59 @@ public class ModuleDeployer extends AbstractMessageHandler implements Applicatio
 	}
 
 	@Override
-	protected synchronized void handleMessageInternal(Message<?> message) throws Exception {
-		ModuleDeploymentRequest request = this.mapper.readValue(message.getPayload().toString(),
-				ModuleDeploymentRequest.class);
+	protected void handleMessageInternal(Message<?> message) throws Exception {
+		String payload = message.getPayload().toString();
+		Object properties = message.getHeaders().get("properties");
+		if (!payload.trim().startsWith("[")) {
+			this.handleRequest(this.mapper.readValue(payload, ModuleDeploymentRequest.class), properties);
+			return;
+		}
+		// a batch of the modules of one stream placed on this container, every one of which gets handled
+		Exception failure = null;
+		for (ModuleDeploymentRequest request : this.mapper.readValue(payload, ModuleDeploymentRequest[].class)) {
+			try {
+				this.handleRequest(request, properties);
+			}
+			catch (Exception e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private void handleRequest(ModuleDeploymentRequest request, Object properties) throws Exception {
 		if (request.isRemove()) {
 			this.undeploy(request);
+			return;
 		}
-		else {
-			String group = request.getGroup();
-			int index = request.getIndex();
+		String group = request.getGroup();
+		int index = request.getIndex();
+		String key = group + ":" + index;
+		String deploymentId = request.getDeploymentId();
+		if (deploymentId != null && deploymentId.equals(this.deploymentIds.put(key, deploymentId))) {
+			// a request that was delivered again: a pending deployment acknowledges it once it is done
+			if (!this.pendingDeployments.containsKey(key) && this.isDeployed(group, index)) {
+				this.acknowledge(request, null);
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("ignoring duplicate deployment request: " + request);
+			}
+			return;
+		}
+		Module module;
+		try {
 			String name = request.getModule();
 			String type = request.getType();
 			ModuleDefinition definition = this.moduleRegistry.lookup(name, type);
 			Assert.notNull(definition, "No moduleDefinition for " + name + ":" + type);
-			DeploymentMetadata metadata = new DeploymentMetadata(group, index, request.getSourceChannelName(),
-					request.getSinkChannelName());
-			Module module = new SimpleModule(definition, metadata);
+			DeploymentMetadata metadata = new DeploymentMetadata(group, index, request.getIndexOffset(),
+					request.getSourceChannelName(), request.getSinkChannelName());
+			module = new SimpleModule(definition, metadata);
 			module.setParentContext(this.commonContext);
-			Object properties = message.getHeaders().get("properties");
 			if (properties instanceof Properties) {
 				module.addProperties((Properties) properties);
 			}
@@ -122,49 +266,135 @@ public class ModuleDeployer extends AbstractMessageHandler implements Applicatio
 				module.addProperties(parametersAsProps);
 			}
 			module.setParentContext(this.commonContext);
-			this.deployModule(module);
-			String key = group + ":" + module.getName() + ":" + index;
-			if (logger.isInfoEnabled()) {
-				logger.info("launched " + module.getType() + " module: " + key);
+		}
+		catch (Exception e) {
+			this.failed(request, e);
+			throw e;
+		}
+		ExecutorService executor = this.deploymentExecutor;
+		Deployment deployment = new Deployment(module, request, executor != null);
+		if (executor == null) {
+			deployment.run();
+			if (deployment.failure != null) {
+				throw deployment.failure;
+			}
+		}
+		else {
+			// requests for a stream arrive sink first; remembering the previous one per group lets each module
+			// wait for its downstream modules to start while all of their contexts are refreshed concurrently
+			deployment.predecessor = this.lastDeployments.put(group, deployment);
+			this.pendingDeployments.put(deployment.key, deployment);
+			executor.execute(deployment);
+		}
+	}
+
+	private boolean isDeployed(String group, int index) {
+		Map<Integer, Module> modules = this.deployedModules.get(group);
+		return modules != null && modules.containsKey(index);
+	}
+
+	private void failed(ModuleDeploymentRequest request, Exception failure) {
+		if (request.getDeploymentId() != null) {
+			this.deploymentIds.remove(request.getGroup() + ":" + request.getIndex(), request.getDeploymentId());
+		}
+		this.acknowledge(request, failure);
+	}
+
+	/**
+	 * Tell the admin whether the module of the request was deployed, if the request is part of a deployment it
+	 * tracks.
+	 */
+	private void acknowledge(ModuleDeploymentRequest request, Exception failure) {
+		MessageChannel channel = this.ackChannel;
+		if (channel == null || request.getDeploymentId() == null) {
+			return;
+		}
+		ModuleDeploymentAck ack = new ModuleDeploymentAck(request, this.containerId, failure);
+		try {
+			channel.send(MessageBuilder.withPayload(this.mapper.writeValueAsString(ack)).build());
+		}
+		catch (Exception e) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("failed to send " + ack, e);
 			}
-			this.deployedModules.putIfAbsent(group, new HashMap<Integer, Module>());
-			this.deployedModules.get(group).put(index, module);
 		}
 	}
 
-	private void deployModule(Module module) {
-		this.preProcessModule(module);
-		module.initialize();
-		this.postProcessModule(module);
-		module.start();
-		this.fireModuleDeployedEvent(module);
+	/**
+	 * Return the number of modules currently deployed by this deployer.
+	 */
+	public int getDeployedModuleCount() {
+		int count = 0;
+		for (Map<Integer, Module> modules : this.deployedModules.values()) {
+			count += modules.size();
+		}
+		return count;
 	}
 
 	public void undeploy(ModuleDeploymentRequest request) {
 		String group = request.getGroup();
-		Map<Integer, Module> modules = this.deployedModules.get(group);
-		if (modules != null) {
-			int index = request.getIndex();
-			Module module = modules.remove(index);
-			if (modules.size() == 0) {
-				this.deployedModules.remove(group);
-			}
+		int index = request.getIndex();
+		String key = group + ":" + index;
+		Deployment pending = this.pendingDeployments.get(key);
+		if (pending != null) {
+			// let an in-flight deployment of the same module finish so that it is not left running
+			pending.await();
+		}
+		Module module;
+		synchronized (lockFor(key)) {
+			this.deploymentIds.remove(key);
+			module = removeDeployedModule(group, index);
 			if (module != null) {
 				if (logger.isDebugEnabled()) {
 					logger.debug("removed " + module.getType() + " module: " + group + ":" + module.getName() + ":"
 							+ index);
 				}
-				// TODO: add beforeShutdown and/or afterShutdown callbacks?
+				this.beforeShutdown(module);
 				module.stop();
 				this.removeModule(module);
 				this.fireModuleUndeployedEvent(module);
 			}
 		}
-		else {
-			if (logger.isTraceEnabled()) {
-				logger.trace("Ignoring undeploy - module not deployed here: " + request);
+		if (module == null && logger.isTraceEnabled()) {
+			logger.trace("Ignoring undeploy - module not deployed here: " + request);
+		}
+	}
+
+	private Object lockFor(String key) {
+		Object lock = this.locks.get(key);
+		if (lock == null) {
+			Object newLock = new Object();
+			lock = this.locks.putIfAbsent(key, newLock);
+			if (lock == null) {
+				lock = newLock;
 			}
 		}
+		return lock;
+	}
+
+	private void addDeployedModule(String group, int index, Module module) {
+		synchronized (this.deployedModules) {
+			Map<Integer, Module> modules = this.deployedModules.get(group);
+			if (modules == null) {
+				modules = new ConcurrentHashMap<Integer, Module>();
+				this.deployedModules.put(group, modules);
+			}
+			modules.put(index, module);
+		}
+	}
+
+	private Module removeDeployedModule(String group, int index) {
+		synchronized (this.deployedModules) {
+			Map<Integer, Module> modules = this.deployedModules.get(group);
+			if (modules == null) {
+				return null;
+			}
+			Module module = modules.remove(index);
+			if (modules.size() == 0) {
+				this.deployedModules.remove(group);
+			}
+			return module;
+		}
 	}
 
 	/**
@@ -189,6 +419,17 @@ public class ModuleDeployer extends AbstractMessageHandler implements Applicatio
 		}
 	}
 
+	/**
+	 * allow plugins to let the module finish its work, e.g. drain its input, before it is stopped.
+	 */
+	private void beforeShutdown(Module module) {
+		if (this.plugins != null) {
+			for (Plugin plugin : this.plugins.values()) {
+				plugin.beforeShutdown(module);
+			}
+		}
+	}
+
 	private void removeModule(Module module) {
 		if (this.plugins != null) {
 			for (Plugin plugin : this.plugins.values()) {
@@ -197,11 +438,12 @@ public class ModuleDeployer extends AbstractMessageHandler implements Applicatio
 		}
 	}
 
-	private void fireModuleDeployedEvent(Module module) {
+	private void fireModuleDeployedEvent(Module module, long deployTime) {
 		if (this.eventPublisher != null) {
 			ModuleDeployedEvent event = new ModuleDeployedEvent(module, this.deployerContext.getId());
 			event.setAttribute("group", module.getDeploymentMetadata().getGroup());
 			event.setAttribute("index", "" + module.getDeploymentMetadata().getIndex());
+			event.setAttribute("deployTime", "" + deployTime);
 			this.eventPublisher.publishEvent(event);
 			// TODO: in a listener publish info to redis so we know this module is running
 			// on this container
@@ -218,4 +460,91 @@ public class ModuleDeployer extends AbstractMessageHandler implements Applicatio
 			// undeployed
 		}
 	}
+
+	/**
+	 * Deploys one module, holding the lock for its group and index.
+	 */
+	private class Deployment implements Runnable {
+
+		private final Module module;
+
+		private final ModuleDeploymentRequest request;
+
+		private final String key;
+
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		private volatile Deployment predecessor;
+
+		private volatile Exception failure;
+
+		private final boolean async;
+
+		private Deployment(Module module, ModuleDeploymentRequest request, boolean async) {
+			this.module = module;
+			this.request = request;
+			this.async = async;
+			DeploymentMetadata metadata = module.getDeploymentMetadata();
+			this.key = metadata.getGroup() + ":" + metadata.getIndex();
+		}
+
+		@Override
+		public void run() {
+			DeploymentMetadata metadata = this.module.getDeploymentMetadata();
+			String name = metadata.getGroup() + ":" + this.module.getName() + ":" + metadata.getIndex();
+			try {
+				synchronized (lockFor(this.key)) {
+					long start = System.currentTimeMillis();
+					preProcessModule(this.module);
+					this.module.initialize();
+					postProcessModule(this.module);
+					long initialized = System.currentTimeMillis();
+					awaitDownstream();
+					this.module.start();
+					long deployTime = System.currentTimeMillis() - start;
+					addDeployedModule(metadata.getGroup(), metadata.getIndex(), this.module);
+					fireModuleDeployedEvent(this.module, deployTime);
+					if (logger.isInfoEnabled()) {
+						logger.info("launched " + this.module.getType() + " module: " + name + " in " + deployTime
+								+ " ms (initialized in " + (initialized - start) + " ms)");
+					}
+				}
+				acknowledge(this.request, null);
+			}
+			catch (Exception e) {
+				this.failure = e;
+				if (this.async) {
+					logger.error("failed to deploy " + this.module.getType() + " module: " + name, e);
+				}
+				failed(this.request, e);
+			}
+			finally {
+				pendingDeployments.remove(this.key, this);
+				lastDeployments.remove(metadata.getGroup(), this);
+				this.predecessor = null;
+				this.done.countDown();
+			}
+		}
+
+		/**
+		 * Wait until the modules of the same group that were requested earlier and sit downstream of this one have
+		 * been started (or have failed).
+		 */
+		private void awaitDownstream() {
+			Deployment previous = this.predecessor;
+			if (previous != null && previous.module.getDeploymentMetadata().getIndex() > this.module
+					.getDeploymentMetadata().getIndex()) {
+				previous.await();
+			}
+		}
+
+		private void await() {
+			try {
+				this.done.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
 }
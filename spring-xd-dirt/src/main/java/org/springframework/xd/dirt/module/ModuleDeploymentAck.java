@@ -0,0 +1,119 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.module;
+
+/**
+ * Sent by a container once it deployed, or failed to deploy, a module it was requested to deploy.
+ *
+ * @since 1.0
+ */
+public class ModuleDeploymentAck {
+
+	private String deploymentId;
+
+	private String group;
+
+	private int index;
+
+	private String module;
+
+	private String containerId;
+
+	private boolean success;
+
+	private String cause;
+
+	public ModuleDeploymentAck() {
+	}
+
+	public ModuleDeploymentAck(ModuleDeploymentRequest request, String containerId, Exception failure) {
+		this.deploymentId = request.getDeploymentId();
+		this.group = request.getGroup();
+		this.index = request.getIndex();
+		this.module = request.getModule();
+		this.containerId = containerId;
+		this.success = (failure == null);
+		this.cause = (failure != null) ? failure.toString() : null;
+	}
+
+	public String getDeploymentId() {
+		return deploymentId;
+	}
+
+	public void setDeploymentId(String deploymentId) {
+		this.deploymentId = deploymentId;
+	}
+
+	public String getGroup() {
+		return group;
+	}
+
+	public void setGroup(String group) {
+		this.group = group;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
+	public String getModule() {
+		return module;
+	}
+
+	public void setModule(String module) {
+		this.module = module;
+	}
+
+	public String getContainerId() {
+		return containerId;
+	}
+
+	public void setContainerId(String containerId) {
+		this.containerId = containerId;
+	}
+
+	/**
+	 * Whether the module was deployed; otherwise {@link #getCause()} describes the failure.
+	 */
+	public boolean isSuccess() {
+		return success;
+	}
+
+	public void setSuccess(boolean success) {
+		this.success = success;
+	}
+
+	public String getCause() {
+		return cause;
+	}
+
+	public void setCause(String cause) {
+		this.cause = cause;
+	}
+
+	@Override
+	public String toString() {
+		return "ModuleDeploymentAck [deploymentId=" + deploymentId + ", module=" + group + ":" + module + ":" + index
+				+ ", containerId=" + containerId + ", success=" + success
+				+ ((cause != null) ? ", cause=" + cause : "") + "]";
+	}
+
+}
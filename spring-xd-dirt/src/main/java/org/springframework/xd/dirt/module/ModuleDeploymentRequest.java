@@ -29,7 +29,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  */
 public class ModuleDeploymentRequest {
 
-	private final ObjectMapper objectMapper = new ObjectMapper();
+	private static final ObjectMapper objectMapper = new ObjectMapper();
 
 	private volatile String module;
 
@@ -41,12 +41,16 @@ public class ModuleDeploymentRequest {
 
 	private volatile int index;
 
+	private volatile int indexOffset;
+
 	private volatile String type = "generic";
 
 	private final Map<String, String> parameters = new HashMap<String, String>();
 
 	private volatile boolean remove;
 
+	private volatile String deploymentId;
+
 	public String getModule() {
 		return module;
 	}
@@ -71,6 +75,18 @@ public class ModuleDeploymentRequest {
 		this.index = index;
 	}
 
+	/**
+	 * The amount the index was shifted by, to deploy a new instance of the module next to the running one during a
+	 * rolling redeployment. The channels of the module are named after the unshifted index.
+	 */
+	public int getIndexOffset() {
+		return indexOffset;
+	}
+
+	public void setIndexOffset(int indexOffset) {
+		this.indexOffset = indexOffset;
+	}
+
 	public String getType() {
 		return type;
 	}
@@ -87,6 +103,18 @@ public class ModuleDeploymentRequest {
 		this.remove = remove;
 	}
 
+	/**
+	 * The id shared by the requests of one deployment of a stream, which the container acknowledges each module with
+	 * and uses to recognize requests it already handled.
+	 */
+	public String getDeploymentId() {
+		return deploymentId;
+	}
+
+	public void setDeploymentId(String deploymentId) {
+		this.deploymentId = deploymentId;
+	}
+
 	public void setParameter(String name, String value) {
 		this.parameters.put(name, value);
 	}
@@ -114,7 +142,7 @@ public class ModuleDeploymentRequest {
 	@Override
 	public String toString() {
 		try {
-			return this.objectMapper.writeValueAsString(this);
+			return objectMapper.writeValueAsString(this);
 		}
 		catch (Exception e) {
 			return super.toString();
@@ -39,4 +39,12 @@ public interface ModuleRegistry {
 	 */
 	List<ModuleDefinition> findDefinitions(String name);
 
+	/**
+	 * Returns a value that changes whenever a module definition is added to or removed from the registry, for callers
+	 * to know when what they derived from earlier lookups is stale.
+	 * 
+	 * @return the current version of the registry, or null if the registry cannot tell when it changes
+	 */
+	Object getRegistryVersion();
+
 }
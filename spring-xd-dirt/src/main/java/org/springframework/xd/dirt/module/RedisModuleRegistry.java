@@ -24,7 +24,6 @@ import org.springframework.core.io.Resource;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.util.Assert;
-import org.springframework.xd.module.ModuleDefinition;
 import org.springframework.xd.module.ModuleType;
 
 /**
@@ -35,27 +34,67 @@ public class RedisModuleRegistry extends AbstractModuleRegistry {
 
 	private final StringRedisTemplate redisTemplate;
 
+	private volatile long registryVersionTtl = 5000;
+
+	private volatile CachedRegistryVersion registryVersion;
+
 	public RedisModuleRegistry(RedisConnectionFactory connectionFactory) {
 		Assert.notNull(connectionFactory, "connectionFactory must not be null");
 		this.redisTemplate = new StringRedisTemplate(connectionFactory);
 	}
 
+	/**
+	 * Set how long, in milliseconds, the {@link #getRegistryVersion() registry version} is reused before it is read
+	 * from Redis again (default 5000). Modules added or removed in the meantime are not seen by cached parses.
+	 */
+	public void setRegistryVersionTtl(long registryVersionTtl) {
+		Assert.isTrue(registryVersionTtl >= 0, "registryVersionTtl must not be negative");
+		this.registryVersionTtl = registryVersionTtl;
+		this.registryVersion = null;
+	}
+
 	@Override
 	protected Resource loadResource(String name, String type) {
 		Object config = this.redisTemplate.boundHashOps("modules:" + type).get(name);
 		return (config != null) ? new ByteArrayResource(config.toString().getBytes()) : null;
 	}
 
+	/**
+	 * The names of the modules of each type. They are read at most once per {@link #setRegistryVersionTtl(long) TTL},
+	 * so that checking the version costs less than the lookups it saves.
+	 */
 	@Override
-	public List<ModuleDefinition> findDefinitions(String name) {
-		ArrayList<ModuleDefinition> definitions = new ArrayList<ModuleDefinition>();
-		for (ModuleType type : ModuleType.values()) {
-			Resource resource = loadResource(name, type.getTypeName());
-			if (resource != null) {
-				ModuleDefinition moduleDef = new ModuleDefinition(name, type.getTypeName(), resource);
-				definitions.add(moduleDef);
+	public Object getRegistryVersion() {
+		long now = System.currentTimeMillis();
+		CachedRegistryVersion cached = this.registryVersion;
+		if (cached == null || now >= cached.expiresAt) {
+			List<Object> version = new ArrayList<Object>();
+			for (ModuleType type : ModuleType.values()) {
+				version.add(this.redisTemplate.boundHashOps("modules:" + type.getTypeName()).keys());
 			}
+			cached = new CachedRegistryVersion(version, now + this.registryVersionTtl);
+			this.registryVersion = cached;
+		}
+		return cached.version;
+	}
+
+	/**
+	 * The module XML itself, so that a definition is parsed again when its content changes in Redis.
+	 */
+	@Override
+	protected Object getVersion(Resource resource) {
+		return new String(((ByteArrayResource) resource).getByteArray());
+	}
+
+	private static class CachedRegistryVersion {
+
+		private final Object version;
+
+		private final long expiresAt;
+
+		private CachedRegistryVersion(Object version, long expiresAt) {
+			this.version = version;
+			this.expiresAt = expiresAt;
 		}
-		return definitions;
 	}
 }
@@ -48,6 +48,10 @@ public class MBeanExportingPlugin implements Plugin {
 	public void postProcessModule(Module module) {
 	}
 
+	@Override
+	public void beforeShutdown(Module module) {
+	}
+
 	@Override
 	public void removeModule(Module module) {
 	}
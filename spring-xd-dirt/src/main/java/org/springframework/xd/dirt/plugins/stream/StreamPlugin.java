@@ -32,6 +32,7 @@ import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.MediaType;
 import org.springframework.integration.MessageChannel;
+import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.x.channel.registry.ChannelRegistry;
 import org.springframework.util.CollectionUtils;
 import org.springframework.xd.dirt.container.DefaultContainer;
@@ -61,6 +62,23 @@ public class StreamPlugin implements Plugin {
 
 	private final static Collection<MediaType> DEFAULT_ACCEPTED_CONTENT_TYPES = Collections.singletonList(MediaType.ALL);
 
+	/**
+	 * The deployment metadata attributes holding the module channels bound to the registry, for the bindings of this
+	 * module to be removed once its context is gone, leaving those of another instance of the module in place.
+	 */
+	private static final String INPUT_CHANNEL_ATTRIBUTE = "stream.inputChannel";
+
+	private static final String OUTPUT_CHANNEL_ATTRIBUTE = "stream.outputChannel";
+
+	private volatile long drainTimeout = 5000;
+
+	/**
+	 * Set how long a module being shut down may take to handle the messages sent to it, in milliseconds.
+	 */
+	public void setDrainTimeout(long drainTimeout) {
+		this.drainTimeout = drainTimeout;
+	}
+
 	@Override
 	public void preProcessModule(Module module) {
 		String type = module.getType();
@@ -88,10 +106,12 @@ public class StreamPlugin implements Plugin {
 			if (channel != null) {
 				registry.createInbound(md.getInputChannelName(), channel, getAcceptedMediaTypes(module),
 						md.isAliasedInput());
+				md.addAttribute(INPUT_CHANNEL_ATTRIBUTE, channel);
 			}
 			channel = module.getComponent("output", MessageChannel.class);
 			if (channel != null) {
 				registry.createOutbound(md.getOutputChannelName(), channel, md.isAliasedOutput());
+				md.addAttribute(OUTPUT_CHANNEL_ATTRIBUTE, channel);
 			}
 		}
 	}
@@ -107,12 +127,51 @@ public class StreamPlugin implements Plugin {
 		return registry;
 	}
 
+	/**
+	 * Let a module that has an input channel handle the messages queued for it, in the transport and in its own input
+	 * channel, before it is stopped. Sources have nothing to drain: they are stopped first, the modules downstream of
+	 * them then drain in turn.
+	 */
+	@Override
+	public void beforeShutdown(Module module) {
+		MessageChannel input = module.getComponent("input", MessageChannel.class);
+		if (input == null) {
+			return;
+		}
+		ChannelRegistry registry = findRegistry(module);
+		long deadline = System.currentTimeMillis() + this.drainTimeout;
+		if (registry != null) {
+			registry.drainInbound(module.getDeploymentMetadata().getInputChannelName(), input, this.drainTimeout);
+		}
+		if (input instanceof QueueChannel) {
+			try {
+				while (((QueueChannel) input).getQueueSize() > 0 && System.currentTimeMillis() < deadline) {
+					Thread.sleep(20);
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (((QueueChannel) input).getQueueSize() > 0 && logger.isWarnEnabled()) {
+				logger.warn("input channel of module " + module + " was not drained within " + this.drainTimeout
+						+ " ms");
+			}
+		}
+	}
+
 	@Override
 	public void removeModule(Module module) {
 		ChannelRegistry registry = findRegistry(module);
+		DeploymentMetadata md = module.getDeploymentMetadata();
+		MessageChannel input = (MessageChannel) md.removeAttribute(INPUT_CHANNEL_ATTRIBUTE);
+		MessageChannel output = (MessageChannel) md.removeAttribute(OUTPUT_CHANNEL_ATTRIBUTE);
 		if (registry != null) {
-			registry.deleteInbound(module.getDeploymentMetadata().getInputChannelName());
-			registry.deleteOutbound(module.getDeploymentMetadata().getOutputChannelName());
+			if (input != null) {
+				registry.deleteInbound(md.getInputChannelName(), input);
+			}
+			if (output != null) {
+				registry.deleteOutbound(md.getOutputChannelName(), output);
+			}
 		}
 	}
 
@@ -111,6 +111,10 @@ public class TriggerPlugin implements Plugin {
 	public void postProcessModule(Module module) {
 	}
 
+	@Override
+	public void beforeShutdown(Module module) {
+	}
+
 	@Override
 	public void removeModule(Module module) {
 		String beanName = BEAN_NAME_PREFIX
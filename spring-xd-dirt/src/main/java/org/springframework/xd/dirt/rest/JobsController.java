@@ -57,7 +57,7 @@ public class JobsController extends
 	@RequestMapping(value = "/unused/{name}", method = RequestMethod.PUT, params = "deploy=true")
 	@ResponseStatus(HttpStatus.NOT_IMPLEMENTED)
 	@ResponseBody
-	public void deploy(String name) {
+	public void deploy(String name, Long timeout) {
 		// not used
 	}
 
@@ -23,8 +23,10 @@ import org.springframework.hateoas.ExposesResourceFor;
 import org.springframework.hateoas.PagedResources;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.xd.dirt.stream.StreamDefinition;
@@ -46,9 +48,31 @@ import org.springframework.xd.rest.client.domain.StreamDefinitionResource;
 public class StreamsController extends
 		XDController<StreamDefinition, StreamDefinitionResourceAssembler, StreamDefinitionResource> {
 
+	/**
+	 * How long a rolling redeployment waits for the new modules by default, in milliseconds.
+	 */
+	private static final long DEFAULT_REDEPLOY_TIMEOUT = 30000;
+
+	private final StreamDeployer streamDeployer;
+
 	@Autowired
 	public StreamsController(StreamDeployer streamDeployer, StreamDefinitionRepository streamDefinitionRepository) {
 		super(streamDeployer, new StreamDefinitionResourceAssembler());
+		this.streamDeployer = streamDeployer;
+	}
+
+	/**
+	 * Replace the definition of a deployed stream, deploying the new modules before undeploying the running ones.
+	 * 
+	 * @param name the name of a deployed stream
+	 * @param definition the new definition
+	 * @param timeout if set, the time in milliseconds to wait for the new modules to be deployed
+	 */
+	@RequestMapping(value = "/{name}", method = RequestMethod.PUT, params = "definition")
+	@ResponseStatus(HttpStatus.OK)
+	public void redeploy(@PathVariable("name") String name, @RequestParam("definition") String definition,
+			@RequestParam(value = "timeout", required = false) Long timeout) {
+		streamDeployer.redeploy(name, definition, (timeout != null) ? timeout : DEFAULT_REDEPLOY_TIMEOUT);
 	}
 
 	/**
@@ -135,12 +135,19 @@ public abstract class XDController<D extends BaseDefinition, A extends ResourceA
 	 * Request deployment of an existing named module.
 	 * 
 	 * @param name the name of an existing module (required)
+	 * @param timeout if set, the time in milliseconds to wait for the containers to acknowledge the deployment
 	 */
 	@RequestMapping(value = "/{name}", method = RequestMethod.PUT, params = "deploy=true")
 	@ResponseStatus(HttpStatus.OK)
 	@ResponseBody
-	public void deploy(@PathVariable("name") String name) {
-		deployer.deploy(name);
+	public void deploy(@PathVariable("name") String name,
+			@RequestParam(value = "timeout", required = false) Long timeout) {
+		if (timeout != null) {
+			deployer.deploy(name, timeout);
+		}
+		else {
+			deployer.deploy(name);
+		}
 	}
 
 	/**
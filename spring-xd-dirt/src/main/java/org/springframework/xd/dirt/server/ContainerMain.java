@@ -67,6 +67,7 @@ public class ContainerMain {
 		AbstractOptions.setXDHome(options.getXDHomeDir());
 		AbstractOptions.setXDTransport(options.getTransport());
 		AbstractOptions.setXDAnalytics(options.getAnalytics());
+		ContainerOptions.setXDContainerLabels(options.getLabels());
 
 		if (options.isShowHelp()) {
 			parser.printUsage(System.err);
@@ -18,17 +18,38 @@ package org.springframework.xd.dirt.server.options;
 
 import org.kohsuke.args4j.Option;
 
+import org.springframework.util.StringUtils;
+
 /**
  * A class the defines the options that will be parsed on the container command line.
  */
 public class ContainerOptions extends AbstractOptions {
 
+	public static final String XD_CONTAINER_LABELS_KEY = "xd.container.labels";
+
+	/**
+	 * Set xd.container.labels system property.
+	 */
+	public static void setXDContainerLabels(String labels) {
+		if (StringUtils.hasText(labels)) {
+			System.setProperty(XD_CONTAINER_LABELS_KEY, labels);
+		}
+	}
+
 	@Option(name = "--jmxPort", usage = "The JMX port for the container", metaVar = "<jmxPort>")
 	private int jmxPort = 8779;
 
+	@Option(name = "--labels", usage = "Comma-delimited labels the admin can place modules by, e.g. hadoop",
+			metaVar = "<labels>")
+	private String labels;
+
 	@Override
 	public int getJmxPort() {
 		return this.jmxPort;
 	}
 
+	public String getLabels() {
+		return this.labels;
+	}
+
 }
@@ -16,8 +16,12 @@
 
 package org.springframework.xd.dirt.stream;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -45,6 +49,11 @@ public abstract class AbstractDeployer<D extends BaseDefinition> implements Reso
 
 	private final DeploymentMessageSender messageSender;
 
+	/**
+	 * The id of the latest deployment of each deployed definition, for {@link #deploy(String, long)} to wait for.
+	 */
+	private final Map<String, String> deploymentIds = new ConcurrentHashMap<String, String>();
+
 	/**
 	 * Lower-case, singular name of the kind of definition we're deploying. Used in exception messages.
 	 */
@@ -68,7 +77,9 @@ public abstract class AbstractDeployer<D extends BaseDefinition> implements Reso
 			throwDefinitionAlreadyExistsException(definition);
 		}
 		streamParser.parse(definition.getName(), definition.getDefinition());
-		return repository.save(definition);
+		D saved = repository.save(definition);
+		definitionChanged(definition.getName());
+		return saved;
 	}
 
 	protected void throwDefinitionAlreadyExistsException(D definition) {
@@ -113,21 +124,74 @@ public abstract class AbstractDeployer<D extends BaseDefinition> implements Reso
 
 	@Override
 	public void deleteAll() {
+		List<String> names = new ArrayList<String>();
+		for (D definition : repository.findAll()) {
+			names.add(definition.getName());
+		}
 		repository.deleteAll();
+		for (String name : names) {
+			definitionChanged(name);
+		}
 	}
 
 	protected CrudRepository<D, String> getDefinitionRepository() {
 		return repository;
 	}
 
+	/**
+	 * Tell the parser that the definition with the given name was saved or deleted, for it to drop what it cached
+	 * from the previous one. To be called by the subclasses that change the definition repository.
+	 */
+	protected void definitionChanged(String name) {
+		streamParser.invalidate(name);
+	}
+
+	@Override
+	public void deploy(String name, long timeout) {
+		deploymentIds.remove(name);
+		deploy(name);
+		awaitDeployment(name, timeout);
+	}
+
+	/**
+	 * Wait for the containers to acknowledge the latest deployment of the named definition sent by this deployer.
+	 * 
+	 * @throws DeploymentFailedException if a module failed to deploy, or was not acknowledged in time
+	 */
+	protected void awaitDeployment(String name, long timeout) {
+		String deploymentId = deploymentIds.get(name);
+		if (deploymentId != null) {
+			messageSender.awaitDeployment(deploymentId, timeout);
+		}
+	}
+
 	protected void sendDeploymentRequests(String name, List<ModuleDeploymentRequest> requests) {
-		messageSender.sendDeploymentRequests(name, requests);
+		String deploymentId = messageSender.sendDeploymentRequests(name, requests);
+		if (deploymentId != null && !requests.isEmpty() && !requests.get(0).isRemove()) {
+			deploymentIds.put(name, deploymentId);
+		}
+		else {
+			deploymentIds.remove(name);
+		}
 	}
 
 	protected List<ModuleDeploymentRequest> parse(String name, String config) {
 		return streamParser.parse(name, config);
 	}
 
+	/**
+	 * Parse the given definitions against a single state of the module registry.
+	 * 
+	 * @return the deployment requests of each definition, by name
+	 */
+	protected Map<String, List<ModuleDeploymentRequest>> parseAll(Iterable<D> definitions) {
+		Map<String, String> configs = new LinkedHashMap<String, String>();
+		for (D definition : definitions) {
+			configs.put(definition.getName(), definition.getDefinition());
+		}
+		return streamParser.parseAll(configs);
+	}
+
 	/**
 	 * <<<<<<< HEAD Provides basic deployment behavior, whereby running state of deployed definitions is not persisted.
 	 * 
@@ -155,17 +219,44 @@ public abstract class AbstractDeployer<D extends BaseDefinition> implements Reso
 	 * Provides basic un-deployment behavior, whereby state of deployed definitions is not dealt with.
 	 */
 	protected void basicUndeploy(String name) {
+		basicUndeploy(name, 0);
+	}
+
+	/**
+	 * Un-deploy the modules of a definition whose indexes were shifted by the given offset when they were deployed.
+	 */
+	protected void basicUndeploy(String name, int indexOffset) {
 		D definition = getDefinitionRepository().findOne(name);
 		if (definition == null) {
 			throwNoSuchDefinitionException(name);
 		}
 		List<ModuleDeploymentRequest> requests = parse(name, definition.getDefinition());
+		shiftIndexes(requests, indexOffset);
+		sendDeploymentRequests(name, toRemovals(requests));
+
+	}
+
+	/**
+	 * Shift the indexes of the modules by the given offset, for them to be told from the modules of the same stream
+	 * at the unshifted indexes.
+	 */
+	protected static void shiftIndexes(List<ModuleDeploymentRequest> requests, int indexOffset) {
 		for (ModuleDeploymentRequest request : requests) {
-			request.setRemove(true);
+			request.setIndex(request.getIndex() + indexOffset);
+			request.setIndexOffset(indexOffset);
 		}
-		Collections.reverse(requests);
-		sendDeploymentRequests(name, requests);
+	}
 
+	/**
+	 * Turn deployment requests, sink first, into the requests to un-deploy the same modules, source first.
+	 */
+	protected static List<ModuleDeploymentRequest> toRemovals(List<ModuleDeploymentRequest> requests) {
+		List<ModuleDeploymentRequest> removals = new ArrayList<ModuleDeploymentRequest>(requests);
+		for (ModuleDeploymentRequest request : removals) {
+			request.setRemove(true);
+		}
+		Collections.reverse(removals);
+		return removals;
 	}
 
 }
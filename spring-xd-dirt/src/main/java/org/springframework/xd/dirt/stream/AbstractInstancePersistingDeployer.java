@@ -16,9 +16,14 @@
 
 package org.springframework.xd.dirt.stream;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.util.Assert;
 import org.springframework.xd.dirt.core.BaseDefinition;
+import org.springframework.xd.dirt.module.ModuleDeploymentRequest;
 import org.springframework.xd.store.DomainRepository;
 
 /**
@@ -54,6 +59,7 @@ public abstract class AbstractInstancePersistingDeployer<D extends BaseDefinitio
 		}
 
 		getDefinitionRepository().delete(name);
+		definitionChanged(name);
 	}
 
 	@Override
@@ -65,7 +71,7 @@ public abstract class AbstractInstancePersistingDeployer<D extends BaseDefinitio
 			throwNotDeployedException(name);
 		}
 
-		super.basicUndeploy(name);
+		super.basicUndeploy(name, getIndexOffset(instance));
 
 		instanceRepository.delete(instance);
 
@@ -97,15 +103,24 @@ public abstract class AbstractInstancePersistingDeployer<D extends BaseDefinitio
 		}
 	}
 
+	/**
+	 * Deploy the definitions that are not deployed yet. All of them are parsed before any is deployed, so that an
+	 * invalid definition does not leave the others half deployed.
+	 */
 	@Override
 	public void deployAll() {
+		List<D> undeployed = new ArrayList<D>();
 		for (D definition : findAll()) {
-			String name = definition.getName();
 			// Make sure we deploy only the resources that are not already deployed.
-			if (!instanceRepository.exists(name)) {
-				deploy(name);
+			if (!instanceRepository.exists(definition.getName())) {
+				undeployed.add(definition);
 			}
 		}
+		Map<String, List<ModuleDeploymentRequest>> requests = parseAll(undeployed);
+		for (D definition : undeployed) {
+			sendDeploymentRequests(definition.getName(), requests.get(definition.getName()));
+			instanceRepository.save(makeInstance(definition));
+		}
 	}
 
 	@Override
@@ -127,4 +142,15 @@ public abstract class AbstractInstancePersistingDeployer<D extends BaseDefinitio
 	 */
 	protected abstract I makeInstance(D definition);
 
+	/**
+	 * Return the amount the module indexes of the instance were shifted by when it was deployed, 0 by default.
+	 */
+	protected int getIndexOffset(I instance) {
+		return 0;
+	}
+
+	protected DomainRepository<I, String> getInstanceRepository() {
+		return instanceRepository;
+	}
+
 }
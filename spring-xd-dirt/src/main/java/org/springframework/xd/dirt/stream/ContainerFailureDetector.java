@@ -0,0 +1,180 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.stream;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.Assert;
+import org.springframework.xd.dirt.cluster.ContainerAttributes;
+import org.springframework.xd.dirt.cluster.ContainerRepository;
+import org.springframework.xd.dirt.cluster.DeploymentQueueRepository;
+import org.springframework.xd.dirt.cluster.ModuleAssignment;
+import org.springframework.xd.dirt.cluster.ModuleAssignmentRepository;
+
+/**
+ * Runs on the admin and redeploys the modules of containers that died. Every {@link #setCheckInterval(long)
+ * checkInterval} milliseconds, the saved module assignments are compared with the live containers, and the modules
+ * assigned to a container that is no longer alive are deployed again on the others.
+ *
+ * The {@link ContainerRepository} stops listing a container as alive once its heartbeat timed out, so its modules are
+ * redeployed at most the heartbeat timeout plus the check interval after its last heartbeat. Each check also deletes
+ * the attributes of dead containers from the repository, along with their {@link #setDeploymentQueueRepository
+ * deployment queues}: the requests waiting there are for modules that are redeployed elsewhere. Modules that cannot
+ * be placed, for instance while no container is alive, are retried at the next check.
+ *
+ * @since 1.0
+ */
+public class ContainerFailureDetector implements InitializingBean, DisposableBean {
+
+	private final Log logger = LogFactory.getLog(this.getClass());
+
+	private final ContainerRepository containerRepository;
+
+	private final ModuleAssignmentRepository assignmentRepository;
+
+	private final DeploymentMessageSender messageSender;
+
+	private volatile DeploymentQueueRepository deploymentQueueRepository;
+
+	private volatile long checkInterval = 5000;
+
+	private volatile ThreadPoolTaskScheduler scheduler;
+
+	private volatile ScheduledFuture<?> checks;
+
+	public ContainerFailureDetector(ContainerRepository containerRepository,
+			ModuleAssignmentRepository assignmentRepository, DeploymentMessageSender messageSender) {
+		Assert.notNull(containerRepository, "containerRepository must not be null");
+		Assert.notNull(assignmentRepository, "assignmentRepository must not be null");
+		Assert.notNull(messageSender, "messageSender must not be null");
+		this.containerRepository = containerRepository;
+		this.assignmentRepository = assignmentRepository;
+		this.messageSender = messageSender;
+	}
+
+	/**
+	 * Set the interval in milliseconds between checks (default 5000). Zero disables the scheduled checks.
+	 */
+	public void setCheckInterval(long checkInterval) {
+		Assert.isTrue(checkInterval >= 0, "checkInterval must not be negative");
+		this.checkInterval = checkInterval;
+	}
+
+	/**
+	 * Set the repository of the queues of deployment requests addressed to each container, for transports that keep
+	 * one per container; the queue of a dead container is deleted along with its attributes.
+	 */
+	public void setDeploymentQueueRepository(DeploymentQueueRepository deploymentQueueRepository) {
+		this.deploymentQueueRepository = deploymentQueueRepository;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (this.checkInterval > 0) {
+			ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+			scheduler.setThreadNamePrefix("container-failure-detector-");
+			scheduler.setDaemon(true);
+			scheduler.afterPropertiesSet();
+			this.scheduler = scheduler;
+			this.checks = scheduler.scheduleWithFixedDelay(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						check();
+					}
+					catch (Exception e) {
+						if (logger.isWarnEnabled()) {
+							logger.warn("failed to check for dead containers", e);
+						}
+					}
+				}
+			}, this.checkInterval);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (this.checks != null) {
+			this.checks.cancel(false);
+		}
+		if (this.scheduler != null) {
+			this.scheduler.shutdown();
+		}
+	}
+
+	/**
+	 * Redeploy the modules assigned to containers that are not alive, and forget the dead containers.
+	 *
+	 * @return the number of modules redeployed
+	 */
+	public int check() {
+		pruneDeadContainers();
+		Set<String> live = new HashSet<String>();
+		for (ContainerAttributes container : this.containerRepository.findAll()) {
+			live.add(container.getId());
+		}
+		List<ModuleAssignment> orphans = new ArrayList<ModuleAssignment>();
+		Set<String> dead = new HashSet<String>();
+		for (ModuleAssignment assignment : this.assignmentRepository.findAll()) {
+			if (!live.contains(assignment.getContainerId())) {
+				orphans.add(assignment);
+				dead.add(assignment.getContainerId());
+			}
+		}
+		if (orphans.isEmpty()) {
+			return 0;
+		}
+		if (live.isEmpty()) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("no live container to redeploy the " + orphans.size() + " modules of containers " + dead
+						+ " on");
+			}
+			return 0;
+		}
+		int redeployed = this.messageSender.redeploy(orphans);
+		if (logger.isWarnEnabled()) {
+			logger.warn("redeployed " + redeployed + " of the " + orphans.size() + " modules of dead containers "
+					+ dead);
+		}
+		return redeployed;
+	}
+
+	private void pruneDeadContainers() {
+		for (String id : this.containerRepository.findDeadIds()) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("container " + id + " missed its heartbeat, removing it");
+			}
+			// the queue first, so that a failure leaves the container listed as dead and is retried at the next check
+			if (this.deploymentQueueRepository != null) {
+				this.deploymentQueueRepository.delete(id);
+			}
+			this.containerRepository.delete(id);
+		}
+	}
+
+}
@@ -17,7 +17,9 @@
 package org.springframework.xd.dirt.stream;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 
@@ -70,6 +72,20 @@ public class DefaultStreamParser implements XDParser {
 		return requests;
 	}
 
+	@Override
+	public void invalidate(String name) {
+		// nothing is cached
+	}
+
+	@Override
+	public Map<String, List<ModuleDeploymentRequest>> parseAll(Map<String, String> definitions) {
+		Map<String, List<ModuleDeploymentRequest>> requests = new LinkedHashMap<String, List<ModuleDeploymentRequest>>();
+		for (Entry<String, String> definition : definitions.entrySet()) {
+			requests.put(definition.getKey(), parse(definition.getKey(), definition.getValue()));
+		}
+		return requests;
+	}
+
 	Properties getParameters(String module) {
 		module = module.trim();
 		int indx = 0;
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.stream;
+
+import org.springframework.xd.dirt.core.XDRuntimeException;
+
+/**
+ * Thrown when the containers failed to deploy a definition, or did not acknowledge its deployment in time.
+ *
+ * @since 1.0
+ */
+@SuppressWarnings("serial")
+public class DeploymentFailedException extends XDRuntimeException {
+
+	private final String offendingName;
+
+	/**
+	 * Create a new exception.
+	 *
+	 * @param offendingName name of the definition that failed to deploy
+	 * @param message Exception message, including the causes reported by the containers
+	 */
+	public DeploymentFailedException(String offendingName, String message) {
+		super(message);
+		this.offendingName = offendingName;
+	}
+
+	/**
+	 * Return the name of the definition that failed to deploy.
+	 */
+	public String getOffendingName() {
+		return offendingName;
+	}
+
+}
@@ -16,51 +16,393 @@
 
 package org.springframework.xd.dirt.stream;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
-import org.springframework.integration.Message;
 import org.springframework.integration.MessageChannel;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.ObjectUtils;
+import org.springframework.xd.dirt.cluster.ContainerAttributes;
+import org.springframework.xd.dirt.cluster.ContainerRepository;
+import org.springframework.xd.dirt.cluster.ModuleAssignment;
+import org.springframework.xd.dirt.cluster.ModuleAssignmentRepository;
+import org.springframework.xd.dirt.cluster.NoSuitableContainerException;
+import org.springframework.xd.dirt.cluster.PlacementStrategy;
+import org.springframework.xd.dirt.module.ModuleDeploymentAck;
 import org.springframework.xd.dirt.module.ModuleDeploymentRequest;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 /**
+ * Sends module deployment requests to the containers.
+ *
+ * With a {@link PlacementStrategy} and a {@link ContainerRepository}, each module is assigned to one of the containers
+ * that have published their attributes, and its request carries the chosen container's id in the
+ * {@link #CONTAINER_ID_HEADER} header, for the transport to deliver it to that container only. Without them, or while
+ * no container has published attributes, any container may pick a request up.
+ *
+ * With a {@link ModuleAssignmentRepository} as well, the container each module is placed on is saved until the module
+ * is undeployed, for the modules of a container that dies to be {@link #redeploy(List) redeployed} on the others.
+ *
+ * The requests of one call share a deployment id. The modules placed on the same container are sent to it in a single
+ * message, holding a JSON array of requests. The containers acknowledge each module they deploy, or fail to deploy,
+ * with a {@link ModuleDeploymentAck} that is passed to {@link #acknowledge(ModuleDeploymentAck)}, so that callers can
+ * {@link #awaitDeployment(String, long) wait} for a deployment to complete.
+ *
  * @author Luke Taylor
  */
 public class DeploymentMessageSender {
 
+	/**
+	 * The header holding the id of the container a deployment request is meant for.
+	 */
+	public static final String CONTAINER_ID_HEADER = "containerId";
+
+	private static final int MAX_PENDING_DEPLOYMENTS = 1000;
+
+	private final Log logger = LogFactory.getLog(this.getClass());
+
 	private final MessageChannel deployChannel;
 
 	private final MessageChannel undeployChannel;
 
-	private final Map<String, List<ModuleDeploymentRequest>> deployments = new ConcurrentHashMap<String, List<ModuleDeploymentRequest>>();
+	private volatile PlacementStrategy placementStrategy;
+
+	private volatile ContainerRepository containerRepository;
+
+	private volatile ModuleAssignmentRepository assignmentRepository;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	/**
+	 * The deployments whose acknowledgements are tracked, the oldest of which are dropped.
+	 */
+	@SuppressWarnings("serial")
+	private final Map<String, PendingDeployment> pendingDeployments = Collections
+			.synchronizedMap(new LinkedHashMap<String, PendingDeployment>() {
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, PendingDeployment> eldest) {
+					return size() > MAX_PENDING_DEPLOYMENTS;
+				}
+			});
 
 	public DeploymentMessageSender(MessageChannel deployChannel, MessageChannel undeployChannel) {
 		this.deployChannel = deployChannel;
 		this.undeployChannel = undeployChannel;
 	}
 
-	public void sendDeploymentRequests(String name, List<ModuleDeploymentRequest> requests) {
-		this.addDeployment(name, requests);
+	public void setPlacementStrategy(PlacementStrategy placementStrategy) {
+		this.placementStrategy = placementStrategy;
+	}
+
+	public void setContainerRepository(ContainerRepository containerRepository) {
+		this.containerRepository = containerRepository;
+	}
+
+	public void setAssignmentRepository(ModuleAssignmentRepository assignmentRepository) {
+		this.assignmentRepository = assignmentRepository;
+	}
+
+	/**
+	 * Send the requests of a deployment, or undeployment, of the named definition.
+	 *
+	 * @return the id of the deployment
+	 */
+	public synchronized String sendDeploymentRequests(String name, List<ModuleDeploymentRequest> requests) {
+		String deploymentId = UUID.randomUUID().toString();
+		List<ModuleDeploymentRequest> deployments = new ArrayList<ModuleDeploymentRequest>();
 		for (ModuleDeploymentRequest request : requests) {
-			Message<?> message = MessageBuilder.withPayload(request.toString()).build();
+			request.setDeploymentId(deploymentId);
+			if (!request.isRemove()) {
+				deployments.add(request);
+			}
+		}
+		Map<ModuleDeploymentRequest, ContainerAttributes> placements = this.place(requests, true);
+		if (!deployments.isEmpty()) {
+			// before sending, as a container may acknowledge before send returns
+			this.pendingDeployments.put(deploymentId, new PendingDeployment(name, deployments));
+		}
+		this.send(requests, placements);
+		return deploymentId;
+	}
+
+	/**
+	 * Record the acknowledgement of a module deployment.
+	 */
+	public void acknowledge(ModuleDeploymentAck ack) {
+		if (!ack.isSuccess() && logger.isWarnEnabled()) {
+			logger.warn("container " + ack.getContainerId() + " failed to deploy module " + ack.getGroup() + ":"
+					+ ack.getModule() + ":" + ack.getIndex() + ": " + ack.getCause());
+		}
+		PendingDeployment pending = this.pendingDeployments.get(ack.getDeploymentId());
+		if (pending != null) {
+			pending.acknowledge(ack);
+		}
+	}
+
+	/**
+	 * Wait until every module of the deployment has been acknowledged, or one of them failed.
+	 *
+	 * @param deploymentId the id returned by {@link #sendDeploymentRequests(String, List)}
+	 * @param timeout the time to wait, in milliseconds
+	 * @throws DeploymentFailedException if a module failed to deploy, or was not acknowledged in time
+	 */
+	public void awaitDeployment(String deploymentId, long timeout) {
+		PendingDeployment pending = this.pendingDeployments.get(deploymentId);
+		if (pending == null) {
+			// an undeployment, or a deployment too old to be tracked
+			return;
+		}
+		try {
+			pending.await(timeout);
+		}
+		finally {
+			this.pendingDeployments.remove(deploymentId);
+		}
+	}
+
+	/**
+	 * Deploy the modules of the given assignments again, on the containers that are alive now, skipping those that
+	 * cannot be placed yet. The modules of a group are placed next to the group's modules that are still assigned to
+	 * live containers, as far as the {@link PlacementStrategy} allows.
+	 *
+	 * @return the number of modules deployed
+	 */
+	public synchronized int redeploy(List<ModuleAssignment> assignments) {
+		List<ModuleDeploymentRequest> requests = new ArrayList<ModuleDeploymentRequest>(assignments.size());
+		for (ModuleAssignment assignment : assignments) {
+			if (this.isCurrent(assignment)) {
+				requests.add(assignment.getRequest());
+			}
+		}
+		// downstream modules first, as for a new deployment
+		Collections.sort(requests, new Comparator<ModuleDeploymentRequest>() {
+
+			@Override
+			public int compare(ModuleDeploymentRequest left, ModuleDeploymentRequest right) {
+				int group = left.getGroup().compareTo(right.getGroup());
+				return (group != 0) ? group : right.getIndex() - left.getIndex();
+			}
+		});
+		Map<ModuleDeploymentRequest, ContainerAttributes> placements = this.place(requests, false);
+		List<ModuleDeploymentRequest> placed = new ArrayList<ModuleDeploymentRequest>(placements.size());
+		String deploymentId = UUID.randomUUID().toString();
+		for (ModuleDeploymentRequest request : requests) {
+			if (placements.containsKey(request)) {
+				request.setDeploymentId(deploymentId);
+				placed.add(request);
+			}
+		}
+		this.send(placed, placements);
+		return placed.size();
+	}
+
+	/**
+	 * Whether the assignment is still saved, i.e. the module was neither undeployed nor redeployed since it was read.
+	 */
+	private boolean isCurrent(ModuleAssignment assignment) {
+		if (this.assignmentRepository == null) {
+			return true;
+		}
+		for (ModuleAssignment current : this.assignmentRepository.findByGroup(assignment.getRequest().getGroup())) {
+			if (current.getRequest().getIndex() == assignment.getRequest().getIndex()) {
+				return ObjectUtils.nullSafeEquals(current.getContainerId(), assignment.getContainerId());
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Send the modules placed on the same container in one message, and the others one by one for any container to
+	 * pick up. Undeployment requests go to all containers, in one message.
+	 */
+	private void send(List<ModuleDeploymentRequest> requests, Map<ModuleDeploymentRequest, ContainerAttributes> placements) {
+		ModuleAssignmentRepository assignments = this.assignmentRepository;
+		Map<String, List<ModuleDeploymentRequest>> batches = new LinkedHashMap<String, List<ModuleDeploymentRequest>>();
+		List<ModuleDeploymentRequest> unplaced = new ArrayList<ModuleDeploymentRequest>();
+		List<ModuleDeploymentRequest> removals = new ArrayList<ModuleDeploymentRequest>();
+		for (ModuleDeploymentRequest request : requests) {
+			ContainerAttributes container = placements.get(request);
 			if (request.isRemove()) {
-				this.undeployChannel.send(message);
+				if (assignments != null) {
+					assignments.delete(request.getGroup(), request.getIndex());
+				}
+				removals.add(request);
+			}
+			else if (container == null) {
+				unplaced.add(request);
 			}
 			else {
-				this.deployChannel.send(message);
+				if (assignments != null) {
+					assignments.save(new ModuleAssignment(container.getId(), request));
+				}
+				List<ModuleDeploymentRequest> batch = batches.get(container.getId());
+				if (batch == null) {
+					batch = new ArrayList<ModuleDeploymentRequest>();
+					batches.put(container.getId(), batch);
+				}
+				batch.add(request);
+			}
+		}
+		for (Map.Entry<String, List<ModuleDeploymentRequest>> batch : batches.entrySet()) {
+			this.deployChannel.send(MessageBuilder.withPayload(this.toJson(batch.getValue()))
+					.setHeader(CONTAINER_ID_HEADER, batch.getKey()).build());
+		}
+		for (ModuleDeploymentRequest request : unplaced) {
+			this.deployChannel.send(MessageBuilder.withPayload(request.toString()).build());
+		}
+		if (!removals.isEmpty()) {
+			this.undeployChannel.send(MessageBuilder.withPayload(this.toJson(removals)).build());
+		}
+	}
+
+	private String toJson(List<ModuleDeploymentRequest> requests) {
+		try {
+			return this.mapper.writeValueAsString(requests);
+		}
+		catch (JsonProcessingException e) {
+			throw new IllegalStateException("failed to write deployment requests " + requests, e);
+		}
+	}
+
+	/**
+	 * Choose a container for each module to deploy, before any request is sent, so that a deployment that cannot be
+	 * placed completely is not started at all. Unless failIfUnsuitable is set, modules no container is suitable for are
+	 * left out instead.
+	 */
+	private Map<ModuleDeploymentRequest, ContainerAttributes> place(List<ModuleDeploymentRequest> requests,
+			boolean failIfUnsuitable) {
+		Map<ModuleDeploymentRequest, ContainerAttributes> placements =
+				new IdentityHashMap<ModuleDeploymentRequest, ContainerAttributes>();
+		if (this.placementStrategy == null || this.containerRepository == null) {
+			return placements;
+		}
+		List<ContainerAttributes> containers = null;
+		Map<String, Map<Integer, ContainerAttributes>> groups = new HashMap<String, Map<Integer, ContainerAttributes>>();
+		for (ModuleDeploymentRequest request : requests) {
+			if (request.isRemove()) {
+				continue;
+			}
+			if (containers == null) {
+				containers = this.containerRepository.findAll();
+			}
+			if (containers.isEmpty()) {
+				break;
+			}
+			Map<Integer, ContainerAttributes> group = groups.get(request.getGroup());
+			if (group == null) {
+				group = this.currentPlacements(request.getGroup(), containers);
+				groups.put(request.getGroup(), group);
 			}
+			ContainerAttributes container = this.placementStrategy.choose(request, containers, group);
+			if (container == null) {
+				if (!failIfUnsuitable) {
+					continue;
+				}
+				throw new NoSuitableContainerException("none of the " + containers.size()
+						+ " containers is suitable for module '" + request.getModule() + "' of '" + request.getGroup()
+						+ "'");
+			}
+			group.put(request.getIndex(), container);
+			placements.put(request, container);
 		}
-		;
+		return placements;
 	}
 
-	protected final void addDeployment(String name, List<ModuleDeploymentRequest> modules) {
-		this.deployments.put(name, modules);
+	/**
+	 * Return the saved placements of the group's modules on the given containers.
+	 */
+	private Map<Integer, ContainerAttributes> currentPlacements(String group, List<ContainerAttributes> containers) {
+		Map<Integer, ContainerAttributes> placements = new HashMap<Integer, ContainerAttributes>();
+		if (this.assignmentRepository == null) {
+			return placements;
+		}
+		Map<String, ContainerAttributes> containersById = new HashMap<String, ContainerAttributes>();
+		for (ContainerAttributes container : containers) {
+			containersById.put(container.getId(), container);
+		}
+		for (ModuleAssignment assignment : this.assignmentRepository.findByGroup(group)) {
+			ContainerAttributes container = containersById.get(assignment.getContainerId());
+			if (container != null) {
+				placements.put(assignment.getRequest().getIndex(), container);
+			}
+		}
+		return placements;
 	}
 
-	protected List<ModuleDeploymentRequest> removeDeployment(String name) {
-		return this.deployments.remove(name);
+	/**
+	 * The modules of a deployment that have not been acknowledged yet, and those that failed.
+	 */
+	private static class PendingDeployment {
+
+		private final String name;
+
+		private final Set<String> unacknowledged = new LinkedHashSet<String>();
+
+		private final List<ModuleDeploymentAck> failures = new ArrayList<ModuleDeploymentAck>();
+
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		private PendingDeployment(String name, List<ModuleDeploymentRequest> requests) {
+			this.name = name;
+			for (ModuleDeploymentRequest request : requests) {
+				this.unacknowledged.add(request.getGroup() + ":" + request.getModule() + ":" + request.getIndex());
+			}
+		}
+
+		private synchronized void acknowledge(ModuleDeploymentAck ack) {
+			if (!this.unacknowledged.remove(ack.getGroup() + ":" + ack.getModule() + ":" + ack.getIndex())) {
+				// a module acknowledged again, for a request that was delivered twice
+				return;
+			}
+			if (!ack.isSuccess()) {
+				this.failures.add(ack);
+			}
+			if (this.unacknowledged.isEmpty() || !this.failures.isEmpty()) {
+				this.done.countDown();
+			}
+		}
+
+		private void await(long timeout) {
+			try {
+				this.done.await(timeout, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			synchronized (this) {
+				if (!this.failures.isEmpty()) {
+					StringBuilder causes = new StringBuilder();
+					for (ModuleDeploymentAck failure : this.failures) {
+						causes.append((causes.length() > 0) ? "; " : "").append(failure.getModule()).append(":")
+								.append(failure.getIndex()).append(" on container ").append(failure.getContainerId())
+								.append(": ").append(failure.getCause());
+					}
+					throw new DeploymentFailedException(this.name, "Deployment of '" + this.name + "' failed: "
+							+ causes);
+				}
+				if (!this.unacknowledged.isEmpty()) {
+					throw new DeploymentFailedException(this.name, "Deployment of '" + this.name
+							+ "' was not acknowledged within " + timeout + " ms for modules " + this.unacknowledged);
+				}
+			}
+		}
 	}
 
 }
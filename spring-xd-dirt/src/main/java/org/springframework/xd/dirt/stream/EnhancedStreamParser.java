@@ -17,7 +17,15 @@
 package org.springframework.xd.dirt.stream;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.util.Assert;
@@ -36,6 +44,13 @@ import org.springframework.xd.module.ModuleDefinition;
 import org.springframework.xd.module.ModuleType;
 
 /**
+ * Parses definitions in the stream DSL and checks their modules against the module registry.
+ * 
+ * The requests of a definition are cached, by name and definition text, for as long as the
+ * {@link ModuleRegistry#getRegistryVersion() version} of the module registry stays the same and none of the
+ * definitions the parse referred to is {@link #invalidate(String) invalidated}. A registry that cannot tell its
+ * version disables the cache.
+ * 
  * @author Andy Clement
  * @author Gunnar Hillert
  * @author Glenn Renfro
@@ -47,6 +62,18 @@ public class EnhancedStreamParser implements XDParser {
 
 	private ModuleRegistry moduleRegistry;
 
+	private volatile int cacheSize = 4096;
+
+	@SuppressWarnings("serial")
+	private final Map<List<String>, ParsedDefinition> cache = new LinkedHashMap<List<String>, ParsedDefinition>(16,
+			0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<String>, ParsedDefinition> eldest) {
+			return size() > cacheSize;
+		}
+	};
+
 	public EnhancedStreamParser(CrudRepository<? extends BaseDefinition, String> repository,
 			ModuleRegistry moduleRegistry) {
 		Assert.notNull(repository, "repository can not be null");
@@ -63,11 +90,86 @@ public class EnhancedStreamParser implements XDParser {
 		this.moduleRegistry = moduleRegistry;
 	}
 
+	/**
+	 * The number of parsed definitions to keep, the least recently used being dropped first. Zero disables the cache.
+	 */
+	public void setCacheSize(int cacheSize) {
+		Assert.isTrue(cacheSize >= 0, "cacheSize must not be negative");
+		this.cacheSize = cacheSize;
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Drop the cached requests of the definitions that referred to the definition with the given name, which the
+	 * deployers call whenever they save or delete one. Definitions changed in the repository by other means are not
+	 * seen until the registry version changes.
+	 */
+	@Override
+	public void invalidate(String name) {
+		synchronized (cache) {
+			Iterator<ParsedDefinition> iterator = cache.values().iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().referencedDefinitions.contains(name)) {
+					iterator.remove();
+				}
+			}
+		}
+	}
+
 	@Override
 	public List<ModuleDeploymentRequest> parse(String name, String config) {
+		RegistrySnapshot registry = new RegistrySnapshot(moduleRegistry);
+		return parse(name, config, registry, registry.getRegistryVersion());
+	}
 
+	/**
+	 * Parse the definitions, looking each module up in the registry only once and checking the version of the
+	 * registry only once.
+	 */
+	@Override
+	public Map<String, List<ModuleDeploymentRequest>> parseAll(Map<String, String> definitions) {
+		RegistrySnapshot registry = new RegistrySnapshot(moduleRegistry);
+		Object registryVersion = registry.getRegistryVersion();
+		Map<String, List<ModuleDeploymentRequest>> requests = new LinkedHashMap<String, List<ModuleDeploymentRequest>>();
+		for (Map.Entry<String, String> definition : definitions.entrySet()) {
+			requests.put(definition.getKey(),
+					parse(definition.getKey(), definition.getValue(), registry, registryVersion));
+		}
+		return requests;
+	}
+
+	/**
+	 * Return the cached requests of the definition if they are still valid, or parse it again.
+	 * 
+	 * @param registryVersion the version of the registry, read before any of the lookups of this parse
+	 */
+	private List<ModuleDeploymentRequest> parse(String name, String config, ModuleRegistry registry,
+			Object registryVersion) {
+		List<String> key = Arrays.asList(name, config);
+		ParsedDefinition parsed = null;
+		if (registryVersion != null) {
+			synchronized (cache) {
+				parsed = cache.get(key);
+			}
+		}
+		if (parsed != null && parsed.isValid(registryVersion)) {
+			return copy(parsed.requests);
+		}
 		StreamConfigParser parser = new StreamConfigParser(repository);
-		StreamsNode ast = parser.parse(name, config);
+		List<ModuleDeploymentRequest> requests = buildRequests(name, parser.parse(name, config), registry);
+		// a parse that searched all definitions may change with any new one
+		if (registryVersion != null && !parser.isAllDefinitionsReferenced()) {
+			parsed = new ParsedDefinition(copy(requests), registryVersion, parser.getReferencedDefinitions().keySet());
+			synchronized (cache) {
+				cache.put(key, parsed);
+			}
+		}
+		return requests;
+	}
+
+	private List<ModuleDeploymentRequest> buildRequests(String name, StreamsNode ast, ModuleRegistry registry) {
 		List<ModuleDeploymentRequest> requests = new ArrayList<ModuleDeploymentRequest>();
 
 		List<ModuleNode> moduleNodes = ast.getModuleNodes();
@@ -99,21 +201,21 @@ public class EnhancedStreamParser implements XDParser {
 
 		for (int m = 0; m < moduleNodes.size(); m++) {
 			ModuleDeploymentRequest request = requests.get(m);
-			request.setType(determineType(request, requests.size() - 1).getTypeName());
+			request.setType(determineType(request, requests.size() - 1, registry).getTypeName());
 		}
 
 		return requests;
 	}
 
-	private ModuleType determineType(ModuleDeploymentRequest request, int lastIndex) {
-		ModuleType moduleType = getNamedChannelModuleType(request, lastIndex);
+	private ModuleType determineType(ModuleDeploymentRequest request, int lastIndex, ModuleRegistry registry) {
+		ModuleType moduleType = getNamedChannelModuleType(request, lastIndex, registry);
 		if (moduleType != null) {
 			return moduleType;
 		}
 		String type = null;
 		String name = request.getModule();
 		int index = request.getIndex();
-		List<ModuleDefinition> defs = moduleRegistry.findDefinitions(name);
+		List<ModuleDefinition> defs = registry.findDefinitions(name);
 
 		if (defs.size() == 0) {
 			throw new RuntimeException("Module definition is missing for " + name);
@@ -138,10 +240,11 @@ public class EnhancedStreamParser implements XDParser {
 		if (type == null) {
 			throw new NoSuchModuleException(name);
 		}
-		return verifyModuleOfTypeExists(name, type);
+		return verifyModuleOfTypeExists(name, type, registry);
 	}
 
-	private ModuleType getNamedChannelModuleType(ModuleDeploymentRequest request, int lastIndex) {
+	private ModuleType getNamedChannelModuleType(ModuleDeploymentRequest request, int lastIndex,
+			ModuleRegistry registry) {
 		String type = null;
 		String moduleName = request.getModule();
 		int index = request.getIndex();
@@ -161,15 +264,102 @@ public class EnhancedStreamParser implements XDParser {
 				type = ModuleType.PROCESSOR.getTypeName();
 			}
 		}
-		return (type == null) ? null : verifyModuleOfTypeExists(moduleName, type);
+		return (type == null) ? null : verifyModuleOfTypeExists(moduleName, type, registry);
 	}
 
-	private ModuleType verifyModuleOfTypeExists(String moduleName, String type) {
-		ModuleDefinition def = moduleRegistry.lookup(moduleName, type);
+	private ModuleType verifyModuleOfTypeExists(String moduleName, String type, ModuleRegistry registry) {
+		ModuleDefinition def = registry.lookup(moduleName, type);
 		if (def == null || def.getResource() == null) {
 			throw new NoSuchModuleException(moduleName);
 		}
 		return ModuleType.getModuleTypeByTypeName(def.getType());
 	}
 
+	/**
+	 * Copy the requests, for callers to change them without changing the cached ones.
+	 */
+	private static List<ModuleDeploymentRequest> copy(List<ModuleDeploymentRequest> requests) {
+		List<ModuleDeploymentRequest> copies = new ArrayList<ModuleDeploymentRequest>(requests.size());
+		for (ModuleDeploymentRequest request : requests) {
+			ModuleDeploymentRequest copy = new ModuleDeploymentRequest();
+			copy.setModule(request.getModule());
+			copy.setGroup(request.getGroup());
+			copy.setSourceChannelName(request.getSourceChannelName());
+			copy.setSinkChannelName(request.getSinkChannelName());
+			copy.setIndex(request.getIndex());
+			copy.setIndexOffset(request.getIndexOffset());
+			copy.setType(request.getType());
+			for (Map.Entry<String, String> parameter : request.getParameters().entrySet()) {
+				copy.setParameter(parameter.getKey(), parameter.getValue());
+			}
+			copy.setRemove(request.isRemove());
+			copy.setDeploymentId(request.getDeploymentId());
+			copies.add(copy);
+		}
+		return copies;
+	}
+
+	/**
+	 * The requests of a definition, with what they were derived from.
+	 */
+	private static class ParsedDefinition {
+
+		private final List<ModuleDeploymentRequest> requests;
+
+		private final Object registryVersion;
+
+		private final Set<String> referencedDefinitions;
+
+		private ParsedDefinition(List<ModuleDeploymentRequest> requests, Object registryVersion,
+				Set<String> referencedDefinitions) {
+			this.requests = requests;
+			this.registryVersion = registryVersion;
+			this.referencedDefinitions = new HashSet<String>(referencedDefinitions);
+		}
+
+		private boolean isValid(Object currentRegistryVersion) {
+			return registryVersion.equals(currentRegistryVersion);
+		}
+	}
+
+	/**
+	 * A view of a registry that remembers the result of each lookup, so that a module is only looked up once
+	 * however many definitions refer to it.
+	 */
+	private static class RegistrySnapshot implements ModuleRegistry {
+
+		private final ModuleRegistry registry;
+
+		private final Map<List<String>, ModuleDefinition> definitions = new HashMap<List<String>, ModuleDefinition>();
+
+		private final Map<String, List<ModuleDefinition>> definitionsByName = new HashMap<String, List<ModuleDefinition>>();
+
+		private RegistrySnapshot(ModuleRegistry registry) {
+			this.registry = registry;
+		}
+
+		@Override
+		public ModuleDefinition lookup(String name, String type) {
+			List<String> key = Arrays.asList(name, type);
+			if (!definitions.containsKey(key)) {
+				definitions.put(key, registry.lookup(name, type));
+			}
+			return definitions.get(key);
+		}
+
+		@Override
+		public List<ModuleDefinition> findDefinitions(String name) {
+			if (!definitionsByName.containsKey(name)) {
+				List<ModuleDefinition> found = registry.findDefinitions(name);
+				definitionsByName.put(name, (found != null) ? found : Collections.<ModuleDefinition> emptyList());
+			}
+			return definitionsByName.get(name);
+		}
+
+		@Override
+		public Object getRegistryVersion() {
+			return registry.getRegistryVersion();
+		}
+	}
+
 }
@@ -62,6 +62,7 @@ public class JobDeployer extends AbstractDeployer<JobDefinition> {
 			// bad definition) go ahead a delete
 			// the module.
 		}
+		definitionChanged(name);
 	}
 
 	@Override
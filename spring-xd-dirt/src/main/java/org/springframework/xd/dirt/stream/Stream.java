@@ -28,10 +28,27 @@ package org.springframework.xd.dirt.stream;
  */
 public class Stream extends BaseInstance<StreamDefinition> {
 
+	/**
+	 * The amount the indexes of the running modules were shifted by.
+	 */
+	private int indexOffset;
+
 	/**
 	 * Create a new stream out of the given {@link StreamDefinition}.
 	 */
 	public Stream(StreamDefinition definition) {
 		super(definition);
 	}
+
+	/**
+	 * Return the amount the module indexes were shifted by when the stream was last redeployed, 0 for a stream that
+	 * was not.
+	 */
+	public int getIndexOffset() {
+		return indexOffset;
+	}
+
+	public void setIndexOffset(int indexOffset) {
+		this.indexOffset = indexOffset;
+	}
 }
@@ -16,6 +16,11 @@
 
 package org.springframework.xd.dirt.stream;
 
+import java.util.List;
+
+import org.springframework.util.Assert;
+import org.springframework.xd.dirt.module.ModuleDeploymentRequest;
+
 /**
  * Default implementation of {@link StreamDeployer} that emits deployment request messages on a bus and relies on
  * {@link StreamDefinitionRepository} and {@link StreamRepository} for persistence.
@@ -33,9 +38,61 @@ public class StreamDeployer extends AbstractInstancePersistingDeployer<StreamDef
 		super(repository, streamRepository, messageSender, parser, "stream");
 	}
 
+	/**
+	 * Replace the definition of a deployed stream without stopping it. The modules of the new definition are deployed
+	 * next to the running ones, at shifted indexes but bound to the same channels, so that both share the traffic.
+	 * Once the containers have acknowledged all of them, the old modules are undeployed from source to sink, each one
+	 * handling the messages it received before it stops while those still queued are left to the new modules, and the
+	 * new definition is saved. If the new modules are not
+	 * deployed within the timeout, they are undeployed again and the stream keeps running its current definition.
+	 * 
+	 * @param name the name of a deployed stream
+	 * @param definition the new definition of the stream
+	 * @param timeout the time to wait for the new modules to be deployed, in milliseconds
+	 * @throws DeploymentFailedException if the new modules were not deployed
+	 */
+	public synchronized void redeploy(String name, String definition, long timeout) {
+		Assert.hasText(name, "name cannot be blank or null");
+		Assert.hasText(definition, "definition cannot be blank or null");
+		Stream stream = getInstanceRepository().findOne(name);
+		if (stream == null) {
+			throwNotDeployedException(name);
+		}
+		StreamDefinition current = getDefinitionRepository().findOne(name);
+		if (current == null) {
+			throwNoSuchDefinitionException(name);
+		}
+		List<ModuleDeploymentRequest> running = parse(name, current.getDefinition());
+		List<ModuleDeploymentRequest> replacements = parse(name, definition);
+		// past the indexes of the running modules, so that both sets of modules can be told apart
+		int indexOffset = stream.getIndexOffset() + running.size();
+		shiftIndexes(replacements, indexOffset);
+		sendDeploymentRequests(name, replacements);
+		try {
+			awaitDeployment(name, timeout);
+		}
+		catch (DeploymentFailedException e) {
+			sendDeploymentRequests(name, toRemovals(replacements));
+			throw e;
+		}
+		shiftIndexes(running, stream.getIndexOffset());
+		sendDeploymentRequests(name, toRemovals(running));
+		StreamDefinition replacement = getDefinitionRepository().save(new StreamDefinition(name, definition));
+		definitionChanged(name);
+		Stream redeployed = makeInstance(replacement);
+		redeployed.setStartedAt(stream.getStartedAt());
+		redeployed.setIndexOffset(indexOffset);
+		getInstanceRepository().save(redeployed);
+	}
+
 	@Override
 	protected Stream makeInstance(StreamDefinition definition) {
 		return new Stream(definition);
 	}
 
+	@Override
+	protected int getIndexOffset(Stream instance) {
+		return instance.getIndexOffset();
+	}
+
 }
@@ -46,6 +46,7 @@ public class TriggerDeployer extends AbstractDeployer<TriggerDefinition> {
 		}
 		undeploy(name);
 		getDefinitionRepository().delete(name);
+		definitionChanged(name);
 	}
 
 	@Override
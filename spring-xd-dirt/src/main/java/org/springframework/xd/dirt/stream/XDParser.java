@@ -17,6 +17,7 @@
 package org.springframework.xd.dirt.stream;
 
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.xd.dirt.module.ModuleDeploymentRequest;
 
@@ -27,4 +28,19 @@ public interface XDParser {
 
 	List<ModuleDeploymentRequest> parse(String name, String config);
 
+	/**
+	 * Parse many definitions at once, validating all of them against the same state of the module registry.
+	 * 
+	 * @param definitions the definitions to parse, by name
+	 * @return the deployment requests of each definition, by name, in the iteration order of the given definitions
+	 */
+	Map<String, List<ModuleDeploymentRequest>> parseAll(Map<String, String> definitions);
+
+	/**
+	 * Forget anything derived from the definition with the given name, which has just been saved or deleted.
+	 * 
+	 * @param name the name of the definition
+	 */
+	void invalidate(String name);
+
 }
@@ -17,7 +17,9 @@
 package org.springframework.xd.dirt.stream.dsl;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.util.Assert;
@@ -40,8 +42,40 @@ public class StreamConfigParser implements StreamLookupEnvironment {
 	/** The repository (if supplied) is used to chase down substream/label references */
 	private CrudRepository<? extends BaseDefinition, String> repository;
 
+	/** The parser whose parse led to this one, when parsing a referenced stream */
+	private final StreamConfigParser root;
+
+	/** The definitions read from the repository while parsing, by name, or null for names that were not found */
+	private final Map<String, String> referencedDefinitions = new HashMap<String, String>();
+
+	private boolean allDefinitionsReferenced;
+
 	public StreamConfigParser(CrudRepository<? extends BaseDefinition, String> repository) {
 		this.repository = repository;
+		this.root = this;
+	}
+
+	private StreamConfigParser(StreamConfigParser root) {
+		this.repository = root.repository;
+		this.root = root;
+	}
+
+	/**
+	 * The definitions of the streams read from the repository to resolve references, by name, including those read
+	 * while resolving the references of referenced streams. Names that were looked up but not found map to
+	 * {@code null}. The result of a parse stays valid for as long as these definitions do not change, unless
+	 * {@link #isAllDefinitionsReferenced()}.
+	 */
+	public Map<String, String> getReferencedDefinitions() {
+		return referencedDefinitions;
+	}
+
+	/**
+	 * Whether resolving a reference searched every definition in the repository, in which case any new definition
+	 * may change the result of the parse.
+	 */
+	public boolean isAllDefinitionsReferenced() {
+		return allDefinitionsReferenced;
 	}
 
 	/**
@@ -547,9 +581,9 @@ public class StreamConfigParser implements StreamLookupEnvironment {
 	@Override
 	public StreamNode lookupStream(String name) {
 		if (this.repository != null) {
-			BaseDefinition baseDefinition = repository.findOne(name);
+			BaseDefinition baseDefinition = findDefinition(name);
 			if (baseDefinition != null) {
-				StreamsNode streamsNode = new StreamConfigParser(repository).parse(baseDefinition.getDefinition());
+				StreamsNode streamsNode = new StreamConfigParser(root).parse(baseDefinition.getDefinition());
 				Assert.isTrue(streamsNode.getSize() == 1);
 				return streamsNode.getStreamNodes().get(0);
 			}
@@ -562,12 +596,12 @@ public class StreamConfigParser implements StreamLookupEnvironment {
 	@Override
 	public String lookupChannelForLabelOrModule(String streamName, String streamOrLabelOrModuleName) {
 		if (streamName != null) {
-			BaseDefinition basedef = repository.findOne(streamName);
+			BaseDefinition basedef = findDefinition(streamName);
 			if (basedef == null) {
 				// TODO error/warning?
 				return null;
 			}
-			StreamsNode streamsNode = new StreamConfigParser(repository).parse(basedef.getDefinition());
+			StreamsNode streamsNode = new StreamConfigParser(root).parse(basedef.getDefinition());
 			if (streamsNode != null && streamsNode.getSize() == 1) {
 				int index = streamsNode.getStreamNodes().get(0).getIndexOfLabelOrModuleName(streamOrLabelOrModuleName);
 				if (index == -1) {
@@ -581,13 +615,14 @@ public class StreamConfigParser implements StreamLookupEnvironment {
 		}
 		else {
 			// Is it a stream?
-			BaseDefinition basedef = repository.findOne(streamOrLabelOrModuleName);
+			BaseDefinition basedef = findDefinition(streamOrLabelOrModuleName);
 			if (basedef != null) {
 				return streamOrLabelOrModuleName + ".0";
 			}
 			// look through all streams...
+			root.allDefinitionsReferenced = true;
 			for (BaseDefinition bd : repository.findAll()) {
-				StreamsNode streamsNode = new StreamConfigParser(repository).parse(bd.getDefinition());
+				StreamsNode streamsNode = new StreamConfigParser(root).parse(bd.getDefinition());
 				StreamNode sn = streamsNode.getStreamNodes().get(0);
 				int index = sn.getIndexOfLabelOrModuleName(streamOrLabelOrModuleName);
 				if (index != -1) {
@@ -597,4 +632,10 @@ public class StreamConfigParser implements StreamLookupEnvironment {
 		}
 		return null;
 	}
+
+	private BaseDefinition findDefinition(String name) {
+		BaseDefinition definition = repository.findOne(name);
+		root.referencedDefinitions.put(name, (definition != null) ? definition.getDefinition() : null);
+		return definition;
+	}
 }
@@ -46,13 +46,17 @@ public class RedisStreamRepository extends AbstractRedisInstanceRepository<Strea
 		Date startedAt = new Date(Long.parseLong(parts[1]));
 		Stream stream = new Stream(def);
 		stream.setStartedAt(startedAt);
+		if (parts.length > 2) {
+			stream.setIndexOffset(Integer.parseInt(parts[2]));
+		}
 		return stream;
 	}
 
 	@Override
 	protected String serialize(Stream entity) {
 		// Store def name (which happens to be stream name, and properties)
-		return entity.getDefinition().getName() + "\n" + entity.getStartedAt().getTime();
+		return entity.getDefinition().getName() + "\n" + entity.getStartedAt().getTime() + "\n"
+				+ entity.getIndexOffset();
 	}
 
 }
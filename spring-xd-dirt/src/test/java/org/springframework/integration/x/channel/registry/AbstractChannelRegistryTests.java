@@ -87,6 +87,32 @@ public abstract class AbstractChannelRegistryTests {
 		assertEquals(0, bridges.size());
 	}
 
+	@Test
+	public void testDeleteTheBindingsOfOneOfTwoModules() throws Exception {
+		ChannelRegistry registry = getRegistry();
+		DirectChannel oldOutput = new DirectChannel();
+		QueueChannel oldInput = new QueueChannel();
+		DirectChannel newOutput = new DirectChannel();
+		QueueChannel newInput = new QueueChannel();
+		registry.createOutbound("baz.0", oldOutput, false);
+		registry.createInbound("baz.0", oldInput, ALL, false);
+		registry.createOutbound("baz.0", newOutput, false);
+		registry.createInbound("baz.0", newInput, ALL, false);
+		Collection<?> bridges = getBridges(registry);
+		int bound = bridges.size();
+		registry.deleteOutbound("baz.0", oldOutput);
+		registry.deleteInbound("baz.0", oldInput);
+		assertEquals(bound - 2, bridges.size());
+		newOutput.send(MessageBuilder.withPayload("foo").build());
+		Message<?> inbound = newInput.receive(5000);
+		assertNotNull(inbound);
+		assertEquals("foo", inbound.getPayload());
+		assertNull(oldInput.receive(0));
+		registry.deleteOutbound("baz.0", newOutput);
+		registry.deleteInbound("baz.0", newInput);
+		assertEquals(bound - 4, bridges.size());
+	}
+
 	@Test
 	public void testSendAndReceive() throws Exception {
 		ChannelRegistry registry = getRegistry();
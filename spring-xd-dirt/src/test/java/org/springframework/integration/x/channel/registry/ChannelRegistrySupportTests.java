@@ -141,15 +141,41 @@ public class ChannelRegistrySupportTests {
 	}
 
 	@Test
-	public void testJsonTuple() {
+	public void testTuple() {
+		Tuple payload = TupleBuilder.tuple().of("foo", "bar", "count", 3);
+		Message<?> converted = channelRegistry.transformOutboundIfNecessary(new GenericMessage<Tuple>(payload),
+				MediaType.APPLICATION_OCTET_STREAM);
+		assertEquals(ChannelRegistrySupport.XD_TUPLE_VALUE,
+				converted.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+		Message<?> reconstructed = channelRegistry.transformInboundIfNecessary(converted,
+				Collections.singletonList(MediaType.ALL));
+		assertEquals("bar", ((Tuple) reconstructed.getPayload()).getString("foo"));
+		assertEquals(Integer.valueOf(3), ((Tuple) reconstructed.getPayload()).getValue("count"));
+		assertNull(reconstructed.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+	}
+
+	@Test
+	public void testTupleWithXJavaObjectMediaTypeExplicitType() {
 		Tuple payload = TupleBuilder.tuple().of("foo", "bar");
+		Message<?> converted = channelRegistry.transformOutboundIfNecessary(new GenericMessage<Tuple>(payload),
+				MediaType.APPLICATION_OCTET_STREAM);
+		MediaType type = new MediaType("application", "x-java-object", Collections.singletonMap("type",
+				Tuple.class.getName()));
+		Message<?> reconstructed = channelRegistry.transformInboundIfNecessary(converted,
+				Collections.singletonList(type));
+		assertEquals("bar", ((Tuple) reconstructed.getPayload()).getString("foo"));
+	}
+
+	@Test
+	public void testJsonTupleFallback() {
+		Tuple payload = TupleBuilder.tuple().of("foo", new Foo("bar"));
 		Message<?> converted = channelRegistry.transformOutboundIfNecessary(new GenericMessage<Tuple>(payload),
 				MediaType.APPLICATION_OCTET_STREAM);
 		assertEquals(ChannelRegistrySupport.XD_JSON_OCTET_STREAM_VALUE,
 				converted.getHeaders().get(MessageHeaders.CONTENT_TYPE));
 		Message<?> reconstructed = channelRegistry.transformInboundIfNecessary(converted,
 				Collections.singletonList(MediaType.ALL));
-		assertEquals("bar", ((Tuple) reconstructed.getPayload()).getString("foo"));
+		assertEquals("bar", ((Tuple) reconstructed.getPayload()).getTuple("foo").getString("bar"));
 		assertNull(reconstructed.getHeaders().get(MessageHeaders.CONTENT_TYPE));
 	}
 
@@ -243,10 +269,18 @@ public class ChannelRegistrySupportTests {
 		public void deleteInbound(String name) {
 		}
 
+		@Override
+		public void deleteInbound(String name, MessageChannel channel) {
+		}
+
 		@Override
 		public void deleteOutbound(String name) {
 		}
 
+		@Override
+		public void deleteOutbound(String name, MessageChannel channel) {
+		}
+
 	}
 
 }
@@ -22,8 +22,13 @@ import static org.junit.Assert.assertTrue;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
@@ -37,7 +42,10 @@ import org.springframework.integration.MessageHeaders;
 import org.springframework.integration.MessagingException;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.core.MessageHandler;
+import org.springframework.integration.scheduling.PollerMetadata;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.support.PeriodicTrigger;
 
 /**
  * @author Gary Russell
@@ -122,6 +130,133 @@ public class LocalChannelRegistryTests extends AbstractChannelRegistryTests {
 		assertTrue(msgSent.get());
 	}
 
+	@Test
+	public void testDrainWaitsForTheMessageBeingHandled() throws Exception {
+		LocalChannelRegistry registry = (LocalChannelRegistry) getRegistry();
+		final CountDownLatch entered = new CountDownLatch(1);
+		final AtomicBoolean handled = new AtomicBoolean();
+		DirectChannel moduleInput = new DirectChannel();
+		moduleInput.subscribe(new MessageHandler() {
+
+			@Override
+			public void handleMessage(Message<?> message) throws MessagingException {
+				entered.countDown();
+				sleep(200);
+				handled.set(true);
+			}
+		});
+		registry.createInbound("direct", moduleInput, ALL, false);
+		final DirectChannel input = registry.getBean("direct", DirectChannel.class);
+		new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				input.send(MessageBuilder.withPayload("foo").build());
+			}
+		}).start();
+		assertTrue(entered.await(10, TimeUnit.SECONDS));
+		assertTrue(registry.drainInbound("direct", moduleInput, 10000));
+		assertTrue(handled.get());
+		assertEquals(0, getBridges(registry).size());
+	}
+
+	@Test
+	public void testNoMessageIsLostWhenAQueueConsumerIsReplacedUnderLoad() throws Exception {
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.setPoolSize(4);
+		scheduler.afterPropertiesSet();
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.getBeanFactory().registerSingleton("taskScheduler", scheduler);
+		context.refresh();
+		LocalChannelRegistry registry = new LocalChannelRegistry();
+		registry.setApplicationContext(context);
+		PollerMetadata poller = new PollerMetadata();
+		poller.setTrigger(new PeriodicTrigger(5));
+		poller.setMaxMessagesPerPoll(10);
+		poller.setReceiveTimeout(10);
+		registry.setPoller(poller);
+		registry.afterPropertiesSet();
+		try {
+			final int count = 2000;
+			final DirectChannel output = new DirectChannel();
+			registry.createOutbound("queue", output, true);
+			Set<Object> received = Collections.synchronizedSet(new HashSet<Object>());
+			RecordingModule first = new RecordingModule(received);
+			registry.createInbound("queue", first.input, ALL, true);
+			Thread producer = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int i = 0; i < count; i++) {
+						output.send(MessageBuilder.withPayload(i).build());
+						if (i % 10 == 0) {
+							sleep(1);
+						}
+					}
+				}
+			});
+			producer.start();
+			waitFor(received, count / 10);
+			// under load the queue does not empty in time, what is left stays queued for the next consumer
+			registry.drainInbound("queue", first.input, 50);
+			first.stopped = true;
+			RecordingModule second = new RecordingModule(received);
+			registry.createInbound("queue", second.input, ALL, true);
+			producer.join(10000);
+			waitFor(received, count);
+			assertEquals(count, received.size());
+			assertEquals(0, first.late.get());
+		}
+		finally {
+			registry.deleteInbound("queue");
+			scheduler.destroy();
+		}
+	}
+
+	private static void waitFor(Set<Object> received, int count) {
+		for (int i = 0; i < 1000 && received.size() < count; i++) {
+			sleep(10);
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * A module that records the payloads it handles, and counts those it is sent once it has been stopped: they would
+	 * be lost.
+	 */
+	private static class RecordingModule implements MessageHandler {
+
+		private final DirectChannel input = new DirectChannel();
+
+		private final Set<Object> received;
+
+		private final AtomicInteger late = new AtomicInteger();
+
+		private volatile boolean stopped;
+
+		RecordingModule(Set<Object> received) {
+			this.received = received;
+			this.input.subscribe(this);
+		}
+
+		@Override
+		public void handleMessage(Message<?> message) throws MessagingException {
+			if (stopped) {
+				late.incrementAndGet();
+				return;
+			}
+			received.add(message.getPayload());
+		}
+	}
+
 	static class Foo {
 
 		@Override
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.x.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.config.ConsumerEndpointFactoryBean;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.x.file.RollingFileWritingMessageHandler.SyncPolicy;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link RollingFileWritingMessageHandler}.
+ */
+public class RollingFileWritingMessageHandlerTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+
+	private RollingFileWritingMessageHandler handler;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = new File(folder.getRoot(), "out");
+		handler = new RollingFileWritingMessageHandler(directory, "test");
+		handler.setSuffix("out");
+		handler.setLineSeparator("\n");
+	}
+
+	@Test
+	public void testWritesEachMessageThroughByDefault() throws IOException {
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		assertEquals("foo\n", read(new File(directory, "test.out")));
+		handler.stop();
+	}
+
+	@Test
+	public void testAppendsBufferedLinesUntilStop() throws IOException {
+		handler.setFlushIntervalInMillis(60000);
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		handler.handleMessage(MessageBuilder.withPayload("bar").build());
+		File file = new File(directory, "test.out");
+		assertEquals(file, handler.getCurrentFile());
+		assertEquals(0, file.length());
+		handler.stop();
+		assertNull(handler.getCurrentFile());
+		assertEquals("foo\nbar\n", read(file));
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("baz").build());
+		handler.stop();
+		assertEquals("foo\nbar\nbaz\n", read(file));
+	}
+
+	@Test
+	public void testBinaryAndLargePayloads() throws IOException {
+		handler.setBinary(true);
+		handler.setBufferSize(4);
+		handler.setSuffix(" ");
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("ab".getBytes()).build());
+		handler.handleMessage(MessageBuilder.withPayload("cdefghij".getBytes()).build());
+		handler.handleMessage(MessageBuilder.withPayload("klmnopq").build());
+		handler.stop();
+		assertEquals("abcdefghijklmnopq", read(new File(directory, "test")));
+	}
+
+	@Test
+	public void testSizeRolloverContinuesAfterExistingFiles() throws IOException {
+		assertTrue(directory.mkdirs());
+		assertTrue(new File(directory, "test-3.out").createNewFile());
+		handler.setRolloverSizeInBytes(8);
+		handler.start();
+		for (int i = 0; i < 5; i++) {
+			handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		}
+		handler.stop();
+		assertEquals("foo\nfoo\n", read(new File(directory, "test-4.out")));
+		assertEquals("foo\nfoo\n", read(new File(directory, "test-5.out")));
+		assertEquals("foo\n", read(new File(directory, "test-6.out")));
+		assertFalse(new File(directory, "test-7.out").exists());
+	}
+
+	@Test
+	public void testTimeRolloverWithoutMessages() throws Exception {
+		handler.setRolloverIntervalInMillis(50);
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		File file = new File(directory, "test-0.out");
+		long deadline = System.currentTimeMillis() + 10000;
+		while (handler.getCurrentFile() != null && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals("foo\n", read(file));
+		handler.handleMessage(MessageBuilder.withPayload("bar").build());
+		handler.stop();
+		assertEquals("bar\n", read(new File(directory, "test-1.out")));
+	}
+
+	@Test
+	public void testGzip() throws IOException {
+		handler.setCompress(true);
+		handler.start();
+		for (int i = 0; i < 100; i++) {
+			handler.handleMessage(MessageBuilder.withPayload("the same line over and over again").build());
+		}
+		handler.stop();
+		File file = new File(directory, "test.out.gz");
+		assertTrue(file.length() < 100);
+		GZIPInputStream in = new GZIPInputStream(new FileInputStream(file));
+		assertEquals(3400, FileCopyUtils.copyToByteArray(in).length);
+	}
+
+	@Test
+	public void testSyncEveryMessageWritesThrough() throws IOException {
+		handler.setFlushIntervalInMillis(60000);
+		handler.setSyncPolicy(SyncPolicy.EVERY_MESSAGE);
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		assertEquals("foo\n", read(new File(directory, "test.out")));
+		handler.stop();
+	}
+
+	@Test
+	public void testFlushInterval() throws Exception {
+		handler.setFlushIntervalInMillis(50);
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		File file = new File(directory, "test.out");
+		assertEquals(0, file.length());
+		long deadline = System.currentTimeMillis() + 10000;
+		while (file.length() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals("foo\n", read(file));
+		handler.stop();
+	}
+
+	@Test
+	public void testSyncInterval() throws Exception {
+		handler.setFlushIntervalInMillis(60000);
+		handler.setSyncPolicy(SyncPolicy.INTERVAL);
+		handler.setSyncIntervalInMillis(20);
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		File file = new File(directory, "test.out");
+		long deadline = System.currentTimeMillis() + 10000;
+		while (file.length() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals("foo\n", read(file));
+		handler.stop();
+	}
+
+	@Test
+	public void testStopsAfterTheEndpointFeedingIt() throws IOException {
+		final DirectChannel input = new DirectChannel();
+		final AtomicBoolean reachedOnStop = new AtomicBoolean();
+		RollingFileWritingMessageHandler handler = new RollingFileWritingMessageHandler(directory, "test") {
+
+			@Override
+			public void stop() {
+				try {
+					input.send(MessageBuilder.withPayload("late").build());
+					reachedOnStop.set(true);
+				}
+				catch (MessagingException e) {
+					// unsubscribed
+				}
+				super.stop();
+			}
+		};
+		handler.setSuffix("out");
+		handler.setLineSeparator("\n");
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.getBeanFactory().registerSingleton("input", input);
+		context.getBeanFactory().registerSingleton("handler", handler);
+		RootBeanDefinition endpoint = new RootBeanDefinition(ConsumerEndpointFactoryBean.class);
+		endpoint.getPropertyValues().add("inputChannelName", "input");
+		endpoint.getPropertyValues().add("handler", new RuntimeBeanReference("handler"));
+		context.registerBeanDefinition("endpoint", endpoint);
+		context.refresh();
+		assertTrue(handler.isRunning());
+		input.send(MessageBuilder.withPayload("foo").build());
+		context.close();
+		assertFalse(handler.isRunning());
+		assertFalse(reachedOnStop.get());
+		assertEquals("foo\n", read(new File(directory, "test.out")));
+	}
+
+	private String read(File file) throws IOException {
+		return new String(FileCopyUtils.copyToByteArray(file), "UTF-8");
+	}
+
+}
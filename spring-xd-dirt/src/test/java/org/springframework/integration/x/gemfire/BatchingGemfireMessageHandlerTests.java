@@ -0,0 +1,144 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.x.gemfire;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageHandlingException;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.support.MessageBuilder;
+
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.pdx.PdxInstance;
+
+/**
+ * Tests for {@link BatchingGemfireMessageHandler}.
+ */
+public class BatchingGemfireMessageHandlerTests {
+
+	@SuppressWarnings("unchecked")
+	private final Region<Object, Object> region = mock(Region.class);
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testBatchCollapsesDuplicateKeys() {
+		BatchingGemfireMessageHandler handler = new BatchingGemfireMessageHandler(region, "payload.substring(0, 1)");
+		handler.setBatchSize(4);
+		handler.setBatchTimeout(0);
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("a1").build());
+		handler.handleMessage(MessageBuilder.withPayload("b1").build());
+		handler.handleMessage(MessageBuilder.withPayload("a2").build());
+		verifyZeroInteractions(region);
+		handler.handleMessage(MessageBuilder.withPayload("c1").build());
+		ArgumentCaptor<Map> batch = ArgumentCaptor.forClass(Map.class);
+		verify(region).putAll(batch.capture());
+		assertEquals(3, batch.getValue().size());
+		assertEquals("a2", batch.getValue().get("a"));
+		assertEquals("b1", batch.getValue().get("b"));
+		assertEquals("c1", batch.getValue().get("c"));
+		handler.stop();
+	}
+
+	@Test
+	public void testBatchSizeOneWritesEachMessage() {
+		BatchingGemfireMessageHandler handler = new BatchingGemfireMessageHandler(region, "'key'");
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		verify(region).put("key", "foo");
+		handler.stop();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testBatchTimeoutAndStopFlush() {
+		BatchingGemfireMessageHandler handler = new BatchingGemfireMessageHandler(region, "payload");
+		handler.setBatchSize(100);
+		handler.setBatchTimeout(50);
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		handler.handleMessage(MessageBuilder.withPayload("bar").build());
+		verify(region, timeout(10000)).putAll(anyMap());
+		handler.handleMessage(MessageBuilder.withPayload("baz").build());
+		handler.stop();
+		verify(region).put("baz", "baz");
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testFailedTimedOutBatchIsSentToErrorChannel() {
+		doThrow(new IllegalStateException("region closed")).when(region).putAll(anyMap());
+		BatchingGemfireMessageHandler handler = new BatchingGemfireMessageHandler(region, "payload");
+		QueueChannel errorChannel = new QueueChannel();
+		handler.setErrorChannel(errorChannel);
+		handler.setBatchSize(100);
+		handler.setBatchTimeout(50);
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		handler.handleMessage(MessageBuilder.withPayload("bar").build());
+		Message<?> error = errorChannel.receive(10000);
+		assertNotNull(error);
+		MessageHandlingException e = (MessageHandlingException) error.getPayload();
+		assertTrue(e.getMessage().contains("batch of 2 messages"));
+		assertEquals(2, ((List<?>) e.getFailedMessage().getPayload()).size());
+		handler.stop();
+	}
+
+	@Test
+	public void testParallelJsonConversion() {
+		Cache cache = new CacheFactory().create();
+		try {
+			Region<Object, Object> localRegion = cache.createRegionFactory(RegionShortcut.LOCAL).create("test");
+			BatchingGemfireMessageHandler handler = new BatchingGemfireMessageHandler(localRegion, "headers.key");
+			handler.setConvertJsonToPdx(true);
+			handler.setBatchSize(200);
+			handler.setConversionThreads(4);
+			handler.start();
+			for (int i = 0; i < 200; i++) {
+				handler.handleMessage(MessageBuilder.withPayload("{\"symbol\":\"VMW\",\"price\":" + i + "}")
+						.setHeader("key", i).build());
+			}
+			assertEquals(200, localRegion.size());
+			Object value = localRegion.get(150);
+			assertTrue(value instanceof PdxInstance);
+			assertEquals("VMW", ((PdxInstance) value).getField("symbol"));
+			handler.stop();
+		}
+		finally {
+			cache.close();
+		}
+	}
+
+}
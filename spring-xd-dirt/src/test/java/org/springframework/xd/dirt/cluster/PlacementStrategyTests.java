@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.cluster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.xd.dirt.module.ModuleDeploymentRequest;
+import org.springframework.xd.dirt.stream.DeploymentMessageSender;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests for the {@link PlacementStrategy} implementations and their use by {@link DeploymentMessageSender}.
+ */
+public class PlacementStrategyTests {
+
+	private final ContainerAttributes busy = container("busy", 5, 1000);
+
+	private final ContainerAttributes idle = container("idle", 1, 100);
+
+	private final ContainerAttributes hadoop = container("hadoop", 3, 500, "hadoop");
+
+	private final List<ContainerAttributes> containers = Arrays.asList(busy, idle, hadoop);
+
+	private final Map<Integer, ContainerAttributes> none = Collections.emptyMap();
+
+	@Test
+	public void testLeastLoadedCountsCurrentPlacements() {
+		PlacementStrategy strategy = new LeastLoadedPlacementStrategy();
+		assertEquals(idle, strategy.choose(request("time", 0), containers, none));
+		Map<Integer, ContainerAttributes> placements = new HashMap<Integer, ContainerAttributes>();
+		placements.put(2, idle);
+		placements.put(1, idle);
+		assertEquals(hadoop, strategy.choose(request("time", 0), containers, placements));
+	}
+
+	@Test
+	public void testLeastLoadedPrefersFreeMemoryOnTies() {
+		ContainerAttributes roomy = container("roomy", 1, 5000);
+		assertEquals(roomy, new LeastLoadedPlacementStrategy().choose(request("time", 0), Arrays.asList(idle, roomy),
+				none));
+	}
+
+	@Test
+	public void testColocatingPrefersContainersOfTheDeployment() {
+		PlacementStrategy strategy = new ColocatingPlacementStrategy(new LeastLoadedPlacementStrategy());
+		Map<Integer, ContainerAttributes> placements = Collections.singletonMap(1, busy);
+		assertEquals(busy, strategy.choose(request("time", 0), containers, placements));
+		assertEquals(idle, strategy.choose(request("time", 0), containers, none));
+	}
+
+	@Test
+	public void testColocatingCanBeSwitchedOff() {
+		ColocatingPlacementStrategy strategy = new ColocatingPlacementStrategy(new LeastLoadedPlacementStrategy());
+		strategy.setEnabled(false);
+		Map<Integer, ContainerAttributes> placements = Collections.singletonMap(1, busy);
+		assertEquals(idle, strategy.choose(request("time", 0), containers, placements));
+	}
+
+	@Test
+	public void testLabelMatching() {
+		LabelMatchingPlacementStrategy strategy = new LabelMatchingPlacementStrategy(new LeastLoadedPlacementStrategy());
+		strategy.setRequiredLabels(Collections.singletonMap("hdfs", "hadoop"));
+		assertEquals(hadoop, strategy.choose(request("hdfs", 1), containers, none));
+		assertEquals(idle, strategy.choose(request("time", 0), containers, none));
+		assertNull(strategy.choose(request("hdfs", 1), Arrays.asList(busy, idle), none));
+	}
+
+	@Test
+	public void testSenderBatchesRequestsPerContainer() throws Exception {
+		QueueChannel deployChannel = new QueueChannel();
+		DeploymentMessageSender sender = new DeploymentMessageSender(deployChannel, new QueueChannel());
+		ContainerRepository repository = mock(ContainerRepository.class);
+		when(repository.findAll()).thenReturn(containers);
+		sender.setContainerRepository(repository);
+		sender.setPlacementStrategy(new ColocatingPlacementStrategy(new LeastLoadedPlacementStrategy()));
+		sender.sendDeploymentRequests("test", Arrays.asList(request("log", 1), request("time", 0)));
+		Message<?> batch = deployChannel.receive(0);
+		assertEquals("idle", batch.getHeaders().get(DeploymentMessageSender.CONTAINER_ID_HEADER));
+		ModuleDeploymentRequest[] requests = new ObjectMapper().readValue(batch.getPayload().toString(),
+				ModuleDeploymentRequest[].class);
+		assertEquals(2, requests.length);
+		assertEquals("log", requests[0].getModule());
+		assertEquals(requests[0].getDeploymentId(), requests[1].getDeploymentId());
+		assertNull(deployChannel.receive(0));
+	}
+
+	@Test
+	public void testSenderWithoutKnownContainers() {
+		QueueChannel deployChannel = new QueueChannel();
+		DeploymentMessageSender sender = new DeploymentMessageSender(deployChannel, new QueueChannel());
+		ContainerRepository repository = mock(ContainerRepository.class);
+		when(repository.findAll()).thenReturn(Collections.<ContainerAttributes> emptyList());
+		sender.setContainerRepository(repository);
+		sender.setPlacementStrategy(new LeastLoadedPlacementStrategy());
+		sender.sendDeploymentRequests("test", Arrays.asList(request("log", 0)));
+		assertFalse(deployChannel.receive(0).getHeaders().containsKey(DeploymentMessageSender.CONTAINER_ID_HEADER));
+	}
+
+	@Test(expected = NoSuitableContainerException.class)
+	public void testSenderFailsWhenNoContainerIsSuitable() {
+		QueueChannel deployChannel = new QueueChannel();
+		DeploymentMessageSender sender = new DeploymentMessageSender(deployChannel, new QueueChannel());
+		ContainerRepository repository = mock(ContainerRepository.class);
+		when(repository.findAll()).thenReturn(Arrays.asList(busy));
+		LabelMatchingPlacementStrategy strategy = new LabelMatchingPlacementStrategy(new LeastLoadedPlacementStrategy());
+		strategy.setRequiredLabels(Collections.singletonMap("hdfs", "hadoop"));
+		sender.setContainerRepository(repository);
+		sender.setPlacementStrategy(strategy);
+		try {
+			sender.sendDeploymentRequests("test", Arrays.asList(request("hdfs", 1), request("time", 0)));
+		}
+		finally {
+			assertNull(deployChannel.receive(0));
+		}
+	}
+
+	private static ContainerAttributes container(String id, int moduleCount, long freeMemory, String... labels) {
+		ContainerAttributes container = new ContainerAttributes(id);
+		container.setModuleCount(moduleCount);
+		container.setFreeMemory(freeMemory);
+		container.setLabels(new HashSet<String>(Arrays.asList(labels)));
+		return container;
+	}
+
+	private static ModuleDeploymentRequest request(String module, int index) {
+		ModuleDeploymentRequest request = new ModuleDeploymentRequest();
+		request.setGroup("test");
+		request.setModule(module);
+		request.setIndex(index);
+		return request;
+	}
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.util.List;
+import java.util.Properties;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.xd.module.DeploymentMetadata;
+import org.springframework.xd.module.ModuleDefinition;
+import org.springframework.xd.module.SimpleModule;
+
+/**
+ * Tests for {@link FileModuleRegistry}.
+ */
+public class FileModuleRegistryTests {
+
+	private static final String MODULE_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<beans xmlns=\"http://www.springframework.org/schema/beans\"\n"
+			+ "	xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n"
+			+ "	xsi:schemaLocation=\"http://www.springframework.org/schema/beans\n"
+			+ "		http://www.springframework.org/schema/beans/spring-beans.xsd\">\n"
+			+ "	<bean id=\"names\" class=\"org.springframework.beans.factory.config.ListFactoryBean\">\n"
+			+ "		<property name=\"sourceList\">\n"
+			+ "			<list>\n"
+			+ "				<value>${name}</value>\n"
+			+ "				<bean class=\"" + Name.class.getName() + "\"><property name=\"value\" value=\"${name}-inner\"/></bean>\n"
+			+ "			</list>\n"
+			+ "		</property>\n"
+			+ "	</bean>\n"
+			+ "	<alias name=\"names\" alias=\"%s\"/>\n"
+			+ "</beans>\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File file;
+
+	private FileModuleRegistry registry;
+
+	@Before
+	public void setUp() throws Exception {
+		File sinks = folder.newFolder("sink");
+		file = new File(sinks, "test.xml");
+		FileCopyUtils.copy(String.format(MODULE_XML, "values"), new FileWriter(file));
+		registry = new FileModuleRegistry(folder.getRoot().getAbsolutePath());
+	}
+
+	@Test
+	public void testDefinitionIsCachedUntilTheFileChanges() throws Exception {
+		ModuleDefinition definition = registry.lookup("test", "sink");
+		assertSame(definition, registry.lookup("test", "sink"));
+		assertSame(definition, registry.findDefinitions("test").get(0));
+		FileCopyUtils.copy(String.format(MODULE_XML, "moreValues"), new FileWriter(file));
+		ModuleDefinition changed = registry.lookup("test", "sink");
+		assertNotSame(definition, changed);
+		SimpleModule module = newModule(changed, "foo");
+		assertEquals("[foo, foo-inner]", module.getComponent("moreValues", List.class).toString());
+	}
+
+	@Test
+	public void testModulesFromOneDefinitionResolvePlaceholdersIndependently() {
+		ModuleDefinition definition = registry.lookup("test", "sink");
+		SimpleModule foo = newModule(definition, "foo");
+		SimpleModule bar = newModule(definition, "bar");
+		assertEquals("[foo, foo-inner]", foo.getComponent("values", List.class).toString());
+		assertEquals("[bar, bar-inner]", bar.getComponent("names", List.class).toString());
+	}
+
+	@Test
+	public void testModuleClassesAreLoadedFromItsJarsFirst() throws Exception {
+		jar(new File(file.getParentFile(), "test/lib/test.jar"), TemporaryFolder.class, SimpleModule.class);
+		ModuleDefinition definition = registry.lookup("test", "sink");
+		assertEquals(1, definition.getClasspath().length);
+		ClassLoader classLoader = newModule(definition, "foo").getApplicationContext().getClassLoader();
+		Class<?> folderClass = classLoader.loadClass(TemporaryFolder.class.getName());
+		assertNotSame(TemporaryFolder.class, folderClass);
+		assertSame(classLoader, folderClass.getClassLoader());
+		assertSame(SimpleModule.class, classLoader.loadClass(SimpleModule.class.getName()));
+		assertSame(Test.class, classLoader.loadClass(Test.class.getName()));
+		// modules of one definition share their classes
+		assertSame(classLoader, newModule(definition, "bar").getApplicationContext().getClassLoader());
+	}
+
+	@Test
+	public void testDefinitionChangesWithItsJars() throws Exception {
+		File jar = new File(file.getParentFile(), "test/lib/test.jar");
+		jar(jar, TemporaryFolder.class);
+		ModuleDefinition definition = registry.lookup("test", "sink");
+		jar.setLastModified(jar.lastModified() - 10000);
+		ModuleDefinition changed = registry.lookup("test", "sink");
+		assertNotSame(definition, changed);
+		assertNotSame(newModule(definition, "foo").getApplicationContext().getClassLoader(),
+				newModule(changed, "foo").getApplicationContext().getClassLoader());
+	}
+
+	@Test
+	public void testMissingModule() {
+		assertNull(registry.lookup("test", "source").getResource());
+		assertEquals(1, registry.findDefinitions("test").size());
+	}
+
+	private static void jar(File jar, Class<?>... classes) throws Exception {
+		jar.getParentFile().mkdirs();
+		JarOutputStream stream = new JarOutputStream(new FileOutputStream(jar));
+		try {
+			for (Class<?> type : classes) {
+				String entryName = type.getName().replace('.', '/') + ".class";
+				stream.putNextEntry(new JarEntry(entryName));
+				stream.write(FileCopyUtils.copyToByteArray(new ClassPathResource(entryName).getInputStream()));
+				stream.closeEntry();
+			}
+		}
+		finally {
+			stream.close();
+		}
+	}
+
+	private SimpleModule newModule(ModuleDefinition definition, String name) {
+		SimpleModule module = new SimpleModule(definition, new DeploymentMetadata("test", 0));
+		Properties properties = new Properties();
+		properties.setProperty("name", name);
+		module.addProperties(properties);
+		module.initialize();
+		return module;
+	}
+
+	public static class Name {
+
+		private String value;
+
+		public void setValue(String value) {
+			this.value = value;
+		}
+
+		@Override
+		public String toString() {
+			return value;
+		}
+	}
+
+}
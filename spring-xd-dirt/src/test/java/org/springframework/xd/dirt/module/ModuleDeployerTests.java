@@ -0,0 +1,156 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.context.Lifecycle;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.xd.module.ModuleDefinition;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests for {@link ModuleDeployer} deploying on a pool of threads.
+ */
+public class ModuleDeployerTests {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private ModuleDeployer deployer;
+
+	@Before
+	public void setUp() {
+		StartRecorder.started.clear();
+		ModuleRegistry registry = mock(ModuleRegistry.class);
+		when(registry.lookup(anyString(), anyString())).thenReturn(
+				new ModuleDefinition("test", "processor", new ClassPathResource("ModuleDeployerTests-module.xml",
+						getClass())));
+		deployer = new ModuleDeployer(registry);
+	}
+
+	@After
+	public void tearDown() {
+		deployer.destroy();
+	}
+
+	@Test
+	public void testDownstreamModulesStartFirst() throws Exception {
+		deployer.setDeploymentThreads(3);
+		deployer.afterPropertiesSet();
+		// the sink takes longest to initialize, so the source would otherwise start first
+		deploy(request(2, 300), request(1, 100), request(0, 0));
+		awaitDeployed(3);
+		assertEquals(Arrays.asList("test:2", "test:1", "test:0"), StartRecorder.started);
+	}
+
+	@Test
+	public void testUndeployWaitsForInFlightDeployment() throws Exception {
+		deployer.setDeploymentThreads(2);
+		deployer.afterPropertiesSet();
+		ModuleDeploymentRequest request = request(0, 300);
+		deploy(request);
+		ModuleDeploymentRequest undeploy = request(0, 0);
+		undeploy.setRemove(true);
+		deployer.undeploy(undeploy);
+		assertEquals(Arrays.asList("test:0"), StartRecorder.started);
+		assertEquals(0, deployer.getDeployedModuleCount());
+	}
+
+	@Test
+	public void testStreamWithMoreModulesThanThreads() throws Exception {
+		deployer.setDeploymentThreads(2);
+		deployer.afterPropertiesSet();
+		deploy(request(5, 50), request(4, 0), request(3, 50), request(2, 0), request(1, 50), request(0, 0));
+		awaitDeployed(6);
+		assertEquals(Arrays.asList("test:5", "test:4", "test:3", "test:2", "test:1", "test:0"),
+				StartRecorder.started);
+	}
+
+	private ModuleDeploymentRequest request(int index, long initDelay) {
+		ModuleDeploymentRequest request = new ModuleDeploymentRequest();
+		request.setGroup("test");
+		request.setIndex(index);
+		request.setModule("test");
+		request.setType("processor");
+		request.setParameter("name", "test:" + index);
+		request.setParameter("initDelay", String.valueOf(initDelay));
+		return request;
+	}
+
+	private void deploy(ModuleDeploymentRequest... requests) throws Exception {
+		deployer.handleMessage(MessageBuilder.withPayload(mapper.writeValueAsString(requests)).build());
+	}
+
+	private void awaitDeployed(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (deployer.getDeployedModuleCount() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(count, deployer.getDeployedModuleCount());
+	}
+
+	/**
+	 * Records the order in which the modules are started.
+	 */
+	public static class StartRecorder implements Lifecycle {
+
+		static final List<String> started = Collections.synchronizedList(new ArrayList<String>());
+
+		private volatile String name;
+
+		private volatile boolean running;
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public void setInitDelay(long initDelay) throws InterruptedException {
+			Thread.sleep(initDelay);
+		}
+
+		@Override
+		public void start() {
+			started.add(this.name);
+			this.running = true;
+		}
+
+		@Override
+		public void stop() {
+			this.running = false;
+		}
+
+		@Override
+		public boolean isRunning() {
+			return this.running;
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.xd.module.ModuleType;
+
+/**
+ * Tests for {@link RedisModuleRegistry}, against a mocked connection.
+ */
+public class RedisModuleRegistryTests {
+
+	private final RedisConnection connection = mock(RedisConnection.class);
+
+	private RedisModuleRegistry registry;
+
+	@Before
+	public void setUp() {
+		RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+		when(connectionFactory.getConnection()).thenReturn(connection);
+		when(connection.hKeys(any(byte[].class))).thenReturn(Collections.<byte[]> emptySet());
+		registry = new RedisModuleRegistry(connectionFactory);
+	}
+
+	@Test
+	public void testRegistryVersionIsReadOncePerTtl() {
+		Object version = registry.getRegistryVersion();
+		assertEquals(version, registry.getRegistryVersion());
+		verify(connection, times(ModuleType.values().length)).hKeys(any(byte[].class));
+	}
+
+	@Test
+	public void testRegistryVersionIsReadAgainOnceExpired() throws Exception {
+		registry.setRegistryVersionTtl(0);
+		Object version = registry.getRegistryVersion();
+		Set<byte[]> names = Collections.singleton("time".getBytes());
+		when(connection.hKeys(any(byte[].class))).thenReturn(names);
+		Thread.sleep(1);
+		assertFalse(version.equals(registry.getRegistryVersion()));
+		verify(connection, times(2 * ModuleType.values().length)).hKeys(any(byte[].class));
+	}
+
+}
@@ -84,8 +84,22 @@ public class StreamPluginTests {
 		verify(registry).createInbound("foo.0", input, Collections.singletonList(MediaType.ALL), false);
 		verify(registry).createOutbound("foo.1", output, false);
 		plugin.removeModule(module);
-		verify(registry).deleteInbound("foo.0");
-		verify(registry).deleteOutbound("foo.1");
+		verify(registry).deleteInbound("foo.0", input);
+		verify(registry).deleteOutbound("foo.1", output);
+	}
+
+	@Test
+	public void shiftedModuleIsBoundToTheChannelsOfItsPosition() {
+		Module module = mock(Module.class);
+		when(module.getDeploymentMetadata()).thenReturn(new DeploymentMetadata("foo", 4, 3, null, null));
+		when(module.getType()).thenReturn(ModuleType.PROCESSOR.toString());
+		final ChannelRegistry registry = mock(ChannelRegistry.class);
+		when(module.getComponent(ChannelRegistry.class)).thenReturn(registry);
+		when(module.getComponent("input", MessageChannel.class)).thenReturn(input);
+		when(module.getComponent("output", MessageChannel.class)).thenReturn(output);
+		plugin.postProcessModule(module);
+		verify(registry).createInbound("foo.0", input, Collections.singletonList(MediaType.ALL), false);
+		verify(registry).createOutbound("foo.1", output, false);
 	}
 
 	@Test
@@ -19,8 +19,11 @@ package org.springframework.xd.dirt.rest;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -43,6 +46,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.xd.dirt.module.ModuleDeploymentRequest;
 import org.springframework.xd.dirt.module.ModuleRegistry;
+import org.springframework.xd.dirt.stream.DeploymentFailedException;
 import org.springframework.xd.dirt.stream.DeploymentMessageSender;
 import org.springframework.xd.dirt.stream.StreamRepository;
 import org.springframework.xd.dirt.stream.memory.InMemoryStreamDefinitionRepository;
@@ -74,6 +78,8 @@ public class StreamsControllerIntegrationWithRepositoryTests extends AbstractCon
 
 	@Before
 	public void before() {
+		reset(sender);
+
 		Resource resource = mock(Resource.class);
 		ModuleDefinition sinkDefinition = new ModuleDefinition(ModuleType.SINK.getTypeName(),
 				ModuleType.SINK.getTypeName(), resource);
@@ -104,6 +110,22 @@ public class StreamsControllerIntegrationWithRepositoryTests extends AbstractCon
 		mockMvc.perform(delete("/streams/not-there")).andExpect(status().isNotFound());
 	}
 
+	@Test
+	public void testFailedDeploymentOfStream() throws Exception {
+		mockMvc.perform(
+				post("/streams").param("name", "mystream").param("definition", "time | log").param("deploy", "false").accept(
+						MediaType.APPLICATION_JSON)).andExpect(status().isCreated());
+
+		when(sender.sendDeploymentRequests(eq("mystream"), anyListOf(ModuleDeploymentRequest.class))).thenReturn(
+				"deployment");
+		doThrow(new DeploymentFailedException("mystream", "Deployment of 'mystream' failed")).when(sender).awaitDeployment(
+				eq("deployment"), anyLong());
+
+		mockMvc.perform(
+				put("/streams/mystream").param("deploy", "true").param("timeout", "100").accept(
+						MediaType.APPLICATION_JSON)).andExpect(status().isServiceUnavailable());
+	}
+
 	@Test
 	public void testCreateUndeployAndDeleteOfStream() throws Exception {
 		mockMvc.perform(
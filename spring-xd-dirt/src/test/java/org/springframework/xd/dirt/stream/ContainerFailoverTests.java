@@ -0,0 +1,358 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.core.MessageHandler;
+import org.springframework.xd.dirt.cluster.ColocatingPlacementStrategy;
+import org.springframework.xd.dirt.cluster.ContainerAttributes;
+import org.springframework.xd.dirt.cluster.ContainerRepository;
+import org.springframework.xd.dirt.cluster.DeploymentQueueRepository;
+import org.springframework.xd.dirt.cluster.LeastLoadedPlacementStrategy;
+import org.springframework.xd.dirt.cluster.ModuleAssignment;
+import org.springframework.xd.dirt.cluster.ModuleAssignmentRepository;
+import org.springframework.xd.dirt.module.ModuleDeploymentRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests for {@link ContainerFailureDetector}, killing containers of a {@link LocalCluster} and waiting for the modules
+ * to run on the survivors.
+ */
+public class ContainerFailoverTests {
+
+	private static final long TIMEOUT = 5000;
+
+	private final LocalCluster cluster = new LocalCluster();
+
+	private final InMemoryModuleAssignmentRepository assignments = new InMemoryModuleAssignmentRepository();
+
+	private final Set<String> deletedQueues = Collections.synchronizedSet(new HashSet<String>());
+
+	private final DeploymentQueueRepository queues = new DeploymentQueueRepository() {
+
+		@Override
+		public void delete(String containerId) {
+			deletedQueues.add(containerId);
+		}
+	};
+
+	private DeploymentMessageSender sender;
+
+	private ContainerFailureDetector detector;
+
+	@Before
+	public void setUp() {
+		sender = new DeploymentMessageSender(cluster.deployChannel, cluster.undeployChannel);
+		sender.setContainerRepository(cluster);
+		sender.setAssignmentRepository(assignments);
+		sender.setPlacementStrategy(new LeastLoadedPlacementStrategy());
+		cluster.start("a");
+		cluster.start("b");
+		cluster.start("c");
+		detector = new ContainerFailureDetector(cluster, assignments, sender);
+		detector.setCheckInterval(20);
+		detector.setDeploymentQueueRepository(queues);
+		detector.afterPropertiesSet();
+	}
+
+	@After
+	public void tearDown() {
+		detector.destroy();
+	}
+
+	@Test
+	public void testModulesOfAKilledContainerAreRedeployedOnSurvivors() throws Exception {
+		sender.sendDeploymentRequests("test", requests("test", "time", "transform", "log"));
+		assertConverges(3);
+		String victim = containerOf("test", 1);
+		cluster.kill(victim);
+		assertConverges(3);
+		for (ModuleAssignment assignment : assignments.findAll()) {
+			assertFalse(victim.equals(assignment.getContainerId()));
+		}
+		assertTrue(cluster.findDeadIds().isEmpty());
+		assertEquals(Collections.singleton(victim), deletedQueues);
+	}
+
+	@Test
+	public void testModulesWaitForASurvivor() throws Exception {
+		sender.sendDeploymentRequests("test", requests("test", "time", "log"));
+		assertConverges(2);
+		cluster.kill("a");
+		cluster.kill("b");
+		cluster.kill("c");
+		assertEquals(0, detector.check());
+		cluster.start("d");
+		assertConverges(2);
+		assertEquals(2, cluster.modulesOf("d").size());
+	}
+
+	@Test
+	public void testColocatedModulesAreRedeployedTogether() throws Exception {
+		sender.setPlacementStrategy(new ColocatingPlacementStrategy(new LeastLoadedPlacementStrategy()));
+		sender.sendDeploymentRequests("test", requests("test", "time", "transform", "log"));
+		assertConverges(3);
+		String victim = containerOf("test", 0);
+		cluster.kill(victim);
+		assertConverges(3);
+		Set<String> containers = new HashSet<String>();
+		for (ModuleAssignment assignment : assignments.findAll()) {
+			containers.add(assignment.getContainerId());
+		}
+		assertEquals(1, containers.size());
+	}
+
+	@Test
+	public void testUndeployedModulesAreNotRedeployed() throws Exception {
+		List<ModuleDeploymentRequest> requests = requests("test", "time", "log");
+		sender.sendDeploymentRequests("test", requests);
+		assertConverges(2);
+		detector.destroy();
+		for (ModuleDeploymentRequest request : requests) {
+			request.setRemove(true);
+		}
+		sender.sendDeploymentRequests("test", requests);
+		cluster.kill("a");
+		assertEquals(0, detector.check());
+		assertTrue(assignments.findAll().isEmpty());
+		assertEquals(0, cluster.modulesOf("b").size() + cluster.modulesOf("c").size());
+	}
+
+	/**
+	 * Wait until each assigned module runs on the live container it is assigned to, and nowhere else.
+	 */
+	private void assertConverges(int modules) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (!cluster.runs(assignments.findAll(), modules)) {
+			assertTrue("no convergence within " + TIMEOUT + "ms: " + assignments.findAll(),
+					System.currentTimeMillis() < deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	private String containerOf(String group, int index) {
+		for (ModuleAssignment assignment : assignments.findByGroup(group)) {
+			if (assignment.getRequest().getIndex() == index) {
+				return assignment.getContainerId();
+			}
+		}
+		return null;
+	}
+
+	private static List<ModuleDeploymentRequest> requests(String group, String... modules) {
+		List<ModuleDeploymentRequest> requests = new ArrayList<ModuleDeploymentRequest>();
+		for (int i = modules.length - 1; i >= 0; i--) {
+			ModuleDeploymentRequest request = new ModuleDeploymentRequest();
+			request.setGroup(group);
+			request.setModule(modules[i]);
+			request.setIndex(i);
+			requests.add(request);
+		}
+		return requests;
+	}
+
+	/**
+	 * Containers in this JVM, receiving the deployment requests the sender addresses to them. A killed container
+	 * drops its modules and stops its heartbeat, so that it is no longer listed as alive.
+	 */
+	private static class LocalCluster implements ContainerRepository {
+
+		private final Map<String, Set<String>> containers = new LinkedHashMap<String, Set<String>>();
+
+		private final Set<String> dead = new HashSet<String>();
+
+		private final ObjectMapper mapper = new ObjectMapper();
+
+		private final DirectChannel deployChannel = new DirectChannel();
+
+		private final DirectChannel undeployChannel = new DirectChannel();
+
+		LocalCluster() {
+			deployChannel.subscribe(new MessageHandler() {
+
+				@Override
+				public void handleMessage(Message<?> message) throws MessagingException {
+					String id = (String) message.getHeaders().get(DeploymentMessageSender.CONTAINER_ID_HEADER);
+					Set<String> modules = modulesOf(id);
+					synchronized (containers) {
+						for (ModuleDeploymentRequest request : requests(message)) {
+							modules.add(key(request));
+						}
+					}
+				}
+			});
+			undeployChannel.subscribe(new MessageHandler() {
+
+				@Override
+				public void handleMessage(Message<?> message) throws MessagingException {
+					synchronized (containers) {
+						for (ModuleDeploymentRequest request : requests(message)) {
+							for (Set<String> modules : containers.values()) {
+								modules.remove(key(request));
+							}
+						}
+					}
+				}
+			});
+		}
+
+		void start(String id) {
+			synchronized (containers) {
+				containers.put(id, new HashSet<String>());
+			}
+		}
+
+		void kill(String id) {
+			synchronized (containers) {
+				containers.remove(id);
+				dead.add(id);
+			}
+		}
+
+		Set<String> modulesOf(String id) {
+			synchronized (containers) {
+				Set<String> modules = containers.get(id);
+				// requests for a dead container are never picked up
+				return (modules != null) ? modules : new HashSet<String>();
+			}
+		}
+
+		boolean runs(List<ModuleAssignment> assignments, int expected) {
+			synchronized (containers) {
+				int running = 0;
+				for (Set<String> modules : containers.values()) {
+					running += modules.size();
+				}
+				if (running != expected || assignments.size() != expected) {
+					return false;
+				}
+				for (ModuleAssignment assignment : assignments) {
+					Set<String> modules = containers.get(assignment.getContainerId());
+					if (modules == null || !modules.contains(key(assignment.getRequest()))) {
+						return false;
+					}
+				}
+				return true;
+			}
+		}
+
+		@Override
+		public List<ContainerAttributes> findAll() {
+			List<ContainerAttributes> live = new ArrayList<ContainerAttributes>();
+			synchronized (containers) {
+				for (Map.Entry<String, Set<String>> entry : containers.entrySet()) {
+					ContainerAttributes attributes = new ContainerAttributes(entry.getKey());
+					attributes.setModuleCount(entry.getValue().size());
+					live.add(attributes);
+				}
+			}
+			return live;
+		}
+
+		@Override
+		public List<String> findDeadIds() {
+			synchronized (containers) {
+				return new ArrayList<String>(dead);
+			}
+		}
+
+		@Override
+		public void delete(String containerId) {
+			synchronized (containers) {
+				dead.remove(containerId);
+			}
+		}
+
+		private ModuleDeploymentRequest[] requests(Message<?> message) {
+			String payload = message.getPayload().toString();
+			try {
+				if (payload.startsWith("[")) {
+					return mapper.readValue(payload, ModuleDeploymentRequest[].class);
+				}
+				return new ModuleDeploymentRequest[] { mapper.readValue(payload, ModuleDeploymentRequest.class) };
+			}
+			catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		private static String key(ModuleDeploymentRequest request) {
+			return request.getGroup() + "." + request.getIndex();
+		}
+	}
+
+	private static class InMemoryModuleAssignmentRepository implements ModuleAssignmentRepository {
+
+		private final Map<String, Map<Integer, ModuleAssignment>> groups = new ConcurrentHashMap<String, Map<Integer, ModuleAssignment>>();
+
+		@Override
+		public synchronized void save(ModuleAssignment assignment) {
+			String group = assignment.getRequest().getGroup();
+			if (!groups.containsKey(group)) {
+				groups.put(group, new ConcurrentHashMap<Integer, ModuleAssignment>());
+			}
+			groups.get(group).put(assignment.getRequest().getIndex(), assignment);
+		}
+
+		@Override
+		public synchronized void delete(String group, int index) {
+			Map<Integer, ModuleAssignment> assignments = groups.get(group);
+			if (assignments != null) {
+				assignments.remove(index);
+			}
+		}
+
+		@Override
+		public List<ModuleAssignment> findByGroup(String group) {
+			Map<Integer, ModuleAssignment> assignments = groups.get(group);
+			if (assignments == null) {
+				return Collections.emptyList();
+			}
+			return new ArrayList<ModuleAssignment>(assignments.values());
+		}
+
+		@Override
+		public List<ModuleAssignment> findAll() {
+			List<ModuleAssignment> all = new ArrayList<ModuleAssignment>();
+			for (String group : groups.keySet()) {
+				all.addAll(findByGroup(group));
+			}
+			return all;
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.xd.dirt.module.ModuleDeploymentAck;
+import org.springframework.xd.dirt.module.ModuleDeploymentRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests for the acknowledgement of the deployments sent by {@link DeploymentMessageSender}.
+ */
+public class DeploymentAcknowledgementTests {
+
+	private final QueueChannel deployChannel = new QueueChannel();
+
+	private final QueueChannel undeployChannel = new QueueChannel();
+
+	private final DeploymentMessageSender sender = new DeploymentMessageSender(deployChannel, undeployChannel);
+
+	private final List<ModuleDeploymentRequest> requests = requests("test", "log", "time");
+
+	@Test
+	public void testDeploymentCompletesWhenAllModulesAreAcknowledged() {
+		String deploymentId = sender.sendDeploymentRequests("test", requests);
+		for (ModuleDeploymentRequest request : received(2)) {
+			assertEquals(deploymentId, request.getDeploymentId());
+			sender.acknowledge(new ModuleDeploymentAck(request, "container", null));
+		}
+		sender.awaitDeployment(deploymentId, 0);
+	}
+
+	@Test
+	public void testFailureIsReportedWithoutWaitingForTheOtherModules() {
+		String deploymentId = sender.sendDeploymentRequests("test", requests);
+		List<ModuleDeploymentRequest> received = received(2);
+		sender.acknowledge(new ModuleDeploymentAck(received.get(1), "container",
+				new IllegalArgumentException("no such module")));
+		try {
+			sender.awaitDeployment(deploymentId, 10000);
+			fail("expected DeploymentFailedException");
+		}
+		catch (DeploymentFailedException e) {
+			assertEquals("test", e.getOffendingName());
+			assertTrue(e.getMessage(), e.getMessage().contains("time:1 on container container"));
+			assertTrue(e.getMessage(), e.getMessage().contains("no such module"));
+		}
+	}
+
+	@Test
+	public void testUnacknowledgedModulesAreReportedOnTimeout() {
+		String deploymentId = sender.sendDeploymentRequests("test", requests);
+		ModuleDeploymentRequest log = received(2).get(0);
+		sender.acknowledge(new ModuleDeploymentAck(log, "container", null));
+		// an acknowledgement delivered twice only counts once
+		sender.acknowledge(new ModuleDeploymentAck(log, "container", null));
+		try {
+			sender.awaitDeployment(deploymentId, 10);
+			fail("expected DeploymentFailedException");
+		}
+		catch (DeploymentFailedException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("[test:time:1]"));
+		}
+	}
+
+	@Test
+	public void testUndeploymentIsSentInOneMessageAndNotAwaited() throws Exception {
+		for (ModuleDeploymentRequest request : requests) {
+			request.setRemove(true);
+		}
+		String deploymentId = sender.sendDeploymentRequests("test", requests);
+		Message<?> message = undeployChannel.receive(0);
+		assertEquals(2, new ObjectMapper().readValue(message.getPayload().toString(),
+				ModuleDeploymentRequest[].class).length);
+		assertNull(undeployChannel.receive(0));
+		sender.awaitDeployment(deploymentId, 0);
+	}
+
+	private List<ModuleDeploymentRequest> received(int count) {
+		List<ModuleDeploymentRequest> received = new ArrayList<ModuleDeploymentRequest>();
+		for (int i = 0; i < count; i++) {
+			Message<?> message = deployChannel.receive(0);
+			assertNotNull(message);
+			try {
+				received.add(new ObjectMapper().readValue(message.getPayload().toString(),
+						ModuleDeploymentRequest.class));
+			}
+			catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		assertNull(deployChannel.receive(0));
+		return received;
+	}
+
+	private static List<ModuleDeploymentRequest> requests(String group, String... modules) {
+		List<ModuleDeploymentRequest> requests = new ArrayList<ModuleDeploymentRequest>();
+		for (int i = 0; i < modules.length; i++) {
+			ModuleDeploymentRequest request = new ModuleDeploymentRequest();
+			request.setGroup(group);
+			request.setModule(modules[i]);
+			request.setIndex(i);
+			requests.add(request);
+		}
+		return requests;
+	}
+
+}
@@ -19,9 +19,13 @@ package org.springframework.xd.dirt.stream;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -32,6 +36,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.core.io.Resource;
 import org.springframework.xd.dirt.module.ModuleDeploymentRequest;
 import org.springframework.xd.dirt.module.ModuleRegistry;
+import org.springframework.xd.dirt.stream.memory.InMemoryStreamDefinitionRepository;
 import org.springframework.xd.module.ModuleDefinition;
 import org.springframework.xd.module.ModuleType;
 
@@ -195,6 +200,62 @@ public class EnhancedStreamParserTests {
 		assertEquals(ModuleType.SINK.getTypeName(), requests.get(0).getType());
 	}
 
+	@Test
+	public void parsedDefinitionsAreCachedWhileTheRegistryIsUnchanged() {
+		ModuleRegistry registry = moduleRegistry();
+		when(registry.getRegistryVersion()).thenReturn("1");
+		parser = new EnhancedStreamParser(registry);
+		List<ModuleDeploymentRequest> first = parser.parse("test", "foo | bar");
+		first.get(0).setIndex(5);
+		List<ModuleDeploymentRequest> second = parser.parse("test", "foo | bar");
+		assertEquals(1, second.get(0).getIndex());
+		assertEquals("bar", second.get(0).getModule());
+		assertEquals(ModuleType.SOURCE.getTypeName(), second.get(1).getType());
+		verify(registry, times(1)).findDefinitions("foo");
+	}
+
+	@Test
+	public void cacheIsInvalidatedWhenTheRegistryChanges() {
+		ModuleRegistry registry = moduleRegistry();
+		when(registry.getRegistryVersion()).thenReturn("1", "2");
+		parser = new EnhancedStreamParser(registry);
+		parser.parse("test", "foo | bar");
+		parser.parse("test", "foo | bar");
+		verify(registry, times(2)).findDefinitions("foo");
+	}
+
+	@Test
+	public void cacheIsInvalidatedWhenAReferencedDefinitionChanges() {
+		ModuleRegistry registry = moduleRegistry();
+		when(registry.getRegistryVersion()).thenReturn("1");
+		InMemoryStreamDefinitionRepository repository = new InMemoryStreamDefinitionRepository();
+		parser = new EnhancedStreamParser(repository, registry);
+		assertEquals(2, parser.parse("test", "foo | bar").size());
+		// foo now names a substream
+		repository.save(new StreamDefinition("foo", "boo | blah"));
+		// the repository is not read again on a cache hit, the deployers invalidate what they change
+		assertEquals(2, parser.parse("test", "foo | bar").size());
+		parser.invalidate("foo");
+		List<ModuleDeploymentRequest> requests = parser.parse("test", "foo | bar");
+		assertEquals(3, requests.size());
+		assertEquals("boo", requests.get(2).getModule());
+	}
+
+	@Test
+	public void parseAllLooksUpEachModuleOnce() {
+		ModuleRegistry registry = moduleRegistry();
+		parser = new EnhancedStreamParser(registry);
+		Map<String, String> definitions = new LinkedHashMap<String, String>();
+		definitions.put("b", "foo | file");
+		definitions.put("a", "foo | bar");
+		Map<String, List<ModuleDeploymentRequest>> requests = parser.parseAll(definitions);
+		assertEquals(Arrays.asList("b", "a"), new ArrayList<String>(requests.keySet()));
+		assertEquals("file", requests.get("b").get(0).getModule());
+		assertEquals("a", requests.get("a").get(1).getGroup());
+		verify(registry, times(1)).findDefinitions("foo");
+		verify(registry, times(1)).lookup("foo", ModuleType.SOURCE.getTypeName());
+	}
+
 	@Bean
 	public ModuleRegistry moduleRegistry() {
 		ModuleRegistry registry = mock(ModuleRegistry.class);
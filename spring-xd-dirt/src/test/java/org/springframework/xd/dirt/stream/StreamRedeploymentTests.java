@@ -0,0 +1,332 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.core.MessageHandler;
+import org.springframework.integration.scheduling.PollerMetadata;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.x.channel.registry.LocalChannelRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.support.PeriodicTrigger;
+import org.springframework.xd.dirt.module.ModuleDeploymentAck;
+import org.springframework.xd.dirt.module.ModuleDeploymentRequest;
+import org.springframework.xd.dirt.stream.memory.InMemoryStreamDefinitionRepository;
+import org.springframework.xd.dirt.stream.memory.InMemoryStreamRepository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests for the rolling redeployment of {@link StreamDeployer}, against a container that acknowledges the modules it
+ * deploys.
+ */
+public class StreamRedeploymentTests {
+
+	private final InMemoryStreamDefinitionRepository definitions = new InMemoryStreamDefinitionRepository();
+
+	private final InMemoryStreamRepository streams = new InMemoryStreamRepository();
+
+	private final Container container = new Container();
+
+	private StreamDeployer deployer;
+
+	@Before
+	public void setUp() {
+		DeploymentMessageSender sender = new DeploymentMessageSender(container.deployChannel,
+				container.undeployChannel);
+		container.sender = sender;
+		deployer = new StreamDeployer(definitions, sender, streams, new PipeParser());
+		deployer.save(new StreamDefinition("test", "time | log"));
+		deployer.deploy("test");
+		container.events.clear();
+	}
+
+	@After
+	public void tearDown() {
+		container.close();
+	}
+
+	@Test
+	public void testNewModulesAreDeployedBeforeTheRunningOnesAreUndeployed() {
+		deployer.redeploy("test", "time | transform | log", 1000);
+		assertEquals(Arrays.asList("deploy log:4", "deploy transform:3", "deploy time:2", "undeploy time:0",
+				"undeploy log:1"), container.events);
+		assertEquals("{2=time test.-1>test.0, 3=transform test.0>test.1, 4=log test.1>test.2}",
+				container.modules.toString());
+		assertEquals("time | transform | log", definitions.findOne("test").getDefinition());
+		assertEquals(2, streams.findOne("test").getIndexOffset());
+	}
+
+	@Test
+	public void testRedeployedStreamIsUndeployedAtItsShiftedIndexes() {
+		deployer.redeploy("test", "time | transform | log", 1000);
+		deployer.redeploy("test", "time | log", 1000);
+		assertEquals("{5=time test.-1>test.0, 6=log test.0>test.1}", container.modules.toString());
+		deployer.undeploy("test");
+		assertTrue(container.modules.isEmpty());
+	}
+
+	@Test
+	public void testFailedRedeploymentLeavesTheStreamRunning() {
+		container.failing = "transform";
+		try {
+			deployer.redeploy("test", "time | transform | log", 1000);
+			fail("expected DeploymentFailedException");
+		}
+		catch (DeploymentFailedException e) {
+			assertEquals("test", e.getOffendingName());
+		}
+		assertEquals("{0=time test.-1>test.0, 1=log test.0>test.1}", container.modules.toString());
+		assertEquals("time | log", definitions.findOne("test").getDefinition());
+		assertEquals(0, streams.findOne("test").getIndexOffset());
+	}
+
+	@Test
+	public void testRetiredModuleLeavesTheQueueItSharesToItsReplacement() throws Exception {
+		// handled slower than it is fed, the queue of the channel never empties
+		container.handlingTime = 5;
+		final QueueChannel channel = container.context.getBean("test.0", QueueChannel.class);
+		final AtomicBoolean feeding = new AtomicBoolean(true);
+		Thread feeder = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				while (feeding.get()) {
+					channel.send(MessageBuilder.withPayload("foo").build());
+					try {
+						Thread.sleep(1);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+			}
+		});
+		feeder.start();
+		try {
+			deployer.redeploy("test", "time | log", 1000);
+		}
+		finally {
+			feeding.set(false);
+			feeder.join(10000);
+		}
+		assertEquals("{2=time test.-1>test.0, 3=log test.0>test.1}", container.modules.toString());
+		Long drainTime = container.drainTimes.get("log:1");
+		assertNotNull(drainTime);
+		assertTrue("drained in " + drainTime + " ms", drainTime < Container.DRAIN_TIMEOUT / 2);
+	}
+
+	@Test(expected = NotDeployedException.class)
+	public void testOnlyADeployedStreamCanBeRedeployed() {
+		deployer.undeploy("test");
+		deployer.redeploy("test", "time | transform | log", 1000);
+	}
+
+	/**
+	 * Parses "a | b | c" into requests ordered from sink to source, as the stream parser does.
+	 */
+	private static class PipeParser implements XDParser {
+
+		@Override
+		public List<ModuleDeploymentRequest> parse(String name, String config) {
+			String[] modules = config.split("\\|");
+			List<ModuleDeploymentRequest> requests = new ArrayList<ModuleDeploymentRequest>();
+			for (int i = modules.length - 1; i >= 0; i--) {
+				ModuleDeploymentRequest request = new ModuleDeploymentRequest();
+				request.setGroup(name);
+				request.setModule(modules[i].trim());
+				request.setIndex(i);
+				requests.add(request);
+			}
+			return requests;
+		}
+
+		@Override
+		public void invalidate(String name) {
+		}
+
+		@Override
+		public Map<String, List<ModuleDeploymentRequest>> parseAll(Map<String, String> definitions) {
+			Map<String, List<ModuleDeploymentRequest>> requests = new LinkedHashMap<String, List<ModuleDeploymentRequest>>();
+			for (Map.Entry<String, String> definition : definitions.entrySet()) {
+				requests.put(definition.getKey(), parse(definition.getKey(), definition.getValue()));
+			}
+			return requests;
+		}
+	}
+
+	/**
+	 * Runs the modules it is sent, by index, acknowledging each of them unless its name is the failing one. The input
+	 * channel of each module is bound to a queue of a local channel registry, and drained when the module is
+	 * undeployed.
+	 */
+	private static class Container {
+
+		private static final long DRAIN_TIMEOUT = 5000;
+
+		private static final Collection<MediaType> ALL = Collections.singletonList(MediaType.ALL);
+
+		private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+		private final GenericApplicationContext context = new GenericApplicationContext();
+
+		private final LocalChannelRegistry registry = new LocalChannelRegistry();
+
+		private final Map<Integer, DirectChannel> inputs = new HashMap<Integer, DirectChannel>();
+
+		private final Map<Integer, String> inputNames = new HashMap<Integer, String>();
+
+		private final Map<String, Long> drainTimes = new HashMap<String, Long>();
+
+		private volatile long handlingTime;
+
+		private final DirectChannel deployChannel = new DirectChannel();
+
+		private final DirectChannel undeployChannel = new DirectChannel();
+
+		private final ObjectMapper mapper = new ObjectMapper();
+
+		private final Map<Integer, String> modules = new TreeMap<Integer, String>();
+
+		private final List<String> events = new ArrayList<String>();
+
+		private volatile DeploymentMessageSender sender;
+
+		private volatile String failing;
+
+		Container() {
+			scheduler.setPoolSize(4);
+			scheduler.afterPropertiesSet();
+			context.getBeanFactory().registerSingleton("taskScheduler", scheduler);
+			context.refresh();
+			registry.setApplicationContext(context);
+			PollerMetadata poller = new PollerMetadata();
+			poller.setTrigger(new PeriodicTrigger(5));
+			poller.setMaxMessagesPerPoll(10);
+			poller.setReceiveTimeout(10);
+			registry.setPoller(poller);
+			deployChannel.subscribe(new MessageHandler() {
+
+				@Override
+				public void handleMessage(Message<?> message) throws MessagingException {
+					for (ModuleDeploymentRequest request : requests(message)) {
+						events.add("deploy " + request.getModule() + ":" + request.getIndex());
+						Exception failure = null;
+						if (request.getModule().equals(failing)) {
+							failure = new IllegalStateException("failed to start");
+						}
+						else {
+							int position = request.getIndex() - request.getIndexOffset();
+							if (position > 0) {
+								bindInput(request.getIndex(), request.getGroup() + "." + (position - 1));
+							}
+							modules.put(request.getIndex(), request.getModule() + " " + request.getGroup() + "."
+									+ (position - 1) + ">" + request.getGroup() + "." + position);
+						}
+						sender.acknowledge(new ModuleDeploymentAck(request, "container", failure));
+					}
+				}
+			});
+			undeployChannel.subscribe(new MessageHandler() {
+
+				@Override
+				public void handleMessage(Message<?> message) throws MessagingException {
+					for (ModuleDeploymentRequest request : requests(message)) {
+						if (modules.remove(request.getIndex()) != null) {
+							events.add("undeploy " + request.getModule() + ":" + request.getIndex());
+							DirectChannel input = inputs.remove(request.getIndex());
+							if (input != null) {
+								long start = System.currentTimeMillis();
+								registry.drainInbound(inputNames.remove(request.getIndex()), input, DRAIN_TIMEOUT);
+								drainTimes.put(request.getModule() + ":" + request.getIndex(),
+										System.currentTimeMillis() - start);
+							}
+						}
+					}
+				}
+			});
+		}
+
+		private void bindInput(int index, String channelName) {
+			DirectChannel input = new DirectChannel();
+			input.subscribe(new MessageHandler() {
+
+				@Override
+				public void handleMessage(Message<?> message) throws MessagingException {
+					if (handlingTime > 0) {
+						try {
+							Thread.sleep(handlingTime);
+						}
+						catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				}
+			});
+			registry.createInbound(channelName, input, ALL, true);
+			inputs.put(index, input);
+			inputNames.put(index, channelName);
+		}
+
+		private void close() {
+			for (Map.Entry<Integer, DirectChannel> input : inputs.entrySet()) {
+				registry.deleteInbound(inputNames.get(input.getKey()), input.getValue());
+			}
+			scheduler.destroy();
+		}
+
+		private ModuleDeploymentRequest[] requests(Message<?> message) {
+			String payload = message.getPayload().toString();
+			try {
+				if (payload.startsWith("[")) {
+					return mapper.readValue(payload, ModuleDeploymentRequest[].class);
+				}
+				return new ModuleDeploymentRequest[] { mapper.readValue(payload, ModuleDeploymentRequest.class) };
+			}
+			catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+}
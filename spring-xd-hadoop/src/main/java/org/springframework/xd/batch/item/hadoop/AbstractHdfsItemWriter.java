@@ -141,6 +141,10 @@ public abstract class AbstractHdfsItemWriter<T> implements ItemWriter<T> {
 		this.bytesWritten.set(0L);
 	}
 
+	public void setBytesWritten(long bytesWritten) {
+		this.bytesWritten.set(bytesWritten);
+	}
+
 	public long getBytesWritten() {
 		return bytesWritten.get();
 	}
@@ -16,8 +16,10 @@
 
 package org.springframework.xd.batch.item.hadoop;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.List;
 
 import org.apache.hadoop.fs.FSDataOutputStream;
@@ -29,6 +31,7 @@ import org.springframework.batch.item.WriteFailedException;
 import org.springframework.batch.item.file.transform.LineAggregator;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.util.Assert;
+import org.springframework.xd.hadoop.fs.HdfsTextFileWriterFactory;
 
 /**
  * 
@@ -42,6 +45,10 @@ public class SimpleHdfsTextItemWriter<T> extends SimpleAbstractHdfsItemWriter<T>
 
 	private FSDataOutputStream fsDataOutputStream;
 
+	private Writer writer;
+
+	private int bufferSize = HdfsTextFileWriterFactory.DEFAULT_BUFFER_SIZE;
+
 	private LineAggregator<T> lineAggregator;
 
 	private String lineSeparator = DEFAULT_LINE_SEPARATOR;
@@ -55,83 +62,72 @@ public class SimpleHdfsTextItemWriter<T> extends SimpleAbstractHdfsItemWriter<T>
 
 	@Override
 	public void write(List<? extends T> items) throws Exception {
+		// aggregate the whole chunk first, so that an item that fails leaves nothing of the chunk in the file
+		String[] lines = new String[items.size()];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = lineAggregator.aggregate(items.get(i));
+		}
+
 		// open (prepare)
 		initializeCounterIfNecessary();
 		prepareOutputStream();
 
 		// write
-		copy(getItemsAsBytes(items), this.fsDataOutputStream);
+		for (String line : lines) {
+			this.writer.write(line);
+			this.writer.write(lineSeparator);
+		}
+		this.writer.flush();
+		setBytesWritten(this.fsDataOutputStream.getPos());
 
-		// close
+		// roll over once the chunk that crossed the threshold is written
+		if (this.getBytesWritten() >= getRolloverThresholdInBytes()) {
+			close();
+			incrementCounter();
+		}
 	}
 
-
 	private void prepareOutputStream() throws IOException {
-		boolean found = false;
-		Path name = null;
-
-		// TODO improve algorithm
-		while (!found) {
-			name = new Path(getFileName());
-			// If it doesn't exist, create it. If it exists, return false
-			if (getFileSystem().createNewFile(name)) {
-				found = true;
-				this.resetBytesWritten();
-				this.fsDataOutputStream = this.getFileSystem().append(name);
-			}
-			else {
-				if (this.getBytesWritten() >= getRolloverThresholdInBytes()) {
-					close();
-					incrementCounter();
-				}
-				else {
-					found = true;
-				}
+		while (this.fsDataOutputStream == null) {
+			Path name = new Path(getFileName());
+			if (getFileSystem().exists(name)) {
+				incrementCounter();
+				continue;
 			}
+			this.fsDataOutputStream = this.getFileSystem().create(name, false);
+			this.writer = new BufferedWriter(new OutputStreamWriter(this.fsDataOutputStream, this.charset),
+					this.bufferSize);
+			this.resetBytesWritten();
 		}
 	}
 
-
-	/**
-	 * Simple not optimized copy
-	 */
-	public void copy(byte[] in, FSDataOutputStream out) throws IOException {
-		Assert.notNull(in, "No input byte array specified");
-		Assert.notNull(out, "No OutputStream specified");
-		out.write(in);
-		incrementBytesWritten(in.length);
-	}
-
 	@Override
 	public FileSystem getFileSystem() {
 		return this.fileSystem;
 	}
 
-	/**
-	 * Converts the list of items to a byte array.
-	 * 
-	 * @param items the list
-	 * @return the byte array
-	 */
-	private byte[] getItemsAsBytes(List<? extends T> items) {
-
-		StringBuilder lines = new StringBuilder();
-		for (T item : items) {
-			lines.append(lineAggregator.aggregate(item) + lineSeparator);
-		}
-		try {
-			return lines.toString().getBytes(this.charset);
-		}
-		catch (UnsupportedEncodingException e) {
-			throw new WriteFailedException("Could not write data.", e);
+	public void close() {
+		if (writer != null) {
+			try {
+				writer.flush();
+			}
+			catch (IOException e) {
+				throw new WriteFailedException("Could not flush data.", e);
+			}
+			finally {
+				IOUtils.closeStream(fsDataOutputStream);
+				writer = null;
+				fsDataOutputStream = null;
+			}
 		}
 	}
 
-
-	public void close() {
-		if (fsDataOutputStream != null) {
-			IOUtils.closeStream(fsDataOutputStream);
-		}
+	/**
+	 * Set the size of the character buffer items are encoded into (default 64k characters).
+	 */
+	public void setBufferSize(int bufferSize) {
+		Assert.isTrue(bufferSize > 0, "bufferSize must be greater than zero");
+		this.bufferSize = bufferSize;
 	}
 
 	/**
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.batch.item.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.batch.item.database.ItemPreparedStatementSetter;
+import org.springframework.batch.item.file.transform.FieldSet;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.namedparam.EmptySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+
+/**
+ * An {@link ItemPreparedStatementSetter} that binds {@link FieldSet} values to a statement, as an alternative to
+ * {@link FieldSetSqlParameterSourceProvider}. The statement is configured once with named parameters and the writer
+ * is given the positional equivalent from {@link #getSql()}. Parameter names are resolved to field indexes once per
+ * field set layout and values are bound as raw strings, as the provider does.
+ */
+public class FieldSetItemPreparedStatementSetter implements ItemPreparedStatementSetter<FieldSet> {
+
+	private volatile String sql;
+
+	private volatile String[] parameterNames;
+
+	private volatile Binding binding;
+
+	/**
+	 * The statement to bind, with named parameters matching field names. When not set, all fields are bound in field
+	 * set order.
+	 *
+	 * @param sql the statement
+	 */
+	public void setSql(String sql) {
+		if (sql == null) {
+			this.sql = null;
+			this.parameterNames = null;
+		}
+		else {
+			ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+			EmptySqlParameterSource parameterSource = new EmptySqlParameterSource();
+			List<String> parameterNames = new ArrayList<String>();
+			for (SqlParameter parameter : NamedParameterUtils.buildSqlParameterList(parsedSql, parameterSource)) {
+				parameterNames.add(parameter.getName());
+			}
+			this.sql = NamedParameterUtils.substituteNamedParameters(parsedSql, parameterSource);
+			this.parameterNames = parameterNames.toArray(new String[parameterNames.size()]);
+		}
+		this.binding = null;
+	}
+
+	/**
+	 * The configured statement with its named parameters replaced by {@code ?} placeholders, for the writer.
+	 *
+	 * @return the positional statement, or {@code null} if none was set
+	 */
+	public String getSql() {
+		return this.sql;
+	}
+
+	@Override
+	public void setValues(FieldSet item, PreparedStatement ps) throws SQLException {
+		int[] indexes = (this.parameterNames == null) ? null : getBinding(item.getNames()).indexes;
+		int count = (indexes == null) ? item.getFieldCount() : indexes.length;
+		for (int i = 0; i < count; i++) {
+			ps.setString(i + 1, item.readRawString(indexes == null ? i : indexes[i]));
+		}
+	}
+
+	private Binding getBinding(String[] names) {
+		Binding binding = this.binding;
+		if (binding == null || !Arrays.equals(binding.names, names)) {
+			binding = new Binding(names, this.parameterNames);
+			this.binding = binding;
+		}
+		return binding;
+	}
+
+	private static class Binding {
+
+		private final String[] names;
+
+		private final int[] indexes;
+
+		private Binding(String[] names, String[] parameterNames) {
+			this.names = names.clone();
+			this.indexes = new int[parameterNames.length];
+			for (int i = 0; i < parameterNames.length; i++) {
+				int index = Arrays.asList(names).indexOf(parameterNames[i]);
+				if (index < 0) {
+					throw new IllegalArgumentException("No field '" + parameterNames[i] + "' in field set with names "
+							+ Arrays.toString(names));
+				}
+				this.indexes[i] = index;
+			}
+		}
+	}
+}
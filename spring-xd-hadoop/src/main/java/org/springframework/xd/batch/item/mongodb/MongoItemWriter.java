@@ -16,22 +16,54 @@
 
 package org.springframework.xd.batch.item.mongodb;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.file.transform.FieldSet;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.CollectionCallback;
 import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.util.Assert;
+import org.springframework.xd.tuple.Tuple;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
 
 /**
- * 
+ * Writes items to a Mongo collection.
+ *
+ * By default the chunk is handed to {@link MongoOperations#insert(java.util.Collection, String)}. In bulk mode the
+ * items are converted to {@link DBObject}s up front and the chunk is written with one driver call: {@link Tuple}s and
+ * {@link FieldSet}s are converted directly, without the mapping layer, and other items go through the template's
+ * converter. Bulk inserts are unordered by default, so the rest of a chunk is still inserted when one document fails.
+ * With an {@link #setUpsertKey(String) upsertKey}, each item replaces the document with the same key value, or is
+ * inserted if there is none, so that a job can be re-run without duplicating data.
+ *
  * @author Mark Pollack
  */
 public class MongoItemWriter implements ItemWriter<Object>, InitializingBean {
 
+	private static final String ID_FIELD = "_id";
+
 	private MongoOperations mongoOperations;
 
 	private String collectionName = "/data";
 
+	private boolean bulk;
+
+	private boolean ordered;
+
+	private WriteConcern writeConcern;
+
+	private String upsertKey;
+
+	private final FieldSetConverter fieldSetConverter = new FieldSetConverter();
+
 	public String getCollectionName() {
 		return collectionName;
 	}
@@ -40,13 +72,97 @@ public class MongoItemWriter implements ItemWriter<Object>, InitializingBean {
 		this.collectionName = collectionName;
 	}
 
+	/**
+	 * Set whether chunks are written in bulk from pre-converted documents. Implied by an upsert key.
+	 */
+	public void setBulk(boolean bulk) {
+		this.bulk = bulk;
+	}
+
+	/**
+	 * Set whether bulk inserts stop at the first failed document (default false).
+	 */
+	public void setOrdered(boolean ordered) {
+		this.ordered = ordered;
+	}
+
+	/**
+	 * Set the write concern for bulk writes; by default the collection's write concern applies.
+	 */
+	public void setWriteConcern(WriteConcern writeConcern) {
+		this.writeConcern = writeConcern;
+	}
+
+	/**
+	 * Set the name of the document field that identifies an item for upserts. Items converted from a {@link Tuple} or
+	 * {@link FieldSet} store their {@code id} field as {@code _id}.
+	 */
+	public void setUpsertKey(String upsertKey) {
+		this.upsertKey = upsertKey;
+	}
+
 	public MongoItemWriter(MongoOperations mongoOperations) {
 		this.mongoOperations = mongoOperations;
 	}
 
 	@Override
 	public void write(List<? extends Object> items) throws Exception {
-		mongoOperations.insert(items, collectionName);
+		if (!bulk && upsertKey == null) {
+			mongoOperations.insert(items, collectionName);
+			return;
+		}
+		final List<DBObject> documents = new ArrayList<DBObject>(items.size());
+		for (Object item : items) {
+			documents.add(toDBObject(item));
+		}
+		mongoOperations.execute(collectionName, new CollectionCallback<Void>() {
+
+			@Override
+			public Void doInCollection(DBCollection collection) throws MongoException, DataAccessException {
+				WriteConcern concern = (writeConcern != null) ? writeConcern : collection.getWriteConcern();
+				if (upsertKey != null) {
+					for (DBObject document : documents) {
+						Object key = document.get(upsertKey);
+						Assert.notNull(key, "item has no value for upsert key '" + upsertKey + "': " + document);
+						collection.update(new BasicDBObject(upsertKey, key), document, true, false, concern);
+					}
+				}
+				else {
+					collection.insert(documents, concern.continueOnErrorForInsert(!ordered));
+				}
+				return null;
+			}
+		});
+	}
+
+	private DBObject toDBObject(Object item) {
+		if (item instanceof DBObject) {
+			return (DBObject) item;
+		}
+		if (item instanceof Tuple) {
+			return toDBObject((Tuple) item);
+		}
+		if (item instanceof FieldSet) {
+			return fieldSetConverter.convert((FieldSet) item);
+		}
+		DBObject document = new BasicDBObject();
+		mongoOperations.getConverter().write(item, document);
+		return document;
+	}
+
+	private DBObject toDBObject(Tuple tuple) {
+		List<String> names = tuple.getFieldNames();
+		List<Object> values = tuple.getValues();
+		BasicDBObject document = new BasicDBObject(names.size() * 2);
+		for (int i = 0; i < names.size(); i++) {
+			String name = names.get(i);
+			Object value = values.get(i);
+			if (value instanceof Tuple) {
+				value = toDBObject((Tuple) value);
+			}
+			document.put(name.equalsIgnoreCase("id") ? ID_FIELD : name, value);
+		}
+		return document;
 	}
 
 	@Override
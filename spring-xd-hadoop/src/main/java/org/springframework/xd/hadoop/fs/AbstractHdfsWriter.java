@@ -16,22 +16,32 @@
 
 package org.springframework.xd.hadoop.fs;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 
 import org.springframework.data.hadoop.fs.FsShell;
+import org.springframework.util.StringUtils;
 
 /**
  * Logic for writing to files of a specified size or other strategies go here as they are shared across implementations
  * 
  * @author Mark Pollack
  */
-public abstract class AbstractHdfsWriter implements HdfsWriter {
+public abstract class AbstractHdfsWriter implements RollingHdfsWriter {
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private static final Pattern COUNTER_PATTERN = Pattern.compile("([\\d+]{1,})");
 
 	// TODO need to initialize the counter based on directory contents.
 	private final AtomicLong counter = new AtomicLong(0L);
@@ -40,13 +50,37 @@ public abstract class AbstractHdfsWriter implements HdfsWriter {
 
 	private volatile boolean initialized;
 
-	private String baseFilename = HdfsTextFileWriterFactory.DEFAULT_BASE_FILENAME;
+	private String baseFilename = AbstractHdfsWriterFactory.DEFAULT_BASE_FILENAME;
+
+	private String basePath = AbstractHdfsWriterFactory.DEFAULT_BASE_PATH;
+
+	private String fileSuffix = AbstractHdfsWriterFactory.DEFAULT_FILE_SUFFIX;
+
+	private long rolloverThresholdInBytes = AbstractHdfsWriterFactory.DEFAULT_ROLLOVER_THRESHOLD_IN_BYTES;
+
+	private int bufferSize = AbstractHdfsWriterFactory.DEFAULT_BUFFER_SIZE;
+
+	private long flushThresholdInBytes;
+
+	private long flushIntervalInMillis;
+
+	private long bytesWrittenAtLastFlush;
+
+	private long lastFlushTime;
 
-	private String basePath = HdfsTextFileWriterFactory.DEFAULT_BASE_PATH;
+	private boolean unflushed;
 
-	private String fileSuffix = HdfsTextFileWriterFactory.DEFAULT_FILE_SUFFIX;
+	private long maxFileAgeInMillis;
 
-	private long rolloverThresholdInBytes = HdfsTextFileWriterFactory.DEFAULT_ROLLOVER_THRESHOLD_IN_BYTES;
+	private long idleTimeoutInMillis;
+
+	private String inProgressSuffix;
+
+	private Path currentFile;
+
+	private long fileOpenedTime;
+
+	private long lastWriteTime;
 
 
 	public abstract FileSystem getFileSystem();
@@ -86,6 +120,191 @@ public abstract class AbstractHdfsWriter implements HdfsWriter {
 		this.rolloverThresholdInBytes = rolloverThresholdInBytes;
 	}
 
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * Set the size of the client side buffer that writes go through before reaching the HDFS output stream.
+	 */
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	public long getFlushThresholdInBytes() {
+		return flushThresholdInBytes;
+	}
+
+	/**
+	 * Set the number of bytes after which buffered data is flushed and synced to the DataNodes, making it visible to
+	 * readers. Zero (the default) means only on rollover and close.
+	 */
+	public void setFlushThresholdInBytes(long flushThresholdInBytes) {
+		this.flushThresholdInBytes = flushThresholdInBytes;
+	}
+
+	public long getFlushIntervalInMillis() {
+		return flushIntervalInMillis;
+	}
+
+	/**
+	 * Set the time after which buffered data is flushed and synced to the DataNodes; checked when data is written and
+	 * by {@link #rollIfDue()}, so that the data of an idle writer becomes visible too. Zero (the default) means only on
+	 * rollover and close.
+	 */
+	public void setFlushIntervalInMillis(long flushIntervalInMillis) {
+		this.flushIntervalInMillis = flushIntervalInMillis;
+	}
+
+	public long getMaxFileAgeInMillis() {
+		return maxFileAgeInMillis;
+	}
+
+	/**
+	 * Set the time after which the current file is rolled over, however little has been written to it. Zero (the
+	 * default) means no limit.
+	 */
+	public void setMaxFileAgeInMillis(long maxFileAgeInMillis) {
+		this.maxFileAgeInMillis = maxFileAgeInMillis;
+	}
+
+	public long getIdleTimeoutInMillis() {
+		return idleTimeoutInMillis;
+	}
+
+	/**
+	 * Set the time after which the current file is rolled over if nothing has been written to it. Zero (the default)
+	 * means no limit.
+	 */
+	public void setIdleTimeoutInMillis(long idleTimeoutInMillis) {
+		this.idleTimeoutInMillis = idleTimeoutInMillis;
+	}
+
+	public String getInProgressSuffix() {
+		return inProgressSuffix;
+	}
+
+	/**
+	 * Set a suffix (e.g. ".tmp") added to the name of a file while it is being written; the file is renamed to its
+	 * final name when it is closed, so that readers only pick up complete files.
+	 */
+	public void setInProgressSuffix(String inProgressSuffix) {
+		this.inProgressSuffix = inProgressSuffix;
+	}
+
+	@Override
+	public boolean isTimedRolloverEnabled() {
+		return maxFileAgeInMillis > 0 || idleTimeoutInMillis > 0 || flushIntervalInMillis > 0;
+	}
+
+	/**
+	 * Close the current file and move on to the next one if it is older than the maximum file age or has been idle for
+	 * longer than the idle timeout. Otherwise flush it if data written to it has not been flushed for longer than the
+	 * flush interval.
+	 */
+	@Override
+	public synchronized void rollIfDue() {
+		if (currentFile == null) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		if ((maxFileAgeInMillis > 0 && now - fileOpenedTime >= maxFileAgeInMillis)
+				|| (idleTimeoutInMillis > 0 && now - lastWriteTime >= idleTimeoutInMillis)) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("rolling over " + currentFile + " after " + (now - fileOpenedTime) + "ms");
+			}
+			close();
+			incrementCounter();
+		}
+		else if (unflushed && flushIntervalInMillis > 0 && now - lastFlushTime >= flushIntervalInMillis) {
+			try {
+				flush();
+			}
+			catch (IOException e) {
+				logger.error("failed to flush " + currentFile, e);
+			}
+		}
+	}
+
+	/**
+	 * Flush buffered data to the current file, if any, and sync it to the DataNodes. Implementations call
+	 * {@link #markFlushed()} once done.
+	 */
+	public abstract void flush() throws IOException;
+
+	/**
+	 * Create the next file that does not exist yet, advancing the counter past any existing files. This and the
+	 * initial directory scan are the only calls made to the NameNode until the next rollover. If an in-progress suffix
+	 * is set the file is created under that name, and implementations must call {@link #fileClosed()} once they have
+	 * closed it, or {@link #fileCloseFailed(IOException)} if closing it failed.
+	 */
+	protected FSDataOutputStream createNextFile() throws IOException {
+		initializeCounterIfNecessary();
+		Path name = new Path(getFileName());
+		while (getFileSystem().exists(name) || (hasInProgressSuffix() && getFileSystem().exists(inProgress(name)))) {
+			incrementCounter();
+			name = new Path(getFileName());
+		}
+		FSDataOutputStream outputStream = getFileSystem().create(hasInProgressSuffix() ? inProgress(name) : name, false);
+		resetBytesWritten();
+		this.currentFile = name;
+		this.fileOpenedTime = System.currentTimeMillis();
+		this.lastWriteTime = this.fileOpenedTime;
+		return outputStream;
+	}
+
+	/**
+	 * Called by implementations when the current file has been closed, to give it its final name.
+	 */
+	protected void fileClosed() {
+		Path file = this.currentFile;
+		this.currentFile = null;
+		if (file != null && hasInProgressSuffix()) {
+			try {
+				if (!getFileSystem().rename(inProgress(file), file)) {
+					logger.error("failed to rename " + inProgress(file) + " to " + file);
+				}
+			}
+			catch (IOException e) {
+				logger.error("failed to rename " + inProgress(file) + " to " + file, e);
+			}
+		}
+	}
+
+	/**
+	 * Called by implementations when closing the current file failed. The file is abandoned and left under its
+	 * in-progress name, since its contents may be incomplete; the next write opens a new file.
+	 */
+	protected void fileCloseFailed(IOException e) {
+		Path file = this.currentFile;
+		this.currentFile = null;
+		logger.error("failed to close " + (file != null && hasInProgressSuffix() ? inProgress(file) : file)
+				+ ", leaving it in place", e);
+	}
+
+	private boolean hasInProgressSuffix() {
+		return StringUtils.hasLength(inProgressSuffix);
+	}
+
+	private Path inProgress(Path name) {
+		return new Path(name.toString() + inProgressSuffix);
+	}
+
+	protected boolean isRolloverRequired() {
+		return getBytesWritten() >= getRolloverThresholdInBytes();
+	}
+
+	protected boolean isFlushRequired() {
+		return (flushThresholdInBytes > 0 && getBytesWritten() - bytesWrittenAtLastFlush >= flushThresholdInBytes)
+				|| (flushIntervalInMillis > 0 && System.currentTimeMillis() - lastFlushTime >= flushIntervalInMillis);
+	}
+
+	protected void markFlushed() {
+		this.bytesWrittenAtLastFlush = getBytesWritten();
+		this.lastFlushTime = System.currentTimeMillis();
+		this.unflushed = false;
+	}
+
 	protected void initializeCounterIfNecessary() {
 		if (!initialized) {
 			FsShell fsShell = new FsShell(getFileSystem().getConf(), getFileSystem());
@@ -123,9 +342,13 @@ public abstract class AbstractHdfsWriter implements HdfsWriter {
 	}
 
 	protected int getCounterFromName(String shortName) {
-		Pattern pattern = Pattern.compile("([\\d+]{1,})");
-		Matcher matcher = pattern.matcher(shortName);
-		if (matcher.find()) {
+		// only our own files count; the listing can also contain other files or, when empty, the directory itself
+		String prefix = baseFilename + "-";
+		if (!shortName.startsWith(prefix)) {
+			return -1;
+		}
+		Matcher matcher = COUNTER_PATTERN.matcher(shortName.substring(prefix.length()));
+		if (matcher.lookingAt()) {
 			return Integer.parseInt(matcher.group());
 		}
 		return -1;
@@ -145,10 +368,23 @@ public abstract class AbstractHdfsWriter implements HdfsWriter {
 
 	public void incrementBytesWritten(long bytesWritten) {
 		this.bytesWritten.addAndGet(bytesWritten);
+		this.lastWriteTime = System.currentTimeMillis();
+		this.unflushed = true;
 	}
 
 	public void resetBytesWritten() {
 		this.bytesWritten.set(0L);
+		markFlushed();
+	}
+
+	/**
+	 * Set the size of the current file, for writers whose output is compressed or encoded so that it differs from the
+	 * size of the payloads written.
+	 */
+	protected void setBytesWritten(long bytesWritten) {
+		this.bytesWritten.set(bytesWritten);
+		this.lastWriteTime = System.currentTimeMillis();
+		this.unflushed = true;
 	}
 
 	public long getBytesWritten() {
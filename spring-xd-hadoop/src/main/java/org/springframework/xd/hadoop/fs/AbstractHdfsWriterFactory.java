@@ -0,0 +1,233 @@
+/*
+ * Copyright 2013 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.hadoop.fs;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.io.compress.BZip2Codec;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.io.compress.SnappyCodec;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Base class for {@link HdfsWriterFactory} implementations that create {@link AbstractHdfsWriter}s, holding the file
+ * naming, rollover, buffering and compression settings they share.
+ * 
+ * @author Mark Pollack
+ */
+public abstract class AbstractHdfsWriterFactory implements HdfsWriterFactory {
+
+	public static final String DEFAULT_BASE_FILENAME = "data";
+
+	public static final String DEFAULT_BASE_PATH = "/data/";
+
+	public static final String DEFAULT_FILE_SUFFIX = "log";
+
+	public static long DEFAULT_ROLLOVER_THRESHOLD_IN_BYTES = 10 * 1024 * 1024; // 10MB
+
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private static final String LZ4_CODEC_CLASS_NAME = "org.apache.hadoop.io.compress.Lz4Codec";
+
+	private FileSystem fileSystem;
+
+	private long rolloverThresholdInBytes = DEFAULT_ROLLOVER_THRESHOLD_IN_BYTES;
+
+	private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+	private long flushThresholdInBytes;
+
+	private long flushIntervalInMillis;
+
+	private String baseFilename = DEFAULT_BASE_FILENAME;
+
+	private String basePath = DEFAULT_BASE_PATH;
+
+	private String fileSuffix = DEFAULT_FILE_SUFFIX;
+
+	private String codec;
+
+	private long maxFileAgeInMillis;
+
+	private long idleTimeoutInMillis;
+
+	private String inProgressSuffix;
+
+	protected AbstractHdfsWriterFactory(FileSystem fileSystem) {
+		Assert.notNull(fileSystem, "Hadoop FileSystem must not be null.");
+		this.fileSystem = fileSystem;
+	}
+
+	public FileSystem getFileSystem() {
+		return fileSystem;
+	}
+
+	public String getFileSuffix() {
+		return fileSuffix;
+	}
+
+	public void setFileSuffix(String fileSuffix) {
+		this.fileSuffix = fileSuffix;
+	}
+
+	public String getBaseFilename() {
+		return baseFilename;
+	}
+
+	public void setBaseFilename(String baseFilename) {
+		this.baseFilename = baseFilename;
+	}
+
+	public String getBasePath() {
+		return basePath;
+	}
+
+	public void setBasePath(String basePath) {
+		this.basePath = basePath;
+	}
+
+	public long getRolloverThresholdInBytes() {
+		return rolloverThresholdInBytes;
+	}
+
+	public void setRolloverThresholdInBytes(long rolloverThresholdInBytes) {
+		this.rolloverThresholdInBytes = rolloverThresholdInBytes;
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	public long getFlushThresholdInBytes() {
+		return flushThresholdInBytes;
+	}
+
+	public void setFlushThresholdInBytes(long flushThresholdInBytes) {
+		this.flushThresholdInBytes = flushThresholdInBytes;
+	}
+
+	public long getFlushIntervalInMillis() {
+		return flushIntervalInMillis;
+	}
+
+	public void setFlushIntervalInMillis(long flushIntervalInMillis) {
+		this.flushIntervalInMillis = flushIntervalInMillis;
+	}
+
+	public String getCodec() {
+		return codec;
+	}
+
+	/**
+	 * Set the compression codec: one of 'gzip', 'snappy', 'lz4' (Hadoop 2 only), 'bzip2', 'default' (zlib), or the
+	 * class name of a Hadoop {@link CompressionCodec}. No compression if not set.
+	 */
+	public void setCodec(String codec) {
+		this.codec = codec;
+	}
+
+	public long getMaxFileAgeInMillis() {
+		return maxFileAgeInMillis;
+	}
+
+	public void setMaxFileAgeInMillis(long maxFileAgeInMillis) {
+		this.maxFileAgeInMillis = maxFileAgeInMillis;
+	}
+
+	public long getIdleTimeoutInMillis() {
+		return idleTimeoutInMillis;
+	}
+
+	public void setIdleTimeoutInMillis(long idleTimeoutInMillis) {
+		this.idleTimeoutInMillis = idleTimeoutInMillis;
+	}
+
+	public String getInProgressSuffix() {
+		return inProgressSuffix;
+	}
+
+	public void setInProgressSuffix(String inProgressSuffix) {
+		this.inProgressSuffix = inProgressSuffix;
+	}
+
+	@Override
+	public abstract AbstractHdfsWriter createWriter();
+
+	/**
+	 * Apply the shared settings to a newly created writer.
+	 */
+	protected void configure(AbstractHdfsWriter writer) {
+		writer.setBasePath(basePath);
+		writer.setBaseFilename(baseFilename);
+		writer.setFileSuffix(fileSuffix);
+		writer.setRolloverThresholdInBytes(rolloverThresholdInBytes);
+		writer.setBufferSize(bufferSize);
+		writer.setFlushThresholdInBytes(flushThresholdInBytes);
+		writer.setFlushIntervalInMillis(flushIntervalInMillis);
+		writer.setMaxFileAgeInMillis(maxFileAgeInMillis);
+		writer.setIdleTimeoutInMillis(idleTimeoutInMillis);
+		writer.setInProgressSuffix(inProgressSuffix);
+	}
+
+	/**
+	 * Resolve the configured {@link #setCodec(String) codec} to a Hadoop {@link CompressionCodec}.
+	 * 
+	 * @return the codec, or null if none is configured
+	 */
+	protected CompressionCodec createCompressionCodec() {
+		if (!StringUtils.hasText(codec)) {
+			return null;
+		}
+		String name = codec.trim();
+		Class<?> codecClass;
+		if ("gzip".equalsIgnoreCase(name)) {
+			codecClass = GzipCodec.class;
+		}
+		else if ("snappy".equalsIgnoreCase(name)) {
+			codecClass = SnappyCodec.class;
+		}
+		else if ("bzip2".equalsIgnoreCase(name)) {
+			codecClass = BZip2Codec.class;
+		}
+		else if ("default".equalsIgnoreCase(name)) {
+			codecClass = DefaultCodec.class;
+		}
+		else {
+			if ("lz4".equalsIgnoreCase(name)) {
+				name = LZ4_CODEC_CLASS_NAME;
+			}
+			try {
+				codecClass = ClassUtils.forName(name, getClass().getClassLoader());
+			}
+			catch (ClassNotFoundException e) {
+				throw new IllegalArgumentException("Unknown compression codec '" + codec + "'", e);
+			}
+			Assert.isAssignable(CompressionCodec.class, codecClass);
+		}
+		return (CompressionCodec) ReflectionUtils.newInstance(codecClass, fileSystem.getConf());
+	}
+
+}
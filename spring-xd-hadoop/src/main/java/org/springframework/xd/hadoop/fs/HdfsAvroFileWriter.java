@@ -0,0 +1,259 @@
+/*
+ * Copyright 2013 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.hadoop.fs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.io.IOUtils;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageHandlingException;
+import org.springframework.util.Assert;
+import org.springframework.xd.tuple.Tuple;
+
+/**
+ * An {@link HdfsWriter} that writes {@link Tuple} payloads to Avro container files.
+ * 
+ * The record schema is derived from the first tuple written to each file: one optional field per tuple field, typed
+ * after its value (numbers, booleans and byte arrays map to the matching Avro types, dates to longs and anything else
+ * to strings). Field names are adjusted to be valid Avro names. A tuple whose field names differ, or whose values do
+ * not fit the schema, starts a new file with a new schema.
+ */
+public class HdfsAvroFileWriter extends AbstractHdfsWriter implements HdfsWriter {
+
+	public static final String DEFAULT_RECORD_NAME = "Tuple";
+
+	private final FileSystem fileSystem;
+
+	private volatile CodecFactory codecFactory = CodecFactory.nullCodec();
+
+	private volatile String recordName = DEFAULT_RECORD_NAME;
+
+	private volatile String recordNamespace;
+
+	private FSDataOutputStream fsDataOutputStream;
+
+	private DataFileWriter<GenericRecord> dataFileWriter;
+
+	private Schema schema;
+
+	private List<String> fieldNames;
+
+	private Schema.Type[] fieldTypes;
+
+	public HdfsAvroFileWriter(FileSystem fileSystem) {
+		Assert.notNull(fileSystem, "Hadoop FileSystem must not be null.");
+		this.fileSystem = fileSystem;
+	}
+
+	@Override
+	public FileSystem getFileSystem() {
+		return this.fileSystem;
+	}
+
+	public void setCodecFactory(CodecFactory codecFactory) {
+		Assert.notNull(codecFactory, "codecFactory must not be null");
+		this.codecFactory = codecFactory;
+	}
+
+	public void setRecordName(String recordName) {
+		Assert.hasText(recordName, "recordName must not be empty");
+		this.recordName = recordName;
+	}
+
+	public void setRecordNamespace(String recordNamespace) {
+		this.recordNamespace = recordNamespace;
+	}
+
+	@Override
+	public synchronized void write(Message<?> message) throws IOException {
+		if (!(message.getPayload() instanceof Tuple)) {
+			throw new MessageHandlingException(message, "HdfsAvroFileWriter expects a Tuple payload, but received: "
+					+ message.getPayload().getClass());
+		}
+		Tuple tuple = (Tuple) message.getPayload();
+		if (this.dataFileWriter != null && !fitsSchema(tuple)) {
+			close();
+			incrementCounter();
+		}
+		if (this.dataFileWriter == null) {
+			open(tuple);
+		}
+		this.dataFileWriter.append(toRecord(tuple));
+		// Avro buffers a block at a time, so this lags behind until the block is written
+		setBytesWritten(this.fsDataOutputStream.getPos());
+		if (isRolloverRequired()) {
+			close();
+			incrementCounter();
+		}
+		else if (isFlushRequired()) {
+			flush();
+		}
+	}
+
+	private void open(Tuple tuple) throws IOException {
+		this.fieldNames = new ArrayList<String>(tuple.getFieldNames());
+		this.fieldTypes = new Schema.Type[this.fieldNames.size()];
+		for (int i = 0; i < this.fieldTypes.length; i++) {
+			this.fieldTypes[i] = avroType(tuple.getValue(i));
+		}
+		this.schema = createSchema();
+		this.fsDataOutputStream = createNextFile();
+		this.dataFileWriter = new DataFileWriter<GenericRecord>(new GenericDatumWriter<GenericRecord>(this.schema));
+		this.dataFileWriter.setCodec(this.codecFactory);
+		this.dataFileWriter.create(this.schema, this.fsDataOutputStream);
+	}
+
+	private Schema createSchema() {
+		List<Schema.Field> fields = new ArrayList<Schema.Field>(this.fieldNames.size());
+		Set<String> names = new HashSet<String>();
+		for (int i = 0; i < this.fieldTypes.length; i++) {
+			String name = toAvroName(this.fieldNames.get(i));
+			while (!names.add(name)) {
+				name = name + "_";
+			}
+			Schema fieldSchema = Schema.createUnion(Arrays.asList(Schema.create(Schema.Type.NULL),
+					Schema.create(this.fieldTypes[i])));
+			fields.add(new Schema.Field(name, fieldSchema, null, null));
+		}
+		Schema recordSchema = Schema.createRecord(this.recordName, null, this.recordNamespace, false);
+		recordSchema.setFields(fields);
+		return recordSchema;
+	}
+
+	private boolean fitsSchema(Tuple tuple) {
+		if (!this.fieldNames.equals(tuple.getFieldNames())) {
+			return false;
+		}
+		for (int i = 0; i < this.fieldTypes.length; i++) {
+			Object value = tuple.getValue(i);
+			if (value != null && this.fieldTypes[i] != Schema.Type.STRING && avroType(value) != this.fieldTypes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private GenericRecord toRecord(Tuple tuple) {
+		GenericRecord record = new GenericData.Record(this.schema);
+		for (int i = 0; i < this.fieldTypes.length; i++) {
+			record.put(i, toAvroValue(tuple.getValue(i), this.fieldTypes[i]));
+		}
+		return record;
+	}
+
+	private static Schema.Type avroType(Object value) {
+		if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			return Schema.Type.INT;
+		}
+		if (value instanceof Long || value instanceof Date) {
+			return Schema.Type.LONG;
+		}
+		if (value instanceof Double) {
+			return Schema.Type.DOUBLE;
+		}
+		if (value instanceof Float) {
+			return Schema.Type.FLOAT;
+		}
+		if (value instanceof Boolean) {
+			return Schema.Type.BOOLEAN;
+		}
+		if (value instanceof byte[]) {
+			return Schema.Type.BYTES;
+		}
+		return Schema.Type.STRING;
+	}
+
+	private static Object toAvroValue(Object value, Schema.Type type) {
+		if (value == null) {
+			return null;
+		}
+		switch (type) {
+			case INT:
+				return ((Number) value).intValue();
+			case LONG:
+				return (value instanceof Date) ? ((Date) value).getTime() : ((Number) value).longValue();
+			case BYTES:
+				return ByteBuffer.wrap((byte[]) value);
+			case STRING:
+				return value.toString();
+			default:
+				return value;
+		}
+	}
+
+	private static String toAvroName(String name) {
+		StringBuilder builder = new StringBuilder(name.length() + 1);
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			boolean valid = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || c == '_' || (c >= '0' && c <= '9');
+			builder.append(valid ? c : '_');
+		}
+		if (builder.length() == 0 || Character.isDigit(builder.charAt(0))) {
+			builder.insert(0, '_');
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Write out the pending Avro block, if any, and sync the file to the DataNodes.
+	 */
+	public synchronized void flush() throws IOException {
+		if (this.dataFileWriter != null) {
+			this.dataFileWriter.flush();
+			this.fsDataOutputStream.sync();
+			markFlushed();
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (this.dataFileWriter != null) {
+			DataFileWriter<GenericRecord> fileWriter = this.dataFileWriter;
+			FSDataOutputStream stream = this.fsDataOutputStream;
+			this.dataFileWriter = null;
+			this.fsDataOutputStream = null;
+			this.schema = null;
+			try {
+				// closes the underlying fsDataOutputStream
+				fileWriter.close();
+			}
+			catch (IOException e) {
+				IOUtils.closeStream(stream);
+				fileCloseFailed(e);
+				return;
+			}
+			fileClosed();
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.hadoop.fs;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.file.CodecFactory;
+import org.apache.hadoop.fs.FileSystem;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Creates {@link HdfsAvroFileWriter}s. The {@link #setCodec(String) codec} is mapped onto the Avro container codecs:
+ * 'gzip' and 'default' use deflate, other names ('snappy', 'deflate', ...) are passed on to Avro.
+ */
+public class HdfsAvroFileWriterFactory extends AbstractHdfsWriterFactory {
+
+	public static final String DEFAULT_FILE_SUFFIX = "avro";
+
+	private static final int DEFLATE_LEVEL = 6;
+
+	private String recordName = HdfsAvroFileWriter.DEFAULT_RECORD_NAME;
+
+	private String recordNamespace;
+
+	public HdfsAvroFileWriterFactory(FileSystem fileSystem) {
+		super(fileSystem);
+		setFileSuffix(DEFAULT_FILE_SUFFIX);
+	}
+
+	public String getRecordName() {
+		return recordName;
+	}
+
+	public void setRecordName(String recordName) {
+		this.recordName = recordName;
+	}
+
+	public String getRecordNamespace() {
+		return recordNamespace;
+	}
+
+	public void setRecordNamespace(String recordNamespace) {
+		this.recordNamespace = recordNamespace;
+	}
+
+	@Override
+	public HdfsAvroFileWriter createWriter() {
+		HdfsAvroFileWriter writer = new HdfsAvroFileWriter(getFileSystem());
+		configure(writer);
+		writer.setCodecFactory(createCodecFactory());
+		writer.setRecordName(recordName);
+		writer.setRecordNamespace(recordNamespace);
+		return writer;
+	}
+
+	private CodecFactory createCodecFactory() {
+		String codec = getCodec();
+		if (!StringUtils.hasText(codec)) {
+			return CodecFactory.nullCodec();
+		}
+		codec = codec.trim().toLowerCase();
+		if ("gzip".equals(codec) || "default".equals(codec)) {
+			return CodecFactory.deflateCodec(DEFLATE_LEVEL);
+		}
+		try {
+			return CodecFactory.fromString(codec);
+		}
+		catch (AvroRuntimeException e) {
+			throw new IllegalArgumentException("Unsupported Avro codec '" + codec + "'", e);
+		}
+	}
+
+}
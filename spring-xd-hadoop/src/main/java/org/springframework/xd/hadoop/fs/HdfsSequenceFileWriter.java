@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.hadoop.fs;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageHandlingException;
+import org.springframework.util.Assert;
+
+/**
+ * An {@link HdfsWriter} that writes payloads to Hadoop SequenceFiles, keyed by the message timestamp as a
+ * {@link LongWritable} with the payload as {@link Text}. When a {@link CompressionCodec} is set the files are block
+ * compressed, and the rollover threshold applies to the compressed size.
+ */
+public class HdfsSequenceFileWriter extends AbstractHdfsWriter implements HdfsWriter {
+
+	private final FileSystem fileSystem;
+
+	private volatile CompressionCodec compressionCodec;
+
+	private FSDataOutputStream fsDataOutputStream;
+
+	private SequenceFile.Writer writer;
+
+	private final LongWritable key = new LongWritable();
+
+	private final Text value = new Text();
+
+	public HdfsSequenceFileWriter(FileSystem fileSystem) {
+		Assert.notNull(fileSystem, "Hadoop FileSystem must not be null.");
+		this.fileSystem = fileSystem;
+	}
+
+	@Override
+	public FileSystem getFileSystem() {
+		return this.fileSystem;
+	}
+
+	public void setCompressionCodec(CompressionCodec compressionCodec) {
+		this.compressionCodec = compressionCodec;
+	}
+
+	public CompressionCodec getCompressionCodec() {
+		return compressionCodec;
+	}
+
+	@Override
+	public synchronized void write(Message<?> message) throws IOException {
+		Object payload = message.getPayload();
+		if (payload instanceof String) {
+			this.value.set((String) payload);
+		}
+		else if (payload instanceof byte[]) {
+			this.value.set((byte[]) payload);
+		}
+		else {
+			throw new MessageHandlingException(message, "HdfsSequenceFileWriter expects "
+					+ "either a byte array or String payload, but received: " + payload.getClass());
+		}
+		Long timestamp = message.getHeaders().getTimestamp();
+		this.key.set((timestamp != null) ? timestamp : System.currentTimeMillis());
+		prepareWriter();
+		this.writer.append(this.key, this.value);
+		setBytesWritten(this.writer.getLength());
+		if (isRolloverRequired()) {
+			close();
+			incrementCounter();
+		}
+		else if (isFlushRequired()) {
+			flush();
+		}
+	}
+
+	private void prepareWriter() throws IOException {
+		if (this.writer != null) {
+			return;
+		}
+		this.fsDataOutputStream = createNextFile();
+		if (this.compressionCodec != null) {
+			this.writer = SequenceFile.createWriter(this.fileSystem.getConf(), this.fsDataOutputStream,
+					LongWritable.class, Text.class, CompressionType.BLOCK, this.compressionCodec);
+		}
+		else {
+			this.writer = SequenceFile.createWriter(this.fileSystem.getConf(), this.fsDataOutputStream,
+					LongWritable.class, Text.class, CompressionType.NONE, null);
+		}
+	}
+
+	/**
+	 * Write out the pending compressed block, if any, followed by a sync marker, and sync the file to the DataNodes.
+	 */
+	public synchronized void flush() throws IOException {
+		if (this.writer != null) {
+			this.writer.sync();
+			this.writer.syncFs();
+			markFlushed();
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (this.writer != null) {
+			SequenceFile.Writer sequenceWriter = this.writer;
+			FSDataOutputStream stream = this.fsDataOutputStream;
+			this.writer = null;
+			this.fsDataOutputStream = null;
+			try {
+				// the writer does not own a stream it was given, so close both
+				sequenceWriter.close();
+				stream.close();
+			}
+			catch (IOException e) {
+				IOUtils.closeStream(stream);
+				fileCloseFailed(e);
+				return;
+			}
+			fileClosed();
+		}
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2013 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.hadoop.fs;
+
+import org.apache.hadoop.fs.FileSystem;
+
+/**
+ * Creates {@link HdfsSequenceFileWriter}s, block compressed with the configured codec if there is one.
+ */
+public class HdfsSequenceFileWriterFactory extends AbstractHdfsWriterFactory {
+
+	public static final String DEFAULT_FILE_SUFFIX = "seq";
+
+	public HdfsSequenceFileWriterFactory(FileSystem fileSystem) {
+		super(fileSystem);
+		setFileSuffix(DEFAULT_FILE_SUFFIX);
+	}
+
+	@Override
+	public HdfsSequenceFileWriter createWriter() {
+		HdfsSequenceFileWriter writer = new HdfsSequenceFileWriter(getFileSystem());
+		configure(writer);
+		writer.setCompressionCodec(createCompressionCodec());
+		return writer;
+	}
+
+}
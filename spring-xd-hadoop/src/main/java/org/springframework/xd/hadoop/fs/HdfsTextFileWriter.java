@@ -16,19 +16,24 @@
 
 package org.springframework.xd.hadoop.fs;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
-import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.compress.CompressionCodec;
 
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageHandlingException;
 import org.springframework.util.Assert;
 
 /**
+ * An {@link HdfsWriter} that writes payloads to text files, optionally compressed. The current file is kept open,
+ * along with a count of the bytes written to it, and writes go through a client side buffer; the NameNode is only
+ * involved when a file is opened, which happens on the first write after start up or rollover.
  * 
  * @author Mark Pollack
  */
@@ -38,6 +43,10 @@ public class HdfsTextFileWriter extends AbstractHdfsWriter implements HdfsWriter
 
 	private FSDataOutputStream fsDataOutputStream;
 
+	private OutputStream outputStream;
+
+	private volatile CompressionCodec compressionCodec;
+
 	private volatile String charset = "UTF-8";
 
 	public HdfsTextFileWriter(FileSystem fileSystem) {
@@ -46,37 +55,64 @@ public class HdfsTextFileWriter extends AbstractHdfsWriter implements HdfsWriter
 	}
 
 
+	/**
+	 * Set the codec used to compress the files, or null (the default) for uncompressed files. The codec's default
+	 * extension is appended to the file names, and the rollover threshold then applies to the compressed size.
+	 */
+	public void setCompressionCodec(CompressionCodec compressionCodec) {
+		this.compressionCodec = compressionCodec;
+	}
+
+	public CompressionCodec getCompressionCodec() {
+		return compressionCodec;
+	}
+
+	@Override
+	public String getFileName() {
+		String fileName = super.getFileName();
+		return (this.compressionCodec != null) ? fileName + this.compressionCodec.getDefaultExtension() : fileName;
+	}
+
 	@Override
-	public void write(Message<?> message) throws IOException {
-		initializeCounterIfNecessary();
+	public synchronized void write(Message<?> message) throws IOException {
+		byte[] bytes = getPayloadAsBytes(message);
 		prepareOutputStream();
-		copy(getPayloadAsBytes(message), this.fsDataOutputStream);
+		copy(bytes, this.outputStream);
+		if (this.compressionCodec != null) {
+			// the compressed size, as far as the compressor has produced output so far
+			setBytesWritten(this.fsDataOutputStream.getPos());
+		}
+		if (isRolloverRequired()) {
+			close();
+			incrementCounter();
+		}
+		else if (isFlushRequired()) {
+			flush();
+		}
 	}
 
 
 	private void prepareOutputStream() throws IOException {
-		boolean found = false;
-		Path name = null;
-
-		// TODO improve algorithm
-		while (!found) {
-			name = new Path(getFileName());
-			// If it doesn't exist, create it. If it exists, return false
-			if (getFileSystem().createNewFile(name)) {
-				found = true;
-				this.resetBytesWritten();
-				// this.fsDataOutputStream = this.getFileSystem().append(name);
-				this.fsDataOutputStream = this.getFileSystem().create(name);
-			}
-			else {
-				if (this.getBytesWritten() >= getRolloverThresholdInBytes()) {
-					close();
-					incrementCounter();
-				}
-				else {
-					found = true;
-				}
-			}
+		if (this.outputStream != null) {
+			return;
+		}
+		this.fsDataOutputStream = createNextFile();
+		OutputStream stream = this.fsDataOutputStream;
+		if (this.compressionCodec != null) {
+			stream = this.compressionCodec.createOutputStream(stream);
+		}
+		this.outputStream = new BufferedOutputStream(stream, getBufferSize());
+	}
+
+	/**
+	 * Flush buffered data to the output stream and sync it to the DataNodes, so that it is visible to readers. For
+	 * compressed files only complete compressed blocks become visible.
+	 */
+	public synchronized void flush() throws IOException {
+		if (this.outputStream != null) {
+			this.outputStream.flush();
+			this.fsDataOutputStream.sync();
+			markFlushed();
 		}
 	}
 
@@ -84,10 +120,7 @@ public class HdfsTextFileWriter extends AbstractHdfsWriter implements HdfsWriter
 		return this.fileSystem;
 	}
 
-	/**
-	 * Simple not optimized copy
-	 */
-	public void copy(byte[] in, FSDataOutputStream out) throws IOException {
+	public void copy(byte[] in, OutputStream out) throws IOException {
 		Assert.notNull(in, "No input byte array specified");
 		Assert.notNull(out, "No OutputStream specified");
 		out.write(in);
@@ -124,9 +157,22 @@ public class HdfsTextFileWriter extends AbstractHdfsWriter implements HdfsWriter
 	}
 
 	@Override
-	public void close() {
-		if (fsDataOutputStream != null) {
-			IOUtils.closeStream(fsDataOutputStream);
+	public synchronized void close() {
+		if (this.outputStream != null) {
+			OutputStream stream = this.outputStream;
+			FSDataOutputStream fsStream = this.fsDataOutputStream;
+			this.outputStream = null;
+			this.fsDataOutputStream = null;
+			try {
+				// closes the underlying fsDataOutputStream, after flushing the buffer
+				stream.close();
+			}
+			catch (IOException e) {
+				IOUtils.closeStream(fsStream);
+				fileCloseFailed(e);
+				return;
+			}
+			fileClosed();
 		}
 	}
 
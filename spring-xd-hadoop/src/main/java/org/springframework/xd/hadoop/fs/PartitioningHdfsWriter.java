@@ -0,0 +1,210 @@
+/*
+ * Copyright 2013 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.hadoop.fs;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.context.expression.MapAccessor;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageHandlingException;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * An {@link HdfsWriter} that writes each message into a partition directory below the base path, computed from the
+ * message by a SpEL expression, for example {@code "'dt=' + #dateFormat('yyyy/MM/dd/HH', headers.timestamp)"} or
+ * {@code "headers.customer"}. The expression is evaluated against the {@link Message}; the {@code #dateFormat(pattern,
+ * timestamp)} function formats a timestamp (a long or a {@link Date}) with a {@link SimpleDateFormat} pattern.
+ * 
+ * Each partition has its own writer, with its own file counter and rollover. At most {@link #setMaxOpenWriters(int)
+ * maxOpenWriters} are kept open, the least recently used one being closed when another partition is needed; writers
+ * idle for longer than the {@link #setIdleTimeout(long) idle timeout} are closed as well, when checked on write or by
+ * {@link #rollIfDue()}. A closed partition continues its file sequence when it is written to again.
+ */
+public class PartitioningHdfsWriter implements RollingHdfsWriter {
+
+	public static final int DEFAULT_MAX_OPEN_WRITERS = 100;
+
+	private static final Log logger = LogFactory.getLog(PartitioningHdfsWriter.class);
+
+	private final AbstractHdfsWriterFactory writerFactory;
+
+	private final Expression partitionExpression;
+
+	private final StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
+
+	private final Map<String, PartitionWriter> writers = new LinkedHashMap<String, PartitionWriter>(16, 0.75f, true);
+
+	private volatile int maxOpenWriters = DEFAULT_MAX_OPEN_WRITERS;
+
+	private volatile long idleTimeout;
+
+	private long lastIdleCheck;
+
+	public PartitioningHdfsWriter(AbstractHdfsWriterFactory writerFactory, Expression partitionExpression) {
+		Assert.notNull(writerFactory, "writerFactory must not be null");
+		Assert.notNull(partitionExpression, "partitionExpression must not be null");
+		this.writerFactory = writerFactory;
+		this.partitionExpression = partitionExpression;
+		this.evaluationContext.addPropertyAccessor(new MapAccessor());
+		try {
+			this.evaluationContext.registerFunction("dateFormat",
+					PartitioningHdfsWriter.class.getDeclaredMethod("dateFormat", String.class, Object.class));
+		}
+		catch (NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Set the maximum number of partition writers kept open at the same time.
+	 */
+	public void setMaxOpenWriters(int maxOpenWriters) {
+		Assert.isTrue(maxOpenWriters > 0, "maxOpenWriters must be greater than zero");
+		this.maxOpenWriters = maxOpenWriters;
+	}
+
+	/**
+	 * Set the time in milliseconds after which a partition writer that has not been written to is closed. Zero (the
+	 * default) keeps writers open until they are evicted or this writer is closed.
+	 */
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * The partitions that currently have an open writer, least recently used first.
+	 */
+	public synchronized String[] getOpenPartitions() {
+		return this.writers.keySet().toArray(new String[this.writers.size()]);
+	}
+
+	@Override
+	public synchronized void write(Message<?> message) throws IOException {
+		String partition = getPartition(message);
+		PartitionWriter writer = this.writers.get(partition);
+		if (writer == null) {
+			if (this.writers.size() >= this.maxOpenWriters) {
+				closeEldest();
+			}
+			AbstractHdfsWriter delegate = this.writerFactory.createWriter();
+			delegate.setBasePath(delegate.getBasePath() + partition);
+			writer = new PartitionWriter(delegate);
+			this.writers.put(partition, writer);
+		}
+		writer.delegate.write(message);
+		writer.lastWrite = System.currentTimeMillis();
+		if (writer.lastWrite - this.lastIdleCheck >= Math.min(this.idleTimeout, 1000)) {
+			// checked at most about once a second, or as often as the timeout if that is shorter
+			closeIdleWriters(writer.lastWrite);
+		}
+	}
+
+	@Override
+	public boolean isTimedRolloverEnabled() {
+		return this.idleTimeout > 0 || this.writerFactory.getMaxFileAgeInMillis() > 0
+				|| this.writerFactory.getIdleTimeoutInMillis() > 0
+				|| this.writerFactory.getFlushIntervalInMillis() > 0;
+	}
+
+	/**
+	 * Close the writers of idle partitions, and roll over the files of the others where due.
+	 */
+	@Override
+	public synchronized void rollIfDue() {
+		closeIdleWriters(System.currentTimeMillis());
+		for (PartitionWriter writer : this.writers.values()) {
+			writer.delegate.rollIfDue();
+		}
+	}
+
+	private String getPartition(Message<?> message) {
+		Object value = this.partitionExpression.getValue(this.evaluationContext, message);
+		String partition = (value != null) ? StringUtils.trimTrailingCharacter(
+				StringUtils.trimLeadingCharacter(value.toString().trim(), '/'), '/') : "";
+		if (!StringUtils.hasText(partition) || partition.equals("..") || partition.startsWith("../")
+				|| partition.endsWith("/..") || partition.contains("/../")) {
+			throw new MessageHandlingException(message, "invalid HDFS partition path '" + value + "'");
+		}
+		return partition;
+	}
+
+	private void closeEldest() {
+		Iterator<Map.Entry<String, PartitionWriter>> iterator = this.writers.entrySet().iterator();
+		Map.Entry<String, PartitionWriter> eldest = iterator.next();
+		iterator.remove();
+		if (logger.isDebugEnabled()) {
+			logger.debug("closing least recently used HDFS partition writer '" + eldest.getKey() + "'");
+		}
+		eldest.getValue().delegate.close();
+	}
+
+	private void closeIdleWriters(long now) {
+		if (this.idleTimeout <= 0) {
+			return;
+		}
+		this.lastIdleCheck = now;
+		// access order, so the idle writers are at the head of the map
+		Iterator<PartitionWriter> iterator = this.writers.values().iterator();
+		while (iterator.hasNext()) {
+			PartitionWriter writer = iterator.next();
+			if (now - writer.lastWrite < this.idleTimeout) {
+				break;
+			}
+			iterator.remove();
+			writer.delegate.close();
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		for (PartitionWriter writer : this.writers.values()) {
+			writer.delegate.close();
+		}
+		this.writers.clear();
+	}
+
+	/**
+	 * Function registered as {@code #dateFormat} in the partition expression's evaluation context.
+	 */
+	public static String dateFormat(String pattern, Object timestamp) {
+		Date date = (timestamp instanceof Date) ? (Date) timestamp : new Date(((Number) timestamp).longValue());
+		return new SimpleDateFormat(pattern).format(date);
+	}
+
+	private static class PartitionWriter {
+
+		private final AbstractHdfsWriter delegate;
+
+		private long lastWrite;
+
+		private PartitionWriter(AbstractHdfsWriter delegate) {
+			this.delegate = delegate;
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.hadoop.fs;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.util.Assert;
+
+/**
+ * Creates {@link PartitioningHdfsWriter}s, which write each partition with a writer created by the given factory.
+ */
+public class PartitioningHdfsWriterFactory implements HdfsWriterFactory {
+
+	private final AbstractHdfsWriterFactory writerFactory;
+
+	private final Expression partitionExpression;
+
+	private int maxOpenWriters = PartitioningHdfsWriter.DEFAULT_MAX_OPEN_WRITERS;
+
+	private long idleTimeout;
+
+	public PartitioningHdfsWriterFactory(AbstractHdfsWriterFactory writerFactory, String partitionExpression) {
+		Assert.notNull(writerFactory, "writerFactory must not be null");
+		Assert.hasText(partitionExpression, "partitionExpression must not be empty");
+		this.writerFactory = writerFactory;
+		this.partitionExpression = new SpelExpressionParser().parseExpression(partitionExpression);
+	}
+
+	public AbstractHdfsWriterFactory getWriterFactory() {
+		return writerFactory;
+	}
+
+	public Expression getPartitionExpression() {
+		return partitionExpression;
+	}
+
+	public int getMaxOpenWriters() {
+		return maxOpenWriters;
+	}
+
+	public void setMaxOpenWriters(int maxOpenWriters) {
+		this.maxOpenWriters = maxOpenWriters;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	@Override
+	public PartitioningHdfsWriter createWriter() {
+		PartitioningHdfsWriter writer = new PartitioningHdfsWriter(writerFactory, partitionExpression);
+		writer.setMaxOpenWriters(maxOpenWriters);
+		writer.setIdleTimeout(idleTimeout);
+		return writer;
+	}
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2013 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.hadoop.fs;
+
+/**
+ * An {@link HdfsWriter} that can roll over to a new file, or flush the current one, based on time rather than on the
+ * data written, and needs to be checked periodically for that.
+ */
+public interface RollingHdfsWriter extends HdfsWriter {
+
+	/**
+	 * @return whether this writer has any time based rollover or flushing configured, and so needs
+	 *         {@link #rollIfDue()} to be called periodically
+	 */
+	boolean isTimedRolloverEnabled();
+
+	/**
+	 * Close the current file if it is due to be rolled over, or flush it if it is due to be flushed.
+	 */
+	void rollIfDue();
+
+}
@@ -44,6 +44,19 @@ public class HdfsOutboundChannelAdapterParser extends AbstractOutboundChannelAda
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "base-filename");
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "file-suffix");
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "rollover-threshold-in-bytes");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "format");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "codec");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "max-file-age-in-millis");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "idle-timeout-in-millis");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "rollover-check-interval");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "in-progress-suffix");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "partition-expression");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "max-open-partitions");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "partition-idle-timeout");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "buffer-size");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "flush-threshold-in-bytes");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "flush-interval-in-millis");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "async-buffer-capacity");
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "auto-startup");
 		return builder.getBeanDefinition();
 	}
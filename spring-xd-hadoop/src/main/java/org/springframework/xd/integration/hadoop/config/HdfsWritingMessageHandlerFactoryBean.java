@@ -20,7 +20,13 @@ import org.apache.hadoop.fs.FileSystem;
 
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.xd.hadoop.fs.AbstractHdfsWriterFactory;
+import org.springframework.xd.hadoop.fs.HdfsAvroFileWriterFactory;
+import org.springframework.xd.hadoop.fs.HdfsSequenceFileWriterFactory;
 import org.springframework.xd.hadoop.fs.HdfsTextFileWriterFactory;
+import org.springframework.xd.hadoop.fs.HdfsWriterFactory;
+import org.springframework.xd.hadoop.fs.PartitioningHdfsWriterFactory;
 import org.springframework.xd.integration.hadoop.outbound.HdfsWritingMessageHandler;
 
 /**
@@ -36,8 +42,34 @@ public class HdfsWritingMessageHandlerFactoryBean implements FactoryBean<HdfsWri
 
 	private volatile String fileSuffix;
 
+	private volatile String format = "text";
+
+	private volatile String codec;
+
+	private volatile long maxFileAgeInMillis;
+
+	private volatile long idleTimeoutInMillis;
+
+	private volatile Long rolloverCheckInterval;
+
+	private volatile String inProgressSuffix;
+
+	private volatile String partitionExpression;
+
+	private volatile Integer maxOpenPartitions;
+
+	private volatile long partitionIdleTimeout;
+
 	private volatile long rolloverThresholdInBytes;
 
+	private volatile Integer bufferSize;
+
+	private volatile Long flushThresholdInBytes;
+
+	private volatile Long flushIntervalInMillis;
+
+	private volatile int asyncBufferCapacity;
+
 	private volatile Boolean autoStartup;
 
 	private volatile HdfsWritingMessageHandler handler;
@@ -59,10 +91,62 @@ public class HdfsWritingMessageHandlerFactoryBean implements FactoryBean<HdfsWri
 		this.fileSuffix = fileSuffix;
 	}
 
+	public void setFormat(String format) {
+		this.format = format;
+	}
+
+	public void setCodec(String codec) {
+		this.codec = codec;
+	}
+
+	public void setMaxFileAgeInMillis(long maxFileAgeInMillis) {
+		this.maxFileAgeInMillis = maxFileAgeInMillis;
+	}
+
+	public void setIdleTimeoutInMillis(long idleTimeoutInMillis) {
+		this.idleTimeoutInMillis = idleTimeoutInMillis;
+	}
+
+	public void setRolloverCheckInterval(long rolloverCheckInterval) {
+		this.rolloverCheckInterval = rolloverCheckInterval;
+	}
+
+	public void setInProgressSuffix(String inProgressSuffix) {
+		this.inProgressSuffix = inProgressSuffix;
+	}
+
+	public void setPartitionExpression(String partitionExpression) {
+		this.partitionExpression = partitionExpression;
+	}
+
+	public void setMaxOpenPartitions(int maxOpenPartitions) {
+		this.maxOpenPartitions = maxOpenPartitions;
+	}
+
+	public void setPartitionIdleTimeout(long partitionIdleTimeout) {
+		this.partitionIdleTimeout = partitionIdleTimeout;
+	}
+
 	public void setRolloverThresholdInBytes(long rolloverThresholdInBytes) {
 		this.rolloverThresholdInBytes = rolloverThresholdInBytes;
 	}
 
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	public void setFlushThresholdInBytes(long flushThresholdInBytes) {
+		this.flushThresholdInBytes = flushThresholdInBytes;
+	}
+
+	public void setFlushIntervalInMillis(long flushIntervalInMillis) {
+		this.flushIntervalInMillis = flushIntervalInMillis;
+	}
+
+	public void setAsyncBufferCapacity(int asyncBufferCapacity) {
+		this.asyncBufferCapacity = asyncBufferCapacity;
+	}
+
 	public void setAutoStartup(boolean autoStartup) {
 		this.autoStartup = autoStartup;
 	}
@@ -80,12 +164,41 @@ public class HdfsWritingMessageHandlerFactoryBean implements FactoryBean<HdfsWri
 	@Override
 	public synchronized HdfsWritingMessageHandler getObject() throws Exception {
 		if (handler == null) {
-			HdfsTextFileWriterFactory writerFactory = new HdfsTextFileWriterFactory(this.fileSystem);
+			AbstractHdfsWriterFactory writerFactory = createWriterFactory();
 			writerFactory.setBasePath(this.basePath);
 			writerFactory.setBaseFilename(this.baseFilename);
-			writerFactory.setFileSuffix(fileSuffix);
+			if (this.fileSuffix != null) {
+				writerFactory.setFileSuffix(this.fileSuffix);
+			}
+			writerFactory.setCodec(this.codec);
+			writerFactory.setMaxFileAgeInMillis(this.maxFileAgeInMillis);
+			writerFactory.setIdleTimeoutInMillis(this.idleTimeoutInMillis);
+			writerFactory.setInProgressSuffix(this.inProgressSuffix);
 			writerFactory.setRolloverThresholdInBytes(rolloverThresholdInBytes);
-			this.handler = new HdfsWritingMessageHandler(writerFactory);
+			if (this.bufferSize != null) {
+				writerFactory.setBufferSize(this.bufferSize);
+			}
+			if (this.flushThresholdInBytes != null) {
+				writerFactory.setFlushThresholdInBytes(this.flushThresholdInBytes);
+			}
+			if (this.flushIntervalInMillis != null) {
+				writerFactory.setFlushIntervalInMillis(this.flushIntervalInMillis);
+			}
+			HdfsWriterFactory handlerWriterFactory = writerFactory;
+			if (StringUtils.hasText(this.partitionExpression)) {
+				PartitioningHdfsWriterFactory partitioningWriterFactory = new PartitioningHdfsWriterFactory(
+						writerFactory, this.partitionExpression);
+				if (this.maxOpenPartitions != null) {
+					partitioningWriterFactory.setMaxOpenWriters(this.maxOpenPartitions);
+				}
+				partitioningWriterFactory.setIdleTimeout(this.partitionIdleTimeout);
+				handlerWriterFactory = partitioningWriterFactory;
+			}
+			this.handler = new HdfsWritingMessageHandler(handlerWriterFactory);
+			this.handler.setAsyncBufferCapacity(this.asyncBufferCapacity);
+			if (this.rolloverCheckInterval != null) {
+				this.handler.setRolloverCheckInterval(this.rolloverCheckInterval);
+			}
 			if (this.autoStartup != null) {
 				this.handler.setAutoStartup(this.autoStartup);
 			}
@@ -93,4 +206,18 @@ public class HdfsWritingMessageHandlerFactoryBean implements FactoryBean<HdfsWri
 		return this.handler;
 	}
 
+	private AbstractHdfsWriterFactory createWriterFactory() {
+		if ("text".equalsIgnoreCase(this.format)) {
+			return new HdfsTextFileWriterFactory(this.fileSystem);
+		}
+		if ("sequence".equalsIgnoreCase(this.format)) {
+			return new HdfsSequenceFileWriterFactory(this.fileSystem);
+		}
+		if ("avro".equalsIgnoreCase(this.format)) {
+			return new HdfsAvroFileWriterFactory(this.fileSystem);
+		}
+		throw new IllegalArgumentException("Unknown HDFS file format '" + this.format
+				+ "', expected one of 'text', 'sequence' or 'avro'");
+	}
+
 }
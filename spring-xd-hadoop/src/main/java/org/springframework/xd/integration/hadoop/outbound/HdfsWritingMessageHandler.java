@@ -16,23 +16,58 @@
 
 package org.springframework.xd.integration.hadoop.outbound;
 
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
 import org.springframework.context.SmartLifecycle;
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageHandlingException;
 import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.util.Assert;
 import org.springframework.xd.hadoop.fs.HdfsWriter;
 import org.springframework.xd.hadoop.fs.HdfsWriterFactory;
+import org.springframework.xd.hadoop.fs.RollingHdfsWriter;
 
 /**
+ * Writes Message payloads to HDFS using an {@link HdfsWriter}.
+ * 
+ * By default payloads are written on the calling thread. When an {@link #setAsyncBufferCapacity(int) async buffer
+ * capacity} is set, messages are instead appended to an in-memory buffer which a dedicated writer thread swaps out
+ * and drains to HDFS, so that a slow DataNode pipeline does not block the inbound transport. Senders block once the
+ * buffer holds that many (approximate) bytes. A write failure on the writer thread is rethrown to the next sender.
+ * 
+ * Delivery in async mode is at most once: a message is acknowledged to its sender once it is buffered, so when a
+ * write fails the message being written and the rest of the drained buffer are dropped. They are logged and counted
+ * in {@link #getMessagesDropped()}.
+ * 
+ * Writers with time based rollover or flushing are checked every {@link #setRolloverCheckInterval(long) rollover
+ * check interval} by the integration task scheduler, so that files are closed, and written data made visible, even
+ * when no messages arrive.
+ * 
+ * The handler starts before, and stops after, the endpoint that feeds it, so that no message arrives once its file is
+ * closed; one that does is rejected. Stopping waits at most the {@link #setStopTimeout(long) stop timeout} for the
+ * buffered messages to be written: a writer thread stuck on HDFS is then interrupted, and closes the file once its
+ * pending write returns.
+ * 
  * @author Mark Pollack
  * @author Mark Fisher
  */
+@ManagedResource
 public class HdfsWritingMessageHandler extends AbstractMessageHandler implements SmartLifecycle {
 
 	private volatile boolean autoStartup = true;
 
-	private volatile int phase;
+	private volatile int phase = Integer.MIN_VALUE;
 
 	protected final Object lifecycleMonitor = new Object();
 
@@ -42,15 +77,135 @@ public class HdfsWritingMessageHandler extends AbstractMessageHandler implements
 
 	private final HdfsWriterFactory hdfsWriterFactory;
 
+	private volatile int asyncBufferCapacity;
+
+	private final ReentrantLock bufferLock = new ReentrantLock();
+
+	private final Condition bufferNotEmpty = bufferLock.newCondition();
+
+	private final Condition bufferNotFull = bufferLock.newCondition();
+
+	private List<Message<?>> buffer = new ArrayList<Message<?>>();
+
+	private long bufferedBytes;
+
+	private boolean accepting;
+
+	private Exception asyncWriteFailure;
+
+	private Thread writerThread;
+
+	private final AtomicLong messagesWritten = new AtomicLong();
+
+	private final AtomicLong bytesWritten = new AtomicLong();
+
+	private final AtomicLong messagesDropped = new AtomicLong();
+
+	private volatile long lastFlushDuration;
+
+	private volatile long maxFlushDuration;
+
+	private volatile long startTime;
+
+	private volatile long rolloverCheckInterval = 1000;
+
+	private volatile long stopTimeout = 30000;
+
+	private ScheduledFuture<?> rolloverCheck;
+
+	private ThreadPoolTaskScheduler rolloverScheduler;
+
 	public HdfsWritingMessageHandler(HdfsWriterFactory hdfsWriterFactory) {
 		Assert.notNull(hdfsWriterFactory,
 				"HdfsWriterFactory must not be null.");
 		this.hdfsWriterFactory = hdfsWriterFactory;
 	}
 
+	/**
+	 * Set the capacity, in bytes, of the buffer messages are appended to before a separate thread writes them to
+	 * HDFS. Zero (the default) writes on the calling thread. Takes effect on the next {@link #start()}.
+	 */
+	public void setAsyncBufferCapacity(int asyncBufferCapacity) {
+		Assert.isTrue(asyncBufferCapacity >= 0, "asyncBufferCapacity must not be negative");
+		this.asyncBufferCapacity = asyncBufferCapacity;
+	}
+
+	/**
+	 * Set how often, in milliseconds, the writer is checked for time based rollover (default 1000).
+	 */
+	public void setRolloverCheckInterval(long rolloverCheckInterval) {
+		Assert.isTrue(rolloverCheckInterval > 0, "rolloverCheckInterval must be greater than zero");
+		this.rolloverCheckInterval = rolloverCheckInterval;
+	}
+
+	/**
+	 * Set how long, in milliseconds, {@link #stop()} waits for the buffered messages to be written before it
+	 * interrupts the writer thread (default 30000).
+	 */
+	public void setStopTimeout(long stopTimeout) {
+		Assert.isTrue(stopTimeout >= 0, "stopTimeout must not be negative");
+		this.stopTimeout = stopTimeout;
+	}
+
+	@ManagedAttribute(description = "Capacity in bytes of the async write buffer, 0 if writing synchronously")
+	public int getAsyncBufferCapacity() {
+		return this.asyncBufferCapacity;
+	}
+
+	@ManagedAttribute(description = "Approximate number of bytes waiting in the async write buffer")
+	public long getBufferedBytes() {
+		this.bufferLock.lock();
+		try {
+			return this.bufferedBytes;
+		}
+		finally {
+			this.bufferLock.unlock();
+		}
+	}
+
+	@ManagedAttribute(description = "Number of messages written to HDFS")
+	public long getMessagesWritten() {
+		return this.messagesWritten.get();
+	}
+
+	@ManagedAttribute(description = "Number of buffered messages dropped because writing them to HDFS failed")
+	public long getMessagesDropped() {
+		return this.messagesDropped.get();
+	}
+
+	@ManagedAttribute(description = "Approximate number of payload bytes written to HDFS")
+	public long getBytesWritten() {
+		return this.bytesWritten.get();
+	}
+
+	@ManagedAttribute(description = "Average payload bytes written to HDFS per second since start")
+	public long getBytesPerSecond() {
+		long elapsed = System.currentTimeMillis() - this.startTime;
+		return (this.startTime == 0 || elapsed <= 0) ? 0 : this.bytesWritten.get() * 1000 / elapsed;
+	}
+
+	@ManagedAttribute(description = "Milliseconds taken to write the last drained async buffer to HDFS")
+	public long getLastFlushDuration() {
+		return this.lastFlushDuration;
+	}
+
+	@ManagedAttribute(description = "Longest time in milliseconds taken to write a drained async buffer to HDFS")
+	public long getMaxFlushDuration() {
+		return this.maxFlushDuration;
+	}
+
 	@Override
 	protected void handleMessageInternal(Message<?> message) throws Exception {
-		doWrite(message);
+		if (this.asyncBufferCapacity > 0) {
+			enqueue(message);
+		}
+		else {
+			if (!this.active) {
+				throw new MessageHandlingException(message, "HDFS writer is not running");
+			}
+			doWrite(message);
+			written(message);
+		}
 	}
 
 	protected void doWrite(Message<?> message) {
@@ -63,6 +218,142 @@ public class HdfsWritingMessageHandler extends AbstractMessageHandler implements
 		}
 	}
 
+	private void enqueue(Message<?> message) {
+		long size = estimateSize(message);
+		this.bufferLock.lock();
+		try {
+			while (this.accepting && this.asyncWriteFailure == null && this.bufferedBytes > 0
+					&& this.bufferedBytes + size > this.asyncBufferCapacity) {
+				this.bufferNotFull.await();
+			}
+			if (this.asyncWriteFailure != null) {
+				Exception failure = this.asyncWriteFailure;
+				this.asyncWriteFailure = null;
+				throw new MessageHandlingException(message,
+						"failed to write buffered Message payloads to HDFS", failure);
+			}
+			if (!this.accepting) {
+				throw new MessageHandlingException(message, "HDFS writer is not running");
+			}
+			this.buffer.add(message);
+			this.bufferedBytes += size;
+			this.bufferNotEmpty.signal();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MessageHandlingException(message, "interrupted while waiting for HDFS write buffer space", e);
+		}
+		finally {
+			this.bufferLock.unlock();
+		}
+	}
+
+	/**
+	 * Swaps the filled buffer for the empty one and writes its messages out, until stopped and fully drained, then
+	 * closes the writer. Interrupted once stopped, drops what is left.
+	 */
+	private void drainBuffer(HdfsWriter writer) {
+		List<Message<?>> draining = new ArrayList<Message<?>>();
+		while (true) {
+			this.bufferLock.lock();
+			try {
+				while (this.accepting && this.buffer.isEmpty()) {
+					this.bufferNotEmpty.awaitUninterruptibly();
+				}
+				if (!this.accepting && Thread.currentThread().isInterrupted() && !this.buffer.isEmpty()) {
+					this.messagesDropped.addAndGet(this.buffer.size());
+					logger.error("HDFS writer stopped before writing " + this.buffer.size()
+							+ " buffered message(s), dropping them");
+					this.buffer.clear();
+					this.bufferedBytes = 0;
+				}
+				if (this.buffer.isEmpty()) {
+					writer.close();
+					return;
+				}
+				List<Message<?>> filled = this.buffer;
+				this.buffer = draining;
+				draining = filled;
+				this.bufferedBytes = 0;
+				this.bufferNotFull.signalAll();
+			}
+			finally {
+				this.bufferLock.unlock();
+			}
+			long start = System.nanoTime();
+			int count = 0;
+			try {
+				for (Message<?> message : draining) {
+					if (Thread.currentThread().isInterrupted()) {
+						throw new InterruptedIOException("interrupted while stopping");
+					}
+					writer.write(message);
+					written(message);
+					count++;
+				}
+			}
+			catch (Exception e) {
+				this.messagesDropped.addAndGet(draining.size() - count);
+				logger.error("failed to write Message payload to HDFS, dropping " + (draining.size() - count)
+						+ " buffered message(s)", e);
+				// start a new file on the next write rather than appending to a possibly broken stream
+				writer.close();
+				this.bufferLock.lock();
+				try {
+					this.asyncWriteFailure = e;
+					this.bufferNotFull.signalAll();
+				}
+				finally {
+					this.bufferLock.unlock();
+				}
+			}
+			long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			this.lastFlushDuration = duration;
+			if (duration > this.maxFlushDuration) {
+				this.maxFlushDuration = duration;
+			}
+			draining.clear();
+		}
+	}
+
+	private void scheduleRolloverCheck(final RollingHdfsWriter writer) {
+		TaskScheduler scheduler = getTaskScheduler();
+		if (scheduler == null) {
+			this.rolloverScheduler = new ThreadPoolTaskScheduler();
+			this.rolloverScheduler.setThreadNamePrefix("hdfs-rollover-");
+			this.rolloverScheduler.afterPropertiesSet();
+			scheduler = this.rolloverScheduler;
+		}
+		this.rolloverCheck = scheduler.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					writer.rollIfDue();
+				}
+				catch (Exception e) {
+					logger.error("failed to roll over HDFS file", e);
+				}
+			}
+		}, this.rolloverCheckInterval);
+	}
+
+	private void written(Message<?> message) {
+		this.messagesWritten.incrementAndGet();
+		this.bytesWritten.addAndGet(estimateSize(message));
+	}
+
+	private long estimateSize(Message<?> message) {
+		Object payload = message.getPayload();
+		if (payload instanceof byte[]) {
+			return ((byte[]) payload).length;
+		}
+		if (payload instanceof String) {
+			return ((String) payload).length();
+		}
+		return 0;
+	}
+
 
 	@Override
 	public boolean isRunning() {
@@ -72,21 +363,92 @@ public class HdfsWritingMessageHandler extends AbstractMessageHandler implements
 	@Override
 	public void start() {
 		synchronized (this.lifecycleMonitor) {
+			if (this.active) {
+				return;
+			}
 			this.hdfsWriter = this.hdfsWriterFactory.createWriter();
+			this.startTime = System.currentTimeMillis();
+			if (this.asyncBufferCapacity > 0) {
+				this.bufferLock.lock();
+				try {
+					this.accepting = true;
+					this.asyncWriteFailure = null;
+				}
+				finally {
+					this.bufferLock.unlock();
+				}
+				final HdfsWriter writer = this.hdfsWriter;
+				this.writerThread = new Thread(new Runnable() {
+
+					@Override
+					public void run() {
+						drainBuffer(writer);
+					}
+				}, (getComponentName() != null) ? "hdfs-writer-" + getComponentName() : "hdfs-writer");
+				this.writerThread.start();
+			}
+			if (this.hdfsWriter instanceof RollingHdfsWriter
+					&& ((RollingHdfsWriter) this.hdfsWriter).isTimedRolloverEnabled()) {
+				scheduleRolloverCheck((RollingHdfsWriter) this.hdfsWriter);
+			}
+			this.active = true;
 		}
 	}
 
+	/**
+	 * Stop accepting messages, wait for any buffered messages to be written and close the current file. If the
+	 * buffered messages are not written within the stop timeout, the writer thread is interrupted and left to close
+	 * the file.
+	 */
 	@Override
 	public void stop() {
 		synchronized (this.lifecycleMonitor) {
-			this.hdfsWriter.close();
+			if (!this.active) {
+				return;
+			}
+			if (this.rolloverCheck != null) {
+				this.rolloverCheck.cancel(false);
+				this.rolloverCheck = null;
+			}
+			if (this.rolloverScheduler != null) {
+				this.rolloverScheduler.shutdown();
+				this.rolloverScheduler = null;
+			}
+			if (this.writerThread != null) {
+				this.bufferLock.lock();
+				try {
+					this.accepting = false;
+					this.bufferNotEmpty.signalAll();
+					this.bufferNotFull.signalAll();
+				}
+				finally {
+					this.bufferLock.unlock();
+				}
+				try {
+					this.writerThread.join(this.stopTimeout);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					logger.warn("interrupted while waiting for buffered messages to be written to HDFS");
+				}
+				if (this.writerThread.isAlive()) {
+					logger.error("buffered messages were not written to HDFS within " + this.stopTimeout
+							+ " ms, interrupting " + this.writerThread.getName());
+					this.writerThread.interrupt();
+				}
+				this.writerThread = null;
+			}
+			else {
+				this.hdfsWriter.close();
+			}
+			this.active = false;
 		}
 	}
 
 	@Override
 	public void stop(Runnable callback) {
-		// TODO
 		stop();
+		callback.run();
 	}
 
 	@Override
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.batch.item.hadoop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.batch.item.file.transform.LineAggregator;
+import org.springframework.batch.item.file.transform.PassThroughLineAggregator;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link HdfsTextItemWriter}, using the local file system.
+ */
+public class HdfsTextItemWriterTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FileSystem fileSystem;
+
+	private File directory;
+
+	private HdfsTextItemWriter<String> writer;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = folder.newFolder("data");
+		fileSystem = FileSystem.getLocal(new Configuration()).getRawFileSystem();
+		writer = new HdfsTextItemWriter<String>(fileSystem);
+		writer.setBasePath(directory.getAbsolutePath() + "/");
+		writer.setBaseFilename("test");
+		writer.setFileSuffix("txt");
+		writer.setLineAggregator(new PassThroughLineAggregator<String>());
+		writer.afterPropertiesSet();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		fileSystem.close();
+	}
+
+	@Test
+	public void testChunksAreWrittenToOneOpenFile() throws Exception {
+		writer.write(Arrays.asList("foo", "bar"));
+		File file = new File(directory, "test-0.txt");
+		assertEquals(6 + 2 * System.getProperty("line.separator").length(), writer.getBytesWritten());
+		writer.write(Arrays.asList("baz"));
+		writer.close();
+		assertEquals(writer.getBytesWritten(), file.length());
+		assertTrue(FileCopyUtils.copyToString(new FileReader(file)).startsWith("foo"));
+		assertFalse(new File(directory, "test-1.txt").exists());
+	}
+
+	@Test
+	public void testRolloverAfterChunkCrossesThreshold() throws Exception {
+		writer.setRolloverThresholdInBytes(5);
+		writer.setBufferSize(2);
+		writer.write(Arrays.asList("foo", "bar"));
+		writer.write(Arrays.asList("baz"));
+		writer.close();
+		assertTrue(new File(directory, "test-0.txt").length() >= 8);
+		assertTrue(new File(directory, "test-1.txt").length() >= 4);
+		assertFalse(new File(directory, "test-2.txt").exists());
+	}
+
+	@Test
+	public void testChunkIsNotWrittenWhenAnItemFailsToAggregate() throws Exception {
+		writer.setLineAggregator(new LineAggregator<String>() {
+
+			@Override
+			public String aggregate(String item) {
+				if ("bad".equals(item)) {
+					throw new IllegalArgumentException("cannot aggregate " + item);
+				}
+				return item;
+			}
+		});
+		writer.write(Arrays.asList("foo"));
+		try {
+			writer.write(Arrays.asList("bar", "bad", "baz"));
+			fail("Expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e) {
+			// expected
+		}
+		writer.write(Arrays.asList("qux"));
+		writer.close();
+		String separator = System.getProperty("line.separator");
+		assertEquals("foo" + separator + "qux" + separator,
+				FileCopyUtils.copyToString(new FileReader(new File(directory, "test-0.txt"))));
+	}
+
+	@Test
+	public void testExistingFilesAreSkipped() throws Exception {
+		assertTrue(new File(directory, "test-0.txt").createNewFile());
+		writer.write(Arrays.asList("foo"));
+		writer.close();
+		assertEquals(0, new File(directory, "test-0.txt").length());
+		assertTrue(new File(directory, "test-1.txt").length() > 0);
+	}
+
+}
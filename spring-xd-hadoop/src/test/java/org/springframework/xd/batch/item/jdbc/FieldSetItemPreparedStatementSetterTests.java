@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.batch.item.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import java.sql.PreparedStatement;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import org.springframework.batch.item.file.transform.DefaultFieldSet;
+import org.springframework.batch.item.file.transform.FieldSet;
+
+public class FieldSetItemPreparedStatementSetterTests {
+
+	private FieldSetItemPreparedStatementSetter setter;
+
+	@Mock
+	private PreparedStatement ps;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		setter = new FieldSetItemPreparedStatementSetter();
+	}
+
+	@Test
+	public void testFieldOrder() throws Exception {
+		setter.setValues(fieldSet(new String[] { "name", "count" }, new String[] { "foo", " 3 " }), ps);
+		verify(ps).setString(1, "foo");
+		verify(ps).setString(2, " 3 ");
+		verifyNoMoreInteractions(ps);
+	}
+
+	@Test
+	public void testNamedParameters() throws Exception {
+		setter.setSql("insert into foo (count, name) values (:count, :name)");
+		setter.setValues(fieldSet(new String[] { "name", "ignored", "count" }, new String[] { "foo", "bar", "3" }), ps);
+		verify(ps).setString(1, "3");
+		verify(ps).setString(2, "foo");
+		verifyNoMoreInteractions(ps);
+	}
+
+	@Test
+	public void testPositionalSql() throws Exception {
+		setter.setSql("update foo set count = :count where name = :name or alias = :name");
+		assertEquals("update foo set count = ? where name = ? or alias = ?", setter.getSql());
+		setter.setValues(fieldSet(new String[] { "name", "count" }, new String[] { "foo", "3" }), ps);
+		verify(ps).setString(1, "3");
+		verify(ps).setString(2, "foo");
+		verify(ps).setString(3, "foo");
+		verifyNoMoreInteractions(ps);
+	}
+
+	@Test
+	public void testFieldLayoutChange() throws Exception {
+		setter.setSql("insert into foo (name) values (:name)");
+		setter.setValues(fieldSet(new String[] { "name", "count" }, new String[] { "foo", "3" }), ps);
+		setter.setValues(fieldSet(new String[] { "count", "name" }, new String[] { "4", "bar" }), ps);
+		verify(ps).setString(1, "foo");
+		verify(ps).setString(1, "bar");
+		verifyNoMoreInteractions(ps);
+	}
+
+	@Test
+	public void testNull() throws Exception {
+		setter.setValues(fieldSet(new String[] { "name", "count" }, new String[] { null, "" }), ps);
+		verify(ps).setString(1, null);
+		verify(ps).setString(2, "");
+		verifyNoMoreInteractions(ps);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingField() throws Exception {
+		setter.setSql("insert into foo (missing) values (:missing)");
+		setter.setValues(fieldSet(new String[] { "name" }, new String[] { "foo" }), ps);
+	}
+
+	private static FieldSet fieldSet(String[] names, String[] values) {
+		return new DefaultFieldSet(values, names);
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.batch.item.mongodb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.springframework.batch.item.file.transform.DefaultFieldSet;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.xd.tuple.TupleBuilder;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
+
+/**
+ * Tests for {@link MongoItemWriter}.
+ */
+public class MongoItemWriterTests {
+
+	private final MongoOperations mongoOperations = mock(MongoOperations.class);
+
+	private final DBCollection collection = mock(DBCollection.class);
+
+	private final MongoItemWriter writer = new MongoItemWriter(mongoOperations);
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		writer.setCollectionName("test");
+		when(collection.getWriteConcern()).thenReturn(WriteConcern.SAFE);
+		when(mongoOperations.execute(eq("test"), any(CollectionCallback.class))).thenAnswer(new Answer<Object>() {
+
+			@Override
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				return ((CollectionCallback<?>) invocation.getArguments()[1]).doInCollection(collection);
+			}
+		});
+	}
+
+	@Test
+	public void testDefaultModeUsesTemplate() throws Exception {
+		List<String> items = Arrays.asList("foo", "bar");
+		writer.write(items);
+		verify(mongoOperations).insert(items, "test");
+		verifyZeroInteractions(collection);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testBulkInsertIsUnordered() throws Exception {
+		writer.setBulk(true);
+		writer.write(Arrays.asList(TupleBuilder.tuple().of("id", 1, "name", "foo"),
+				new DefaultFieldSet(new String[] { "2", "bar" }, new String[] { "id", "name" }),
+				new BasicDBObject("name", "baz")));
+		ArgumentCaptor<List> documents = ArgumentCaptor.forClass(List.class);
+		ArgumentCaptor<WriteConcern> concern = ArgumentCaptor.forClass(WriteConcern.class);
+		verify(collection).insert(documents.capture(), concern.capture());
+		List<DBObject> written = documents.getValue();
+		assertEquals(3, written.size());
+		assertEquals(1, written.get(0).get("_id"));
+		assertEquals("foo", written.get(0).get("name"));
+		assertEquals("2", written.get(1).get("_id"));
+		assertEquals("baz", written.get(2).get("name"));
+		assertTrue(concern.getValue().getContinueOnErrorForInsert());
+		assertEquals(WriteConcern.SAFE.getW(), concern.getValue().getW());
+	}
+
+	@Test
+	public void testOrderedBulkInsertWithWriteConcern() throws Exception {
+		writer.setBulk(true);
+		writer.setOrdered(true);
+		writer.setWriteConcern(WriteConcern.NORMAL);
+		writer.write(Arrays.asList(new BasicDBObject("name", "foo")));
+		ArgumentCaptor<WriteConcern> concern = ArgumentCaptor.forClass(WriteConcern.class);
+		verify(collection).insert(anyListOf(DBObject.class), concern.capture());
+		assertFalse(concern.getValue().getContinueOnErrorForInsert());
+		assertEquals(WriteConcern.NORMAL.getW(), concern.getValue().getW());
+	}
+
+	@Test
+	public void testUpsertByKey() throws Exception {
+		writer.setUpsertKey("_id");
+		writer.write(Arrays.asList(TupleBuilder.tuple().of("id", 1, "name", "foo"),
+				TupleBuilder.tuple().of("id", 2, "name", "bar")));
+		verify(collection).update(new BasicDBObject("_id", 1), new BasicDBObject("_id", 1).append("name", "foo"),
+				true, false, WriteConcern.SAFE);
+		verify(collection).update(new BasicDBObject("_id", 2), new BasicDBObject("_id", 2).append("name", "bar"),
+				true, false, WriteConcern.SAFE);
+	}
+
+}
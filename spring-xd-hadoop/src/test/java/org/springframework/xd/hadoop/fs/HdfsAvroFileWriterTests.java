@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.hadoop.fs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.xd.tuple.TupleBuilder;
+
+/**
+ * Tests for {@link HdfsAvroFileWriter}, using the local file system.
+ */
+public class HdfsAvroFileWriterTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FileSystem fileSystem;
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = folder.newFolder("data");
+		fileSystem = FileSystem.getLocal(new Configuration()).getRawFileSystem();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		fileSystem.close();
+	}
+
+	@Test
+	public void testSchemaDerivedFromTuple() throws IOException {
+		HdfsAvroFileWriter writer = createWriter();
+		writer.setCodecFactory(CodecFactory.deflateCodec(6));
+		writer.write(MessageBuilder.withPayload(TupleBuilder.tuple().of("symbol", "VMW", "price", 73.5d, "volume",
+				1000L, "trade-count", 3)).build());
+		writer.write(MessageBuilder.withPayload(TupleBuilder.tuple().of("symbol", "EMC", "price", null, "volume",
+				2000L, "trade-count", 4)).build());
+		writer.close();
+		DataFileReader<GenericRecord> reader = new DataFileReader<GenericRecord>(new File(directory, "test-0.avro"),
+				new GenericDatumReader<GenericRecord>());
+		Schema schema = reader.getSchema();
+		assertEquals("Tuple", schema.getName());
+		assertEquals(Schema.Type.DOUBLE, schema.getField("price").schema().getTypes().get(1).getType());
+		assertEquals(Schema.Type.INT, schema.getField("trade_count").schema().getTypes().get(1).getType());
+		GenericRecord record = reader.next();
+		assertEquals("VMW", record.get("symbol").toString());
+		assertEquals(73.5d, record.get("price"));
+		assertEquals(1000L, record.get("volume"));
+		record = reader.next();
+		assertEquals("EMC", record.get("symbol").toString());
+		assertNull(record.get("price"));
+		assertEquals(4, record.get("trade_count"));
+		assertFalse(reader.hasNext());
+		reader.close();
+	}
+
+	@Test
+	public void testNewFileForDifferentFields() throws IOException {
+		HdfsAvroFileWriter writer = createWriter();
+		writer.write(MessageBuilder.withPayload(TupleBuilder.tuple().of("a", 1)).build());
+		writer.write(MessageBuilder.withPayload(TupleBuilder.tuple().of("a", 2)).build());
+		writer.write(MessageBuilder.withPayload(TupleBuilder.tuple().of("b", "x")).build());
+		writer.write(MessageBuilder.withPayload(TupleBuilder.tuple().of("b", 3)).build());
+		writer.close();
+		assertTrue(new File(directory, "test-0.avro").exists());
+		assertTrue(new File(directory, "test-1.avro").exists());
+		// a string field takes any value, so the last tuple fits the second schema
+		assertFalse(new File(directory, "test-2.avro").exists());
+	}
+
+	private HdfsAvroFileWriter createWriter() {
+		HdfsAvroFileWriter writer = new HdfsAvroFileWriter(fileSystem);
+		writer.setBasePath(directory.getAbsolutePath() + "/");
+		writer.setBaseFilename("test");
+		writer.setFileSuffix("avro");
+		writer.setRolloverThresholdInBytes(1024 * 1024);
+		return writer;
+	}
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.hadoop.fs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.support.MessageBuilder;
+
+/**
+ * Tests for {@link HdfsSequenceFileWriter}, using the local file system.
+ */
+public class HdfsSequenceFileWriterTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FileSystem fileSystem;
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = folder.newFolder("data");
+		fileSystem = FileSystem.getLocal(new Configuration()).getRawFileSystem();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		fileSystem.close();
+	}
+
+	@Test
+	public void testUncompressed() throws IOException {
+		HdfsSequenceFileWriter writer = createWriter(1024 * 1024);
+		Message<String> message = MessageBuilder.withPayload("foo").build();
+		writer.write(message);
+		writer.write(MessageBuilder.withPayload("bar".getBytes()).build());
+		writer.close();
+		SequenceFile.Reader reader = new SequenceFile.Reader(fileSystem, new Path(new File(directory, "test-0.seq")
+				.getAbsolutePath()), fileSystem.getConf());
+		assertFalse(reader.isCompressed());
+		LongWritable key = new LongWritable();
+		Text value = new Text();
+		assertTrue(reader.next(key, value));
+		assertEquals(message.getHeaders().getTimestamp().longValue(), key.get());
+		assertEquals("foo", value.toString());
+		assertTrue(reader.next(key, value));
+		assertEquals("bar", value.toString());
+		assertFalse(reader.next(key, value));
+		reader.close();
+	}
+
+	@Test
+	public void testBlockCompressedWithFlush() throws IOException {
+		HdfsSequenceFileWriter writer = createWriter(1024 * 1024);
+		writer.setCompressionCodec(ReflectionUtils.newInstance(DefaultCodec.class, fileSystem.getConf()));
+		writer.setFlushThresholdInBytes(1);
+		for (int i = 0; i < 100; i++) {
+			writer.write(MessageBuilder.withPayload("line " + i).build());
+		}
+		writer.close();
+		SequenceFile.Reader reader = new SequenceFile.Reader(fileSystem, new Path(new File(directory, "test-0.seq")
+				.getAbsolutePath()), fileSystem.getConf());
+		assertTrue(reader.isBlockCompressed());
+		LongWritable key = new LongWritable();
+		Text value = new Text();
+		int count = 0;
+		while (reader.next(key, value)) {
+			assertEquals("line " + count++, value.toString());
+		}
+		assertEquals(100, count);
+		reader.close();
+	}
+
+	private HdfsSequenceFileWriter createWriter(long rolloverThresholdInBytes) {
+		HdfsSequenceFileWriter writer = new HdfsSequenceFileWriter(fileSystem);
+		writer.setBasePath(directory.getAbsolutePath() + "/");
+		writer.setBaseFilename("test");
+		writer.setFileSuffix("seq");
+		writer.setRolloverThresholdInBytes(rolloverThresholdInBytes);
+		return writer;
+	}
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.hadoop.fs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FilterFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.util.Progressable;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link HdfsTextFileWriter}, using the local file system.
+ */
+public class HdfsTextFileWriterTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FileSystem fileSystem;
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = folder.newFolder("data");
+		fileSystem = FileSystem.getLocal(new Configuration()).getRawFileSystem();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		fileSystem.close();
+	}
+
+	@Test
+	public void testWritesAreBufferedUntilClose() throws IOException {
+		HdfsTextFileWriter writer = createWriter(1024);
+		writer.write(MessageBuilder.withPayload("foo\n").build());
+		writer.write(MessageBuilder.withPayload("bar\n").build());
+		File file = new File(directory, "test-0.log");
+		assertTrue(file.exists());
+		assertEquals(0, file.length());
+		writer.close();
+		assertEquals("foo\nbar\n", FileCopyUtils.copyToString(new FileReader(file)));
+	}
+
+	@Test
+	public void testRollover() throws IOException {
+		HdfsTextFileWriter writer = createWriter(6);
+		writer.write(MessageBuilder.withPayload("foo\n").build());
+		writer.write(MessageBuilder.withPayload("bar\n").build());
+		writer.write(MessageBuilder.withPayload("baz\n").build());
+		writer.close();
+		assertEquals(8, new File(directory, "test-0.log").length());
+		assertEquals(4, new File(directory, "test-1.log").length());
+		assertFalse(new File(directory, "test-2.log").exists());
+	}
+
+	@Test
+	public void testExistingFilesAreSkipped() throws IOException {
+		assertTrue(new File(directory, "test-0.log").createNewFile());
+		assertTrue(new File(directory, "test-1.log").createNewFile());
+		HdfsTextFileWriter writer = createWriter(1024);
+		writer.write(MessageBuilder.withPayload("foo\n").build());
+		writer.close();
+		assertEquals(0, new File(directory, "test-1.log").length());
+		assertEquals(4, new File(directory, "test-2.log").length());
+	}
+
+	@Test
+	public void testFlushThreshold() throws IOException {
+		HdfsTextFileWriter writer = createWriter(1024);
+		writer.setFlushThresholdInBytes(8);
+		writer.write(MessageBuilder.withPayload("foo\n").build());
+		File file = new File(directory, "test-0.log");
+		assertEquals(0, file.length());
+		writer.write(MessageBuilder.withPayload("bar\n").build());
+		assertEquals(8, file.length());
+		writer.close();
+	}
+
+	@Test
+	public void testFlushIntervalOfIdleWriter() throws Exception {
+		HdfsTextFileWriter writer = createWriter(1024);
+		writer.setFlushIntervalInMillis(50);
+		assertTrue(writer.isTimedRolloverEnabled());
+		writer.write(MessageBuilder.withPayload("foo\n").build());
+		File file = new File(directory, "test-0.log");
+		writer.rollIfDue();
+		assertEquals(0, file.length());
+		Thread.sleep(100);
+		writer.rollIfDue();
+		assertEquals(4, file.length());
+		writer.close();
+	}
+
+	@Test
+	public void testGzipCompression() throws IOException {
+		HdfsTextFileWriter writer = createWriter(1024);
+		writer.setCompressionCodec(ReflectionUtils.newInstance(GzipCodec.class, fileSystem.getConf()));
+		for (int i = 0; i < 100; i++) {
+			writer.write(MessageBuilder.withPayload("the same line over and over again\n").build());
+		}
+		writer.close();
+		File file = new File(directory, "test-0.log.gz");
+		assertTrue(file.length() > 0);
+		assertTrue(file.length() < 100);
+		GZIPInputStream in = new GZIPInputStream(new FileInputStream(file));
+		assertEquals(3400, FileCopyUtils.copyToByteArray(in).length);
+	}
+
+	@Test
+	public void testRolloverOnCompressedSize() throws IOException {
+		HdfsTextFileWriter writer = createWriter(200);
+		writer.setCompressionCodec(ReflectionUtils.newInstance(GzipCodec.class, fileSystem.getConf()));
+		writer.setBufferSize(16);
+		for (int i = 0; i < 1000; i++) {
+			writer.write(MessageBuilder.withPayload("the same line over and over again\n").build());
+		}
+		writer.close();
+		// 34000 uncompressed bytes fit in far fewer than 170 files of 200 compressed bytes
+		assertTrue(new File(directory, "test-0.log.gz").exists());
+		assertFalse(new File(directory, "test-20.log.gz").exists());
+	}
+
+	@Test
+	public void testInProgressSuffix() throws IOException {
+		HdfsTextFileWriter writer = createWriter(6);
+		writer.setInProgressSuffix(".tmp");
+		writer.write(MessageBuilder.withPayload("foo\n").build());
+		assertTrue(new File(directory, "test-0.log.tmp").exists());
+		assertFalse(new File(directory, "test-0.log").exists());
+		writer.write(MessageBuilder.withPayload("bar\n").build());
+		writer.write(MessageBuilder.withPayload("baz\n").build());
+		assertEquals(8, new File(directory, "test-0.log").length());
+		assertTrue(new File(directory, "test-1.log.tmp").exists());
+		writer.close();
+		assertEquals(4, new File(directory, "test-1.log").length());
+		assertFalse(new File(directory, "test-1.log.tmp").exists());
+	}
+
+	@Test
+	public void testFailedCloseLeavesFileInProgress() throws IOException {
+		FileSystem failingFileSystem = new FilterFileSystem(fileSystem) {
+
+			@Override
+			public FSDataOutputStream create(Path f, FsPermission permission, boolean overwrite, int bufferSize,
+					short replication, long blockSize, Progressable progress) throws IOException {
+				FSDataOutputStream stream = super.create(f, permission, overwrite, bufferSize, replication,
+						blockSize, progress);
+				return new FSDataOutputStream(new FilterOutputStream(stream) {
+
+					@Override
+					public void close() throws IOException {
+						super.close();
+						throw new IOException("close failed");
+					}
+				}, null);
+			}
+		};
+		HdfsTextFileWriter writer = new HdfsTextFileWriter(failingFileSystem);
+		writer.setBasePath(directory.getAbsolutePath() + "/");
+		writer.setBaseFilename("test");
+		writer.setFileSuffix("log");
+		writer.setInProgressSuffix(".tmp");
+		writer.write(MessageBuilder.withPayload("foo\n").build());
+		writer.close();
+		assertTrue(new File(directory, "test-0.log.tmp").exists());
+		assertFalse(new File(directory, "test-0.log").exists());
+		writer.write(MessageBuilder.withPayload("bar\n").build());
+		assertTrue(new File(directory, "test-1.log.tmp").exists());
+	}
+
+	@Test
+	public void testIdleRollover() throws Exception {
+		HdfsTextFileWriter writer = createWriter(1024);
+		writer.setIdleTimeoutInMillis(50);
+		assertTrue(writer.isTimedRolloverEnabled());
+		writer.write(MessageBuilder.withPayload("foo\n").build());
+		writer.rollIfDue();
+		assertEquals(0, new File(directory, "test-0.log").length());
+		Thread.sleep(100);
+		writer.rollIfDue();
+		assertEquals(4, new File(directory, "test-0.log").length());
+		writer.write(MessageBuilder.withPayload("bar\n").build());
+		writer.close();
+		assertEquals(4, new File(directory, "test-1.log").length());
+	}
+
+	@Test
+	public void testMaxFileAgeRollover() throws Exception {
+		HdfsTextFileWriter writer = createWriter(1024);
+		writer.setMaxFileAgeInMillis(100);
+		writer.write(MessageBuilder.withPayload("foo\n").build());
+		for (int i = 0; i < 4; i++) {
+			Thread.sleep(40);
+			writer.write(MessageBuilder.withPayload("foo\n").build());
+			writer.rollIfDue();
+		}
+		writer.close();
+		assertTrue(new File(directory, "test-0.log").length() > 0);
+		assertTrue(new File(directory, "test-1.log").length() > 0);
+	}
+
+	private HdfsTextFileWriter createWriter(long rolloverThresholdInBytes) {
+		HdfsTextFileWriter writer = new HdfsTextFileWriter(fileSystem);
+		writer.setBasePath(directory.getAbsolutePath() + "/");
+		writer.setBaseFilename("test");
+		writer.setFileSuffix("log");
+		writer.setRolloverThresholdInBytes(rolloverThresholdInBytes);
+		return writer;
+	}
+
+}
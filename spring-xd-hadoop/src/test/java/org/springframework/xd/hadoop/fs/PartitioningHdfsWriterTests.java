@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.hadoop.fs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageHandlingException;
+import org.springframework.integration.support.MessageBuilder;
+
+/**
+ * Tests for {@link PartitioningHdfsWriter}, using the local file system.
+ */
+public class PartitioningHdfsWriterTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FileSystem fileSystem;
+
+	private File directory;
+
+	private HdfsTextFileWriterFactory writerFactory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = folder.newFolder("data");
+		fileSystem = FileSystem.getLocal(new Configuration()).getRawFileSystem();
+		writerFactory = new HdfsTextFileWriterFactory(fileSystem);
+		writerFactory.setBasePath(directory.getAbsolutePath() + "/");
+		writerFactory.setBaseFilename("test");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		fileSystem.close();
+	}
+
+	@Test
+	public void testPartitionByHeader() throws IOException {
+		PartitioningHdfsWriter writer = new PartitioningHdfsWriterFactory(writerFactory, "'customer=' + headers.customer")
+				.createWriter();
+		writer.write(message("a1\n", "acme"));
+		writer.write(message("b1\n", "bigco"));
+		writer.write(message("a2\n", "acme"));
+		writer.close();
+		assertEquals(6, new File(directory, "customer=acme/test-0.log").length());
+		assertEquals(3, new File(directory, "customer=bigco/test-0.log").length());
+	}
+
+	@Test
+	public void testPartitionByDate() throws IOException {
+		PartitioningHdfsWriter writer = new PartitioningHdfsWriterFactory(writerFactory,
+				"'dt=' + #dateFormat('yyyy/MM/dd', headers.timestamp)").createWriter();
+		Message<String> message = MessageBuilder.withPayload("foo\n").build();
+		writer.write(message);
+		writer.close();
+		String partition = new SimpleDateFormat("yyyy/MM/dd").format(new Date(message.getHeaders().getTimestamp()));
+		assertTrue(new File(directory, "dt=" + partition + "/test-0.log").exists());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedWriterIsClosed() throws IOException {
+		PartitioningHdfsWriter writer = new PartitioningHdfsWriterFactory(writerFactory, "headers.customer")
+				.createWriter();
+		writer.setMaxOpenWriters(2);
+		writer.write(message("a1\n", "acme"));
+		writer.write(message("b1\n", "bigco"));
+		writer.write(message("a2\n", "acme"));
+		writer.write(message("c1\n", "corp"));
+		assertArrayEquals(new String[] { "acme", "corp" }, writer.getOpenPartitions());
+		// closed, so the buffered data has been written
+		assertEquals(3, new File(directory, "bigco/test-0.log").length());
+		// a partition that is opened again continues its own file sequence
+		writer.write(message("b2\n", "bigco"));
+		writer.close();
+		assertEquals(3, new File(directory, "bigco/test-1.log").length());
+		assertEquals(6, new File(directory, "acme/test-0.log").length());
+	}
+
+	@Test
+	public void testIdleWritersAreClosed() throws Exception {
+		PartitioningHdfsWriter writer = new PartitioningHdfsWriterFactory(writerFactory, "headers.customer")
+				.createWriter();
+		writer.setIdleTimeout(50);
+		writer.write(message("a1\n", "acme"));
+		Thread.sleep(100);
+		writer.write(message("b1\n", "bigco"));
+		assertArrayEquals(new String[] { "bigco" }, writer.getOpenPartitions());
+		assertEquals(3, new File(directory, "acme/test-0.log").length());
+		writer.close();
+	}
+
+	@Test(expected = MessageHandlingException.class)
+	public void testParentDirectoryPartitionRejected() throws IOException {
+		PartitioningHdfsWriter writer = new PartitioningHdfsWriterFactory(writerFactory, "headers.customer")
+				.createWriter();
+		writer.write(message("foo", "../elsewhere"));
+	}
+
+	private Message<String> message(String payload, String customer) {
+		return MessageBuilder.withPayload(payload).setHeader("customer", customer).build();
+	}
+
+}
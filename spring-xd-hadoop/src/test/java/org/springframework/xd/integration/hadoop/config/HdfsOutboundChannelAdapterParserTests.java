@@ -40,11 +40,16 @@ public class HdfsOutboundChannelAdapterParserTests {
 		HdfsWritingMessageHandler handler = (HdfsWritingMessageHandler) new DirectFieldAccessor(adapter).getPropertyValue("handler");
 		DirectFieldAccessor handlerAccessor = new DirectFieldAccessor(handler);
 		assertEquals(false, handlerAccessor.getPropertyValue("autoStartup"));
+		assertEquals(65536, handlerAccessor.getPropertyValue("asyncBufferCapacity"));
 		HdfsTextFileWriterFactory writerFactory = (HdfsTextFileWriterFactory) handlerAccessor.getPropertyValue("hdfsWriterFactory");
 		assertEquals("/parsertestdir/", writerFactory.getBasePath());
 		assertEquals("parsertestfile", writerFactory.getBaseFilename());
 		assertEquals("test", writerFactory.getFileSuffix());
 		assertEquals(12345, writerFactory.getRolloverThresholdInBytes());
+		assertEquals(4096, writerFactory.getBufferSize());
+		assertEquals(0, writerFactory.getFlushThresholdInBytes());
+		assertEquals(1000, writerFactory.getFlushIntervalInMillis());
+		assertEquals("gzip", writerFactory.getCodec());
 		FileSystem fileSystem = (FileSystem) new DirectFieldAccessor(writerFactory).getPropertyValue("fileSystem");
 		assertEquals(context.getBean("hadoopFs"), fileSystem);
 		context.close();
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.integration.hadoop.outbound;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageHandlingException;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.xd.hadoop.fs.HdfsWriter;
+import org.springframework.xd.hadoop.fs.HdfsWriterFactory;
+import org.springframework.xd.hadoop.fs.RollingHdfsWriter;
+
+/**
+ * Tests for {@link HdfsWritingMessageHandler}.
+ */
+public class HdfsWritingMessageHandlerTests {
+
+	private final StubHdfsWriter writer = new StubHdfsWriter();
+
+	private final HdfsWriterFactory writerFactory = new HdfsWriterFactory() {
+
+		@Override
+		public HdfsWriter createWriter() {
+			return writer;
+		}
+	};
+
+	@Test
+	public void testSynchronous() {
+		HdfsWritingMessageHandler handler = new HdfsWritingMessageHandler(writerFactory);
+		handler.start();
+		assertTrue(handler.isRunning());
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		assertEquals(1, writer.written.size());
+		assertSame(Thread.currentThread(), writer.threads.get(0));
+		handler.stop();
+		assertFalse(handler.isRunning());
+		assertTrue(writer.closed);
+	}
+
+	@Test
+	public void testAsyncWritesOnSeparateThreadAndDrainsOnStop() throws Exception {
+		writer.block = new CountDownLatch(1);
+		HdfsWritingMessageHandler handler = new HdfsWritingMessageHandler(writerFactory);
+		handler.setAsyncBufferCapacity(1024);
+		handler.start();
+		for (int i = 0; i < 10; i++) {
+			handler.handleMessage(MessageBuilder.withPayload("foo" + i).build());
+		}
+		// the writer thread is stuck on the first message, the rest are buffered
+		assertTrue(handler.getBufferedBytes() > 0);
+		writer.block.countDown();
+		final CountDownLatch stopped = new CountDownLatch(1);
+		handler.stop(new Runnable() {
+
+			@Override
+			public void run() {
+				stopped.countDown();
+			}
+		});
+		assertTrue(stopped.await(10, TimeUnit.SECONDS));
+		assertEquals(10, writer.written.size());
+		assertEquals("foo9", writer.written.get(9).getPayload());
+		assertFalse(writer.threads.contains(Thread.currentThread()));
+		assertTrue(writer.closed);
+		assertEquals(10, handler.getMessagesWritten());
+		assertEquals(0, handler.getBufferedBytes());
+	}
+
+	@Test
+	public void testAsyncBufferAppliesBackpressure() throws Exception {
+		writer.block = new CountDownLatch(1);
+		final HdfsWritingMessageHandler handler = new HdfsWritingMessageHandler(writerFactory);
+		handler.setAsyncBufferCapacity(8);
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("0123").build());
+		// wait for the writer thread to take the first message and block on it
+		while (handler.getBufferedBytes() > 0) {
+			Thread.sleep(10);
+		}
+		handler.handleMessage(MessageBuilder.withPayload("0123").build());
+		handler.handleMessage(MessageBuilder.withPayload("0123").build());
+		final CountDownLatch sent = new CountDownLatch(1);
+		Thread sender = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				handler.handleMessage(MessageBuilder.withPayload("0123").build());
+				sent.countDown();
+			}
+		});
+		sender.start();
+		assertFalse(sent.await(200, TimeUnit.MILLISECONDS));
+		writer.block.countDown();
+		assertTrue(sent.await(10, TimeUnit.SECONDS));
+		handler.stop();
+		assertEquals(4, writer.written.size());
+	}
+
+	@Test
+	public void testAsyncFailureIsReportedToNextSender() throws Exception {
+		writer.fail = true;
+		HdfsWritingMessageHandler handler = new HdfsWritingMessageHandler(writerFactory);
+		handler.setAsyncBufferCapacity(1024);
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		long deadline = System.currentTimeMillis() + 10000;
+		boolean reported = false;
+		while (!reported && System.currentTimeMillis() < deadline) {
+			try {
+				handler.handleMessage(MessageBuilder.withPayload("bar").build());
+				Thread.sleep(10);
+			}
+			catch (MessageHandlingException e) {
+				assertTrue(e.getCause() instanceof IOException);
+				reported = true;
+			}
+		}
+		assertTrue(reported);
+		assertTrue(handler.getMessagesDropped() > 0);
+		assertEquals(0, handler.getMessagesWritten());
+		handler.stop();
+	}
+
+	@Test
+	public void testRejectsMessagesWhenStopped() {
+		HdfsWritingMessageHandler handler = new HdfsWritingMessageHandler(writerFactory);
+		handler.setAsyncBufferCapacity(1024);
+		handler.start();
+		handler.stop();
+		try {
+			handler.handleMessage(MessageBuilder.withPayload("foo").build());
+			fail("Expected MessageHandlingException");
+		}
+		catch (MessageHandlingException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testSynchronousWriteAfterStopDoesNotReopenTheFile() {
+		HdfsWritingMessageHandler handler = new HdfsWritingMessageHandler(writerFactory);
+		assertEquals(Integer.MIN_VALUE, handler.getPhase());
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		handler.stop();
+		assertTrue(writer.closed);
+		try {
+			handler.handleMessage(MessageBuilder.withPayload("bar").build());
+			fail("Expected MessageHandlingException");
+		}
+		catch (MessageHandlingException e) {
+			// expected
+		}
+		assertEquals(1, writer.written.size());
+	}
+
+	@Test
+	public void testStopDoesNotWaitForAStalledWriterBeyondTheTimeout() throws Exception {
+		writer.block = new CountDownLatch(1);
+		HdfsWritingMessageHandler handler = new HdfsWritingMessageHandler(writerFactory);
+		handler.setAsyncBufferCapacity(1024);
+		handler.setStopTimeout(100);
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		while (handler.getBufferedBytes() > 0) {
+			Thread.sleep(10);
+		}
+		handler.handleMessage(MessageBuilder.withPayload("bar").build());
+		long start = System.currentTimeMillis();
+		handler.stop();
+		assertTrue(System.currentTimeMillis() - start < 5000);
+		assertFalse(handler.isRunning());
+		// interrupted, the writer thread gives up on the rest of the buffer and closes the file
+		long deadline = System.currentTimeMillis() + 10000;
+		while (!writer.closed && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(writer.closed);
+		assertEquals(1, handler.getMessagesDropped());
+	}
+
+	@Test
+	public void testScheduledRolloverCheck() throws Exception {
+		final CountDownLatch checked = new CountDownLatch(2);
+		HdfsWritingMessageHandler handler = new HdfsWritingMessageHandler(new HdfsWriterFactory() {
+
+			@Override
+			public HdfsWriter createWriter() {
+				return new StubRollingHdfsWriter(checked);
+			}
+		});
+		handler.setRolloverCheckInterval(10);
+		handler.start();
+		assertTrue(checked.await(10, TimeUnit.SECONDS));
+		handler.stop();
+	}
+
+	private static class StubRollingHdfsWriter extends StubHdfsWriter implements RollingHdfsWriter {
+
+		private final CountDownLatch checked;
+
+		private StubRollingHdfsWriter(CountDownLatch checked) {
+			this.checked = checked;
+		}
+
+		@Override
+		public boolean isTimedRolloverEnabled() {
+			return true;
+		}
+
+		@Override
+		public void rollIfDue() {
+			checked.countDown();
+		}
+	}
+
+	private static class StubHdfsWriter implements HdfsWriter {
+
+		private final List<Message<?>> written = new CopyOnWriteArrayList<Message<?>>();
+
+		private final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+
+		private volatile CountDownLatch block;
+
+		private volatile boolean fail;
+
+		private volatile boolean closed;
+
+		@Override
+		public void write(Message<?> message) throws IOException {
+			if (fail) {
+				throw new IOException("test");
+			}
+			if (block != null) {
+				try {
+					block.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			written.add(message);
+			threads.add(Thread.currentThread());
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+
+}
@@ -16,21 +16,40 @@
 
 package org.springframework.integration.x.http;
 
+import static org.jboss.netty.handler.codec.http.HttpHeaders.is100ContinueExpected;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.isKeepAlive;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONNECTION;
 import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONTENT_LENGTH;
+import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
+import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.RETRY_AFTER;
+import static org.jboss.netty.handler.codec.http.HttpResponseStatus.CONTINUE;
+import static org.jboss.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
 import static org.jboss.netty.handler.codec.http.HttpResponseStatus.OK;
+import static org.jboss.netty.handler.codec.http.HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE;
+import static org.jboss.netty.handler.codec.http.HttpResponseStatus.SERVICE_UNAVAILABLE;
 import static org.jboss.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
 import java.net.InetSocketAddress;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.netty.bootstrap.ServerBootstrap;
 import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferIndexFinder;
+import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
@@ -38,50 +57,198 @@ import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.ChannelPipelineFactory;
 import org.jboss.netty.channel.DefaultChannelPipeline;
+import org.jboss.netty.channel.ExceptionEvent;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.handler.codec.frame.TooLongFrameException;
 import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
+import org.jboss.netty.handler.codec.http.HttpChunk;
 import org.jboss.netty.handler.codec.http.HttpChunkAggregator;
-import org.jboss.netty.handler.codec.http.HttpContentCompressor;
 import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
 import org.jboss.netty.handler.codec.http.HttpResponse;
 import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 
 import org.springframework.http.MediaType;
+import org.springframework.integration.Message;
 import org.springframework.integration.MessageHeaders;
 import org.springframework.integration.endpoint.MessageProducerSupport;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
 
 /**
+ * Receives HTTP requests on a Netty server and sends their content as messages.
+ * 
+ * The I/O threads only decode requests: messages are sent by a separate pool of processing threads, taking them from
+ * a bounded queue. When the queue is full, requests are answered with the rejection status, 503 by default, and a
+ * {@code Retry-After} header, so that clients back off instead of stalling the server. The requests of a connection
+ * are processed, and answered, in the order they were received, as HTTP pipelining requires.
+ * 
+ * The payload of a message is a String for textual content types, and for requests without a content type, and a
+ * byte array otherwise. In streaming mode, the body of a request is not aggregated: each of its lines is sent as a
+ * message as soon as it is received, and reading from a connection is suspended while its lines fill the queue.
+ * 
  * @author Mark Fisher
  */
 public class NettyHttpInboundChannelAdapter extends MessageProducerSupport {
 
+	private static final HttpResponseStatus TOO_MANY_REQUESTS = new HttpResponseStatus(429, "Too Many Requests");
+
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
 	private final int port;
 
+	private volatile int ioThreads;
+
+	private volatile int processingThreads;
+
+	private volatile int queueCapacity = 1000;
+
+	private volatile HttpResponseStatus rejectionStatus = SERVICE_UNAVAILABLE;
+
+	private volatile int retryAfter = 1;
+
+	private volatile boolean respondAfterSend = true;
+
+	private volatile int maxContentLength = 1024 * 1024;
+
+	private volatile boolean streaming;
+
+	/**
+	 * The messages created but not yet picked up by a processing thread.
+	 */
+	private final AtomicInteger queuedMessages = new AtomicInteger();
+
 	private volatile ServerBootstrap bootstrap;
 
+	private volatile Channel serverChannel;
+
+	private volatile ExecutorService processingExecutor;
+
 	public NettyHttpInboundChannelAdapter(int port) {
 		this.port = port;
 	}
 
+	/**
+	 * The number of threads decoding requests and writing responses. Defaults to twice the number of processors.
+	 */
+	public void setIoThreads(int ioThreads) {
+		this.ioThreads = ioThreads;
+	}
+
+	/**
+	 * The number of threads sending the messages. Defaults to the number of processors.
+	 */
+	public void setProcessingThreads(int processingThreads) {
+		this.processingThreads = processingThreads;
+	}
+
+	/**
+	 * The number of messages that may wait for a processing thread before further requests are rejected. Defaults to
+	 * 1000.
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		Assert.isTrue(queueCapacity >= 0, "queueCapacity must not be negative");
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * The status of the response to a request that is rejected because the queue is full, 503 (Service Unavailable)
+	 * or 429 (Too Many Requests). Defaults to 503.
+	 */
+	public void setRejectionStatus(int rejectionStatus) {
+		Assert.isTrue(rejectionStatus == 429 || rejectionStatus == 503, "rejectionStatus must be 429 or 503");
+		this.rejectionStatus = (rejectionStatus == 429) ? TOO_MANY_REQUESTS : SERVICE_UNAVAILABLE;
+	}
+
+	/**
+	 * The number of seconds a rejected client is asked to wait before it retries. Defaults to 1.
+	 */
+	public void setRetryAfter(int retryAfter) {
+		Assert.isTrue(retryAfter >= 0, "retryAfter must not be negative");
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * Whether to answer a request only once its messages have been sent, with a 500 status if sending failed.
+	 * Otherwise requests are answered as soon as they are queued. Defaults to true.
+	 */
+	public void setRespondAfterSend(boolean respondAfterSend) {
+		this.respondAfterSend = respondAfterSend;
+	}
+
+	/**
+	 * The largest request body, or line of a body in streaming mode, in bytes. Larger ones are answered with a 413
+	 * status and the connection is closed. Defaults to 1 MB.
+	 */
+	public void setMaxContentLength(int maxContentLength) {
+		Assert.isTrue(maxContentLength > 0, "maxContentLength must be positive");
+		this.maxContentLength = maxContentLength;
+	}
+
+	/**
+	 * Whether to send each line of a request body as a message as it is received, rather than the whole body once it
+	 * has been aggregated. Defaults to false.
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
 	@Override
 	protected void doStart() {
-		bootstrap = new ServerBootstrap(new NioServerSocketChannelFactory(Executors.newCachedThreadPool(),
-				Executors.newCachedThreadPool()));
+		int processors = Runtime.getRuntime().availableProcessors();
+		int processing = (this.processingThreads > 0) ? this.processingThreads : processors;
+		processingExecutor = new ThreadPoolExecutor(processing, processing, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new CustomizableThreadFactory("http-" + this.port + "-"));
+		bootstrap = new ServerBootstrap(new NioServerSocketChannelFactory(
+				Executors.newCachedThreadPool(new CustomizableThreadFactory("http-boss-" + this.port + "-")), 1,
+				Executors.newCachedThreadPool(new CustomizableThreadFactory("http-io-" + this.port + "-")),
+				(this.ioThreads > 0) ? this.ioThreads : processors * 2));
 		bootstrap.setOption("child.tcpNoDelay", true);
 		bootstrap.setPipelineFactory(new PipelineFactory());
-		bootstrap.bind(new InetSocketAddress(this.port));
+		serverChannel = bootstrap.bind(new InetSocketAddress(this.port));
 	}
 
 	@Override
 	protected void doStop() {
+		if (serverChannel != null) {
+			serverChannel.close().awaitUninterruptibly();
+		}
 		if (bootstrap != null) {
 			bootstrap.shutdown();
 		}
+		if (processingExecutor != null) {
+			processingExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * Return the charset to decode a body of the given content type with, or null if the body is binary.
+	 */
+	static Charset getCharset(String contentType) {
+		if (contentType == null) {
+			// ISO-8859-1 is the default http charset when not set
+			return ISO_8859_1;
+		}
+		MediaType mediaType = MediaType.parseMediaType(contentType);
+		if (mediaType.getCharSet() != null) {
+			return mediaType.getCharSet();
+		}
+		String subtype = mediaType.getSubtype();
+		if (mediaType.getType().equals("text") || subtype.equals("x-www-form-urlencoded")) {
+			return ISO_8859_1;
+		}
+		if (subtype.equals("json") || subtype.endsWith("+json") || subtype.equals("x-ndjson")
+				|| subtype.equals("xml") || subtype.endsWith("+xml") || subtype.equals("javascript")) {
+			return UTF_8;
+		}
+		return null;
 	}
 
 	private class PipelineFactory implements ChannelPipelineFactory {
@@ -89,10 +256,13 @@ public class NettyHttpInboundChannelAdapter extends MessageProducerSupport {
 		@Override
 		public ChannelPipeline getPipeline() throws Exception {
 			ChannelPipeline pipeline = new DefaultChannelPipeline();
-			pipeline.addLast("decoder", new HttpRequestDecoder());
-			pipeline.addLast("aggregator", new HttpChunkAggregator(1024 * 1024));
+			// larger chunks than the default 8 KB, for fewer events per streamed body
+			pipeline.addLast("decoder", new HttpRequestDecoder(4096, 8192, 65536));
+			if (!streaming) {
+				pipeline.addLast("aggregator", new HttpChunkAggregator(maxContentLength));
+			}
+			// responses have no body, so they are not compressed
 			pipeline.addLast("encoder", new HttpResponseEncoder());
-			pipeline.addLast("compressor", new HttpContentCompressor());
 			pipeline.addLast("handler", new Handler());
 			return pipeline;
 		}
@@ -102,42 +272,357 @@ public class NettyHttpInboundChannelAdapter extends MessageProducerSupport {
 
 		@Override
 		public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
-			HttpRequest request = (HttpRequest) e.getMessage();
+			Channel channel = e.getChannel();
+			Connection connection = (Connection) ctx.getAttachment();
+			if (connection == null) {
+				connection = new Connection();
+				ctx.setAttachment(connection);
+			}
+			if (e.getMessage() instanceof HttpChunk) {
+				receiveChunk(connection, (HttpChunk) e.getMessage(), channel);
+			}
+			else if (streaming) {
+				startStream(connection, (HttpRequest) e.getMessage(), channel);
+			}
+			else {
+				receive(connection, (HttpRequest) e.getMessage(), channel);
+			}
+		}
+
+		@Override
+		public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
+			Channel channel = e.getChannel();
+			if (e.getCause() instanceof TooLongFrameException && channel.isConnected()) {
+				channel.write(new DefaultHttpResponse(HTTP_1_1, REQUEST_ENTITY_TOO_LARGE)).addListener(
+						ChannelFutureListener.CLOSE);
+			}
+			else {
+				logger.debug("closing HTTP connection after an error", e.getCause());
+				channel.close();
+			}
+		}
+
+		private void receive(Connection connection, HttpRequest request, Channel channel) {
 			ChannelBuffer content = request.getContent();
-			Charset charsetToUse = null;
-			if (content.readable()) {
-				Map<String, String> messageHeaders = new HashMap<String, String>();
-				for (Entry<String, String> entry : request.getHeaders()) {
-					if (entry.getKey().equalsIgnoreCase("Content-Type")) {
-						charsetToUse = MediaType.parseMediaType(entry.getValue()).getCharSet();
-						messageHeaders.put(MessageHeaders.CONTENT_TYPE, entry.getValue());
-					}
-					else if (!entry.getKey().toUpperCase().startsWith("ACCEPT")
-							&& !entry.getKey().toUpperCase().equals("CONNECTION")) {
-						messageHeaders.put(entry.getKey(), entry.getValue());
+			if (!content.readable()) {
+				respond(connection, new Exchange(request, channel), OK);
+			}
+			else if (content.readableBytes() > maxContentLength) {
+				// the aggregator only limits chunked bodies
+				respond(connection, new Exchange(request, channel), REQUEST_ENTITY_TOO_LARGE);
+			}
+			else if (queuedMessages.incrementAndGet() > queueCapacity) {
+				queuedMessages.decrementAndGet();
+				respond(connection, new Exchange(request, channel), rejectionStatus);
+			}
+			else {
+				Map<String, Object> headers = getHeaders(request);
+				Message<?> message = toMessage(content, getCharset(request.getHeader(CONTENT_TYPE)), headers);
+				List<Message<?>> messages = Collections.<Message<?>> singletonList(message);
+				if (respondAfterSend) {
+					connection.execute(new Send(messages, new Exchange(request, channel), true));
+				}
+				else {
+					connection.execute(new Send(messages, null, false));
+					writeResponse(request, channel, OK);
+				}
+			}
+		}
+
+		private void startStream(Connection connection, HttpRequest request, Channel channel) {
+			Exchange exchange = new Exchange(request, channel);
+			if (queuedMessages.get() >= queueCapacity) {
+				respond(connection, exchange, rejectionStatus);
+				connection.discarding = request.isChunked();
+				return;
+			}
+			if (is100ContinueExpected(request)) {
+				channel.write(new DefaultHttpResponse(HTTP_1_1, CONTINUE));
+			}
+			connection.stream = new Stream(exchange, getCharset(request.getHeader(CONTENT_TYPE)),
+					getHeaders(request));
+			receiveLines(connection, request.getContent(), !request.isChunked(), channel);
+		}
+
+		private void receiveChunk(Connection connection, HttpChunk chunk, Channel channel) {
+			if (connection.discarding) {
+				connection.discarding = !chunk.isLast();
+			}
+			else if (connection.stream != null) {
+				receiveLines(connection, chunk.getContent(), chunk.isLast(), channel);
+			}
+		}
+
+		private void receiveLines(Connection connection, ChannelBuffer content, boolean last, Channel channel) {
+			Stream stream = connection.stream;
+			List<Message<?>> messages = stream.split(content, last);
+			if (messages == null) {
+				connection.stream = null;
+				channel.write(new DefaultHttpResponse(HTTP_1_1, REQUEST_ENTITY_TOO_LARGE)).addListener(
+						ChannelFutureListener.CLOSE);
+				return;
+			}
+			if (last) {
+				connection.stream = null;
+			}
+			queuedMessages.addAndGet(messages.size());
+			if (last && !respondAfterSend) {
+				if (!messages.isEmpty()) {
+					connection.execute(new Send(messages, null, false));
+				}
+				writeResponse(stream.exchange.request, channel, OK);
+			}
+			else if (!messages.isEmpty() || last) {
+				connection.execute(new Send(messages, stream.exchange, last));
+			}
+			if (queuedMessages.get() > queueCapacity) {
+				connection.suspendWhileBusy(channel);
+			}
+		}
+
+		private Map<String, Object> getHeaders(HttpRequest request) {
+			Map<String, Object> messageHeaders = new HashMap<String, Object>();
+			for (Entry<String, String> entry : request.getHeaders()) {
+				String name = entry.getKey();
+				if (name.equalsIgnoreCase(CONTENT_TYPE)) {
+					messageHeaders.put(MessageHeaders.CONTENT_TYPE, entry.getValue());
+				}
+				else if (!name.regionMatches(true, 0, "Accept", 0, 6) && !name.equalsIgnoreCase(CONNECTION)) {
+					messageHeaders.put(name, entry.getValue());
+				}
+			}
+			messageHeaders.put("requestPath", request.getUri());
+			messageHeaders.put("requestMethod", request.getMethod().toString());
+			return messageHeaders;
+		}
+
+		/**
+		 * Write the response right away, unless responses to earlier requests of the connection are still pending on
+		 * the processing threads, in which case it is written after them.
+		 */
+		private void respond(Connection connection, final Exchange exchange, final HttpResponseStatus status) {
+			boolean queued = respondAfterSend && connection.executeIfBusy(new Runnable() {
+
+				@Override
+				public void run() {
+					writeResponse(exchange.request, exchange.channel, status);
+				}
+			});
+			if (!queued) {
+				writeResponse(exchange.request, exchange.channel, status);
+			}
+		}
+	}
+
+	private static Message<?> toMessage(ChannelBuffer content, Charset charset, Map<String, Object> headers) {
+		Object payload;
+		if (charset != null) {
+			payload = content.toString(charset);
+		}
+		else {
+			byte[] bytes = new byte[content.readableBytes()];
+			content.getBytes(content.readerIndex(), bytes);
+			payload = bytes;
+		}
+		return MessageBuilder.withPayload(payload).copyHeaders(headers).build();
+	}
+
+	/**
+	 * A request to answer, with the status of sending its messages.
+	 */
+	private static class Exchange {
+
+		private final HttpRequest request;
+
+		private final Channel channel;
+
+		private volatile HttpResponseStatus status = OK;
+
+		Exchange(HttpRequest request, Channel channel) {
+			this.request = request;
+			this.channel = channel;
+		}
+	}
+
+	/**
+	 * The body of a request being streamed, split into lines as its chunks are received.
+	 */
+	private class Stream {
+
+		private final Exchange exchange;
+
+		private final Charset charset;
+
+		private final Map<String, Object> headers;
+
+		/**
+		 * The start of a line whose end has not been received yet.
+		 */
+		private ChannelBuffer partial = ChannelBuffers.EMPTY_BUFFER;
+
+		Stream(Exchange exchange, Charset charset, Map<String, Object> headers) {
+			this.exchange = exchange;
+			this.charset = charset;
+			this.headers = headers;
+		}
+
+		/**
+		 * Return the messages for the lines completed by the content, or null if a line is longer than the maximum
+		 * content length.
+		 */
+		List<Message<?>> split(ChannelBuffer content, boolean last) {
+			ChannelBuffer buffer = partial.readable() ? ChannelBuffers.wrappedBuffer(partial, content) : content;
+			List<Message<?>> messages = new ArrayList<Message<?>>();
+			int length;
+			while ((length = buffer.bytesBefore(ChannelBufferIndexFinder.LF)) >= 0) {
+				addLine(buffer.readSlice(length), messages);
+				buffer.skipBytes(1);
+			}
+			if (buffer.readableBytes() > maxContentLength) {
+				return null;
+			}
+			if (last) {
+				addLine(buffer, messages);
+				partial = ChannelBuffers.EMPTY_BUFFER;
+			}
+			else {
+				partial = ChannelBuffers.copiedBuffer(buffer);
+			}
+			return messages;
+		}
+
+		private void addLine(ChannelBuffer line, List<Message<?>> messages) {
+			int length = line.readableBytes();
+			if (length > 0 && line.getByte(line.readerIndex() + length - 1) == '\r') {
+				line = line.slice(line.readerIndex(), length - 1);
+			}
+			if (line.readable()) {
+				messages.add(toMessage(line, charset, headers));
+			}
+		}
+	}
+
+	/**
+	 * Send messages, then answer their request if they are the last ones for it and it was not answered already.
+	 */
+	private class Send implements Runnable {
+
+		private final List<Message<?>> messages;
+
+		private final Exchange exchange;
+
+		private final boolean last;
+
+		Send(List<Message<?>> messages, Exchange exchange, boolean last) {
+			this.messages = messages;
+			this.exchange = exchange;
+			this.last = last;
+		}
+
+		@Override
+		public void run() {
+			queuedMessages.addAndGet(-messages.size());
+			for (Message<?> message : messages) {
+				try {
+					sendMessage(message);
+				}
+				catch (RuntimeException e) {
+					logger.error("failed to send message for request " + message.getHeaders().get("requestPath"), e);
+					if (exchange != null) {
+						exchange.status = INTERNAL_SERVER_ERROR;
 					}
 				}
-				// ISO-8859-1 is the default http charset when not set
-				charsetToUse = charsetToUse == null ? Charset.forName("ISO-8859-1") : charsetToUse;
-				messageHeaders.put("requestPath", request.getUri());
-				messageHeaders.put("requestMethod", request.getMethod().toString());
-				sendMessage(MessageBuilder.withPayload(content.toString(charsetToUse)).copyHeaders(messageHeaders).build());
 			}
-			writeResponse(request, e.getChannel());
+			if (last) {
+				writeResponse(exchange.request, exchange.channel, exchange.status);
+			}
 		}
+	}
+
+	/**
+	 * Runs the tasks of a connection one after the other on the processing threads, in the order they were received.
+	 * The fields that track the request being received are only used by the I/O thread of the connection.
+	 */
+	private class Connection implements Runnable {
+
+		private final Queue<Runnable> tasks = new LinkedList<Runnable>();
+
+		private boolean scheduled;
+
+		private Channel suspended;
+
+		private Stream stream;
 
-		private void writeResponse(HttpRequest request, Channel channel) {
-			boolean keepAlive = isKeepAlive(request);
-			HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
-			if (keepAlive) {
-				response.setHeader(CONTENT_LENGTH, response.getContent().readableBytes());
-				response.setHeader(CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+		private boolean discarding;
+
+		void execute(Runnable task) {
+			synchronized (this) {
+				tasks.add(task);
+				if (scheduled) {
+					return;
+				}
+				scheduled = true;
+			}
+			processingExecutor.execute(this);
+		}
+
+		/**
+		 * Queue the task behind those already waiting, if any.
+		 * 
+		 * @return false if the connection had no task, and the task was not queued
+		 */
+		synchronized boolean executeIfBusy(Runnable task) {
+			if (!scheduled) {
+				return false;
 			}
-			ChannelFuture future = channel.write(response);
-			if (!keepAlive) {
-				future.addListener(ChannelFutureListener.CLOSE);
+			tasks.add(task);
+			return true;
+		}
+
+		/**
+		 * Stop reading from the channel until the tasks of the connection have run.
+		 */
+		synchronized void suspendWhileBusy(Channel channel) {
+			if (scheduled && suspended == null) {
+				suspended = channel;
+				channel.setReadable(false);
+			}
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Runnable task;
+				synchronized (this) {
+					task = tasks.poll();
+					if (task == null) {
+						scheduled = false;
+						if (suspended != null) {
+							suspended.setReadable(true);
+							suspended = null;
+						}
+						return;
+					}
+				}
+				task.run();
 			}
 		}
 	}
 
+	private void writeResponse(HttpRequest request, Channel channel, HttpResponseStatus status) {
+		boolean keepAlive = isKeepAlive(request);
+		HttpResponse response = new DefaultHttpResponse(HTTP_1_1, status);
+		if (status.getCode() == 429 || status.getCode() == 503) {
+			response.setHeader(RETRY_AFTER, retryAfter);
+		}
+		if (keepAlive) {
+			response.setHeader(CONTENT_LENGTH, response.getContent().readableBytes());
+			response.setHeader(CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+		}
+		ChannelFuture future = channel.write(response);
+		if (!keepAlive) {
+			future.addListener(ChannelFutureListener.CLOSE);
+		}
+	}
+
 }
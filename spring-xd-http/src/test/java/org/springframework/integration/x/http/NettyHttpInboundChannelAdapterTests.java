@@ -16,13 +16,23 @@
 
 package org.springframework.integration.x.http;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
@@ -38,6 +48,8 @@ import org.springframework.integration.MessagingException;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.core.MessageHandler;
 import org.springframework.integration.test.util.SocketUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
 
 /**
@@ -114,4 +126,189 @@ public class NettyHttpInboundChannelAdapterTests {
 		assertEquals(MediaType.TEXT_PLAIN_VALUE, message.getHeaders().get(MessageHeaders.CONTENT_TYPE));
 	}
 
+	@Test
+	public void testRequestsAreRejectedWhenTheQueueIsFull() throws Exception {
+		final CountDownLatch received = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		DirectChannel channel = new DirectChannel();
+		channel.subscribe(new MessageHandler() {
+
+			@Override
+			public void handleMessage(Message<?> message) throws MessagingException {
+				received.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		int port = SocketUtils.findAvailableServerSocket();
+		NettyHttpInboundChannelAdapter adapter = new NettyHttpInboundChannelAdapter(port);
+		adapter.setOutputChannel(channel);
+		adapter.setProcessingThreads(1);
+		adapter.setQueueCapacity(1);
+		adapter.setRetryAfter(5);
+		adapter.start();
+		final RestTemplate template = new RestTemplate();
+		final URI uri = new URI("http://localhost:" + port + "/test");
+		ExecutorService clients = Executors.newFixedThreadPool(2);
+		try {
+			Future<ResponseEntity<Object>> first = clients.submit(new Callable<ResponseEntity<Object>>() {
+
+				@Override
+				public ResponseEntity<Object> call() throws Exception {
+					return template.postForEntity(uri, "foo", Object.class);
+				}
+			});
+			assertTrue(received.await(5, TimeUnit.SECONDS));
+			Future<ResponseEntity<Object>> second = clients.submit(new Callable<ResponseEntity<Object>>() {
+
+				@Override
+				public ResponseEntity<Object> call() throws Exception {
+					return template.postForEntity(uri, "bar", Object.class);
+				}
+			});
+			// the second request waits in the queue, until it is full
+			Thread.sleep(500);
+			try {
+				template.postForEntity(uri, "baz", Object.class);
+				fail("expected HttpServerErrorException");
+			}
+			catch (HttpServerErrorException e) {
+				assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+				assertEquals("5", e.getResponseHeaders().getFirst("Retry-After"));
+			}
+			release.countDown();
+			assertEquals(HttpStatus.OK, first.get(5, TimeUnit.SECONDS).getStatusCode());
+			assertEquals(HttpStatus.OK, second.get(5, TimeUnit.SECONDS).getStatusCode());
+		}
+		finally {
+			release.countDown();
+			clients.shutdownNow();
+			adapter.stop();
+		}
+	}
+
+	@Test
+	public void testFailedSendIsAnsweredWithAnError() throws Exception {
+		DirectChannel channel = new DirectChannel();
+		channel.subscribe(new MessageHandler() {
+
+			@Override
+			public void handleMessage(Message<?> message) throws MessagingException {
+				throw new MessagingException(message, "no");
+			}
+		});
+		int port = SocketUtils.findAvailableServerSocket();
+		NettyHttpInboundChannelAdapter adapter = new NettyHttpInboundChannelAdapter(port);
+		adapter.setOutputChannel(channel);
+		adapter.start();
+		try {
+			new RestTemplate().postForEntity(new URI("http://localhost:" + port + "/test"), "foo", Object.class);
+			fail("expected HttpServerErrorException");
+		}
+		catch (HttpServerErrorException e) {
+			assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, e.getStatusCode());
+		}
+		finally {
+			adapter.stop();
+		}
+	}
+
+	@Test
+	public void testBinaryContentIsSentAsBytes() throws Exception {
+		final List<Message<?>> messages = new ArrayList<Message<?>>();
+		DirectChannel channel = new DirectChannel();
+		channel.subscribe(new MessageHandler() {
+
+			@Override
+			public void handleMessage(Message<?> message) throws MessagingException {
+				messages.add(message);
+			}
+		});
+		int port = SocketUtils.findAvailableServerSocket();
+		NettyHttpInboundChannelAdapter adapter = new NettyHttpInboundChannelAdapter(port);
+		adapter.setOutputChannel(channel);
+		adapter.start();
+		try {
+			byte[] bytes = new byte[] { 0, (byte) 0xff, (byte) 0xe9, 10, 13 };
+			HttpHeaders headers = new HttpHeaders();
+			headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+			ResponseEntity<?> response = new RestTemplate().postForEntity(new URI("http://localhost:" + port + "/test"),
+					new HttpEntity<byte[]>(bytes, headers), Object.class);
+			assertEquals(HttpStatus.OK, response.getStatusCode());
+			assertEquals(1, messages.size());
+			assertArrayEquals(bytes, (byte[]) messages.get(0).getPayload());
+		}
+		finally {
+			adapter.stop();
+		}
+	}
+
+	@Test
+	public void testStreamingSendsEachLineOfAChunkedBody() throws Exception {
+		final List<Message<?>> messages = new ArrayList<Message<?>>();
+		DirectChannel channel = new DirectChannel();
+		channel.subscribe(new MessageHandler() {
+
+			@Override
+			public void handleMessage(Message<?> message) throws MessagingException {
+				messages.add(message);
+			}
+		});
+		int port = SocketUtils.findAvailableServerSocket();
+		NettyHttpInboundChannelAdapter adapter = new NettyHttpInboundChannelAdapter(port);
+		adapter.setOutputChannel(channel);
+		adapter.setStreaming(true);
+		adapter.start();
+		Socket socket = new Socket("localhost", port);
+		try {
+			OutputStream out = socket.getOutputStream();
+			// two pipelined requests, the first one with a line split across its chunks
+			out.write(("POST /events HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/x-ndjson\r\n"
+					+ "Transfer-Encoding: chunked\r\n\r\n" + "e\r\n{\"a\":1}\r\n{\"b\":\r\n" + "4\r\n2}\n\n\r\n"
+					+ "6\r\n{\"c\":3\r\n" + "1\r\n}\r\n" + "0\r\n\r\n").getBytes("UTF-8"));
+			out.write(("POST /more HTTP/1.1\r\nHost: localhost\r\nContent-Length: 4\r\n\r\nd\ne\n").getBytes("UTF-8"));
+			out.flush();
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+			assertEquals("HTTP/1.1 200 OK", in.readLine());
+			while (!in.readLine().isEmpty()) {
+			}
+			assertEquals("HTTP/1.1 200 OK", in.readLine());
+		}
+		finally {
+			socket.close();
+			adapter.stop();
+		}
+		assertEquals(5, messages.size());
+		assertEquals("{\"a\":1}", messages.get(0).getPayload());
+		assertEquals("{\"b\":2}", messages.get(1).getPayload());
+		assertEquals("{\"c\":3}", messages.get(2).getPayload());
+		assertEquals("application/x-ndjson", messages.get(2).getHeaders().get(MessageHeaders.CONTENT_TYPE));
+		assertEquals("/events", messages.get(2).getHeaders().get("requestPath"));
+		assertEquals("d", messages.get(3).getPayload());
+		assertEquals("/more", messages.get(4).getHeaders().get("requestPath"));
+	}
+
+	@Test
+	public void testContentOverTheMaximumLengthIsRejected() throws Exception {
+		int port = SocketUtils.findAvailableServerSocket();
+		NettyHttpInboundChannelAdapter adapter = new NettyHttpInboundChannelAdapter(port);
+		adapter.setOutputChannel(new DirectChannel());
+		adapter.setMaxContentLength(4);
+		adapter.start();
+		try {
+			new RestTemplate().postForEntity(new URI("http://localhost:" + port + "/test"), "hello", Object.class);
+			fail("expected HttpClientErrorException");
+		}
+		catch (HttpClientErrorException e) {
+			assertEquals(HttpStatus.REQUEST_ENTITY_TOO_LARGE, e.getStatusCode());
+		}
+		finally {
+			adapter.stop();
+		}
+	}
+
 }
@@ -0,0 +1,435 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.jdbc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+import javax.sql.DataSource;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
+import org.springframework.integration.MessageHandlingException;
+import org.springframework.integration.context.IntegrationContextUtils;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.integration.message.ErrorMessage;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Inserts message payloads into a table, in JDBC batches.
+ *
+ * Rows are collected until {@link #setBatchSize(int) batchSize} of them are pending, or the oldest has waited for
+ * {@link #setBatchTimeout(long) batchTimeout} milliseconds, and then inserted with a single {@code executeBatch} in one
+ * transaction. Column values are extracted the same way as {@link JdbcMessagePayloadTransformer} does: with a single
+ * 'payload' column the whole payload is inserted, otherwise the payload is read as a JSON object (or used as a
+ * {@link Map}) and each column takes the value of the field of the same name, or of its camel case form if the column
+ * name contains underscores. JSON payloads are read with a streaming parser that only materializes the configured
+ * fields.
+ *
+ * When a batch fails, its transaction is rolled back and its rows are inserted one at a time instead, so that only the
+ * rows that cannot be inserted are lost. The senders of those rows have already returned, so each failed row is sent
+ * to the {@link #setErrorChannel(MessageChannel) error channel}, as an {@link ErrorMessage} whose failed message
+ * carries the row as an {@code Object[]}; only the sender whose message triggered the batch is still waiting, and the
+ * failure of its own row is thrown to it instead.
+ *
+ * The handler starts before, and stops after, the endpoint that feeds it, so pending rows are inserted once no more
+ * messages can arrive.
+ *
+ * @since 1.0
+ */
+public class BatchingJdbcMessageHandler extends AbstractMessageHandler implements SmartLifecycle {
+
+	private static final String PAYLOAD_COLUMN = "payload";
+
+	private final JsonFactory jsonFactory = new ObjectMapper().getFactory();
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final String tableName;
+
+	private final String[] columnNames;
+
+	private final String sql;
+
+	private final boolean wholePayload;
+
+	/**
+	 * Column indexes by the payload field name they are read from.
+	 */
+	private final Map<String, int[]> columnIndexesByField = new HashMap<String, int[]>();
+
+	private volatile int batchSize = 1000;
+
+	private volatile long batchTimeout = 1000;
+
+	private volatile boolean autoStartup = true;
+
+	private volatile int phase = Integer.MIN_VALUE;
+
+	private volatile MessageChannel errorChannel;
+
+	private volatile boolean running;
+
+	private List<Object[]> pending = new ArrayList<Object[]>();
+
+	private long firstPendingTime;
+
+	private ScheduledFuture<?> timeoutCheck;
+
+	private ThreadPoolTaskScheduler ownScheduler;
+
+	public BatchingJdbcMessageHandler(DataSource dataSource, String tableName, String columnNames) {
+		Assert.notNull(dataSource, "dataSource must not be null");
+		Assert.hasText(tableName, "tableName must not be empty");
+		Assert.hasText(columnNames, "columnNames must not be empty");
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		this.tableName = tableName;
+		this.columnNames = StringUtils.tokenizeToStringArray(columnNames, ",");
+		this.wholePayload = this.columnNames.length == 1 && PAYLOAD_COLUMN.equals(this.columnNames[0]);
+		StringBuilder columns = new StringBuilder();
+		StringBuilder values = new StringBuilder();
+		for (int i = 0; i < this.columnNames.length; i++) {
+			if (i > 0) {
+				columns.append(", ");
+				values.append(", ");
+			}
+			columns.append(this.columnNames[i]);
+			values.append("?");
+			String field = this.columnNames[i].contains("_")
+					? JdbcUtils.convertUnderscoreNameToPropertyName(this.columnNames[i]) : this.columnNames[i];
+			int[] indexes = this.columnIndexesByField.get(field);
+			int[] extended = new int[(indexes == null) ? 1 : indexes.length + 1];
+			if (indexes != null) {
+				System.arraycopy(indexes, 0, extended, 0, indexes.length);
+			}
+			extended[extended.length - 1] = i;
+			this.columnIndexesByField.put(field, extended);
+		}
+		this.sql = "insert into " + tableName + " (" + columns + ") values(" + values + ")";
+	}
+
+	/**
+	 * Set the number of rows inserted per batch (default 1000).
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "batchSize must be greater than zero");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Set the maximum time in milliseconds a row waits for its batch to fill up before the batch is inserted anyway
+	 * (default 1000). Zero disables the timeout, so rows are only inserted once a batch is full or on stop.
+	 */
+	public void setBatchTimeout(long batchTimeout) {
+		this.batchTimeout = batchTimeout;
+	}
+
+	/**
+	 * Set the channel that failures of rows whose sender has already returned are sent to. Defaults to the
+	 * 'errorChannel' bean, if there is one; otherwise such failures are only logged.
+	 */
+	public void setErrorChannel(MessageChannel errorChannel) {
+		this.errorChannel = errorChannel;
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	public String getSql() {
+		return sql;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "jdbc:batching-outbound-channel-adapter";
+	}
+
+	@Override
+	protected void handleMessageInternal(Message<?> message) throws Exception {
+		Object[] row = extractRow(message);
+		List<Object[]> batch = null;
+		synchronized (this) {
+			if (this.pending.isEmpty()) {
+				this.firstPendingTime = System.currentTimeMillis();
+			}
+			this.pending.add(row);
+			if (this.pending.size() >= this.batchSize) {
+				batch = takePending();
+			}
+		}
+		if (batch != null) {
+			RuntimeException failure = insert(batch, row);
+			if (failure != null) {
+				throw new MessageHandlingException(message, "failed to insert a row into " + this.tableName, failure);
+			}
+		}
+	}
+
+	private Object[] extractRow(Message<?> message) throws Exception {
+		Object payload = message.getPayload();
+		if (this.wholePayload) {
+			return new Object[] { payload };
+		}
+		Object[] row = new Object[this.columnNames.length];
+		if (payload instanceof Map) {
+			for (Map.Entry<String, int[]> entry : this.columnIndexesByField.entrySet()) {
+				Object value = toColumnValue(((Map<?, ?>) payload).get(entry.getKey()));
+				for (int index : entry.getValue()) {
+					row[index] = value;
+				}
+			}
+			return row;
+		}
+		if (!(payload instanceof String)) {
+			throw new MessageHandlingException(message, "expected a JSON String or Map payload, but received: "
+					+ payload.getClass());
+		}
+		JsonParser parser = this.jsonFactory.createParser((String) payload);
+		try {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new MessageHandlingException(message, "expected a JSON object payload");
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				int[] indexes = this.columnIndexesByField.get(parser.getCurrentName());
+				JsonToken token = parser.nextToken();
+				if (indexes == null) {
+					parser.skipChildren();
+					continue;
+				}
+				Object value;
+				if (token == JsonToken.VALUE_STRING) {
+					value = parser.getText();
+				}
+				else if (token == JsonToken.VALUE_NUMBER_INT) {
+					value = parser.getNumberValue();
+				}
+				else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+					value = parser.getDoubleValue();
+				}
+				else if (token == JsonToken.VALUE_NULL) {
+					value = null;
+				}
+				else {
+					value = toColumnValue(parser.readValueAs(Object.class));
+				}
+				for (int index : indexes) {
+					row[index] = value;
+				}
+			}
+		}
+		finally {
+			parser.close();
+		}
+		return row;
+	}
+
+	private Object toColumnValue(Object value) {
+		if (value != null && !(value instanceof String || value instanceof Number)) {
+			return value.toString();
+		}
+		return value;
+	}
+
+	private List<Object[]> takePending() {
+		List<Object[]> batch = this.pending;
+		this.pending = new ArrayList<Object[]>(this.batchSize);
+		return batch;
+	}
+
+	/**
+	 * Insert the rows in one batch and transaction or, if that fails, one at a time. Failures of single rows are
+	 * reported, except that of the sender's row, if given, which is returned instead.
+	 */
+	private RuntimeException insert(final List<Object[]> batch, Object[] senderRow) {
+		try {
+			this.transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+				@Override
+				protected void doInTransactionWithoutResult(TransactionStatus status) {
+					jdbcTemplate.batchUpdate(sql, batch);
+				}
+			});
+			return null;
+		}
+		catch (RuntimeException e) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("failed to insert a batch of " + batch.size() + " rows into " + this.tableName
+						+ ", inserting them one at a time", e);
+			}
+		}
+		RuntimeException senderFailure = null;
+		for (Object[] row : batch) {
+			try {
+				this.jdbcTemplate.update(this.sql, row);
+			}
+			catch (RuntimeException e) {
+				if (row == senderRow) {
+					senderFailure = e;
+				}
+				else {
+					reportFailure(new MessageHandlingException(MessageBuilder.withPayload(row).build(),
+							"failed to insert a row into " + this.tableName, e));
+				}
+			}
+		}
+		return senderFailure;
+	}
+
+	/**
+	 * Insert the pending rows now. Rows that cannot be inserted are reported to the error channel.
+	 */
+	public void flush() {
+		List<Object[]> batch;
+		synchronized (this) {
+			if (this.pending.isEmpty()) {
+				return;
+			}
+			batch = takePending();
+		}
+		insert(batch, null);
+	}
+
+	private void flushIfTimedOut() {
+		List<Object[]> batch = null;
+		synchronized (this) {
+			if (!this.pending.isEmpty() && System.currentTimeMillis() - this.firstPendingTime >= this.batchTimeout) {
+				batch = takePending();
+			}
+		}
+		if (batch != null) {
+			insert(batch, null);
+		}
+	}
+
+	private void reportFailure(MessageHandlingException e) {
+		MessageChannel channel = this.errorChannel;
+		BeanFactory beanFactory = getBeanFactory();
+		if (channel == null && beanFactory != null
+				&& beanFactory.containsBean(IntegrationContextUtils.ERROR_CHANNEL_BEAN_NAME)) {
+			channel = beanFactory.getBean(IntegrationContextUtils.ERROR_CHANNEL_BEAN_NAME, MessageChannel.class);
+		}
+		try {
+			if (channel != null && channel.send(new ErrorMessage(e), 1000)) {
+				return;
+			}
+		}
+		catch (RuntimeException sendFailure) {
+			logger.warn("failed to send to the error channel", sendFailure);
+		}
+		logger.error(e.getMessage(), e);
+	}
+
+	@Override
+	public synchronized void start() {
+		if (this.running) {
+			return;
+		}
+		if (this.batchTimeout > 0) {
+			TaskScheduler scheduler = getTaskScheduler();
+			if (scheduler == null) {
+				this.ownScheduler = new ThreadPoolTaskScheduler();
+				this.ownScheduler.setThreadNamePrefix("jdbc-batch-");
+				this.ownScheduler.afterPropertiesSet();
+				scheduler = this.ownScheduler;
+			}
+			this.timeoutCheck = scheduler.scheduleWithFixedDelay(new Runnable() {
+
+				@Override
+				public void run() {
+					flushIfTimedOut();
+				}
+			}, Math.max(this.batchTimeout / 4, 10));
+		}
+		this.running = true;
+	}
+
+	/**
+	 * Stop checking for timed out batches and insert the pending rows.
+	 */
+	@Override
+	public void stop() {
+		synchronized (this) {
+			if (!this.running) {
+				return;
+			}
+			if (this.timeoutCheck != null) {
+				this.timeoutCheck.cancel(false);
+				this.timeoutCheck = null;
+			}
+			if (this.ownScheduler != null) {
+				this.ownScheduler.shutdown();
+				this.ownScheduler = null;
+			}
+			this.running = false;
+		}
+		flush();
+	}
+
+	@Override
+	public void stop(Runnable callback) {
+		stop();
+		callback.run();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	@Override
+	public int getPhase() {
+		return this.phase;
+	}
+
+	public void setPhase(int phase) {
+		this.phase = phase;
+	}
+
+	@Override
+	public boolean isAutoStartup() {
+		return this.autoStartup;
+	}
+
+	public void setAutoStartup(boolean autoStartup) {
+		this.autoStartup = autoStartup;
+	}
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageHandlingException;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+/**
+ * Tests for {@link BatchingJdbcMessageHandler}.
+ */
+public class BatchingJdbcMessageHandlerTests {
+
+	private final EmbeddedDatabase db = new EmbeddedDatabaseBuilder().build();
+
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate(db);
+
+	@After
+	public void shutDown() {
+		db.shutdown();
+	}
+
+	@Test
+	public void testInsertsWhenBatchIsFull() {
+		jdbcTemplate.execute("create table test (payload varchar(100))");
+		BatchingJdbcMessageHandler handler = new BatchingJdbcMessageHandler(db, "test", "payload");
+		handler.setBatchSize(3);
+		handler.setBatchTimeout(0);
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		handler.handleMessage(MessageBuilder.withPayload("bar").build());
+		assertEquals(0, count());
+		handler.handleMessage(MessageBuilder.withPayload("baz").build());
+		assertEquals(3, count());
+		handler.handleMessage(MessageBuilder.withPayload("qux").build());
+		assertEquals(3, count());
+		handler.stop();
+		assertEquals(4, count());
+	}
+
+	@Test
+	public void testInsertsAfterBatchTimeout() throws Exception {
+		jdbcTemplate.execute("create table test (payload varchar(100))");
+		BatchingJdbcMessageHandler handler = new BatchingJdbcMessageHandler(db, "test", "payload");
+		handler.setBatchTimeout(50);
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		long deadline = System.currentTimeMillis() + 10000;
+		while (count() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, count());
+		handler.stop();
+	}
+
+	@Test
+	public void testJsonColumns() {
+		jdbcTemplate.execute("create table test (name varchar(100), age integer, first_name varchar(100))");
+		BatchingJdbcMessageHandler handler = new BatchingJdbcMessageHandler(db, "test", "name,age,first_name");
+		assertEquals("insert into test (name, age, first_name) values(?, ?, ?)", handler.getSql());
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload(
+				"{\"ignored\": {\"a\": [1, 2]}, \"age\": 42, \"name\": \"Smith\", \"firstName\": \"John\"}").build());
+		handler.handleMessage(MessageBuilder.withPayload("{\"name\": \"Doe\"}").build());
+		handler.stop();
+		Map<String, Object> row = jdbcTemplate.queryForMap("select * from test where name = 'Smith'");
+		assertEquals(42, ((Number) row.get("AGE")).intValue());
+		assertEquals("John", row.get("FIRST_NAME"));
+		row = jdbcTemplate.queryForMap("select * from test where name = 'Doe'");
+		assertEquals(null, row.get("AGE"));
+	}
+
+	@Test
+	public void testMapPayload() {
+		jdbcTemplate.execute("create table test (name varchar(100), age integer)");
+		BatchingJdbcMessageHandler handler = new BatchingJdbcMessageHandler(db, "test", "name,age");
+		handler.start();
+		Map<String, Object> payload = new HashMap<String, Object>();
+		payload.put("name", "Smith");
+		payload.put("age", 42);
+		handler.handleMessage(MessageBuilder.withPayload(payload).build());
+		handler.stop();
+		assertEquals(42, jdbcTemplate.queryForInt("select age from test where name = 'Smith'"));
+	}
+
+	@Test
+	public void testFailedRowOfSenderIsReportedToSender() {
+		jdbcTemplate.execute("create table test (payload varchar(100) primary key)");
+		BatchingJdbcMessageHandler handler = new BatchingJdbcMessageHandler(db, "test", "payload");
+		QueueChannel errorChannel = new QueueChannel();
+		handler.setErrorChannel(errorChannel);
+		handler.setBatchSize(2);
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		try {
+			handler.handleMessage(MessageBuilder.withPayload("foo").build());
+			fail("Expected MessageHandlingException");
+		}
+		catch (MessageHandlingException e) {
+			assertTrue(e.getMessage().contains("failed to insert a row"));
+		}
+		// the rows of the failed batch are inserted one at a time
+		assertEquals(1, count());
+		assertNull(errorChannel.receive(0));
+		handler.stop();
+	}
+
+	@Test
+	public void testFailedRowOfWaitingSenderIsSentToErrorChannel() {
+		jdbcTemplate.execute("create table test (payload varchar(100) primary key)");
+		BatchingJdbcMessageHandler handler = new BatchingJdbcMessageHandler(db, "test", "payload");
+		QueueChannel errorChannel = new QueueChannel();
+		handler.setErrorChannel(errorChannel);
+		handler.setBatchSize(3);
+		handler.setBatchTimeout(0);
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		handler.handleMessage(MessageBuilder.withPayload("bar").build());
+		assertEquals(2, count());
+		Message<?> error = errorChannel.receive(0);
+		assertNotNull(error);
+		MessageHandlingException e = (MessageHandlingException) error.getPayload();
+		assertArrayEquals(new Object[] { "foo" }, (Object[]) e.getFailedMessage().getPayload());
+		assertNull(errorChannel.receive(0));
+		handler.stop();
+	}
+
+	@Test
+	public void testFailedTimedOutBatchIsSentToErrorChannel() {
+		jdbcTemplate.execute("create table test (payload varchar(100) primary key)");
+		BatchingJdbcMessageHandler handler = new BatchingJdbcMessageHandler(db, "test", "payload");
+		QueueChannel errorChannel = new QueueChannel();
+		handler.setErrorChannel(errorChannel);
+		handler.setBatchTimeout(50);
+		handler.start();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		Message<?> error = errorChannel.receive(10000);
+		assertNotNull(error);
+		MessageHandlingException e = (MessageHandlingException) error.getPayload();
+		assertTrue(e.getMessage().contains("failed to insert a row"));
+		assertArrayEquals(new Object[] { "foo" }, (Object[]) e.getFailedMessage().getPayload());
+		assertEquals(1, count());
+		handler.stop();
+	}
+
+	@Test
+	public void testStartsBeforeAndStopsAfterEndpoints() {
+		BatchingJdbcMessageHandler handler = new BatchingJdbcMessageHandler(db, "test", "payload");
+		assertTrue(handler.getPhase() < 0);
+	}
+
+	private int count() {
+		return jdbcTemplate.queryForInt("select count(*) from test");
+	}
+
+}
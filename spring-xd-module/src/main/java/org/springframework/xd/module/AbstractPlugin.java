@@ -104,6 +104,10 @@ public abstract class AbstractPlugin implements Plugin {
 		}
 	}
 
+	@Override
+	public void beforeShutdown(Module module) {
+	}
+
 	@Override
 	public void removeModule(Module module) {
 	}
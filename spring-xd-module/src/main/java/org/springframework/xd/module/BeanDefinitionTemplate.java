@@ -0,0 +1,185 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.module;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues.ValueHolder;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.ManagedArray;
+import org.springframework.beans.factory.support.ManagedList;
+import org.springframework.beans.factory.support.ManagedMap;
+import org.springframework.beans.factory.support.ManagedProperties;
+import org.springframework.beans.factory.support.ManagedSet;
+import org.springframework.beans.factory.support.SimpleBeanDefinitionRegistry;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+
+/**
+ * The bean definitions parsed from a module resource, copied into each context created for the module instead of
+ * parsing the XML again.
+ *
+ * Bean factory post processors, such as placeholder configurers, modify the definitions of the context they run in,
+ * so every context gets a deep copy: nested bean definitions, collections and string values are copied, while bean
+ * references and other immutable values are shared.
+ *
+ * @since 1.0
+ */
+class BeanDefinitionTemplate {
+
+	private final SimpleBeanDefinitionRegistry registry = new SimpleBeanDefinitionRegistry();
+
+	/**
+	 * @param classLoader the class loader to find namespace handlers and schemas with, or {@code null} for the
+	 *        default one. Bean classes are only resolved by the context the definitions are copied to.
+	 */
+	BeanDefinitionTemplate(Resource resource, ClassLoader classLoader) {
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(this.registry);
+		if (classLoader != null) {
+			reader.setResourceLoader(new DefaultResourceLoader(classLoader));
+		}
+		reader.loadBeanDefinitions(resource);
+	}
+
+	/**
+	 * Register copies of the bean definitions, with their aliases, with the given registry.
+	 */
+	void registerCopies(BeanDefinitionRegistry target) {
+		for (String name : this.registry.getBeanDefinitionNames()) {
+			target.registerBeanDefinition(name, copyBeanDefinition(this.registry.getBeanDefinition(name)));
+			for (String alias : this.registry.getAliases(name)) {
+				target.registerAlias(name, alias);
+			}
+		}
+	}
+
+	private BeanDefinition copyBeanDefinition(BeanDefinition definition) {
+		if (!(definition instanceof AbstractBeanDefinition)) {
+			return definition;
+		}
+		AbstractBeanDefinition copy = ((AbstractBeanDefinition) definition).cloneBeanDefinition();
+		MutablePropertyValues propertyValues = copy.getPropertyValues();
+		PropertyValue[] values = propertyValues.getPropertyValues();
+		for (int i = 0; i < values.length; i++) {
+			propertyValues.setPropertyValueAt(new PropertyValue(values[i], copyValue(values[i].getValue())), i);
+		}
+		// the holders were copied along with the definition, their values were not
+		for (ValueHolder holder : copy.getConstructorArgumentValues().getIndexedArgumentValues().values()) {
+			holder.setValue(copyValue(holder.getValue()));
+		}
+		for (ValueHolder holder : copy.getConstructorArgumentValues().getGenericArgumentValues()) {
+			holder.setValue(copyValue(holder.getValue()));
+		}
+		return copy;
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private Object copyValue(Object value) {
+		if (value instanceof BeanDefinitionHolder) {
+			BeanDefinitionHolder holder = (BeanDefinitionHolder) value;
+			return new BeanDefinitionHolder(copyBeanDefinition(holder.getBeanDefinition()), holder.getBeanName(),
+					holder.getAliases());
+		}
+		if (value instanceof BeanDefinition) {
+			return copyBeanDefinition((BeanDefinition) value);
+		}
+		if (value instanceof TypedStringValue) {
+			TypedStringValue original = (TypedStringValue) value;
+			TypedStringValue copy = new TypedStringValue(original.getValue());
+			if (original.hasTargetType()) {
+				copy.setTargetType(original.getTargetType());
+			}
+			else if (original.getTargetTypeName() != null) {
+				copy.setTargetTypeName(original.getTargetTypeName());
+			}
+			copy.setSource(original.getSource());
+			copy.setSpecifiedTypeName(original.getSpecifiedTypeName());
+			if (original.isDynamic()) {
+				copy.setDynamic();
+			}
+			return copy;
+		}
+		if (value instanceof ManagedArray) {
+			ManagedArray original = (ManagedArray) value;
+			ManagedArray copy = new ManagedArray(original.getElementTypeName(), original.size());
+			copyElements(original, copy);
+			copy.setMergeEnabled(original.isMergeEnabled());
+			copy.setSource(original.getSource());
+			return copy;
+		}
+		if (value instanceof ManagedList) {
+			ManagedList original = (ManagedList) value;
+			ManagedList copy = new ManagedList(original.size());
+			copyElements(original, copy);
+			copy.setElementTypeName(original.getElementTypeName());
+			copy.setMergeEnabled(original.isMergeEnabled());
+			copy.setSource(original.getSource());
+			return copy;
+		}
+		if (value instanceof ManagedSet) {
+			ManagedSet original = (ManagedSet) value;
+			ManagedSet copy = new ManagedSet(original.size());
+			for (Object element : original) {
+				copy.add(copyValue(element));
+			}
+			copy.setElementTypeName(original.getElementTypeName());
+			copy.setMergeEnabled(original.isMergeEnabled());
+			copy.setSource(original.getSource());
+			return copy;
+		}
+		if (value instanceof ManagedMap) {
+			ManagedMap<Object, Object> original = (ManagedMap<Object, Object>) value;
+			ManagedMap<Object, Object> copy = new ManagedMap<Object, Object>(original.size());
+			for (Map.Entry<Object, Object> entry : original.entrySet()) {
+				copy.put(copyValue(entry.getKey()), copyValue(entry.getValue()));
+			}
+			copy.setKeyTypeName(original.getKeyTypeName());
+			copy.setValueTypeName(original.getValueTypeName());
+			copy.setMergeEnabled(original.isMergeEnabled());
+			copy.setSource(original.getSource());
+			return copy;
+		}
+		if (value instanceof ManagedProperties) {
+			ManagedProperties original = (ManagedProperties) value;
+			ManagedProperties copy = new ManagedProperties();
+			for (Map.Entry<Object, Object> entry : original.entrySet()) {
+				copy.put(copyValue(entry.getKey()), copyValue(entry.getValue()));
+			}
+			copy.setMergeEnabled(original.isMergeEnabled());
+			copy.setSource(original.getSource());
+			return copy;
+		}
+		// strings, bean references and other values that post processors replace rather than modify
+		return value;
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void copyElements(List original, List copy) {
+		for (Object element : original) {
+			copy.add(copyValue(element));
+		}
+	}
+
+}
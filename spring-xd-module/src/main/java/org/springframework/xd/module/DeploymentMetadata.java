@@ -18,6 +18,8 @@ public class DeploymentMetadata {
 
 	private final int index;
 
+	private final int indexOffset;
+
 	private final String sourceChannelName;
 
 	private final String sinkChannelName;
@@ -29,9 +31,19 @@ public class DeploymentMetadata {
 	}
 
 	public DeploymentMetadata(String group, int index, String sourceChannelName, String sinkChannelName) {
+		this(group, index, 0, sourceChannelName, sinkChannelName);
+	}
+
+	/**
+	 * Create the metadata of a module whose index was shifted by the given offset, so that it can run next to another
+	 * instance of the module while being bound to the same channels, which are named after the unshifted index.
+	 */
+	public DeploymentMetadata(String group, int index, int indexOffset, String sourceChannelName,
+			String sinkChannelName) {
 		Assert.notNull(group);
 		this.group = group;
 		this.index = index;
+		this.indexOffset = indexOffset;
 		this.sourceChannelName = sourceChannelName;
 		this.sinkChannelName = sinkChannelName;
 	}
@@ -44,6 +56,10 @@ public class DeploymentMetadata {
 		return index;
 	}
 
+	public int getIndexOffset() {
+		return indexOffset;
+	}
+
 	/**
 	 * Return whether the source end is using an aliased name.
 	 */
@@ -52,7 +68,7 @@ public class DeploymentMetadata {
 	}
 
 	public String getInputChannelName() {
-		return isAliasedInput() ? sourceChannelName : group + "." + (index - 1);
+		return isAliasedInput() ? sourceChannelName : group + "." + (index - indexOffset - 1);
 	}
 
 	/**
@@ -63,7 +79,7 @@ public class DeploymentMetadata {
 	}
 
 	public String getOutputChannelName() {
-		return isAliasedOutput() ? sinkChannelName : group + "." + index;
+		return isAliasedOutput() ? sinkChannelName : group + "." + (index - indexOffset);
 	}
 
 	public synchronized void addAttribute(String key, Object value) {
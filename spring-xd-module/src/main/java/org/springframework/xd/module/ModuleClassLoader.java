@@ -0,0 +1,162 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.module;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.Attributes.Name;
+import java.util.jar.Manifest;
+
+/**
+ * Loads the classes of a module from the jars of its definition before those of the container, so that modules can
+ * use their own versions of a library.
+ *
+ * Classes of the platform the module runs on, such as the JDK, Spring and XD itself, are always loaded by the
+ * container, as the module exchanges them with it. One loader serves every module created from the same definition,
+ * so that their classes are only defined once.
+ *
+ * @since 1.0
+ */
+class ModuleClassLoader extends ClassLoader {
+
+	/**
+	 * Packages shared with the container, which the jars of a module must not override.
+	 */
+	private static final String[] PARENT_FIRST_PACKAGES = { "java.", "javax.", "sun.", "org.springframework.",
+		"org.apache.commons.logging.", "org.aopalliance.", "org.w3c.", "org.xml." };
+
+	private final List<ModuleJar> jars;
+
+	ModuleClassLoader(List<ModuleJar> jars, ClassLoader parent) {
+		super(parent);
+		this.jars = new ArrayList<ModuleJar>(jars);
+	}
+
+	@Override
+	protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+		Class<?> loaded = findLoadedClass(name);
+		if (loaded == null) {
+			if (isParentFirst(name)) {
+				loaded = getParent().loadClass(name);
+			}
+			else {
+				try {
+					loaded = findClass(name);
+				}
+				catch (ClassNotFoundException e) {
+					loaded = getParent().loadClass(name);
+				}
+			}
+		}
+		if (resolve) {
+			resolveClass(loaded);
+		}
+		return loaded;
+	}
+
+	@Override
+	protected Class<?> findClass(String name) throws ClassNotFoundException {
+		String entryName = name.replace('.', '/') + ".class";
+		for (ModuleJar jar : this.jars) {
+			if (jar.contains(entryName)) {
+				byte[] bytes;
+				try {
+					bytes = jar.read(entryName);
+				}
+				catch (IOException e) {
+					throw new ClassNotFoundException(name, e);
+				}
+				definePackageOf(name, jar);
+				return defineClass(name, bytes, 0, bytes.length, jar.getProtectionDomain());
+			}
+		}
+		throw new ClassNotFoundException(name);
+	}
+
+	@Override
+	public URL getResource(String name) {
+		if (isParentFirst(name.replace('/', '.'))) {
+			return super.getResource(name);
+		}
+		URL url = findResource(name);
+		return (url != null) ? url : getParent().getResource(name);
+	}
+
+	@Override
+	public Enumeration<URL> getResources(String name) throws IOException {
+		List<URL> urls = new ArrayList<URL>();
+		for (ModuleJar jar : this.jars) {
+			if (jar.contains(name)) {
+				urls.add(jar.getResource(name));
+			}
+		}
+		urls.addAll(Collections.list(getParent().getResources(name)));
+		return Collections.enumeration(urls);
+	}
+
+	@Override
+	protected URL findResource(String name) {
+		for (ModuleJar jar : this.jars) {
+			if (jar.contains(name)) {
+				return jar.getResource(name);
+			}
+		}
+		return null;
+	}
+
+	private void definePackageOf(String className, ModuleJar jar) {
+		int dot = className.lastIndexOf('.');
+		if (dot < 0) {
+			return;
+		}
+		String packageName = className.substring(0, dot);
+		if (getPackage(packageName) != null) {
+			return;
+		}
+		Manifest manifest = jar.getManifest();
+		Attributes attributes = (manifest != null) ? manifest.getMainAttributes() : new Attributes();
+		try {
+			definePackage(packageName, attributes.getValue(Name.SPECIFICATION_TITLE),
+					attributes.getValue(Name.SPECIFICATION_VERSION), attributes.getValue(Name.SPECIFICATION_VENDOR),
+					attributes.getValue(Name.IMPLEMENTATION_TITLE), attributes.getValue(Name.IMPLEMENTATION_VERSION),
+					attributes.getValue(Name.IMPLEMENTATION_VENDOR), null);
+		}
+		catch (IllegalArgumentException e) {
+			// already defined
+		}
+	}
+
+	private static boolean isParentFirst(String name) {
+		for (String prefix : PARENT_FIRST_PACKAGES) {
+			if (name.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " " + this.jars;
+	}
+
+}
@@ -16,9 +16,13 @@
 
 package org.springframework.xd.module;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import org.springframework.core.io.Resource;
+import org.springframework.util.ClassUtils;
 
 /**
  * Defines a module.
@@ -36,6 +40,12 @@ public class ModuleDefinition {
 
 	private volatile Properties properties;
 
+	private volatile Resource[] classpath = new Resource[0];
+
+	private volatile ClassLoader classLoader;
+
+	private volatile BeanDefinitionTemplate beanDefinitions;
+
 	public ModuleDefinition(String name, String moduleType) {
 		this(name, moduleType, null);
 	}
@@ -66,4 +76,62 @@ public class ModuleDefinition {
 		this.properties = properties;
 	}
 
+	/**
+	 * The jars the module loads its classes from before the classpath of the container.
+	 */
+	public Resource[] getClasspath() {
+		return classpath;
+	}
+
+	public void setClasspath(Resource[] classpath) {
+		this.classpath = (classpath != null) ? classpath : new Resource[0];
+	}
+
+	/**
+	 * Return the class loader of the modules of this definition, creating it the first time, or {@code null} if the
+	 * definition has no jars of its own.
+	 */
+	ClassLoader getClassLoader() {
+		ClassLoader loader = this.classLoader;
+		if (loader == null && this.classpath.length > 0) {
+			synchronized (this) {
+				loader = this.classLoader;
+				if (loader == null) {
+					List<ModuleJar> jars = new ArrayList<ModuleJar>(this.classpath.length);
+					for (Resource jar : this.classpath) {
+						try {
+							jars.add(ModuleJar.forFile(jar.getFile()));
+						}
+						catch (IOException e) {
+							ModuleJar.release(jars);
+							throw new IllegalStateException("cannot open jar " + jar + " of module " + name, e);
+						}
+					}
+					loader = new ModuleClassLoader(jars, ClassUtils.getDefaultClassLoader());
+					ModuleJar.releaseWhenCollected(loader, jars);
+					this.classLoader = loader;
+				}
+			}
+		}
+		return loader;
+	}
+
+	/**
+	 * Return the bean definitions of the resource, parsing it the first time. A registry that caches definitions hands
+	 * out the same instance while the resource is unchanged, so that modules do not parse it again.
+	 */
+	BeanDefinitionTemplate getBeanDefinitions() {
+		BeanDefinitionTemplate template = this.beanDefinitions;
+		if (template == null) {
+			synchronized (this) {
+				template = this.beanDefinitions;
+				if (template == null) {
+					template = new BeanDefinitionTemplate(this.resource, this.getClassLoader());
+					this.beanDefinitions = template;
+				}
+			}
+		}
+		return template;
+	}
+
 }
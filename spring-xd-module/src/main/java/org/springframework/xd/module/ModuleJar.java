@@ -0,0 +1,303 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.module;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.JarURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * A jar on the classpath of modules, opened once and shared by the class loaders of every module that uses it.
+ *
+ * The current version of a jar stays open for the life of the container: the zip implementation of the JDK maps its
+ * central directory into memory rather than reading it on every lookup, and the names of its entries are indexed
+ * once, so that a class loader can tell which of its jars holds a class without searching them all. A jar that changes
+ * on disk is opened again, the modules still running from the previous version keep using it: each jar counts the
+ * class loaders using it, and the previous version is closed once all of them have been garbage collected. Collected
+ * class loaders are only noticed when a jar is next opened or released, so a superseded jar stays open until then.
+ *
+ * Resource URLs read from the jar they were found in, rather than from the file on disk, which may hold a newer
+ * version by then; they keep the {@code jar:file:...!/entry} form.
+ *
+ * @since 1.0
+ */
+class ModuleJar {
+
+	private static final Log logger = LogFactory.getLog(ModuleJar.class);
+
+	/**
+	 * The current version of each jar, by path, which also guards the use counts.
+	 */
+	private static final ConcurrentMap<String, ModuleJar> jars = new ConcurrentHashMap<String, ModuleJar>();
+
+	private static final ReferenceQueue<ClassLoader> collectedLoaders = new ReferenceQueue<ClassLoader>();
+
+	/**
+	 * Keeps the references to the live class loaders reachable, so that they are enqueued once the loaders are
+	 * collected.
+	 */
+	private static final Set<LoaderReference> loaders = Collections.synchronizedSet(new HashSet<LoaderReference>());
+
+	private final File file;
+
+	private final String version;
+
+	private final JarFile jarFile;
+
+	private final Set<String> entries;
+
+	private final ProtectionDomain protectionDomain;
+
+	private final Manifest manifest;
+
+	private final URLStreamHandler urlStreamHandler = new EntryUrlStreamHandler();
+
+	/**
+	 * The number of class loaders using this jar, and of callers of {@link #forFile(File)} about to create one.
+	 */
+	private int users;
+
+	/**
+	 * Whether a newer version of the jar has been opened, so that this one is closed when no longer used.
+	 */
+	private boolean superseded;
+
+	private ModuleJar(File file, String version) throws IOException {
+		this.file = file;
+		this.version = version;
+		this.jarFile = new JarFile(file);
+		Set<String> names = new HashSet<String>();
+		for (Enumeration<JarEntry> e = this.jarFile.entries(); e.hasMoreElements();) {
+			JarEntry entry = e.nextElement();
+			if (!entry.isDirectory()) {
+				names.add(entry.getName());
+			}
+		}
+		this.entries = Collections.unmodifiableSet(names);
+		this.protectionDomain = new ProtectionDomain(new CodeSource(file.toURI().toURL(), (Certificate[]) null), null);
+		this.manifest = this.jarFile.getManifest();
+	}
+
+	/**
+	 * Return the shared instance for the current version of the jar, opening it if needed. The jar is counted as used
+	 * until it is {@link #release(List) released}, usually once the class loader it is handed to is collected.
+	 */
+	static ModuleJar forFile(File file) throws IOException {
+		File canonical = file.getCanonicalFile();
+		String path = canonical.getPath();
+		String version = canonical.lastModified() + ":" + canonical.length();
+		synchronized (jars) {
+			releaseCollected();
+			ModuleJar jar = jars.get(path);
+			if (jar == null || !jar.version.equals(version)) {
+				ModuleJar previous = jar;
+				jar = new ModuleJar(canonical, version);
+				jars.put(path, jar);
+				if (previous != null) {
+					previous.superseded = true;
+					previous.closeIfUnused();
+				}
+			}
+			jar.users++;
+			return jar;
+		}
+	}
+
+	/**
+	 * Release the given jars, obtained from {@link #forFile(File)}, once the class loader is garbage collected.
+	 */
+	static void releaseWhenCollected(ClassLoader loader, List<ModuleJar> used) {
+		loaders.add(new LoaderReference(loader, used, collectedLoaders));
+	}
+
+	/**
+	 * Release the given jars, obtained from {@link #forFile(File)}, and those of the class loaders collected since,
+	 * closing the ones superseded by a newer version that are no longer used.
+	 */
+	static void release(List<ModuleJar> used) {
+		synchronized (jars) {
+			releaseJars(used);
+			releaseCollected();
+		}
+	}
+
+	private static void releaseCollected() {
+		Reference<? extends ClassLoader> reference;
+		while ((reference = collectedLoaders.poll()) != null) {
+			loaders.remove(reference);
+			releaseJars(((LoaderReference) reference).jars);
+		}
+	}
+
+	private static void releaseJars(List<ModuleJar> used) {
+		for (ModuleJar jar : used) {
+			jar.users--;
+			jar.closeIfUnused();
+		}
+	}
+
+	private void closeIfUnused() {
+		if (this.superseded && this.users <= 0) {
+			try {
+				this.jarFile.close();
+			}
+			catch (IOException e) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("failed to close superseded jar " + this.file, e);
+				}
+			}
+		}
+	}
+
+	boolean contains(String entryName) {
+		return this.entries.contains(entryName);
+	}
+
+	byte[] read(String entryName) throws IOException {
+		JarEntry entry = this.jarFile.getJarEntry(entryName);
+		if (entry == null) {
+			return null;
+		}
+		InputStream stream = this.jarFile.getInputStream(entry);
+		try {
+			return FileCopyUtils.copyToByteArray(stream);
+		}
+		finally {
+			stream.close();
+		}
+	}
+
+	URL getResource(String entryName) {
+		try {
+			return new URL("jar", "", -1, this.file.toURI().toURL() + "!/" + entryName, this.urlStreamHandler);
+		}
+		catch (MalformedURLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	ProtectionDomain getProtectionDomain() {
+		return this.protectionDomain;
+	}
+
+	Manifest getManifest() {
+		return this.manifest;
+	}
+
+	@Override
+	public String toString() {
+		return this.file.getPath();
+	}
+
+	/**
+	 * Opens the resource URLs of this jar on its {@link JarFile}.
+	 */
+	private class EntryUrlStreamHandler extends URLStreamHandler {
+
+		@Override
+		protected URLConnection openConnection(URL url) throws IOException {
+			return new EntryUrlConnection(url);
+		}
+	}
+
+	/**
+	 * A connection to an entry of this jar. Being a {@link JarURLConnection} lets callers such as resource pattern
+	 * resolvers search the jar; it is shared, so they must not close it.
+	 */
+	private class EntryUrlConnection extends JarURLConnection {
+
+		private JarEntry entry;
+
+		private EntryUrlConnection(URL url) throws MalformedURLException {
+			super(url);
+		}
+
+		@Override
+		public void connect() throws IOException {
+			if (!this.connected) {
+				try {
+					this.entry = jarFile.getJarEntry(getEntryName());
+				}
+				catch (IllegalStateException e) {
+					// closed since, once no longer used
+					throw new IOException("jar " + file + " has been closed", e);
+				}
+				if (this.entry == null) {
+					throw new IOException("no entry " + getEntryName() + " in " + file);
+				}
+				this.connected = true;
+			}
+		}
+
+		@Override
+		public JarFile getJarFile() throws IOException {
+			return jarFile;
+		}
+
+		@Override
+		public JarEntry getJarEntry() throws IOException {
+			connect();
+			return this.entry;
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			connect();
+			return jarFile.getInputStream(this.entry);
+		}
+	}
+
+	/**
+	 * A reference to a class loader, which holds on to the jars it uses.
+	 */
+	private static class LoaderReference extends WeakReference<ClassLoader> {
+
+		private final List<ModuleJar> jars;
+
+		private LoaderReference(ClassLoader loader, List<ModuleJar> jars, ReferenceQueue<ClassLoader> queue) {
+			super(loader, queue);
+			this.jars = jars;
+		}
+	}
+
+}
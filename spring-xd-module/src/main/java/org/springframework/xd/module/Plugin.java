@@ -39,6 +39,13 @@ public interface Plugin {
 	 */
 	void postProcessModule(Module module);
 
+	/**
+	 * Prepare a module to be stopped, e.g. by letting it handle the messages it has been sent.
+	 * 
+	 * @param module
+	 */
+	void beforeShutdown(Module module);
+
 	/**
 	 * Take any actions necessary to remove a module from the system.
 	 * 
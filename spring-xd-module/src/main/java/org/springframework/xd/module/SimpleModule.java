@@ -49,12 +49,20 @@ public class SimpleModule extends AbstractModule {
 
 	private final AtomicBoolean isRunning = new AtomicBoolean();
 
+	/**
+	 * The class loader of the jars of the module, if it has any.
+	 */
+	private volatile ClassLoader classLoader;
 
 	public SimpleModule(ModuleDefinition definition, DeploymentMetadata metadata) {
 		super(definition, metadata);
 		if (definition != null) {
+			this.classLoader = definition.getClassLoader();
+			if (this.classLoader != null) {
+				this.context.setClassLoader(this.classLoader);
+			}
 			if (definition.getResource() != null) {
-				this.addComponents(definition.getResource());
+				definition.getBeanDefinitions().registerCopies(this.context);
 			}
 			if (definition.getProperties() != null) {
 				this.addProperties(definition.getProperties());
@@ -125,7 +133,14 @@ public class SimpleModule extends AbstractModule {
 			this.context.addBeanFactoryPostProcessor(placeholderConfigurer);
 		}
 		this.context.setId(this.toString());
-		this.context.refresh();
+		// for libraries that look classes up through the context class loader, such as JDBC drivers
+		ClassLoader previous = this.switchContextClassLoader();
+		try {
+			this.context.refresh();
+		}
+		finally {
+			this.restoreContextClassLoader(previous);
+		}
 		if (logger.isInfoEnabled()) {
 			logger.info("initialized module: " + this.toString());
 		}
@@ -139,7 +154,13 @@ public class SimpleModule extends AbstractModule {
 	public void start() {
 		Assert.state(this.context != null, "An ApplicationContext is required");
 		if (this.isRunning.compareAndSet(false, true)) {
-			this.context.start();
+			ClassLoader previous = this.switchContextClassLoader();
+			try {
+				this.context.start();
+			}
+			finally {
+				this.restoreContextClassLoader(previous);
+			}
 			if (logger.isInfoEnabled()) {
 				logger.info("started module: " + this.toString());
 			}
@@ -161,4 +182,17 @@ public class SimpleModule extends AbstractModule {
 	public boolean isRunning() {
 		return isRunning.get();
 	}
+
+	private ClassLoader switchContextClassLoader() {
+		Thread thread = Thread.currentThread();
+		ClassLoader previous = thread.getContextClassLoader();
+		if (this.classLoader != null) {
+			thread.setContextClassLoader(this.classLoader);
+		}
+		return previous;
+	}
+
+	private void restoreContextClassLoader(ClassLoader previous) {
+		Thread.currentThread().setContextClassLoader(previous);
+	}
 }
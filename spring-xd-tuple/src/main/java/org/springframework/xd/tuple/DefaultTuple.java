@@ -17,6 +17,7 @@
 package org.springframework.xd.tuple;
 
 import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -522,8 +523,10 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public Date getDateWithPattern(int index, String pattern) {
-		StringToDateConverter converter = new StringToDateConverter(pattern);
-		return converter.convert(this.readAndTrim(index));
+		// a one-off format, rather than a converter with a format for each thread
+		SimpleDateFormat dateFormat = new SimpleDateFormat(pattern);
+		dateFormat.setLenient(false);
+		return StringToDateConverter.parse(this.readAndTrim(index), dateFormat);
 	}
 
 	@Override
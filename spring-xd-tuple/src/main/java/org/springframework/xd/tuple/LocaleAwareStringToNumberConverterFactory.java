@@ -27,7 +27,8 @@ import org.springframework.util.NumberUtils;
  * 
  * <p>
  * Support Number classes including Byte, Short, Integer, Float, Double, Long, BigInteger, BigDecimal. This class
- * delegates to {@link NumberUtils#parseNumber(String, Class, NumberFormat)} to perform the conversion.
+ * delegates to {@link NumberUtils#parseNumber(String, Class, NumberFormat)} to perform the conversion, with a copy of the
+ * configured {@link NumberFormat} for each thread.
  * 
  * @author Mark Pollack
  * @author Keith Donald
@@ -44,23 +45,32 @@ import org.springframework.util.NumberUtils;
  */
 public class LocaleAwareStringToNumberConverterFactory implements ConverterFactory<String, Number> {
 
-	private NumberFormat numberFormat;
+	private final NumberFormat numberFormat;
+
+	// NumberFormat is not thread safe; converters are created for each conversion, so the copies are kept here
+	private final ThreadLocal<NumberFormat> threadNumberFormat = new ThreadLocal<NumberFormat>() {
+
+		@Override
+		protected NumberFormat initialValue() {
+			return (NumberFormat) numberFormat.clone();
+		}
+	};
 
 	public LocaleAwareStringToNumberConverterFactory(NumberFormat numberFormat) {
 		this.numberFormat = numberFormat;
 	}
 
 	public <T extends Number> Converter<String, T> getConverter(Class<T> targetType) {
-		return new StringToNumber<T>(targetType, numberFormat);
+		return new StringToNumber<T>(targetType, threadNumberFormat);
 	}
 
 	private static final class StringToNumber<T extends Number> implements Converter<String, T> {
 
 		private final Class<T> targetType;
 
-		private NumberFormat numberFormat;
+		private final ThreadLocal<NumberFormat> numberFormat;
 
-		public StringToNumber(Class<T> targetType, NumberFormat numberFormat) {
+		public StringToNumber(Class<T> targetType, ThreadLocal<NumberFormat> numberFormat) {
 			this.targetType = targetType;
 			this.numberFormat = numberFormat;
 		}
@@ -69,7 +79,7 @@ public class LocaleAwareStringToNumberConverterFactory implements ConverterFacto
 			if (source.length() == 0) {
 				return null;
 			}
-			return NumberUtils.parseNumber(source, this.targetType, numberFormat);
+			return NumberUtils.parseNumber(source, this.targetType, numberFormat.get());
 		}
 	}
 
@@ -24,7 +24,8 @@ import java.util.Date;
 import org.springframework.core.convert.converter.Converter;
 
 /**
- * Converter for Strings to Date that can take into account date patterns
+ * Converter for Strings to Date that can take into account date patterns. Each thread parses with its own copy of the
+ * configured {@link DateFormat}, so that a converter can be shared by tuples used on different threads.
  * 
  * @author Mark Pollack
  * 
@@ -33,7 +34,15 @@ public class StringToDateConverter implements Converter<String, Date> {
 
 	private final static String DEFAULT_DATE_PATTERN = "yyyy-MM-dd";
 
-	private DateFormat dateFormat;
+	private final DateFormat dateFormat;
+
+	private final ThreadLocal<DateFormat> threadDateFormat = new ThreadLocal<DateFormat>() {
+
+		@Override
+		protected DateFormat initialValue() {
+			return (DateFormat) dateFormat.clone();
+		}
+	};
 
 	public StringToDateConverter() {
 		this.dateFormat = new SimpleDateFormat(DEFAULT_DATE_PATTERN);
@@ -52,6 +61,13 @@ public class StringToDateConverter implements Converter<String, Date> {
 
 	@Override
 	public Date convert(String source) {
+		return parse(source, threadDateFormat.get());
+	}
+
+	/**
+	 * Parse with a {@link DateFormat} that is not used by other threads, reporting its pattern on failure.
+	 */
+	static Date parse(String source, DateFormat dateFormat) {
 		try {
 			return dateFormat.parse(source);
 		}
@@ -43,28 +43,43 @@ public class TupleBuilder {
 
 	private List<Object> values = new ArrayList<Object>();
 
-	private FormattingConversionService formattingConversionService = new DefaultTupleConversionService();
+	private FormattingConversionService formattingConversionService;
+
+	/**
+	 * Whether the conversion service is the default one, shared by all builders, which must be copied before it is
+	 * changed.
+	 */
+	private boolean sharedConversionService;
 
 	private final static String DEFAULT_DATE_PATTERN = "yyyy-MM-dd";
 
 	private final static Locale DEFAULT_LOCALE = Locale.US;
 
+	/**
+	 * The conversion service of the builders created by {@link #tuple()}; its converters copy their formats for each
+	 * conversion, so it can be used by many threads.
+	 */
+	private static final FormattingConversionService defaultConversionService = createDefaultConversionService();
+
 	private static Converter<Tuple, String> tupleToStringConverter = new TupleToJsonStringConverter();
 
 	private static Converter<String, Tuple> stringToTupleConverter = new JsonStringToTupleConverter();
 
-	private DateFormat dateFormat = new SimpleDateFormat(DEFAULT_DATE_PATTERN);
-	{
-		dateFormat.setLenient(false);
-	}
-
 	public static TupleBuilder tuple() {
 		TupleBuilder tb = new TupleBuilder();
-		tb.setNumberFormatFromLocale(DEFAULT_LOCALE);
+		tb.formattingConversionService = defaultConversionService;
+		tb.sharedConversionService = true;
+		return tb;
+	}
+
+	private static FormattingConversionService createDefaultConversionService() {
+		FormattingConversionService conversionService = new DefaultTupleConversionService();
+		conversionService.addConverterFactory(new LocaleAwareStringToNumberConverterFactory(
+				NumberFormat.getInstance(DEFAULT_LOCALE)));
 		DateFormat dateFormat = new SimpleDateFormat(DEFAULT_DATE_PATTERN);
 		dateFormat.setLenient(false);
-		tb.setDateFormat(dateFormat);
-		return tb;
+		conversionService.addConverter(new StringToDateConverter(dateFormat));
+		return conversionService;
 	}
 
 	public Tuple of(String k1, Object v1) {
@@ -114,22 +129,45 @@ public class TupleBuilder {
 	public TupleBuilder setFormattingConversionService(FormattingConversionService formattingConversionService) {
 		Assert.notNull(formattingConversionService);
 		this.formattingConversionService = formattingConversionService;
+		this.sharedConversionService = false;
 		return this;
 	}
 
 	public TupleBuilder setNumberFormatFromLocale(Locale locale) {
 		Assert.notNull(locale);
-		formattingConversionService.addConverterFactory(new LocaleAwareStringToNumberConverterFactory(NumberFormat
-				.getInstance(locale)));
+		getModifiableConversionService().addConverterFactory(new LocaleAwareStringToNumberConverterFactory(
+				NumberFormat.getInstance(locale)));
 		return this;
 	}
 
 	public TupleBuilder setDateFormat(DateFormat dateFormat) {
 		Assert.notNull(dateFormat);
-		formattingConversionService.addConverter(new StringToDateConverter(dateFormat));
+		getModifiableConversionService().addConverter(new StringToDateConverter(dateFormat));
 		return this;
 	}
 
+	/**
+	 * The conversion service is only created when first needed, so that a builder given a shared service through
+	 * {@link #setFormattingConversionService(FormattingConversionService)} does not pay for creating its own.
+	 */
+	private FormattingConversionService getFormattingConversionService() {
+		if (formattingConversionService == null) {
+			formattingConversionService = new DefaultTupleConversionService();
+		}
+		return formattingConversionService;
+	}
+
+	/**
+	 * Return a conversion service of this builder only, copying the shared default one if needed.
+	 */
+	private FormattingConversionService getModifiableConversionService() {
+		if (sharedConversionService) {
+			formattingConversionService = createDefaultConversionService();
+			sharedConversionService = false;
+		}
+		return getFormattingConversionService();
+	}
+
 	void addEntry(String k1, Object v1) {
 		names.add(k1);
 		values.add(v1);
@@ -149,7 +187,7 @@ public class TupleBuilder {
 	}
 
 	protected Tuple newTuple(List<String> names, List<Object> values) {
-		DefaultTuple tuple = new DefaultTuple(names, values, formattingConversionService);
+		DefaultTuple tuple = new DefaultTuple(names, values, getFormattingConversionService());
 		tuple.setTupleToStringConverter(tupleToStringConverter);
 		return tuple;
 	}
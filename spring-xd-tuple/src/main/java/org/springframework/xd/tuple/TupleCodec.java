@@ -0,0 +1,615 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.util.Assert;
+
+/**
+ * Compact binary encoding for {@link Tuple} payloads crossing a transport.
+ *
+ * Each encoded tuple starts with a header ({@code 'T'}, version) followed by a 64 bit schema fingerprint of the field
+ * names and a length-prefixed block containing the names themselves. Values follow in field order, each preceded by a
+ * one byte type tag; integral values are written as zig-zag varints. Both sides keep a bounded cache of the schemas
+ * they have seen, so the encoder does not re-encode the names block and the decoder does not re-decode it for a
+ * fingerprint it already knows.
+ *
+ * Without a {@link TupleSchemaDictionary} the names block is always present, so that every message can be decoded on
+ * its own, whichever consumer receives it. With one, the encoder registers each schema in the dictionary once and
+ * then writes an empty names block, and decoders resolve fingerprints they do not know from the dictionary.
+ *
+ * Supported value types are {@code null}, String, Boolean, Character, Byte, Short, Integer, Long, Float, Double,
+ * BigInteger, BigDecimal, Date, byte[], nested {@link Tuple}s and Lists of any of these. Encoding any other type fails
+ * with an {@link IllegalArgumentException}, allowing callers to fall back to another representation.
+ *
+ * Instances are thread safe.
+ */
+public class TupleCodec {
+
+	private static final byte MAGIC = 'T';
+
+	private static final byte VERSION = 1;
+
+	private static final int DEFAULT_MAX_CACHED_SCHEMAS = 1024;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final byte NULL = 0;
+
+	private static final byte STRING = 1;
+
+	private static final byte BOOLEAN_TRUE = 2;
+
+	private static final byte BOOLEAN_FALSE = 3;
+
+	private static final byte CHAR = 4;
+
+	private static final byte BYTE = 5;
+
+	private static final byte SHORT = 6;
+
+	private static final byte INT = 7;
+
+	private static final byte LONG = 8;
+
+	private static final byte FLOAT = 9;
+
+	private static final byte DOUBLE = 10;
+
+	private static final byte BIG_INTEGER = 11;
+
+	private static final byte BIG_DECIMAL = 12;
+
+	private static final byte DATE = 13;
+
+	private static final byte BYTES = 14;
+
+	private static final byte TUPLE = 15;
+
+	private static final byte LIST = 16;
+
+	private final ConcurrentMap<List<String>, Schema> encodingSchemas = new ConcurrentHashMap<List<String>, Schema>();
+
+	private final ConcurrentMap<Long, Schema> decodingSchemas = new ConcurrentHashMap<Long, Schema>();
+
+	private volatile int maxCachedSchemas = DEFAULT_MAX_CACHED_SCHEMAS;
+
+	private volatile TupleSchemaDictionary schemaDictionary;
+
+	/**
+	 * Set the maximum number of distinct schemas cached in each direction; when exceeded, the cache is cleared.
+	 * Defaults to 1024.
+	 *
+	 * @param maxCachedSchemas the maximum number of schemas to cache
+	 */
+	public void setMaxCachedSchemas(int maxCachedSchemas) {
+		Assert.isTrue(maxCachedSchemas > 0, "'maxCachedSchemas' must be greater than 0");
+		this.maxCachedSchemas = maxCachedSchemas;
+	}
+
+	/**
+	 * Set the dictionary shared by the encoders and decoders of a transport, so that the field names of a schema are
+	 * sent once rather than in every message. Every codec decoding the output of this one must use the same
+	 * dictionary.
+	 *
+	 * @param schemaDictionary the dictionary, or null to always send the field names
+	 */
+	public void setSchemaDictionary(TupleSchemaDictionary schemaDictionary) {
+		this.schemaDictionary = schemaDictionary;
+	}
+
+	/**
+	 * Encode a tuple.
+	 *
+	 * @param tuple the tuple
+	 * @return the encoded bytes
+	 * @throws IllegalArgumentException if the tuple contains a value of an unsupported type
+	 */
+	public byte[] encode(Tuple tuple) {
+		Assert.notNull(tuple, "'tuple' cannot be null");
+		Output out = new Output(64 + tuple.size() * 16);
+		out.writeByte(MAGIC);
+		out.writeByte(VERSION);
+		writeTuple(tuple, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decode bytes previously produced by {@link #encode(Tuple)}.
+	 *
+	 * @param bytes the encoded tuple
+	 * @return the tuple
+	 * @throws IllegalArgumentException if the bytes are not a valid encoded tuple
+	 */
+	public Tuple decode(byte[] bytes) {
+		Assert.notNull(bytes, "'bytes' cannot be null");
+		if (!isEncodedTuple(bytes)) {
+			throw new IllegalArgumentException("Not an encoded tuple");
+		}
+		Input in = new Input(bytes, 2);
+		try {
+			Tuple tuple = readTuple(in);
+			if (in.position != bytes.length) {
+				throw new IllegalArgumentException("Unexpected trailing bytes in encoded tuple");
+			}
+			return tuple;
+		}
+		catch (ArrayIndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Truncated encoded tuple", e);
+		}
+	}
+
+	/**
+	 * @param bytes the bytes to check
+	 * @return true if the bytes start with a header this codec can decode
+	 */
+	public boolean isEncodedTuple(byte[] bytes) {
+		return bytes != null && bytes.length >= 2 && bytes[0] == MAGIC && bytes[1] == VERSION;
+	}
+
+	private void writeTuple(Tuple tuple, Output out) {
+		Schema schema = encodingSchemaFor(tuple.getFieldNames());
+		out.writeLong(schema.fingerprint);
+		if (isRegistered(schema)) {
+			// a names block is never empty, it starts with the number of names
+			out.writeVarInt(0);
+		}
+		else {
+			out.writeVarInt(schema.namesBlock.length);
+			out.writeBytes(schema.namesBlock, 0, schema.namesBlock.length);
+		}
+		List<Object> values = tuple.getValues();
+		for (int i = 0; i < values.size(); i++) {
+			writeValue(values.get(i), out);
+		}
+	}
+
+	private Tuple readTuple(Input in) {
+		long fingerprint = in.readLong();
+		int namesLength = in.readVarInt();
+		if (namesLength < 0 || namesLength > in.remaining()) {
+			throw new IllegalArgumentException("Truncated encoded tuple");
+		}
+		Schema schema = (namesLength == 0) ? registeredSchemaFor(fingerprint) : decodingSchemaFor(fingerprint,
+				in.bytes, in.position, namesLength);
+		in.position += namesLength;
+		List<String> names = schema.names;
+		List<Object> values = new ArrayList<Object>(names.size());
+		for (int i = 0; i < names.size(); i++) {
+			values.add(readValue(in));
+		}
+		return TupleBuilder.tuple().ofNamesAndValues(names, values);
+	}
+
+	private void writeValue(Object value, Output out) {
+		if (value == null) {
+			out.writeByte(NULL);
+		}
+		else if (value instanceof String) {
+			out.writeByte(STRING);
+			out.writeString((String) value);
+		}
+		else if (value instanceof Integer) {
+			out.writeByte(INT);
+			out.writeVarLong(zigZag((Integer) value));
+		}
+		else if (value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeVarLong(zigZag((Long) value));
+		}
+		else if (value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeLong(Double.doubleToLongBits((Double) value));
+		}
+		else if (value instanceof Boolean) {
+			out.writeByte(((Boolean) value) ? BOOLEAN_TRUE : BOOLEAN_FALSE);
+		}
+		else if (value instanceof Tuple) {
+			out.writeByte(TUPLE);
+			writeTuple((Tuple) value, out);
+		}
+		else if (value instanceof Date) {
+			out.writeByte(DATE);
+			out.writeVarLong(zigZag(((Date) value).getTime()));
+		}
+		else if (value instanceof Float) {
+			out.writeByte(FLOAT);
+			out.writeInt(Float.floatToIntBits((Float) value));
+		}
+		else if (value instanceof Short) {
+			out.writeByte(SHORT);
+			out.writeVarLong(zigZag((Short) value));
+		}
+		else if (value instanceof Byte) {
+			out.writeByte(BYTE);
+			out.writeByte((Byte) value);
+		}
+		else if (value instanceof Character) {
+			out.writeByte(CHAR);
+			out.writeVarInt((Character) value);
+		}
+		else if (value instanceof BigDecimal) {
+			BigDecimal decimal = (BigDecimal) value;
+			out.writeByte(BIG_DECIMAL);
+			out.writeVarLong(zigZag(decimal.scale()));
+			byte[] unscaled = decimal.unscaledValue().toByteArray();
+			out.writeVarInt(unscaled.length);
+			out.writeBytes(unscaled, 0, unscaled.length);
+		}
+		else if (value instanceof BigInteger) {
+			byte[] bigInteger = ((BigInteger) value).toByteArray();
+			out.writeByte(BIG_INTEGER);
+			out.writeVarInt(bigInteger.length);
+			out.writeBytes(bigInteger, 0, bigInteger.length);
+		}
+		else if (value instanceof byte[]) {
+			byte[] bytes = (byte[]) value;
+			out.writeByte(BYTES);
+			out.writeVarInt(bytes.length);
+			out.writeBytes(bytes, 0, bytes.length);
+		}
+		else if (value instanceof List) {
+			List<?> list = (List<?>) value;
+			out.writeByte(LIST);
+			out.writeVarInt(list.size());
+			for (Object item : list) {
+				writeValue(item, out);
+			}
+		}
+		else {
+			throw new IllegalArgumentException("Cannot encode value of type " + value.getClass().getName());
+		}
+	}
+
+	private Object readValue(Input in) {
+		byte type = in.readByte();
+		switch (type) {
+			case NULL:
+				return null;
+			case STRING:
+				return in.readString();
+			case BOOLEAN_TRUE:
+				return Boolean.TRUE;
+			case BOOLEAN_FALSE:
+				return Boolean.FALSE;
+			case CHAR:
+				return Character.valueOf((char) in.readVarInt());
+			case BYTE:
+				return Byte.valueOf(in.readByte());
+			case SHORT:
+				return Short.valueOf((short) unZigZag(in.readVarLong()));
+			case INT:
+				return Integer.valueOf((int) unZigZag(in.readVarLong()));
+			case LONG:
+				return Long.valueOf(unZigZag(in.readVarLong()));
+			case FLOAT:
+				return Float.valueOf(Float.intBitsToFloat(in.readInt()));
+			case DOUBLE:
+				return Double.valueOf(Double.longBitsToDouble(in.readLong()));
+			case BIG_INTEGER:
+				return new BigInteger(in.readBytes(in.readVarInt()));
+			case BIG_DECIMAL:
+				int scale = (int) unZigZag(in.readVarLong());
+				return new BigDecimal(new BigInteger(in.readBytes(in.readVarInt())), scale);
+			case DATE:
+				return new Date(unZigZag(in.readVarLong()));
+			case BYTES:
+				return in.readBytes(in.readVarInt());
+			case TUPLE:
+				return readTuple(in);
+			case LIST:
+				// each item takes at least one byte, which bounds the size of the list before allocating it
+				int size = in.readVarInt();
+				if (size < 0 || size > in.remaining()) {
+					throw new IllegalArgumentException("Truncated encoded tuple");
+				}
+				List<Object> list = new ArrayList<Object>(size);
+				for (int i = 0; i < size; i++) {
+					list.add(readValue(in));
+				}
+				return list;
+			default:
+				throw new IllegalArgumentException("Unknown value type " + type + " in encoded tuple");
+		}
+	}
+
+	private Schema encodingSchemaFor(List<String> names) {
+		Schema schema = this.encodingSchemas.get(names);
+		if (schema == null) {
+			List<String> key = Collections.unmodifiableList(new ArrayList<String>(names));
+			Output out = new Output(names.size() * 16);
+			out.writeVarInt(key.size());
+			for (String name : key) {
+				out.writeString(name);
+			}
+			byte[] namesBlock = out.toByteArray();
+			schema = new Schema(fingerprint(namesBlock, 0, namesBlock.length), namesBlock, key);
+			cache(this.encodingSchemas, key, schema);
+		}
+		return schema;
+	}
+
+	/*
+	 * The names block is compared byte for byte with the cached schema, so a fingerprint collision can never yield the
+	 * wrong field names.
+	 */
+	private Schema decodingSchemaFor(long fingerprint, byte[] bytes, int offset, int length) {
+		Long key = Long.valueOf(fingerprint);
+		Schema schema = this.decodingSchemas.get(key);
+		if (schema != null && schema.matches(bytes, offset, length)) {
+			return schema;
+		}
+		Input in = new Input(bytes, offset);
+		int count = in.readVarInt();
+		// each name takes at least one byte
+		if (count < 0 || count > length) {
+			throw new IllegalArgumentException("Corrupt field names in encoded tuple");
+		}
+		List<String> names = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			names.add(in.readString());
+		}
+		if (in.position != offset + length) {
+			throw new IllegalArgumentException("Corrupt field names in encoded tuple");
+		}
+		byte[] namesBlock = new byte[length];
+		System.arraycopy(bytes, offset, namesBlock, 0, length);
+		schema = new Schema(fingerprint, namesBlock, Collections.unmodifiableList(names));
+		cache(this.decodingSchemas, key, schema);
+		return schema;
+	}
+
+	/**
+	 * Register the schema in the dictionary unless it was already, and return whether its names can be left out.
+	 */
+	private boolean isRegistered(Schema schema) {
+		TupleSchemaDictionary dictionary = this.schemaDictionary;
+		if (dictionary == null || schema.collides) {
+			return false;
+		}
+		if (!schema.registered) {
+			byte[] registered = dictionary.register(schema.fingerprint, schema.namesBlock);
+			if (registered != null && !schema.matches(registered, 0, registered.length)) {
+				// another schema has the same fingerprint, keep sending the names of this one
+				schema.collides = true;
+				return false;
+			}
+			schema.registered = true;
+		}
+		return true;
+	}
+
+	private Schema registeredSchemaFor(long fingerprint) {
+		Schema schema = this.decodingSchemas.get(Long.valueOf(fingerprint));
+		if (schema != null) {
+			return schema;
+		}
+		TupleSchemaDictionary dictionary = this.schemaDictionary;
+		byte[] namesBlock = (dictionary != null) ? dictionary.lookup(fingerprint) : null;
+		if (namesBlock == null || namesBlock.length == 0) {
+			throw new IllegalArgumentException("Unknown schema " + Long.toHexString(fingerprint)
+					+ " in encoded tuple");
+		}
+		return decodingSchemaFor(fingerprint, namesBlock, 0, namesBlock.length);
+	}
+
+	private <K> void cache(ConcurrentMap<K, Schema> cache, K key, Schema schema) {
+		if (cache.size() >= this.maxCachedSchemas) {
+			cache.clear();
+		}
+		cache.put(key, schema);
+	}
+
+	/*
+	 * 64 bit FNV-1a
+	 */
+	private static long fingerprint(byte[] bytes, int offset, int length) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = offset; i < offset + length; i++) {
+			hash ^= (bytes[i] & 0xff);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static class Schema {
+
+		private final long fingerprint;
+
+		private final byte[] namesBlock;
+
+		private final List<String> names;
+
+		private volatile boolean registered;
+
+		private volatile boolean collides;
+
+		private Schema(long fingerprint, byte[] namesBlock, List<String> names) {
+			this.fingerprint = fingerprint;
+			this.namesBlock = namesBlock;
+			this.names = names;
+		}
+
+		private boolean matches(byte[] bytes, int offset, int length) {
+			if (length != this.namesBlock.length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (this.namesBlock[i] != bytes[offset + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static class Output {
+
+		private byte[] buffer;
+
+		private int position;
+
+		private Output(int initialCapacity) {
+			this.buffer = new byte[Math.max(initialCapacity, 16)];
+		}
+
+		private void ensureCapacity(int extra) {
+			if (this.position + extra > this.buffer.length) {
+				byte[] newBuffer = new byte[Math.max(this.buffer.length << 1, this.position + extra)];
+				System.arraycopy(this.buffer, 0, newBuffer, 0, this.position);
+				this.buffer = newBuffer;
+			}
+		}
+
+		private void writeByte(int b) {
+			ensureCapacity(1);
+			this.buffer[this.position++] = (byte) b;
+		}
+
+		private void writeBytes(byte[] bytes, int offset, int length) {
+			ensureCapacity(length);
+			System.arraycopy(bytes, offset, this.buffer, this.position, length);
+			this.position += length;
+		}
+
+		private void writeInt(int value) {
+			ensureCapacity(4);
+			for (int shift = 24; shift >= 0; shift -= 8) {
+				this.buffer[this.position++] = (byte) (value >>> shift);
+			}
+		}
+
+		private void writeLong(long value) {
+			ensureCapacity(8);
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				this.buffer[this.position++] = (byte) (value >>> shift);
+			}
+		}
+
+		private void writeVarInt(int value) {
+			writeVarLong(value & 0xffffffffL);
+		}
+
+		private void writeVarLong(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7fL) != 0) {
+				this.buffer[this.position++] = (byte) ((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			this.buffer[this.position++] = (byte) value;
+		}
+
+		private void writeString(String value) {
+			byte[] bytes = value.getBytes(UTF8);
+			writeVarInt(bytes.length);
+			writeBytes(bytes, 0, bytes.length);
+		}
+
+		private byte[] toByteArray() {
+			byte[] bytes = new byte[this.position];
+			System.arraycopy(this.buffer, 0, bytes, 0, this.position);
+			return bytes;
+		}
+	}
+
+	private static class Input {
+
+		private final byte[] bytes;
+
+		private int position;
+
+		private Input(byte[] bytes, int position) {
+			this.bytes = bytes;
+			this.position = position;
+		}
+
+		private int remaining() {
+			return this.bytes.length - this.position;
+		}
+
+		private byte readByte() {
+			return this.bytes[this.position++];
+		}
+
+		private byte[] readBytes(int length) {
+			if (length < 0 || this.position + length > this.bytes.length) {
+				throw new IllegalArgumentException("Truncated encoded tuple");
+			}
+			byte[] result = new byte[length];
+			System.arraycopy(this.bytes, this.position, result, 0, length);
+			this.position += length;
+			return result;
+		}
+
+		private int readInt() {
+			int value = 0;
+			for (int i = 0; i < 4; i++) {
+				value = (value << 8) | (this.bytes[this.position++] & 0xff);
+			}
+			return value;
+		}
+
+		private long readLong() {
+			long value = 0;
+			for (int i = 0; i < 8; i++) {
+				value = (value << 8) | (this.bytes[this.position++] & 0xff);
+			}
+			return value;
+		}
+
+		private int readVarInt() {
+			return (int) readVarLong();
+		}
+
+		private long readVarLong() {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				byte b = this.bytes[this.position++];
+				value |= (long) (b & 0x7f) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IllegalArgumentException("Malformed varint in encoded tuple");
+		}
+
+		private String readString() {
+			int length = readVarInt();
+			if (length < 0 || this.position + length > this.bytes.length) {
+				throw new IllegalArgumentException("Truncated encoded tuple");
+			}
+			String value = new String(this.bytes, this.position, length, UTF8);
+			this.position += length;
+			return value;
+		}
+	}
+
+}
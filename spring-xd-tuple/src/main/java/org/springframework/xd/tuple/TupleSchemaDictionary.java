@@ -0,0 +1,39 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+/**
+ * A store of the field names of the tuple schemas a {@link TupleCodec} has encoded, shared by every codec decoding its
+ * output, so that the names do not have to be sent with each tuple.
+ *
+ * @since 1.0
+ */
+public interface TupleSchemaDictionary {
+
+	/**
+	 * Store the encoded field names of a schema, unless names are already stored for its fingerprint.
+	 *
+	 * @param fingerprint the fingerprint of the schema
+	 * @param namesBlock the encoded field names
+	 * @return the names already stored for the fingerprint, or null if these were stored
+	 */
+	byte[] register(long fingerprint, byte[] namesBlock);
+
+	/**
+	 * @param fingerprint the fingerprint of a schema
+	 * @return the encoded field names stored for the fingerprint, or null if there are none
+	 */
+	byte[] lookup(long fingerprint);
+
+}
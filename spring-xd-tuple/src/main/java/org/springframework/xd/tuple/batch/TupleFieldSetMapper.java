@@ -17,12 +17,22 @@
 package org.springframework.xd.tuple.batch;
 
 import java.text.DateFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import org.springframework.batch.item.file.mapping.FieldSetMapper;
 import org.springframework.batch.item.file.transform.FieldSet;
+import org.springframework.format.support.FormattingConversionService;
 import org.springframework.util.CollectionUtils;
 import org.springframework.validation.BindException;
+import org.springframework.xd.tuple.DefaultTupleConversionService;
+import org.springframework.xd.tuple.LocaleAwareStringToNumberConverterFactory;
+import org.springframework.xd.tuple.StringToDateConverter;
 import org.springframework.xd.tuple.Tuple;
 import org.springframework.xd.tuple.TupleBuilder;
 
@@ -32,17 +42,25 @@ import org.springframework.xd.tuple.TupleBuilder;
  * to {@link FieldSetType}. You are not required to map all fields if using type specific mappings (only the ones that
  * matter).
  * 
+ * The names and types are resolved to a per-index mapping plan when the first {@link FieldSet} is mapped (and again
+ * only if a later one has different names); fields are then read by index and all tuples created by this mapper share
+ * a single conversion service.
+ * 
  * @author Michael Minella
  * 
  */
 public class TupleFieldSetMapper implements FieldSetMapper<Tuple> {
 
+	private final static Locale DEFAULT_LOCALE = Locale.US;
+
 	// TODO: Is one date format good enough or will we need to be able to map formats to fields?
 	private DateFormat dateFormat;
 
 	// TODO: Currently this is bound by the convenience methods on the Tuple object. Is custom conversion necessary?
 	private Map<String, FieldSetType> types;
 
+	private volatile MappingPlan plan;
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -50,67 +68,52 @@ public class TupleFieldSetMapper implements FieldSetMapper<Tuple> {
 	 */
 	@Override
 	public Tuple mapFieldSet(FieldSet fieldSet) throws BindException {
-		String[] names = fieldSet.getNames();
-
-		TupleBuilder builder = TupleBuilder.tuple();
-
-		if (dateFormat != null) {
-			builder.setDateFormat(dateFormat);
+		MappingPlan plan = getPlan(fieldSet.getNames());
+		FieldSetType[] fieldTypes = plan.types;
+		List<Object> values = new ArrayList<Object>(fieldTypes.length);
+		for (int i = 0; i < fieldTypes.length; i++) {
+			values.add(getValue(fieldSet, i, fieldTypes[i]));
 		}
+		return new TupleBuilder().setFormattingConversionService(plan.conversionService)
+				.ofNamesAndValues(plan.fieldNames, values);
+	}
 
-		for (int i = 0; i < fieldSet.getFieldCount(); i++) {
-			builder.put(names[i], getValue(fieldSet, names[i]));
+	private MappingPlan getPlan(String[] names) {
+		MappingPlan plan = this.plan;
+		if (plan == null || !Arrays.equals(plan.names, names)) {
+			plan = new MappingPlan(names, types, dateFormat);
+			this.plan = plan;
 		}
-
-		return builder.build();
+		return plan;
 	}
 
-	private Object getValue(FieldSet fs, String name) {
-		if (!CollectionUtils.isEmpty(types)) {
-			FieldSetType type = types.get(name);
-
-			if (type == null) {
-				return fs.readString(name);
-			}
-			else if (type == FieldSetType.BIG_DECIMAL) {
-				return fs.readBigDecimal(name);
-			}
-			else if (type == FieldSetType.BOOLEAN) {
-				return fs.readBoolean(name);
-			}
-			else if (type == FieldSetType.BYTE) {
-				return fs.readByte(name);
-			}
-			else if (type == FieldSetType.CHAR) {
-				return fs.readChar(name);
-			}
-			else if (type == FieldSetType.DATE) {
-				return fs.readDate(name);
-			}
-			else if (type == FieldSetType.DOUBLE) {
-				return fs.readDouble(name);
-			}
-			else if (type == FieldSetType.FLOAT) {
-				return fs.readFloat(name);
-			}
-			else if (type == FieldSetType.INT) {
-				return fs.readInt(name);
-			}
-			else if (type == FieldSetType.LONG) {
-				return fs.readLong(name);
-			}
-			else if (type == FieldSetType.SHORT) {
-				return fs.readShort(name);
-			}
-			else if (type == FieldSetType.STRING) {
-				return fs.readString(name);
-			}
-			else {
-				throw new UnsupportedOperationException("Unable to determine the type to retrieve for " + name);
-			}
-		}
-		else {
-			return fs.readString(name);
+	private Object getValue(FieldSet fs, int index, FieldSetType type) {
+		switch (type) {
+			case STRING:
+				return fs.readString(index);
+			case BIG_DECIMAL:
+				return fs.readBigDecimal(index);
+			case BOOLEAN:
+				return fs.readBoolean(index);
+			case BYTE:
+				return fs.readByte(index);
+			case CHAR:
+				return fs.readChar(index);
+			case DATE:
+				return fs.readDate(index);
+			case DOUBLE:
+				return fs.readDouble(index);
+			case FLOAT:
+				return fs.readFloat(index);
+			case INT:
+				return fs.readInt(index);
+			case LONG:
+				return fs.readLong(index);
+			case SHORT:
+				return fs.readShort(index);
+			default:
+				throw new UnsupportedOperationException("Unable to determine the type to retrieve for "
+						+ fs.getNames()[index]);
 		}
 	}
 
@@ -121,6 +124,7 @@ public class TupleFieldSetMapper implements FieldSetMapper<Tuple> {
 	 */
 	public void setDateFormat(DateFormat formatter) {
 		this.dateFormat = formatter;
+		this.plan = null;
 	}
 
 	/**
@@ -130,5 +134,36 @@ public class TupleFieldSetMapper implements FieldSetMapper<Tuple> {
 	 */
 	public void setTypes(Map<String, FieldSetType> types) {
 		this.types = types;
+		this.plan = null;
+	}
+
+	/**
+	 * The field names and per-index types of a {@link FieldSet} layout, together with the conversion service shared by
+	 * all tuples mapped from it.
+	 */
+	private static class MappingPlan {
+
+		private final String[] names;
+
+		private final List<String> fieldNames;
+
+		private final FieldSetType[] types;
+
+		private final FormattingConversionService conversionService;
+
+		private MappingPlan(String[] names, Map<String, FieldSetType> typesByName, DateFormat dateFormat) {
+			this.names = names.clone();
+			this.fieldNames = Collections.unmodifiableList(Arrays.asList(this.names));
+			this.types = new FieldSetType[names.length];
+			for (int i = 0; i < names.length; i++) {
+				FieldSetType type = CollectionUtils.isEmpty(typesByName) ? null : typesByName.get(names[i]);
+				this.types[i] = (type == null) ? FieldSetType.STRING : type;
+			}
+			this.conversionService = new DefaultTupleConversionService();
+			this.conversionService.addConverterFactory(new LocaleAwareStringToNumberConverterFactory(
+					NumberFormat.getInstance(DEFAULT_LOCALE)));
+			this.conversionService.addConverter(dateFormat == null ? new StringToDateConverter()
+					: new StringToDateConverter(dateFormat));
+		}
 	}
 }
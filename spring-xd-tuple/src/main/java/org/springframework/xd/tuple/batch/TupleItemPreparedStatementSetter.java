@@ -0,0 +1,181 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple.batch;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.batch.item.database.ItemPreparedStatementSetter;
+import org.springframework.batch.item.database.JdbcBatchItemWriter;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.core.namedparam.EmptySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+import org.springframework.xd.tuple.Tuple;
+
+/**
+ * An {@link ItemPreparedStatementSetter} that binds {@link Tuple} values to a statement, for use with
+ * {@link JdbcBatchItemWriter} as an alternative to {@link TupleSqlParameterSourceProvider}.
+ *
+ * The statement is configured once, with named parameters ({@code :name}) matching tuple field names; the writer is
+ * given the equivalent positional statement from {@link #getSql()}. The parameter names are resolved to tuple field
+ * indexes once and re-resolved only when a tuple with different field names arrives; values are then read by index,
+ * without conversion, and bound with the setter matching their type. Without a statement, all tuple values are bound
+ * in field order.
+ */
+public class TupleItemPreparedStatementSetter implements ItemPreparedStatementSetter<Tuple> {
+
+	private volatile String sql;
+
+	private volatile List<String> parameterNames;
+
+	private volatile Binding binding;
+
+	/**
+	 * The statement to bind, with named parameters matching tuple field names, e.g.
+	 * {@code insert into foo (name, count) values (:name, :count)}.
+	 *
+	 * @param sql the statement
+	 */
+	public void setSql(String sql) {
+		if (sql == null) {
+			this.sql = null;
+			this.parameterNames = null;
+		}
+		else {
+			ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+			EmptySqlParameterSource parameterSource = new EmptySqlParameterSource();
+			List<String> parameterNames = new ArrayList<String>();
+			for (SqlParameter parameter : NamedParameterUtils.buildSqlParameterList(parsedSql, parameterSource)) {
+				parameterNames.add(parameter.getName());
+			}
+			this.sql = NamedParameterUtils.substituteNamedParameters(parsedSql, parameterSource);
+			this.parameterNames = parameterNames;
+		}
+		this.binding = null;
+	}
+
+	/**
+	 * The configured statement with its named parameters replaced by {@code ?} placeholders, for the writer.
+	 *
+	 * @return the positional statement, or {@code null} if none was set
+	 */
+	public String getSql() {
+		return this.sql;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.springframework.batch.item.database.ItemPreparedStatementSetter#setValues(T item, PreparedStatement ps)
+	 */
+	@Override
+	public void setValues(Tuple item, PreparedStatement ps) throws SQLException {
+		int[] indexes = getBinding(item.getFieldNames()).indexes;
+		List<Object> values = item.getValues();
+		for (int i = 0; i < indexes.length; i++) {
+			setValue(ps, i + 1, values.get(indexes[i]));
+		}
+	}
+
+	private Binding getBinding(List<String> fieldNames) {
+		Binding binding = this.binding;
+		if (binding == null || !binding.fieldNames.equals(fieldNames)) {
+			binding = new Binding(fieldNames, this.parameterNames);
+			this.binding = binding;
+		}
+		return binding;
+	}
+
+	private void setValue(PreparedStatement ps, int parameterIndex, Object value) throws SQLException {
+		if (value instanceof String) {
+			ps.setString(parameterIndex, (String) value);
+		}
+		else if (value instanceof Integer) {
+			ps.setInt(parameterIndex, (Integer) value);
+		}
+		else if (value instanceof Long) {
+			ps.setLong(parameterIndex, (Long) value);
+		}
+		else if (value instanceof Double) {
+			ps.setDouble(parameterIndex, (Double) value);
+		}
+		else if (value instanceof BigDecimal) {
+			ps.setBigDecimal(parameterIndex, (BigDecimal) value);
+		}
+		else if (value instanceof Boolean) {
+			ps.setBoolean(parameterIndex, (Boolean) value);
+		}
+		else if (value instanceof Float) {
+			ps.setFloat(parameterIndex, (Float) value);
+		}
+		else if (value instanceof Short) {
+			ps.setShort(parameterIndex, (Short) value);
+		}
+		else if (value instanceof Byte) {
+			ps.setByte(parameterIndex, (Byte) value);
+		}
+		else if (value instanceof Timestamp) {
+			ps.setTimestamp(parameterIndex, (Timestamp) value);
+		}
+		else if (value instanceof Date && value.getClass() == Date.class) {
+			ps.setTimestamp(parameterIndex, new Timestamp(((Date) value).getTime()));
+		}
+		else {
+			// nulls, java.sql date types, Character and anything else
+			StatementCreatorUtils.setParameterValue(ps, parameterIndex, SqlTypeValue.TYPE_UNKNOWN, value);
+		}
+	}
+
+	/**
+	 * The tuple index of each statement parameter, for tuples with a given set of field names.
+	 */
+	private static class Binding {
+
+		private final List<String> fieldNames;
+
+		private final int[] indexes;
+
+		private Binding(List<String> fieldNames, List<String> parameterNames) {
+			this.fieldNames = new ArrayList<String>(fieldNames);
+			if (parameterNames == null) {
+				this.indexes = new int[fieldNames.size()];
+				for (int i = 0; i < this.indexes.length; i++) {
+					this.indexes[i] = i;
+				}
+			}
+			else {
+				this.indexes = new int[parameterNames.size()];
+				for (int i = 0; i < this.indexes.length; i++) {
+					int index = fieldNames.indexOf(parameterNames.get(i));
+					if (index < 0) {
+						throw new IllegalArgumentException("No field '" + parameterNames.get(i)
+								+ "' in tuple with fields " + fieldNames);
+					}
+					this.indexes[i] = index;
+				}
+			}
+		}
+	}
+}
@@ -489,6 +489,15 @@ public class DefaultTupleTests {
 
 	}
 
+	@Test
+	public void testDateFormatOfOneBuilderDoesNotChangeTheDefault() throws ParseException {
+		Tuple custom = tuple().setDateFormat(new SimpleDateFormat("dd-MM-yyyy")).of("foo", "24-12-2013");
+		Tuple standard = tuple().of("foo", "2013-12-24");
+		Date expected = new SimpleDateFormat("yyyy-MM-dd").parse("2013-12-24");
+		assertEquals(expected, custom.getDate("foo"));
+		assertEquals(expected, standard.getDate("foo"));
+	}
+
 	@Test
 	public void testCollectionToTupleConversionFails() {
 		thrown.expect(ConverterNotFoundException.class);
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link TupleCodec}.
+ */
+public class TupleCodecTests {
+
+	private final TupleCodec codec = new TupleCodec();
+
+	@Test
+	public void testTypesRoundTrip() {
+		Date now = new Date();
+		Tuple tuple = TupleBuilder.tuple()
+				.put("string", "foo")
+				.put("int", -42)
+				.put("long", Long.MAX_VALUE)
+				.put("double", 1.5d)
+				.put("float", 2.5f)
+				.put("short", (short) 7)
+				.put("byte", (byte) -1)
+				.put("char", 'x')
+				.put("true", true)
+				.put("false", false)
+				.put("null", null)
+				.put("bigDecimal", new BigDecimal("-12345.6789"))
+				.put("bigInteger", new BigInteger("123456789012345678901234567890"))
+				.put("date", now)
+				.put("bytes", new byte[] { 1, 2, 3 })
+				.build();
+		Tuple decoded = codec.decode(codec.encode(tuple));
+		assertEquals(tuple.getFieldNames(), decoded.getFieldNames());
+		assertEquals("foo", decoded.getValue("string"));
+		assertEquals(Integer.valueOf(-42), decoded.getValue("int"));
+		assertEquals(Long.MAX_VALUE, decoded.getLong("long"));
+		assertEquals(Double.valueOf(1.5d), decoded.getValue("double"));
+		assertEquals(Float.valueOf(2.5f), decoded.getValue("float"));
+		assertEquals(Short.valueOf((short) 7), decoded.getValue("short"));
+		assertEquals(Byte.valueOf((byte) -1), decoded.getValue("byte"));
+		assertEquals(Character.valueOf('x'), decoded.getValue("char"));
+		assertEquals(Boolean.TRUE, decoded.getValue("true"));
+		assertEquals(Boolean.FALSE, decoded.getValue("false"));
+		assertNull(decoded.getValue("null"));
+		assertEquals(new BigDecimal("-12345.6789"), decoded.getValue("bigDecimal"));
+		assertEquals(new BigInteger("123456789012345678901234567890"), decoded.getValue("bigInteger"));
+		assertEquals(now, decoded.getValue("date"));
+		assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) decoded.getValue("bytes"));
+	}
+
+	@Test
+	public void testNestedTupleAndList() {
+		Tuple inner = TupleBuilder.tuple().of("name", "bar", "count", 3);
+		Tuple tuple = TupleBuilder.tuple().of("inner", inner, "list", Arrays.asList("a", 1, inner));
+		Tuple decoded = codec.decode(codec.encode(tuple));
+		assertEquals("bar", decoded.getTuple("inner").getString("name"));
+		assertEquals(3, decoded.getTuple("inner").getInt("count"));
+		List<?> list = (List<?>) decoded.getValue("list");
+		assertEquals(3, list.size());
+		assertEquals("a", list.get(0));
+		assertEquals(Integer.valueOf(1), list.get(1));
+		assertEquals("bar", ((Tuple) list.get(2)).getString("name"));
+	}
+
+	@Test
+	public void testSchemaSharedAcrossDecodes() {
+		Tuple first = TupleBuilder.tuple().of("symbol", "VMW", "price", 73);
+		Tuple second = TupleBuilder.tuple().of("symbol", "EMC", "price", 25);
+		byte[] firstBytes = codec.encode(first);
+		byte[] secondBytes = codec.encode(second);
+		assertEquals("VMW", codec.decode(firstBytes).getString("symbol"));
+		Tuple decoded = codec.decode(secondBytes);
+		assertEquals("EMC", decoded.getString("symbol"));
+		assertEquals(25, decoded.getInt("price"));
+		// a separate codec (another container) decodes the same bytes without any shared state
+		assertEquals("VMW", new TupleCodec().decode(firstBytes).getString("symbol"));
+	}
+
+	@Test
+	public void testSmallerThanJson() {
+		Tuple tuple = TupleBuilder.tuple().of("symbol", "VMW", "price", 73, "volume", 1000000L);
+		assertTrue(codec.encode(tuple).length < tuple.toString().getBytes().length);
+	}
+
+	@Test
+	public void testIsEncodedTuple() {
+		assertTrue(codec.isEncodedTuple(codec.encode(TupleBuilder.tuple().of("foo", "bar"))));
+		assertFalse(codec.isEncodedTuple("{\"foo\":\"bar\"}".getBytes()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedType() {
+		codec.encode(TupleBuilder.tuple().of("foo", new Object()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTruncated() {
+		byte[] bytes = codec.encode(TupleBuilder.tuple().of("foo", "bar"));
+		codec.decode(Arrays.copyOf(bytes, bytes.length - 2));
+	}
+
+	@Test
+	public void testSchemaDictionaryReplacesFieldNames() {
+		TupleSchemaDictionary dictionary = new MapSchemaDictionary();
+		TupleCodec encoder = new TupleCodec();
+		encoder.setSchemaDictionary(dictionary);
+		TupleCodec decoder = new TupleCodec();
+		decoder.setSchemaDictionary(dictionary);
+		Tuple tuple = TupleBuilder.tuple().of("symbol", "VMW", "price", 73);
+		byte[] bytes = encoder.encode(tuple);
+		assertTrue(bytes.length < codec.encode(tuple).length);
+		assertFalse(new String(bytes).contains("symbol"));
+		Tuple decoded = decoder.decode(bytes);
+		assertEquals(tuple.getFieldNames(), decoded.getFieldNames());
+		assertEquals("VMW", decoded.getString("symbol"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownSchemaWithoutDictionary() {
+		TupleCodec encoder = new TupleCodec();
+		encoder.setSchemaDictionary(new MapSchemaDictionary());
+		codec.decode(encoder.encode(TupleBuilder.tuple().of("foo", "bar")));
+	}
+
+	@Test
+	public void testSchemaCollisionKeepsSendingNames() {
+		TupleSchemaDictionary dictionary = new MapSchemaDictionary() {
+
+			@Override
+			public byte[] register(long fingerprint, byte[] namesBlock) {
+				return new byte[] { 1, 3, 'b', 'a', 'z' };
+			}
+		};
+		TupleCodec encoder = new TupleCodec();
+		encoder.setSchemaDictionary(dictionary);
+		byte[] bytes = encoder.encode(TupleBuilder.tuple().of("foo", "bar"));
+		assertEquals("bar", codec.decode(bytes).getString("foo"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHugeListSizeIsRejectedBeforeAllocating() {
+		byte[] bytes = codec.encode(TupleBuilder.tuple().of("list", Arrays.asList()));
+		// replace the size of the empty list, its last byte, with Integer.MAX_VALUE
+		byte[] corrupt = Arrays.copyOf(bytes, bytes.length + 4);
+		System.arraycopy(new byte[] { (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07 }, 0, corrupt,
+				bytes.length - 1, 5);
+		codec.decode(corrupt);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHugeFieldCountIsRejectedBeforeAllocating() {
+		// header, fingerprint, then a names block of 5 bytes claiming Integer.MAX_VALUE names
+		byte[] bytes = new byte[] { 'T', 1, 0, 0, 0, 0, 0, 0, 0, 0, 5, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+			(byte) 0xff, 0x07 };
+		codec.decode(bytes);
+	}
+
+	private static class MapSchemaDictionary implements TupleSchemaDictionary {
+
+		private final Map<Long, byte[]> schemas = new HashMap<Long, byte[]>();
+
+		@Override
+		public byte[] register(long fingerprint, byte[] namesBlock) {
+			byte[] registered = schemas.get(fingerprint);
+			if (registered == null) {
+				schemas.put(fingerprint, namesBlock);
+			}
+			return registered;
+		}
+
+		@Override
+		public byte[] lookup(long fingerprint) {
+			return schemas.get(fingerprint);
+		}
+	}
+
+}
@@ -6,6 +6,8 @@ import static org.junit.Assert.assertEquals;
 import java.math.BigDecimal;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 
 import org.junit.Before;
@@ -74,6 +76,19 @@ public class TupleFieldSetMapperTests {
 		assertEquals("2007-06-23", result.getValue("field12"));
 	}
 
+	@Test
+	public void testFieldSetLayoutChange() throws Exception {
+		mapper.setTypes(Collections.singletonMap("count", FieldSetType.INT));
+		Tuple first = mapper.mapFieldSet(new DefaultFieldSet(new String[] { "foo", "1" }, new String[] { "name",
+			"count" }));
+		Tuple second = mapper.mapFieldSet(new DefaultFieldSet(new String[] { "2", "bar" }, new String[] { "count",
+			"name" }));
+		assertEquals(1, first.getValue("count"));
+		assertEquals("foo", first.getValue("name"));
+		assertEquals(2, second.getValue("count"));
+		assertEquals("bar", second.getValue("name"));
+		assertEquals(Arrays.asList("count", "name"), second.getFieldNames());
+	}
 
 	@Test
 	public void testCustomDateFormatting() throws Exception {
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import org.springframework.xd.tuple.Tuple;
+import org.springframework.xd.tuple.TupleBuilder;
+
+public class TupleItemPreparedStatementSetterTests {
+
+	private TupleItemPreparedStatementSetter setter;
+
+	@Mock
+	private PreparedStatement ps;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		setter = new TupleItemPreparedStatementSetter();
+	}
+
+	@Test
+	public void testFieldOrder() throws Exception {
+		Date date = new Date();
+		Tuple tuple = TupleBuilder.tuple().put("name", "foo").put("count", 3).put("total", 4L)
+				.put("price", new BigDecimal("1.5")).put("flag", true).put("when", date).build();
+		setter.setValues(tuple, ps);
+		verify(ps).setString(1, "foo");
+		verify(ps).setInt(2, 3);
+		verify(ps).setLong(3, 4L);
+		verify(ps).setBigDecimal(4, new BigDecimal("1.5"));
+		verify(ps).setBoolean(5, true);
+		verify(ps).setTimestamp(6, new Timestamp(date.getTime()));
+		verifyNoMoreInteractions(ps);
+	}
+
+	@Test
+	public void testNamedParameters() throws Exception {
+		setter.setSql("insert into foo (count, name) values (:count, :name)");
+		setter.setValues(TupleBuilder.tuple().of("name", "foo", "ignored", "bar", "count", 3), ps);
+		verify(ps).setInt(1, 3);
+		verify(ps).setString(2, "foo");
+		verifyNoMoreInteractions(ps);
+	}
+
+	@Test
+	public void testPositionalSql() throws Exception {
+		setter.setSql("update foo set count = :count where name = :name or alias = :name");
+		assertEquals("update foo set count = ? where name = ? or alias = ?", setter.getSql());
+		setter.setValues(TupleBuilder.tuple().of("name", "foo", "count", 3), ps);
+		verify(ps).setInt(1, 3);
+		verify(ps).setString(2, "foo");
+		verify(ps).setString(3, "foo");
+		verifyNoMoreInteractions(ps);
+	}
+
+	@Test
+	public void testFieldLayoutChange() throws Exception {
+		setter.setSql("insert into foo (name) values (:name)");
+		setter.setValues(TupleBuilder.tuple().of("name", "foo", "count", 3), ps);
+		setter.setValues(TupleBuilder.tuple().of("count", 4, "name", "bar"), ps);
+		verify(ps).setString(1, "foo");
+		verify(ps).setString(1, "bar");
+		verifyNoMoreInteractions(ps);
+	}
+
+	@Test
+	public void testNull() throws Exception {
+		setter.setValues(TupleBuilder.tuple().of("name", null), ps);
+		verify(ps).setNull(1, Types.NULL);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingField() throws Exception {
+		setter.setSql("insert into foo (missing) values (:missing)");
+		setter.setValues(TupleBuilder.tuple().of("name", "foo"), ps);
+	}
+}